@@ -0,0 +1,178 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.HTPMConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+
+/**
+ * Mines breadth-first like {@link HTPM} while the heap allows it, and continues depth-first like
+ * {@link HTPMDFSLowStorage} when the next generation would not fit.
+ * <br/>
+ * Before each generation, the occurrences it will have are projected: each pair of occurrences with the same
+ * parent occurrence in a partition yields at most one new occurrence, and the fraction of pairs that did
+ * in the previous generation is assumed to hold. If the used heap plus the projected occurrences exceeds
+ * the watermark, the partitions of the current generation are mined depth-first one by one, starting with
+ * the patterns of the next length. No pattern is generated or output twice, and the patterns of the current
+ * generation are released as their branches are done.
+ * <br/>
+ * The used heap includes garbage that was not collected yet, so the engine may switch earlier than necessary,
+ * but not later.
+ */
+public class AdaptiveHTPM extends HTPMDFSLowStorage {
+
+    /**
+     * The default fraction of the maximum heap that breadth-first mining may use.
+     */
+    public static final double DEFAULT_HEAP_WATERMARK = 0.7;
+
+    private final double heapWatermark;
+
+    private int switchLength;
+
+    /**
+     * Creates a new HTPM-Algorithm-Object that switches to depth-first mining at the default heap watermark.
+     *
+     * @param d          - The Database containing the series.
+     * @param constraint - The constraint determining the pre- and post-joining pruning behavior.
+     */
+    public AdaptiveHTPM(HybridEventSequenceDatabase d, HTPMConstraint constraint) {
+        this(d, constraint, DEFAULT_HEAP_WATERMARK);
+    }
+
+    /**
+     * Creates a new HTPM-Algorithm-Object.
+     *
+     * @param d             - The Database containing the series.
+     * @param constraint    - The constraint determining the pre- and post-joining pruning behavior.
+     * @param heapWatermark - The fraction of the maximum heap, between 0 and 1, that breadth-first mining may use.
+     */
+    public AdaptiveHTPM(HybridEventSequenceDatabase d, HTPMConstraint constraint, double heapWatermark) {
+        super(d, constraint);
+        if (!(heapWatermark >= 0 && heapWatermark <= 1)) {
+            throw new IllegalArgumentException("The heap watermark has to be between 0 and 1, but is " + heapWatermark);
+        }
+        this.heapWatermark = heapWatermark;
+    }
+
+    /**
+     * @return the length of the patterns from which on the last run mined depth-first,
+     * or 0 if it stayed breadth-first
+     */
+    public int getSwitchLength() {
+        return switchLength;
+    }
+
+    /**
+     * The method that actually runs the algorithm.
+     */
+    @Override
+    public void start() {
+        switchLength = 0;
+
+        if (!constraint.shouldGeneratePatternsOfLength(1)) {
+            return;
+        }
+
+        List<List<PatternOccurrence>> m = this.genL1();
+
+        prepareSelection();
+        output(m, 1);
+
+        //the fraction of occurrence pairs that yielded an occurrence in the last generation
+        double pairYield = 1;
+        int k = 2;
+
+        while (m.stream().anyMatch(partition -> !partition.isEmpty()) && constraint.shouldGeneratePatternsOfLength(k)) {
+            final long occurrencePairs = occurrencePairs(m);
+
+            if (exceedsWatermark((long) Math.ceil(occurrencePairs * pairYield), k)) {
+                switchLength = k;
+                continueDepthFirst(m, k);
+                return;
+            }
+
+            m = this.genLk(m, k);
+            output(m, k);
+
+            if (occurrencePairs > 0) {
+                pairYield = Math.min(1, (double) m.stream().mapToLong(HTPM::countOccurrences).sum() / occurrencePairs);
+            }
+            k++;
+        }
+    }
+
+    @Override
+    protected boolean joinsDepthFirst() {
+        //the depth-first part is not known in advance, so the progress is estimated as for breadth-first mining
+        return false;
+    }
+
+    /**
+     * Mines the partitions of a generation depth-first, one by one.
+     * @param generation all patterns of length k - 1, partitioned by pattern parent
+     * @param k the length of the patterns to generate
+     */
+    private void continueDepthFirst(List<List<PatternOccurrence>> generation, int k) {
+        if (constraint.fulfillsAprioriProperty()) {
+            //the sub-patterns of the next length are all known, the ones of longer patterns are not
+            rememberGeneration(generation, k - 1);
+        }
+        for (List<PatternOccurrence> partition : generation) {
+            //releases the patterns of the partition as their branches are done
+            if (!partition.isEmpty()) {
+                patternDFS(partition, k);
+            }
+        }
+    }
+
+    /**
+     * @param generation all patterns of one length, partitioned by pattern parent
+     * @return the number of pairs of occurrences with the same parent occurrence in the same partition,
+     * which bounds the number of occurrences of the next generation
+     */
+    static long occurrencePairs(List<List<PatternOccurrence>> generation) {
+        long pairs = 0;
+        for (List<PatternOccurrence> partition : generation) {
+            //the parents are indices of the occurrences of the partition's prefix
+            int numParents = 0;
+            for (PatternOccurrence po : partition) {
+                for (PatternOccurrence.OccurrenceTreeLink link : po.occurrences) {
+                    numParents = Math.max(numParents, link.parent + 1);
+                }
+            }
+            final int[] siblings = new int[numParents];
+            for (PatternOccurrence po : partition) {
+                for (PatternOccurrence.OccurrenceTreeLink link : po.occurrences) {
+                    siblings[link.parent]++;
+                }
+            }
+            for (int count : siblings) {
+                pairs += (long) count * (count - 1) / 2;
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * @param occurrences the projected number of occurrences of the next generation
+     * @param k the length of the patterns of the next generation
+     * @return true if the used heap and the projected occurrences exceed the watermark
+     */
+    private boolean exceedsWatermark(long occurrences, int k) {
+        final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        final long max = heap.getMax() < 0 ? Runtime.getRuntime().maxMemory() : heap.getMax();
+        return heap.getUsed() + (double) occurrences * occurrenceBytes(k) > heapWatermark * max;
+    }
+
+    /**
+     * @param k the length of the pattern
+     * @return the estimated size in bytes of an occurrence with its link in the occurrence tree:
+     * the link, the occurrence and its arrays of events and ranks with up to 2k occurrence points
+     */
+    static long occurrenceBytes(int k) {
+        return 112 + 24L * k;
+    }
+}
@@ -0,0 +1,54 @@
+package de.dbvis.htpm;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The order in which the depth-first engines explore the branches of a partition.
+ * <br/>
+ * The branch of a pattern consists of its joins with its later siblings and, depth-first, the branches of its children.
+ * Its cost is estimated by the number of occurrences of the pattern, which bounds the occurrence pairs of its joins
+ * and, in practice, the size of its sub-tree. The order does not change which patterns are found.
+ */
+public interface BranchSchedulingPolicy {
+
+    /**
+     * Sorts the patterns of a partition into the order in which their branches are explored.
+     * @param partition patterns with the same parent
+     */
+    void order(List<PatternOccurrence> partition);
+
+    /**
+     * Explores the branches in the order in which the patterns were found.
+     */
+    BranchSchedulingPolicy DISCOVERY_ORDER = partition -> {
+    };
+
+    /**
+     * Explores the most expensive branches first. For the fully parallel engine, the large sub-trees are forked early,
+     * so that no large task is left when the other threads run out of work.
+     */
+    BranchSchedulingPolicy LARGEST_COST_FIRST = partition ->
+            partition.sort(Comparator.comparingInt((PatternOccurrence po) -> po.occurrences.size()).reversed());
+
+    /**
+     * Explores the cheapest branches first. For the low storage engine, fewer occurrences of the siblings
+     * are held while the expensive branches are explored.
+     */
+    BranchSchedulingPolicy SMALLEST_COST_FIRST = partition ->
+            partition.sort(Comparator.comparingInt(po -> po.occurrences.size()));
+
+    /**
+     * Explores the branches of the patterns with the most supporting sequences first,
+     * which finds frequent patterns early, e.g. to raise the threshold of a top-k constraint.
+     */
+    BranchSchedulingPolicy SUPPORT_DESCENDING = partition -> {
+        final Map<PatternOccurrence, Long> numSupporting = new IdentityHashMap<>();
+        for (PatternOccurrence po : partition) {
+            numSupporting.put(po, po.occurrences.stream().map(link -> link.child.getHybridEventSequence()).distinct().count());
+        }
+        partition.sort(Comparator.comparing(numSupporting::get, Comparator.reverseOrder()));
+    };
+}
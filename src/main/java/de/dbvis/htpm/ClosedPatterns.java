@@ -0,0 +1,128 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.DefaultHybridTemporalPatternBuilder;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.htp.eventnodes.EventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEndEventNode;
+import de.dbvis.htpm.occurrence.Occurrence;
+
+import java.util.*;
+
+/**
+ * Closure checks on the occurrences of a pattern, used by the depth-first engines in {@link MiningMode#CLOSED}.
+ * <br/>
+ * A pattern is closed if no pattern with one more event occurs in all sequences the pattern occurs in
+ * (a super-pattern with more events and the same support contains such a pattern as well).
+ * The extensions of a pattern are built from its occurrences, each together with one other event of the sequence.
+ * This requires that the occurrences of a pattern are complete, as with support based constraints.
+ * <br/>
+ * Like the backward extension check of BIDE, a whole branch can be skipped:
+ * if every occurrence of a pattern can be extended by an event that ends before the last start of the occurrence,
+ * in the same way, then all patterns with this prefix can be extended in that way as well,
+ * because the events they add start after the last start of the prefix. None of them is closed.
+ */
+final class ClosedPatterns {
+
+    private ClosedPatterns() {
+    }
+
+    /**
+     * Checks whether a pattern is closed.
+     * @param po the pattern with all its occurrences
+     * @return true if no extension of the pattern by one event occurs in all sequences of the pattern
+     */
+    static boolean isClosed(PatternOccurrence po) {
+        final Map<HybridEventSequence, List<Occurrence>> bySequence = new LinkedHashMap<>();
+        for (PatternOccurrence.OccurrenceTreeLink link : po.occurrences) {
+            bySequence.computeIfAbsent(link.child.getHybridEventSequence(), s -> new ArrayList<>()).add(link.child);
+        }
+        if (bySequence.isEmpty()) {
+            return true;
+        }
+
+        //candidates come from the sequence with the fewest occurrences, the others are searched for them
+        final HybridEventSequence first = Collections.min(bySequence.keySet(),
+                Comparator.comparingInt(s -> bySequence.get(s).size()));
+        final Set<HybridTemporalPattern> candidates = new HashSet<>();
+        for (Occurrence o : bySequence.get(first)) {
+            candidates.addAll(extensions(o, Double.POSITIVE_INFINITY));
+        }
+
+        for (HybridEventSequence s : bySequence.keySet()) {
+            if (candidates.isEmpty()) {
+                return true;
+            }
+            if (s != first) {
+                candidates.removeIf(candidate -> !s.supports(candidate));
+            }
+        }
+        return candidates.isEmpty();
+    }
+
+    /**
+     * Checks whether no pattern of the branch of a pattern can be closed, including the pattern itself.
+     * @param po the prefix of the branch with all its occurrences
+     * @return true if all occurrences have the same extension by an event that ends before their last start
+     */
+    static boolean branchHasNoClosedPatterns(PatternOccurrence po) {
+        final int lastStart = lastStartIndex(po.pattern.getEventNodes());
+        Set<HybridTemporalPattern> common = null;
+        for (PatternOccurrence.OccurrenceTreeLink link : po.occurrences) {
+            final Occurrence o = link.child;
+            final Set<HybridTemporalPattern> extensions = extensions(o, startOf(o.get(lastStart)));
+            if (common == null) {
+                common = extensions;
+            } else {
+                common.retainAll(extensions);
+            }
+            if (common.isEmpty()) {
+                return false;
+            }
+        }
+        return common != null;
+    }
+
+    /**
+     * @return the patterns of the occurrence together with each other event of the sequence that ends before a time
+     */
+    private static Set<HybridTemporalPattern> extensions(Occurrence o, double endsBefore) {
+        final Set<HybridEvent> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<HybridEvent> events = new ArrayList<>(o.size() + 1);
+        for (HybridEvent e : o.ops()) {
+            if (used.add(e)) {
+                events.add(e);
+            }
+        }
+
+        final HybridEventSequence seq = o.getHybridEventSequence();
+        final Set<HybridTemporalPattern> extensions = new HashSet<>();
+        for (HybridEvent x : seq.getEvents()) {
+            if (used.contains(x) || endOf(x) >= endsBefore) {
+                continue;
+            }
+            events.add(x);
+            extensions.add(DefaultHybridTemporalPatternBuilder.buildFromHybridEventList(seq, events).getPattern());
+            events.remove(events.size() - 1);
+        }
+        return extensions;
+    }
+
+    private static int lastStartIndex(List<EventNode> nodes) {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            if (!(nodes.get(i) instanceof IntervalEndEventNode)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Pattern has no events");
+    }
+
+    private static double startOf(HybridEvent e) {
+        return e.isPointEvent() ? e.getTimePoint() : e.getStartPoint();
+    }
+
+    private static double endOf(HybridEvent e) {
+        return e.isPointEvent() ? e.getTimePoint() : e.getEndPoint();
+    }
+}
@@ -0,0 +1,91 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.htp.HTPUtils;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+
+import java.util.Arrays;
+
+/**
+ * A compact set of pattern fingerprints (see {@link HTPUtils#fingerprint(HybridTemporalPattern)}),
+ * stored in a single long array with open addressing.
+ * Fingerprints may collide, so a contained fingerprint only means that the pattern was probably added.
+ * <br/>
+ * Not thread-safe for writing, concurrent reads are fine once all fingerprints have been added.
+ */
+final class FingerprintSet {
+
+    /**
+     * marks an empty slot, a fingerprint with this value is stored in a flag instead
+     */
+    private static final long EMPTY = 0;
+
+    private long[] slots;
+    private int size;
+    private boolean containsEmpty;
+
+    FingerprintSet(int expectedSize) {
+        this.slots = new long[capacityFor(expectedSize)];
+    }
+
+    void add(HybridTemporalPattern pattern) {
+        add(HTPUtils.fingerprint(pattern));
+    }
+
+    void add(long fingerprint) {
+        if (fingerprint == EMPTY) {
+            containsEmpty = true;
+            return;
+        }
+        if ((size + 1) * 2 > slots.length) {
+            grow();
+        }
+        if (insert(slots, fingerprint)) {
+            size++;
+        }
+    }
+
+    boolean contains(long fingerprint) {
+        if (fingerprint == EMPTY) {
+            return containsEmpty;
+        }
+        final int mask = slots.length - 1;
+        for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+            final long slot = slots[i];
+            if (slot == fingerprint) {
+                return true;
+            } else if (slot == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    private void grow() {
+        final long[] newSlots = new long[slots.length * 2];
+        Arrays.stream(slots).filter(slot -> slot != EMPTY).forEach(slot -> insert(newSlots, slot));
+        slots = newSlots;
+    }
+
+    /**
+     * fingerprints are already well mixed, so the lower bits are used as hash
+     * @return true if the fingerprint was not contained before
+     */
+    private static boolean insert(long[] slots, long fingerprint) {
+        final int mask = slots.length - 1;
+        for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+            if (slots[i] == fingerprint) {
+                return false;
+            } else if (slots[i] == EMPTY) {
+                slots[i] = fingerprint;
+                return true;
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2 && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,170 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.DefaultOccurrence;
+import de.dbvis.htpm.occurrence.Occurrence;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes partitions of the depth-first frontier to temporary files and reads them back.
+ * <br/>
+ * A partition holds the children of one pattern, the occurrences of the children have the occurrences
+ * of that pattern as parents, which are written as their index in the occurrences of the pattern.
+ * The children are written like {@link ShardProtocol} writes patterns and occurrences, with their ranks.
+ * A partition can be written several times while it grows; each write appends a chunk.
+ * Reading a partition deletes its file, files of partitions that are not read have to be deleted with {@link #delete(Path)}.
+ */
+final class FrontierSpill {
+
+    private final HybridEventSequenceDatabase d;
+    private final boolean compress;
+    private final Map<HybridEventSequence, Integer> sequenceIndices = new IdentityHashMap<>();
+    private final Map<HybridEventSequence, Map<HybridEvent, Integer>> eventIndices = new IdentityHashMap<>();
+
+    /**
+     * @param d the database of the occurrences
+     * @param compress whether the files are compressed
+     */
+    FrontierSpill(HybridEventSequenceDatabase d, boolean compress) {
+        this.d = d;
+        this.compress = compress;
+        final List<HybridEventSequence> sequences = d.getSequences();
+        for (int i = 0; i < sequences.size(); i++) {
+            sequenceIndices.put(sequences.get(i), i);
+        }
+    }
+
+    /**
+     * Appends patterns to the file of a partition.
+     * @param file the file of the partition, null if it is written for the first time
+     * @param children the children
+     * @return the file of the partition
+     */
+    Path write(Path file, List<PatternOccurrence> children) {
+        final boolean created = file == null;
+        try {
+            if (created) {
+                file = Files.createTempFile("htpm-frontier", compress ? ".bin.gz" : ".bin");
+            }
+            final OutputStream stream = Files.newOutputStream(file, StandardOpenOption.APPEND);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    compress ? new GZIPOutputStream(stream) : stream))) {
+                out.writeInt(children.size());
+                for (PatternOccurrence po : children) {
+                    ShardProtocol.writePattern(out, po.pattern);
+                    out.writeInt(po.occurrences.size());
+                    for (PatternOccurrence.OccurrenceTreeLink link : po.occurrences) {
+                        writeOccurrence(out, link.parent, link.child);
+                    }
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            if (created && file != null) {
+                delete(file);
+            }
+            throw new UncheckedIOException("Could not write the frontier to " + file, e);
+        }
+    }
+
+    private void writeOccurrence(DataOutput out, int parentIndex, Occurrence o) throws IOException {
+        final HybridEventSequence s = o.getHybridEventSequence();
+        final Map<HybridEvent, Integer> indices = eventIndices.computeIfAbsent(s, ShardProtocol::indexEvents);
+        out.writeInt(parentIndex);
+        out.writeInt(sequenceIndices.get(s));
+        out.writeInt(o.size());
+        for (HybridEvent e : o.ops()) {
+            out.writeInt(indices.get(e));
+        }
+        out.writeBoolean(o.isRanked());
+        if (o.isRanked()) {
+            for (int i = 0; i < o.size(); i++) {
+                out.writeInt(o.getOrderRank(i));
+                out.writeInt(o.getTimeRank(i));
+            }
+        }
+    }
+
+    /**
+     * Reads all chunks of a partition and deletes its file.
+     * @param file the file of the partition
+     * @param parent the pattern whose children were written
+     * @return the children
+     */
+    List<PatternOccurrence> read(Path file, PatternOccurrence parent) {
+        final List<PatternOccurrence> children = new ArrayList<>();
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file));
+             DataInputStream in = new DataInputStream(compress ? new GZIPInputStream(stream) : stream)) {
+            int numPatterns;
+            while ((numPatterns = readChunkSize(in)) >= 0) {
+                for (int i = 0; i < numPatterns; i++) {
+                    final HybridTemporalPattern pattern = ShardProtocol.readPattern(in);
+                    final int numOccurrences = in.readInt();
+                    final PatternOccurrence po = new PatternOccurrence(parent.pattern, pattern, numOccurrences);
+                    for (int j = 0; j < numOccurrences; j++) {
+                        final int parentIndex = in.readInt();
+                        po.occurrences.add(new PatternOccurrence.OccurrenceTreeLink(parentIndex, readOccurrence(in)));
+                    }
+                    children.add(po);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the frontier from " + file, e);
+        } finally {
+            delete(file);
+        }
+        return children;
+    }
+
+    /**
+     * Deletes the file of a partition.
+     * @param file the file of the partition
+     * @return true if the file is gone, false if it could not be deleted
+     */
+    static boolean delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int readChunkSize(DataInputStream in) throws IOException {
+        try {
+            return in.readInt();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private Occurrence readOccurrence(DataInput in) throws IOException {
+        final HybridEventSequence s = d.getSequence(in.readInt());
+        final List<HybridEvent> events = s.getEvents();
+        final int size = in.readInt();
+        final List<HybridEvent> ops = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ops.add(events.get(in.readInt()));
+        }
+        if (!in.readBoolean()) {
+            return new DefaultOccurrence(s, ops);
+        }
+        final int[] orderRanks = new int[size];
+        final int[] timeRanks = new int[size];
+        for (int i = 0; i < size; i++) {
+            orderRanks[i] = in.readInt();
+            timeRanks[i] = in.readInt();
+        }
+        return new DefaultOccurrence(s, ops, orderRanks, timeRanks);
+    }
+}
@@ -3,22 +3,24 @@ package de.dbvis.htpm;
 import de.dbvis.htpm.constraints.HTPMConstraint;
 import de.dbvis.htpm.db.HybridEventSequenceDatabase;
 import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.OccurrencePointRanks;
 import de.dbvis.htpm.hes.events.HybridEvent;
 import de.dbvis.htpm.htp.DefaultHybridTemporalPatternBuilder;
 import de.dbvis.htpm.htp.HTPUtils;
 import de.dbvis.htpm.htp.HybridTemporalPattern;
 import de.dbvis.htpm.htp.eventnodes.EventNode;
+import de.dbvis.htpm.htp.eventnodes.EventNodeFactory;
 import de.dbvis.htpm.htp.eventnodes.IntervalEndEventNode;
-import de.dbvis.htpm.htp.eventnodes.IntervalStartEventNode;
-import de.dbvis.htpm.htp.eventnodes.PointEventNode;
-import de.dbvis.htpm.occurrence.DefaultOccurrence;
 import de.dbvis.htpm.occurrence.Occurrence;
 import de.dbvis.htpm.util.HTPMListener;
 import de.dbvis.htpm.util.HTPMOutputEvent;
 import de.dbvis.htpm.util.HTPMOutputListener;
+import de.dbvis.htpm.util.MiningMetrics;
+import de.dbvis.htpm.util.MiningProgress;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -64,6 +66,36 @@ public class HTPM implements TemporalPatternProducer {
 	protected List<List<List<PatternOccurrence>>> patterns;
 
 	protected final List<HTPMListener> listeners;
+
+	/**
+	 * Counters and timers of the internals of the run, updated by all threads
+	 */
+	protected final MiningMetrics metrics = new MiningMetrics();
+
+	/**
+	 * The explored and pending branches of the run, updated by all threads
+	 */
+	protected final MiningProgress progress = new MiningProgress();
+
+	/**
+	 * Placeholder for patterns that were pruned when they were first found in a join, their occurrences are dropped
+	 */
+	private static final PatternOccurrence PRUNED = new PatternOccurrence(null, null, 0);
+
+	/**
+	 * Fingerprints of the patterns of the previous generation, to prune patterns with infrequent sub-patterns
+	 */
+	private FingerprintSet previousGeneration;
+
+	/**
+	 * The length of the patterns of the previous generation
+	 */
+	private int previousGenerationLength;
+
+	/**
+	 * Stores the occurrences of the found patterns outside of the heap, null to store them on the heap
+	 */
+	private OffHeapOccurrences offHeapOccurrences;
 	
 	/**
 	 * Creates a new HTPM-Algorithm-Object.
@@ -92,6 +124,17 @@ public class HTPM implements TemporalPatternProducer {
 		this.threadPoolSize = threadPoolSize;
 	}
 
+	/**
+	 * Sets whether the occurrences of the found patterns are stored outside of the heap, in direct buffers,
+	 * so that the heap does not grow with the number of occurrences. The database must not change while mining.
+	 * Reading the occurrences of a pattern is slower, and the size of the stored occurrences is limited by
+	 * -XX:MaxDirectMemorySize instead of the heap.
+	 * @param offHeap - Whether occurrences are stored outside of the heap, false by default.
+	 */
+	public void setOffHeapOccurrences(boolean offHeap) {
+		this.offHeapOccurrences = offHeap ? new OffHeapOccurrences(d) : null;
+	}
+
 	/**
 	 * This method aligns two pattern according to "Example 7 (Joining two occurrence records)."
 	 *
@@ -106,6 +149,20 @@ public class HTPM implements TemporalPatternProducer {
 	public static DefaultHybridTemporalPatternBuilder ORAlign(final HybridTemporalPattern prefix,
 															  final HybridTemporalPattern p1, final Occurrence or1,
 															  final HybridTemporalPattern p2, final Occurrence or2, int k) {
+		return ORAlign(prefix, p1, or1, p2, or2,
+				new DefaultHybridTemporalPatternBuilder(or1.getHybridEventSequence(), k));
+	}
+
+	/**
+	 * Aligns two patterns like {@link #ORAlign(HybridTemporalPattern, HybridTemporalPattern, Occurrence,
+	 * HybridTemporalPattern, Occurrence, int)}, into an empty builder.
+	 * @param b - The builder for the sequence of the occurrences, e.g. reset from a previous alignment.
+	 * @return Returns the given builder.
+	 */
+	public static DefaultHybridTemporalPatternBuilder ORAlign(final HybridTemporalPattern prefix,
+															  final HybridTemporalPattern p1, final Occurrence or1,
+															  final HybridTemporalPattern p2, final Occurrence or2,
+															  final DefaultHybridTemporalPatternBuilder b) {
 		int i1 = 0;
 		int i2 = 0;
 		int ip = 0;
@@ -121,10 +178,11 @@ public class HTPM implements TemporalPatternProducer {
 			pre = Collections.emptyList();
 		}
 
-		DefaultHybridTemporalPatternBuilder b = new DefaultHybridTemporalPatternBuilder(or1.getHybridEventSequence(), k);
-
 		boolean foundPrefix = false;
 
+		//ranked occurrences can be merged by comparing integer ranks only
+		final boolean ranked = or1.isRanked() && or2.isRanked();
+
 		while (i1 < pa1.size() && i2 < pa2.size()) {
 			final HybridEvent op1 = or1.get(i1);
 			final HybridEvent op2 = or2.get(i2);
@@ -132,7 +190,32 @@ public class HTPM implements TemporalPatternProducer {
 			final EventNode n2 = pa2.get(i2);
 			final EventNode nP = pre.size() > ip ? pre.get(ip) : null;
 
-			if (n1.equals(nP) && n2.equals(nP) && op1.equals(op2)) {
+			if (ranked) {
+				final int r1 = or1.getOrderRank(i1);
+				final int r2 = or2.getOrderRank(i2);
+
+				if (r1 == r2 && n1.equals(nP) && n2.equals(nP) && (op1 == op2 || op1.equals(op2))) {
+					//both nodes are part of the "prefix", so it does not matter what we append
+					b.append(0, n1, op1, r1, or1.getTimeRank(i1));
+					i1++;
+					i2++;
+					ip++;
+				} else if (HTPUtils.compareRankedOccurrencePoints(r1, n1, r2, n2) < 0) {
+					if (!foundPrefix) {
+						b.setPrefixes(p1, or1);
+						foundPrefix = true;
+					}
+					b.append(0, n1, op1, r1, or1.getTimeRank(i1));
+					i1++;
+				} else {
+					if (!foundPrefix) {
+						b.setPrefixes(p2, or2);
+						foundPrefix = true;
+					}
+					b.append(1, n2, op2, r2, or2.getTimeRank(i2));
+					i2++;
+				}
+			} else if (n1.equals(nP) && n2.equals(nP) && op1.equals(op2)) {
 				//both nodes are part of the "prefix", so it does not matter what we append
 				b.append(0, n1, op1);
 				i1++;
@@ -157,12 +240,20 @@ public class HTPM implements TemporalPatternProducer {
 
 		if (i1 < pa1.size()) {
 			do {
-				b.append(0, pa1.get(i1), or1.get(i1));
+				if (ranked) {
+					b.append(0, pa1.get(i1), or1.get(i1), or1.getOrderRank(i1), or1.getTimeRank(i1));
+				} else {
+					b.append(0, pa1.get(i1), or1.get(i1));
+				}
 				i1++;
 			} while (i1 < pa1.size());
 		} else if (i2 < pa2.size()) {
 			do {
-				b.append(1, pa2.get(i2), or2.get(i2));
+				if (ranked) {
+					b.append(1, pa2.get(i2), or2.get(i2), or2.getOrderRank(i2), or2.getTimeRank(i2));
+				} else {
+					b.append(1, pa2.get(i2), or2.get(i2));
+				}
 				i2++;
 			} while (i2 < pa2.size());
 		}
@@ -207,6 +298,29 @@ public class HTPM implements TemporalPatternProducer {
 		return sortedmap;
 	}
 
+	/**
+	 * Returns the metrics of the mining internals, which are updated while the algorithm runs
+	 * and can be read at any time, or exposed via JMX.
+	 * @return The metrics of this run
+	 */
+	public MiningMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the progress of the run, whose snapshots estimate the remaining time.
+	 * Snapshots can be taken at any time, or be published at a fixed rate:
+	 * <pre>
+	 * ScheduledFuture&lt;?&gt; publishing = htpm.getProgress().publish(10, TimeUnit.SECONDS, System.out::println);
+	 * htpm.start();
+	 * publishing.cancel(false);
+	 * </pre>
+	 * @return The progress of this run
+	 */
+	public MiningProgress getProgress() {
+		return progress;
+	}
+
 	@Override
 	public void addHTPMListener(HTPMListener l) {
 		if(l == null) {
@@ -269,6 +383,7 @@ public class HTPM implements TemporalPatternProducer {
 
 		if (parallel) {
 			es = Executors.newFixedThreadPool(threadPoolSize);
+			metrics.setQueueDepthGauge(((ThreadPoolExecutor) es).getQueue()::size);
 		}
 
 		if (!saveMemory) {
@@ -318,42 +433,89 @@ public class HTPM implements TemporalPatternProducer {
 	 * @return Returns the first generation of patterns that already satisfy all constraints.
 	 */
 	protected List<List<PatternOccurrence>> genL1() {
-		Map<HybridTemporalPattern, List<PatternOccurrence.OccurrenceTreeLink>> map =
-				new HashMap<>();
+		progress.start(maximumPatternLength(), joinsDepthFirst());
+		return genL1(d.getSequences());
+	}
+
+	/**
+	 * @return true if the partition of a pattern is joined as soon as it is complete,
+	 * false if the partitions of a generation are joined after the whole generation is complete
+	 */
+	protected boolean joinsDepthFirst() {
+		return false;
+	}
+
+	/**
+	 * @return the maximum length of the patterns, limited by the longest sequence and the constraint
+	 */
+	private int maximumPatternLength() {
+		int length = d.getSequences().stream().mapToInt(seq -> seq.getEvents().size()).max().orElse(0);
+		while (length > 1 && !constraint.shouldGeneratePatternsOfLength(length)) {
+			length--;
+		}
+		return length;
+	}
 
-		for(HybridEventSequence seq : d.getSequences()) {
+	/**
+	 * Generates the 1-patterns that occur in the given sequences.
+	 * @param sequences - The sequences, all of them must be in the database.
+	 * @return Returns the 1-patterns and their occurrences in the given sequences that satisfy all constraints.
+	 * The parent of an occurrence is the index of its sequence in the given sequences.
+	 */
+	protected List<List<PatternOccurrence>> genL1(List<HybridEventSequence> sequences) {
+		final long startNanos = System.nanoTime();
+		final long startBytes = MiningMetrics.allocatedBytes();
+
+		Map<HybridTemporalPattern, List<PatternOccurrence.OccurrenceTreeLink>> map = newPatternMap();
+
+		for(int seqIndex = 0; seqIndex < sequences.size(); seqIndex++) {
 
-			Occurrence emptyOccurrencePrefix = new DefaultOccurrence(seq, Collections.emptyList());
+			final HybridEventSequence seq = sequences.get(seqIndex);
 
-			for(HybridEvent e : seq.getEvents()) {
+			//preprocess sequence: rank all occurrence points, so that joins can compare ranks instead of times
+			final List<HybridEvent> events = seq.getEvents();
+			final OccurrencePointRanks ranks = new OccurrencePointRanks(events);
+
+			for (int i = 0; i < events.size(); i++) {
+				final HybridEvent e = events.get(i);
 
 				DefaultHybridTemporalPatternBuilder builder = new DefaultHybridTemporalPatternBuilder(seq, 1);
 
 				if (e.isPointEvent()) {
-					builder.append(0, new PointEventNode(e.getEventId()), e);
+					builder.append(0, EventNodeFactory.point(e.getEventId()), e,
+							ranks.getStartOrderRank(i), ranks.getStartTimeRank(i));
 				} else {
-					builder.append(0, new IntervalStartEventNode(e.getEventId(), 0), e);
-					builder.append(0, new IntervalEndEventNode(e.getEventId(), 0), e);
+					builder.append(0, EventNodeFactory.intervalStart(e.getEventId(), 0), e,
+							ranks.getStartOrderRank(i), ranks.getStartTimeRank(i));
+					builder.append(0, EventNodeFactory.intervalEnd(e.getEventId(), 0), e,
+							ranks.getEndOrderRank(i), ranks.getEndTimeRank(i));
 				}
 
 				Occurrence occ = builder.getOccurence();
 				HybridTemporalPattern p = builder.getPattern();
 
-				//set empty occurrence as prefix
+				//set the empty occurrence of the sequence as prefix
 				if (constraint.newOccurrenceFulfillsConstraints(p, occ, 1)) {
 					map.computeIfAbsent(p, pattern -> new ArrayList<>())
-							.add(new PatternOccurrence.OccurrenceTreeLink(emptyOccurrencePrefix, occ));
+							.add(new PatternOccurrence.OccurrenceTreeLink(seqIndex, occ));
 				}
 			}
 		}
 
 		//prune unsupported patterns
+		final int numFound = map.size();
 		map.entrySet().removeIf(entry -> !constraint.patternFulfillsConstraints(entry.getKey(),
 				entry.getValue().stream().map(link -> link.child).collect(Collectors.toSet()), 1));
+		metrics.recordPruned(numFound - map.size());
+		map.values().forEach(occurrences -> metrics.recordPattern(1, occurrences.size()));
 
 		//parse maps into patternOccurrence objects
 		final List<PatternOccurrence> patternOccurrences = map.entrySet().stream().map(entry ->
-				new PatternOccurrence(null, entry.getKey(), entry.getValue())).collect(Collectors.toList());
+				new PatternOccurrence(null, entry.getKey(), offHeapOccurrences != null
+						? storeOccurrences(entry.getKey(), entry.getValue())
+						: entry.getValue())).collect(Collectors.toList());
+
+		metrics.recordLevel(1, System.nanoTime() - startNanos, MiningMetrics.allocatedBytes() - startBytes);
 
 		//level 1: all patterns have the same parent, so they belong to the same partition
 		return Collections.singletonList(patternOccurrences);
@@ -367,11 +529,21 @@ public class HTPM implements TemporalPatternProducer {
 	 */
 	protected List<List<PatternOccurrence>> genLk(final List<List<PatternOccurrence>> partitionedOccurrences, int k) {
 
+		final MiningEvents.LevelEvent event = new MiningEvents.LevelEvent();
+		event.begin();
+
 		List<List<Map<HybridTemporalPattern, PatternOccurrence>>> partitionResults = new ArrayList<>(partitionedOccurrences.size());
 
 		//AtomicInteger joined = new AtomicInteger(0);
 
 		List<Callable<Void>> joinCallables = new ArrayList<>();
+		final ExecutorService executor = joinExecutor();
+		final boolean parallel = executor != null;
+
+		if (k >= 3 && constraint.fulfillsAprioriProperty()) {
+			//all sub-patterns of a frequent pattern are frequent, so they are among the patterns of the previous generation
+			rememberGeneration(partitionedOccurrences, k - 1);
+		}
 
 		for (int partition = 0; partition < partitionedOccurrences.size(); partition++) {
 			List<PatternOccurrence> joinablePatterns = partitionedOccurrences.get(partition);
@@ -383,6 +555,7 @@ public class HTPM implements TemporalPatternProducer {
 
 			List<Map<HybridTemporalPattern, PatternOccurrence>> partitionResult = new ArrayList<>(joinablePatterns.size());
 			partitionResults.add(partitionResult);
+			progress.scheduled(k, joinablePatterns.size());
 
 			for (int i = 0; i < joinablePatterns.size(); i++) {
 				if (parallel) {
@@ -399,6 +572,8 @@ public class HTPM implements TemporalPatternProducer {
 				final int finalI = i;
 
 				final Runnable join = () -> {
+					final long startNanos = System.nanoTime();
+					long occurrencesOut = 0;
 
 					List<Map<HybridTemporalPattern, PatternOccurrence>> subResult = new ArrayList<>(finalI + 1);
 					for (int j = 0; j <= finalI; j++) {
@@ -416,6 +591,7 @@ public class HTPM implements TemporalPatternProducer {
 						final List<Map<HybridTemporalPattern, PatternOccurrence>> joined = join(first, second, k);
 						subResult.get(finalI).putAll(joined.get(0));
 						subResult.get(j).putAll(joined.get(1));
+						occurrencesOut += countOccurrences(joined.get(0).values()) + countOccurrences(joined.get(1).values());
 						//System.out.println("joined " + joined.incrementAndGet() + " with " + l1.size() + " and " + l2.size() + " occurrences.");
 					}
 
@@ -423,6 +599,7 @@ public class HTPM implements TemporalPatternProducer {
 					for (int j = 0; j < subResult.size(); j++) {
 						partitionResult.get(j).putAll(subResult.get(j));
 					}
+					progress.explored(k, System.nanoTime() - startNanos, first.occurrences.size(), occurrencesOut);
 				};
 
 				if (parallel) {
@@ -438,17 +615,48 @@ public class HTPM implements TemporalPatternProducer {
 
 		if (parallel) {
 			try {
-				es.invokeAll(joinCallables);
+				executor.invokeAll(joinCallables);
 			} catch (InterruptedException e) {
 				throw new RuntimeException("interrupted while generating patterns of size " + k, e);
 			}
 		}
 
 		//Flatten maps into PatternOccurrence list
-		return partitionResults.stream()
+		final List<List<PatternOccurrence>> result = partitionResults.stream()
 				.flatMap(partitionResult -> partitionResult.stream()
 						.map(map -> new ArrayList<>(map.values())))
 				.collect(Collectors.toList());
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.length = k;
+			event.partitions = partitionedOccurrences.size();
+			event.patternsIn = partitionedOccurrences.stream().mapToInt(List::size).sum();
+			event.occurrencesIn = partitionedOccurrences.stream().mapToLong(HTPM::countOccurrences).sum();
+			event.patternsOut = result.stream().mapToInt(List::size).sum();
+			event.occurrencesOut = result.stream().mapToLong(HTPM::countOccurrences).sum();
+			event.commit();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the executor that runs the joins of a generation in parallel, or null if they run on the calling thread
+	 */
+	protected ExecutorService joinExecutor() {
+		return parallel ? es : null;
+	}
+
+	/**
+	 * @param patternOccurrences patterns with their occurrences
+	 * @return the total number of occurrences of the patterns
+	 */
+	static long countOccurrences(Collection<PatternOccurrence> patternOccurrences) {
+		long count = 0;
+		for (PatternOccurrence po : patternOccurrences) {
+			count += po.occurrences.size();
+		}
+		return count;
 	}
 
 	/**
@@ -466,6 +674,12 @@ public class HTPM implements TemporalPatternProducer {
 																	   PatternOccurrence patternOccurrence2,
 																	   int k) {
 
+		final MiningEvents.JoinEvent event = new MiningEvents.JoinEvent();
+		event.begin();
+		final long startNanos = System.nanoTime();
+		final long startBytes = MiningMetrics.allocatedBytes();
+		long occurrencePairs = 0;
+
 		HybridTemporalPattern prefix = patternOccurrence1.prefix;
 
 		HybridTemporalPattern p1 = patternOccurrence1.pattern;
@@ -474,75 +688,198 @@ public class HTPM implements TemporalPatternProducer {
 		List<PatternOccurrence.OccurrenceTreeLink> or1 = patternOccurrence1.occurrences;
 		List<PatternOccurrence.OccurrenceTreeLink> or2 = patternOccurrence2.occurrences;
 
-		//heuristic: the occurrence records are joined, from each pair in the same sequence we can have a new one.
-		// assumption is that the number of occurrences is evenly distributed over sequences (which reduces the result)
-		// and that all joins yield the same pattern (which increases the result).
-		// additionally we assume that both joined patterns have the same likelyhood to be the parent pattern
-		final int newOccurrenceCountHeuristic = (or1.size() / (d.size() * 2)) * (or2.size() / (d.size() * 2));
+		//occurrences stored outside of the heap are read through cursors instead of links
+		final OffHeapOccurrences.Cursor cursor1 = OffHeapOccurrences.cursor(or1);
+		final OffHeapOccurrences.Cursor cursor2 = OffHeapOccurrences.cursor(or2);
+
+		//sub-patterns of 2-patterns are 1-patterns, which are all frequent
+		final boolean pruneWithSubPatterns = k >= 3 && constraint.fulfillsAprioriProperty();
 
 		final List<Map<HybridTemporalPattern, PatternOccurrence>> partitionedResult = new ArrayList<>(2);
-		final Map<HybridTemporalPattern, PatternOccurrence> parentP1 = new HashMap<>();
-		final Map<HybridTemporalPattern, PatternOccurrence> parentP2 = new HashMap<>();
+		final Map<HybridTemporalPattern, PatternOccurrence> parentP1 = newPatternMap();
+		final Map<HybridTemporalPattern, PatternOccurrence> parentP2 = newPatternMap();
 		partitionedResult.add(parentP1);
 		partitionedResult.add(parentP2);
 
-		//int i1 = -1;
-		//for (Occurrence s1 : or1) {
-		//	i1++;
-		for (int i1 = 0; i1 < or1.size(); i1++) {
-			final PatternOccurrence.OccurrenceTreeLink link1 = or1.get(i1);
-			Occurrence occurrencePrefix1 = link1.parent;
-			Occurrence s1 = link1.child;
-
-			//avoid join of same occurrences twice (happens if both are from the same occurrence record)
-			//int minI2 = or1 == or2 ? i1 + 1 : 0;
-			int maxI2 = or1 == or2 ? i1 - 1 : or2.size() - 1;
-
-			for (int i2 = 0; i2 <= maxI2; i2++) {
-				//for (int i2 = minI2; i2 < or2.size(); i2++) {
-				final PatternOccurrence.OccurrenceTreeLink link2 = or2.get(i2);
-				final Occurrence occurrencePrefix2 = link2.parent;
-				Occurrence s2 = link2.child;
-
-				if (occurrencePrefix1 != occurrencePrefix2
-						|| !constraint.occurrenceRecordsQualifyForJoin(p1, s1, p2, s2, k)) {
-					continue;
+		//builder, candidate lists and support check sets are reused from join to join of this thread
+		final JoinArena arena = JoinArena.take();
+		//the arena has to go back to the thread even if a constraint or the storage of the occurrences fails
+		final int numFound;
+		try {
+			//int i1 = -1;
+			//for (Occurrence s1 : or1) {
+			//	i1++;
+			for (int i1 = 0; i1 < or1.size(); i1++) {
+				final int occurrencePrefix1;
+				final Occurrence s1;
+				if (cursor1 != null) {
+					occurrencePrefix1 = cursor1.moveTo(i1).parent();
+					s1 = cursor1;
+				} else {
+					final PatternOccurrence.OccurrenceTreeLink link1 = or1.get(i1);
+					occurrencePrefix1 = link1.parent;
+					s1 = link1.child;
 				}
 
-				DefaultHybridTemporalPatternBuilder b = ORAlign(prefix, p1, s1, p2, s2, k);
-				HybridTemporalPattern newPattern = b.getPattern();
-				HybridTemporalPattern newPatternPrefix = b.getPatternPrefix();
-				Occurrence newOccurrence = b.getOccurence();
-
-				//prune new occurrence records
-				if (constraint.newOccurrenceFulfillsConstraints(newPattern, newOccurrence, k)) {
-					Map<HybridTemporalPattern, PatternOccurrence> map = newPatternPrefix == p1 ? parentP1 : parentP2;
-					map.computeIfAbsent(
-							//initialize new arraylist for occurrences of the pattern
-							//newPattern, p -> new PatternOccurrence(newPatternPrefix, newPattern, new ArrayList<>()))
-							//initialize new linked list for occurrences of the pattern
-							//newPattern, p -> new PatternOccurrence(newPatternPrefix, newPattern, new LinkedList<>()))
-							//initialize array list with heuristically determined capacity
-							newPattern, p -> new PatternOccurrence(newPatternPrefix, newPattern, newOccurrenceCountHeuristic))
-							.occurrences.add(new PatternOccurrence.OccurrenceTreeLink(b.getOccurrencePrefix(), newOccurrence));
+				//avoid join of same occurrences twice (happens if both are from the same occurrence record)
+				//int minI2 = or1 == or2 ? i1 + 1 : 0;
+				int maxI2 = or1 == or2 ? i1 - 1 : or2.size() - 1;
+
+				for (int i2 = 0; i2 <= maxI2; i2++) {
+					//for (int i2 = minI2; i2 < or2.size(); i2++) {
+					final int occurrencePrefix2;
+					final Occurrence s2;
+					if (cursor2 != null) {
+						occurrencePrefix2 = cursor2.moveTo(i2).parent();
+						s2 = cursor2;
+					} else {
+						final PatternOccurrence.OccurrenceTreeLink link2 = or2.get(i2);
+						occurrencePrefix2 = link2.parent;
+						s2 = link2.child;
+					}
+					occurrencePairs++;
+
+					if (occurrencePrefix1 != occurrencePrefix2
+							|| !constraint.occurrenceRecordsQualifyForJoin(p1, s1, p2, s2, k)) {
+						continue;
+					}
+
+					DefaultHybridTemporalPatternBuilder b = ORAlign(prefix, p1, s1, p2, s2,
+							arena.builder(s1.getHybridEventSequence()));
+					HybridTemporalPattern newPattern = b.getPattern();
+					HybridTemporalPattern newPatternPrefix = b.getPatternPrefix();
+					Occurrence newOccurrence = b.getOccurence();
+
+					//prune new occurrence records
+					if (constraint.newOccurrenceFulfillsConstraints(newPattern, newOccurrence, k)) {
+						Map<HybridTemporalPattern, PatternOccurrence> map = newPatternPrefix == p1 ? parentP1 : parentP2;
+						PatternOccurrence patternOccurrence = map.get(newPattern);
+						if (patternOccurrence == null) {
+							//first occurrence of the pattern: prune it right away if it has an infrequent sub-pattern
+							patternOccurrence = pruneWithSubPatterns && !subPatternsMayBeFrequent(newPattern, k)
+									? PRUNED
+									: new PatternOccurrence(newPatternPrefix, newPattern, arena.candidateOccurrences());
+							map.put(newPattern, patternOccurrence);
+						}
+						if (patternOccurrence != PRUNED) {
+							//the parent of the new occurrence is the occurrence of its pattern prefix
+							patternOccurrence.occurrences.add(new PatternOccurrence.OccurrenceTreeLink(
+									b.getOccurrencePrefix() == s1 ? i1 : i2, newOccurrence));
+						}
+					}
 				}
 			}
+
+			//prune new patterns
+			numFound = parentP1.size() + parentP2.size();
+			parentP1.values().removeIf(patternOccurrence -> patternOccurrence == PRUNED);
+			parentP2.values().removeIf(patternOccurrence -> patternOccurrence == PRUNED);
+			parentP1.entrySet().removeIf(e -> !constraint.patternFulfillsConstraints(e.getKey(),
+					arena.occurrences(e.getValue().occurrences), k));
+			parentP2.entrySet().removeIf(e -> !constraint.patternFulfillsConstraints(e.getKey(),
+					arena.occurrences(e.getValue().occurrences), k));
+
+			//copy the occurrences of the surviving patterns into lists of their size, then release all candidates at once
+			parentP1.replaceAll((pattern, po) -> new PatternOccurrence(po.prefix, pattern, storeOccurrences(pattern, po.occurrences)));
+			parentP2.replaceAll((pattern, po) -> new PatternOccurrence(po.prefix, pattern, storeOccurrences(pattern, po.occurrences)));
+		} finally {
+			arena.release();
 		}
 
-		//prune new patterns
-		parentP1.entrySet().removeIf(e -> !constraint.patternFulfillsConstraints(e.getKey(),
-				e.getValue().occurrences.stream().map(link -> link.child).collect(Collectors.toSet()), k));
-		parentP2.entrySet().removeIf(e -> !constraint.patternFulfillsConstraints(e.getKey(),
-				e.getValue().occurrences.stream().map(link -> link.child).collect(Collectors.toSet()), k));
+		//the fully parallel engine does not advance k, the length of the patterns is the level
+		final int length = p1.length() + 1;
+		metrics.recordPruned(numFound - parentP1.size() - parentP2.size());
+		parentP1.values().forEach(po -> metrics.recordPattern(length, po.occurrences.size()));
+		parentP2.values().forEach(po -> metrics.recordPattern(length, po.occurrences.size()));
+		metrics.recordJoin(length, occurrencePairs, System.nanoTime() - startNanos,
+				MiningMetrics.allocatedBytes() - startBytes);
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.length = length;
+			event.prefix = MiningEvents.describe(prefix);
+			event.first = MiningEvents.describe(p1);
+			event.second = MiningEvents.describe(p2);
+			event.occurrencesFirst = or1.size();
+			event.occurrencesSecond = or2.size();
+			event.occurrencePairs = occurrencePairs;
+			event.patternsOut = parentP1.size() + parentP2.size();
+			event.occurrencesOut = countOccurrences(parentP1.values()) + countOccurrences(parentP2.values());
+			event.commit();
+		}
+
+		return partitionedResult;
+	}
 
-		//convert linkedlists into arraylists for better performance later
-		//parentP1.entrySet().forEach(e -> e.setValue(new ArrayList<>(e.getValue())));
-		//parentP2.entrySet().forEach(e -> e.setValue(new ArrayList<>(e.getValue())));
+	/**
+	 * Copies the occurrences of a found pattern into a list of their size, outside of the heap if so configured.
+	 * @param pattern - The pattern.
+	 * @param occurrences - Its occurrences, which may be reused afterwards.
+	 * @return The stored occurrences.
+	 */
+	private List<PatternOccurrence.OccurrenceTreeLink> storeOccurrences(HybridTemporalPattern pattern,
+																		List<PatternOccurrence.OccurrenceTreeLink> occurrences) {
+		return offHeapOccurrences != null
+				? offHeapOccurrences.copyOf(occurrences, pattern.getEventNodes().size())
+				: new ArrayList<>(occurrences);
+	}
 
-		//shrink arraylists allocated with large amount of memory
-		parentP1.forEach((key, value) -> ((ArrayList) value.occurrences).trimToSize());
-		parentP2.forEach((key, value) -> ((ArrayList) value.occurrences).trimToSize());
+	/**
+	 * Creates a map in which genL1 and join collect new patterns.
+	 * The iteration order of these maps determines the order of the patterns in their partitions.
+	 * @param <V> the type of the values
+	 * @return a new, empty map
+	 */
+	protected <V> Map<HybridTemporalPattern, V> newPatternMap() {
+		return new HashMap<>();
+	}
 
-		return partitionedResult;
+	/**
+	 * Checks whether a new pattern may be frequent with respect to its sub-patterns.
+	 * Called only if all constraints fulfill the Apriori property, once per join for each new pattern.
+	 * A pattern for which this returns false is pruned before its occurrences are collected.
+	 * @param pattern the new pattern
+	 * @param k the generation number (length of the pattern)
+	 * @return false if a sub-pattern of length k-1 is known to be infrequent
+	 */
+	protected boolean subPatternsMayBeFrequent(HybridTemporalPattern pattern, int k) {
+		final FingerprintSet frequent = previousGeneration;
+		return frequent == null || pattern.length() != previousGenerationLength + 1 || allSubPatterns(pattern,
+				deletionIndex -> frequent.contains(HTPUtils.subPatternFingerprint(pattern, deletionIndex)));
+	}
+
+	/**
+	 * Remembers the patterns of a complete generation, to prune patterns of the next length with infrequent sub-patterns.
+	 * @param generation all patterns of one length, partitioned by pattern parent
+	 * @param length the length of the patterns
+	 */
+	void rememberGeneration(List<List<PatternOccurrence>> generation, int length) {
+		final FingerprintSet fingerprints = new FingerprintSet(generation.stream().mapToInt(List::size).sum());
+		generation.forEach(partition -> partition.forEach(po -> fingerprints.add(po.pattern)));
+		previousGenerationLength = length;
+		previousGeneration = fingerprints;
+	}
+
+	/**
+	 * Tests all sub-patterns of a pattern that lack one of its events.
+	 * Sub-patterns with ambiguous occurrence marks are skipped, because the same events may have been found
+	 * as a pattern with other occurrence marks.
+	 * @param pattern the pattern
+	 * @param mayBeFrequent test of the sub-pattern that results from deleting the event of the node at the given index
+	 * @return true if all tested sub-patterns may be frequent
+	 */
+	static boolean allSubPatterns(HybridTemporalPattern pattern, IntPredicate mayBeFrequent) {
+		final List<EventNode> nodes = pattern.getEventNodes();
+		for (int i = 0; i < nodes.size(); i++) {
+			//each event is deleted once, at its start or point node
+			if (nodes.get(i) instanceof IntervalEndEventNode
+					|| HTPUtils.subPatternHasAmbiguousOccurrenceMarks(pattern, i)) {
+				continue;
+			}
+			if (!mayBeFrequent.test(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 }
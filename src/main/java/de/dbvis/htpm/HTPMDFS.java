@@ -2,15 +2,60 @@ package de.dbvis.htpm;
 
 import de.dbvis.htpm.constraints.HTPMConstraint;
 import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.HTPUtils;
 import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.htp.eventnodes.EventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEventNode;
+import de.dbvis.htpm.htp.eventnodes.PointEventNode;
+import de.dbvis.htpm.occurrence.Occurrence;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class HTPMDFS extends HTPM {
 
+    /**
+     * Fingerprints of the patterns found so far, indexed by depth, to prune patterns with infrequent sub-patterns.
+     * Null if sub-patterns are not tracked.
+     */
+    private List<FingerprintSet> foundPatterns;
+
+    /**
+     * Index of each 1-pattern in the first level, by event type id and kind, see {@link #rootKey(EventNode)}
+     */
+    private Map<Integer, Integer> rootIndices;
+
+    /**
+     * Index of the 1-pattern whose branch is being calculated
+     */
+    private int currentRoot;
+
+    /**
+     * Which of the patterns are output
+     */
+    protected final MiningMode mode;
+
+    /**
+     * Whether the constraint allows patterns as long as the longest sequence,
+     * then a pattern always has the extensions that closure checks rely on
+     */
+    private boolean lengthUnrestricted;
+
+    /**
+     * The maximal patterns found so far, null unless maximal patterns are mined
+     */
+    private MaximalPatternIndex maximal;
+
+    /**
+     * The order in which the branches are explored, null for the order of the constraint
+     */
+    private BranchSchedulingPolicy schedulingPolicy;
+
     /**
      * Creates a new HTPM-Algorithm-Object.
      *
@@ -18,7 +63,19 @@ public class HTPMDFS extends HTPM {
      * @param constraint - The constraint determining the pre- and post-joining pruning behavior.
      */
     public HTPMDFS(HybridEventSequenceDatabase d, HTPMConstraint constraint) {
+        this(d, constraint, MiningMode.ALL);
+    }
+
+    /**
+     * Creates a new HTPM-Algorithm-Object.
+     *
+     * @param d          - The Database containing the series.
+     * @param constraint - The constraint determining the pre- and post-joining pruning behavior.
+     * @param mode       - Which of the patterns are output.
+     */
+    public HTPMDFS(HybridEventSequenceDatabase d, HTPMConstraint constraint, MiningMode mode) {
         super(d, constraint);
+        this.mode = mode;
     }
 
     /**
@@ -36,24 +93,41 @@ public class HTPMDFS extends HTPM {
 
         m = this.genL1();
 
-        this.patterns.add(m);
-
         final List<PatternOccurrence> onePatterns = m.get(0);
-        output(m, 1);
+        prepareSelection();
+        final List<List<PatternOccurrence>> selected = Collections.singletonList(selectForOutput(onePatterns));
+
+        this.patterns.add(selected);
+
+        output(selected, 1);
+
+        orderBranches(onePatterns);
+        trackSubPatterns(onePatterns);
 
         this.patterns.addAll(patternDFS(onePatterns, 2));
+
+        for (List<PatternOccurrence> maximalPatterns : maximalPatternsByLength()) {
+            final List<List<PatternOccurrence>> level = Collections.singletonList(maximalPatterns);
+            this.patterns.add(level);
+            output(level, maximalPatterns.get(0).pattern.length());
+        }
     }
 
     private List<List<List<PatternOccurrence>>> patternDFS(List<PatternOccurrence> m, int depth) {
 
         if (!constraint.branchCanProduceResults(m)) {
+            collectMaximalCandidates(m);
             return Collections.emptyList();
         }
 
+        orderPartition(m);
+
         List<List<List<PatternOccurrence>>> results = new ArrayList<>();
 
         List<List<PatternOccurrence>> partitions = new ArrayList<>();
-        results.add(partitions);
+        //unless all patterns are output, only the selected ones are kept as results
+        List<List<PatternOccurrence>> selected = mode == MiningMode.ALL ? partitions : new ArrayList<>();
+        results.add(selected);
 
         for (int i = 0; i < m.size(); i++) {
             partitions.add(new ArrayList<>());
@@ -62,7 +136,18 @@ public class HTPMDFS extends HTPM {
         for (int i = 0; i < m.size(); i++) {
             calculateBranch(m, depth, partitions, i);
 
-            output(Collections.singletonList(partitions.get(i)), depth);
+            if (partitions.get(i).isEmpty()) {
+                collectMaximalCandidates(Collections.singletonList(m.get(i)));
+            }
+            if (!branchCanProduceSelectedPatterns(m.get(i), partitions.get(i))) {
+                continue;
+            }
+
+            final List<PatternOccurrence> output = selectForOutput(partitions.get(i));
+            if (selected != partitions) {
+                selected.add(output);
+            }
+            output(Collections.singletonList(output), depth);
 
             if (constraint.shouldGeneratePatternsOfLength(depth + 1)) {
                 List<List<List<PatternOccurrence>>> partitionChildren = patternDFS(partitions.get(i), depth + 1);
@@ -76,16 +161,40 @@ public class HTPMDFS extends HTPM {
                         results.get(j).addAll(partitionChildren.get(j));
                     }
                 }
+            } else {
+                collectMaximalCandidates(partitions.get(i));
             }
         }
 
         return results;
     }
 
+    @Override
+    protected boolean joinsDepthFirst() {
+        return true;
+    }
+
     protected void calculateBranch(List<PatternOccurrence> m, int depth,
                                  List<List<PatternOccurrence>> partitions, int index) {
 
+        final MiningEvents.BranchEvent event = new MiningEvents.BranchEvent();
+        event.begin();
+        final long startNanos = System.nanoTime();
+        int patternsOut = 0;
+        long occurrencesOut = 0;
+
         PatternOccurrence first = m.get(index);
+        //the fully parallel engine does not advance the depth, the length of the patterns is the level
+        final int length = first.pattern.length() + 1;
+        if (index == 0) {
+            progress.scheduled(length, m.size());
+        }
+
+        final FingerprintSet found = foundPatternsOfDepth(depth);
+        if (found != null && depth == 2) {
+            //the patterns of all deeper levels have the same 1-pattern as root
+            currentRoot = index;
+        }
 
         for (int j = index; j < m.size(); j++) {
             PatternOccurrence second = m.get(j);
@@ -96,6 +205,10 @@ public class HTPMDFS extends HTPM {
 
             List<Map<HybridTemporalPattern, PatternOccurrence>> joined = join(first, second, depth);
 
+            if (found != null) {
+                joined.forEach(patterns -> patterns.keySet().forEach(found::add));
+            }
+
             //parse into pattern occurrences
 
             List<PatternOccurrence> parentFirst = new ArrayList<>(joined.get(0).values());
@@ -105,6 +218,231 @@ public class HTPMDFS extends HTPM {
                 List<PatternOccurrence> parentSecond = new ArrayList<>(joined.get(1).values());
                 partitions.get(j).addAll(parentSecond);
             }
+
+            for (Map<HybridTemporalPattern, PatternOccurrence> patterns : joined) {
+                patternsOut += patterns.size();
+                occurrencesOut += countOccurrences(patterns.values());
+            }
+        }
+
+        progress.explored(length, System.nanoTime() - startNanos, first.occurrences.size(), occurrencesOut);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.length = length;
+            event.prefix = MiningEvents.describe(first.pattern);
+            event.partitionSize = m.size();
+            event.occurrencesIn = first.occurrences.size();
+            event.patternsOut = patternsOut;
+            event.occurrencesOut = occurrencesOut;
+            event.commit();
+        }
+    }
+
+    /**
+     * Sets the order in which the branches of each partition are explored.
+     * By default, only the 1-patterns are sorted by descending number of supporting sequences,
+     * if the constraint prefers to explore frequent branches first.
+     * @param schedulingPolicy the order, null for the default
+     */
+    public void setSchedulingPolicy(BranchSchedulingPolicy schedulingPolicy) {
+        this.schedulingPolicy = schedulingPolicy;
+    }
+
+    /**
+     * Sorts the 1-patterns by the scheduling policy or, without one, by descending number of supporting sequences,
+     * if the constraint prefers to explore frequent branches first. Has to be called before sub-patterns are tracked.
+     * @param onePatterns the 1-patterns, which are the roots of all branches
+     */
+    protected void orderBranches(List<PatternOccurrence> onePatterns) {
+        if (schedulingPolicy != null) {
+            schedulingPolicy.order(onePatterns);
+        } else if (constraint.prefersFrequentBranchesFirst()) {
+            BranchSchedulingPolicy.SUPPORT_DESCENDING.order(onePatterns);
+        }
+    }
+
+    /**
+     * Sorts a partition by the scheduling policy before its branches are explored.
+     * The 1-patterns are left as they are, they are sorted once by {@link #orderBranches(List)}.
+     * @param partition patterns with the same parent
+     */
+    protected void orderPartition(List<PatternOccurrence> partition) {
+        if (schedulingPolicy != null && !partition.isEmpty() && partition.get(0).pattern.length() > 1) {
+            schedulingPolicy.order(partition);
+        }
+    }
+
+    /**
+     * Has to be called before the first patterns are selected for output.
+     */
+    protected void prepareSelection() {
+        final int maxSequenceLength = d.getSequences().stream().mapToInt(s -> s.getEvents().size()).max().orElse(0);
+        lengthUnrestricted = constraint.shouldGeneratePatternsOfLength(maxSequenceLength);
+        maximal = mode == MiningMode.MAXIMAL ? new MaximalPatternIndex() : null;
+    }
+
+    /**
+     * Selects the patterns of a finished partition that are output, according to the mining mode.
+     * @param partition the patterns with all their occurrences
+     * @return the patterns to output
+     */
+    protected List<PatternOccurrence> selectForOutput(List<PatternOccurrence> partition) {
+        if (mode == MiningMode.ALL) {
+            return partition;
+        }
+        if (mode == MiningMode.MAXIMAL) {
+            //maximal patterns are only known after mining, see maximalPatternsByLength()
+            return Collections.emptyList();
+        }
+        return partition.stream().filter(this::isClosed).collect(Collectors.toList());
+    }
+
+    private boolean isClosed(PatternOccurrence po) {
+        //extensions longer than the constraint allows are never found, so the pattern is closed among the results
+        return !constraint.shouldGeneratePatternsOfLength(po.pattern.length() + 1) || ClosedPatterns.isClosed(po);
+    }
+
+    /**
+     * Checks whether the branch of a pattern can contain patterns that are output, according to the mining mode.
+     * @param parent the pattern that is the prefix of all patterns in the branch
+     * @param partition the finished partition of the parent
+     * @return false if the branch does not have to be mined
+     */
+    protected boolean branchCanProduceSelectedPatterns(PatternOccurrence parent, List<PatternOccurrence> partition) {
+        if (mode == MiningMode.ALL) {
+            return true;
+        }
+        if (mode == MiningMode.MAXIMAL) {
+            final PatternOccurrence union = lookAhead(parent, partition);
+            if (union == null) {
+                return true;
+            }
+            //all patterns of the branch are contained in the union
+            maximal.add(union);
+            return false;
+        }
+        //the extensions that make the patterns of the branch unclosed may be too long for the constraint
+        return !lengthUnrestricted || !ClosedPatterns.branchHasNoClosedPatterns(parent);
+    }
+
+    /**
+     * Looks for a single pattern that contains the whole branch of a pattern,
+     * see {@link MaximalPatternIndex#tailUnion(PatternOccurrence, List)}.
+     * It has to fulfill the constraints itself, which then also hold for the patterns of the branch.
+     * @param parent the prefix of the branch with all its occurrences
+     * @param partition the finished partition of the prefix
+     * @return the pattern containing the branch, or null if there is none
+     */
+    private PatternOccurrence lookAhead(PatternOccurrence parent, List<PatternOccurrence> partition) {
+        if (!constraint.fulfillsAprioriProperty()) {
+            return null;
+        }
+        final PatternOccurrence union = MaximalPatternIndex.tailUnion(parent, partition);
+        if (union == null) {
+            return null;
+        }
+        final int k = union.pattern.length();
+        if (!constraint.shouldGeneratePatternsOfLength(k)) {
+            return null;
+        }
+        for (PatternOccurrence.OccurrenceTreeLink link : union.occurrences) {
+            if (!constraint.newOccurrenceFulfillsConstraints(union.pattern, link.child, k)) {
+                return null;
+            }
+        }
+        final Set<Occurrence> occurrences = union.occurrences.stream().map(link -> link.child).collect(Collectors.toSet());
+        return constraint.patternFulfillsConstraints(union.pattern, occurrences, k) ? union : null;
+    }
+
+    /**
+     * Adds patterns without extensions in their branches to the candidates for maximal patterns,
+     * if maximal patterns are mined.
+     * @param patterns patterns whose branches are finished without finding longer patterns
+     */
+    protected void collectMaximalCandidates(List<PatternOccurrence> patterns) {
+        if (maximal != null) {
+            patterns.forEach(maximal::add);
+        }
+    }
+
+    /**
+     * @return the maximal patterns grouped by length, empty unless maximal patterns are mined.
+     * Complete once all branches are finished.
+     */
+    protected List<List<PatternOccurrence>> maximalPatternsByLength() {
+        return maximal == null ? Collections.emptyList() : maximal.getPatternsByLength();
+    }
+
+    /**
+     * Enables pruning of patterns with infrequent sub-patterns, if all constraints fulfill the Apriori property.
+     * Has to be called before the first branch is calculated, by an engine that calculates branches
+     * one at a time, in the order of the 1-patterns.
+     * @param onePatterns the 1-patterns, which are the roots of all branches
+     */
+    protected void trackSubPatterns(List<PatternOccurrence> onePatterns) {
+        //branches skipped by the mining mode would be missing from the found patterns
+        if (!constraint.fulfillsAprioriProperty() || mode != MiningMode.ALL) {
+            return;
+        }
+        rootIndices = new HashMap<>(onePatterns.size() * 2);
+        for (int i = 0; i < onePatterns.size(); i++) {
+            rootIndices.put(rootKey(onePatterns.get(i).pattern.getEventNodes().get(0)), i);
+        }
+        foundPatterns = new ArrayList<>();
+    }
+
+    private FingerprintSet foundPatternsOfDepth(int depth) {
+        if (foundPatterns == null) {
+            return null;
+        }
+        while (foundPatterns.size() <= depth) {
+            foundPatterns.add(new FingerprintSet(rootIndices.size()));
+        }
+        return foundPatterns.get(depth);
+    }
+
+    /**
+     * A pattern is in the branch of the 1-pattern of its first node.
+     * Branches are completed one after another, so a sub-pattern can only be decided
+     * if it belongs to the branch of an earlier 1-pattern, otherwise it may still be found.
+     */
+    @Override
+    protected boolean subPatternsMayBeFrequent(HybridTemporalPattern pattern, int k) {
+        if (foundPatterns == null) {
+            //sub-patterns are not tracked, but a complete generation may be known
+            return super.subPatternsMayBeFrequent(pattern, k);
+        }
+        if (foundPatterns.size() < k) {
+            return true;
+        }
+        final FingerprintSet found = foundPatterns.get(k - 1);
+        final List<EventNode> nodes = pattern.getEventNodes();
+        return allSubPatterns(pattern, deletionIndex -> {
+            final Integer root = rootIndices.get(rootKey(firstNodeOfSubPattern(nodes, deletionIndex)));
+            if (root == null) {
+                //the 1-pattern itself is infrequent
+                return false;
+            }
+            return root >= currentRoot || found.contains(HTPUtils.subPatternFingerprint(pattern, deletionIndex));
+        });
+    }
+
+    private static EventNode firstNodeOfSubPattern(List<EventNode> nodes, int deletionIndex) {
+        final EventNode deleted = nodes.get(deletionIndex);
+        for (int i = 0; i < nodes.size(); i++) {
+            final EventNode node = nodes.get(i);
+            final boolean endOfDeleted = deleted instanceof IntervalEventNode && node instanceof IntervalEventNode
+                    && deleted.id == node.id
+                    && ((IntervalEventNode) deleted).occurrencemark == ((IntervalEventNode) node).occurrencemark;
+            if (i != deletionIndex && !endOfDeleted) {
+                return node;
+            }
         }
+        throw new IllegalArgumentException("Pattern has no sub-patterns");
+    }
+
+    private static int rootKey(EventNode node) {
+        return node.id * 2 + (node instanceof PointEventNode ? 0 : 1);
     }
 }
@@ -0,0 +1,262 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.HTPMConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Mines depth-first like {@link HTPMDFSLowStorage}, with an explicit stack instead of recursion,
+ * so that the pattern length is not limited by the thread's stack.
+ * <br/>
+ * Each frame of the stack holds a partition and the partitions of its children, which are complete once the branch
+ * of their parent is explored. The frontier, i.e. the occurrences held by all frames, is accounted for with the same
+ * estimate of the size of an occurrence as {@link AdaptiveHTPM}. A pattern and its partition are released as soon as
+ * its branch is done. If the frontier exceeds a budget, the pending partitions of the lowest frames, which are needed
+ * last, are spilled to temporary files, optionally compressed, and read back when their branch is explored.
+ */
+public class HTPMDFSIterative extends HTPMDFSLowStorage {
+
+    private static final class Frame {
+        private final List<PatternOccurrence> m;
+        private final int depth;
+        private final List<List<PatternOccurrence>> partitions;
+
+        /**
+         * the number of patterns of each partition that were accounted for
+         */
+        private final int[] accounted;
+
+        /**
+         * the files of the spilled partitions, null if none was spilled
+         */
+        private Path[] spilled;
+
+        /**
+         * the index of the next pattern whose branch is explored
+         */
+        private int next;
+
+        private Frame(List<PatternOccurrence> m, int depth) {
+            this.m = m;
+            this.depth = depth;
+            this.partitions = new ArrayList<>(m.size());
+            for (int i = 0; i < m.size(); i++) {
+                partitions.add(new ArrayList<>());
+            }
+            this.accounted = new int[m.size()];
+        }
+    }
+
+    private final long frontierBudgetBytes;
+    private final FrontierSpill spill;
+
+    private long frontierBytes;
+    private long peakFrontierBytes;
+    private int maxStackDepth;
+    private int spilledPartitions;
+
+    /**
+     * Creates a new HTPM-Algorithm-Object without a budget for the frontier.
+     *
+     * @param d          - The Database containing the series.
+     * @param constraint - The constraint determining the pre- and post-joining pruning behavior.
+     */
+    public HTPMDFSIterative(HybridEventSequenceDatabase d, HTPMConstraint constraint) {
+        this(d, constraint, MiningMode.ALL, Long.MAX_VALUE, false);
+    }
+
+    /**
+     * Creates a new HTPM-Algorithm-Object.
+     *
+     * @param d                   - The Database containing the series.
+     * @param constraint          - The constraint determining the pre- and post-joining pruning behavior.
+     * @param mode                - Which of the patterns are output.
+     * @param frontierBudgetBytes - The estimated size of the frontier above which pending partitions are spilled to disk.
+     * @param compressSpill       - Whether the spilled partitions are compressed.
+     */
+    public HTPMDFSIterative(HybridEventSequenceDatabase d, HTPMConstraint constraint, MiningMode mode,
+                            long frontierBudgetBytes, boolean compressSpill) {
+        super(d, constraint, mode);
+        if (frontierBudgetBytes < 0) {
+            throw new IllegalArgumentException("Frontier budget must not be negative, was " + frontierBudgetBytes);
+        }
+        this.frontierBudgetBytes = frontierBudgetBytes;
+        this.spill = frontierBudgetBytes == Long.MAX_VALUE ? null : new FrontierSpill(d, compressSpill);
+    }
+
+    /**
+     * @return the estimated size of the occurrences held by the frontier of the last run, in bytes, at its peak
+     */
+    public long getPeakFrontierBytes() {
+        return peakFrontierBytes;
+    }
+
+    /**
+     * @return the number of frames of the stack of the last run at its peak, i.e. the longest explored branch
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * @return the number of times a partition was spilled to disk in the last run
+     */
+    public int getSpilledPartitions() {
+        return spilledPartitions;
+    }
+
+    @Override
+    public void start() {
+        frontierBytes = 0;
+        peakFrontierBytes = 0;
+        maxStackDepth = 0;
+        spilledPartitions = 0;
+        super.start();
+    }
+
+    @Override
+    void patternDFS(List<PatternOccurrence> root, int rootDepth) {
+        final Deque<Frame> stack = new ArrayDeque<>();
+        try {
+            explore(stack, root, rootDepth);
+        } finally {
+            //partitions that were spilled but not read, because mining failed
+            for (Frame f : stack) {
+                if (f.spilled != null) {
+                    Arrays.stream(f.spilled).filter(Objects::nonNull).forEach(FrontierSpill::delete);
+                }
+            }
+        }
+    }
+
+    private void explore(Deque<Frame> stack, List<PatternOccurrence> root, int rootDepth) {
+        push(stack, root, rootDepth);
+
+        while (!stack.isEmpty()) {
+            final Frame f = stack.peek();
+            if (f.next == f.m.size()) {
+                stack.pop();
+                continue;
+            }
+            final int i = f.next++;
+            final List<PatternOccurrence> m = f.m;
+
+            calculateBranch(m, f.depth, f.partitions, i);
+            for (int j = i; j < m.size(); j++) {
+                account(f, j);
+            }
+
+            List<PatternOccurrence> partition = f.partitions.get(i);
+            if (f.spilled != null && f.spilled[i] != null) {
+                final Path file = f.spilled[i];
+                f.spilled[i] = null;
+                final List<PatternOccurrence> read = spill.read(file, m.get(i));
+                frontierBytes += bytes(read);
+                peakFrontierBytes = Math.max(peakFrontierBytes, frontierBytes);
+                read.addAll(partition);
+                partition = read;
+            }
+            //the partition is owned by its frame from now on
+            f.partitions.set(i, null);
+
+            if (partition.isEmpty()) {
+                collectMaximalCandidates(Collections.singletonList(m.get(i)));
+            }
+            final boolean selectable = branchCanProduceSelectedPatterns(m.get(i), partition);
+
+            //release current pattern, we will not use it any more
+            if (f != stack.getLast()) {
+                frontierBytes -= bytes(m.get(i));
+            }
+            m.set(i, null);
+
+            if (!selectable) {
+                release(partition);
+                continue;
+            }
+
+            //continuously output found patterns
+            output(Collections.singletonList(new ArrayList<>(selectForOutput(partition))), f.depth);
+
+            if (constraint.shouldGeneratePatternsOfLength(f.depth + 1)) {
+                push(stack, partition, f.depth + 1);
+            } else {
+                collectMaximalCandidates(partition);
+                release(partition);
+            }
+            spillIfOverBudget(stack);
+        }
+    }
+
+    private void push(Deque<Frame> stack, List<PatternOccurrence> m, int depth) {
+        if (!constraint.branchCanProduceResults(m)) {
+            collectMaximalCandidates(m);
+            if (!stack.isEmpty()) {
+                release(m);
+            }
+            m.clear();
+            return;
+        }
+        orderPartition(m);
+        stack.push(new Frame(m, depth));
+        maxStackDepth = Math.max(maxStackDepth, stack.size());
+    }
+
+    /**
+     * Accounts for the patterns that the last branch added to a partition.
+     */
+    private void account(Frame f, int j) {
+        final List<PatternOccurrence> partition = f.partitions.get(j);
+        for (int p = f.accounted[j]; p < partition.size(); p++) {
+            frontierBytes += bytes(partition.get(p));
+        }
+        f.accounted[j] = partition.size();
+        peakFrontierBytes = Math.max(peakFrontierBytes, frontierBytes);
+    }
+
+    private void release(List<PatternOccurrence> partition) {
+        frontierBytes -= bytes(partition);
+        partition.clear();
+    }
+
+    /**
+     * Spills pending partitions, starting with the lowest frame, until the frontier fits the budget.
+     */
+    private void spillIfOverBudget(Deque<Frame> stack) {
+        if (spill == null || frontierBytes <= frontierBudgetBytes) {
+            return;
+        }
+        final Iterator<Frame> frames = stack.descendingIterator();
+        while (frames.hasNext() && frontierBytes > frontierBudgetBytes) {
+            final Frame f = frames.next();
+            for (int j = f.m.size() - 1; j >= f.next && frontierBytes > frontierBudgetBytes; j--) {
+                final List<PatternOccurrence> partition = f.partitions.get(j);
+                if (partition.isEmpty()) {
+                    continue;
+                }
+                if (f.spilled == null) {
+                    f.spilled = new Path[f.m.size()];
+                }
+                f.spilled[j] = spill.write(f.spilled[j], partition);
+                spilledPartitions++;
+                frontierBytes -= bytes(partition);
+                partition.clear();
+                f.accounted[j] = 0;
+            }
+        }
+    }
+
+    private static long bytes(PatternOccurrence po) {
+        return po.occurrences.size() * AdaptiveHTPM.occurrenceBytes(po.pattern.length());
+    }
+
+    private static long bytes(List<PatternOccurrence> partition) {
+        long bytes = 0;
+        for (PatternOccurrence po : partition) {
+            bytes += bytes(po);
+        }
+        return bytes;
+    }
+}
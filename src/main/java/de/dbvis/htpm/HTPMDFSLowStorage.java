@@ -19,6 +19,17 @@ public class HTPMDFSLowStorage extends HTPMDFS {
         super(d, constraint);
     }
 
+    /**
+     * Creates a new HTPM-Algorithm-Object.
+     *
+     * @param d          - The Database containing the series.
+     * @param constraint - The constraint determining the pre- and post-joining pruning behavior.
+     * @param mode       - Which of the patterns are output.
+     */
+    public HTPMDFSLowStorage(HybridEventSequenceDatabase d, HTPMConstraint constraint, MiningMode mode) {
+        super(d, constraint, mode);
+    }
+
     @Override
     public Map<HybridTemporalPattern, Set<Occurrence>> getPatterns() {
         throw new RuntimeException("Patterns are not saved after output in low storage mode!");
@@ -35,18 +46,29 @@ public class HTPMDFSLowStorage extends HTPMDFS {
 
         List<PatternOccurrence> patterns = this.genL1().get(0);
 
-        output(Collections.singletonList(new ArrayList<>(patterns)), 1);
+        prepareSelection();
+        output(Collections.singletonList(new ArrayList<>(selectForOutput(patterns))), 1);
+
+        orderBranches(patterns);
+        trackSubPatterns(patterns);
 
         patternDFS(patterns, 2);
+
+        for (List<PatternOccurrence> maximalPatterns : maximalPatternsByLength()) {
+            output(Collections.singletonList(maximalPatterns), maximalPatterns.get(0).pattern.length());
+        }
     }
 
-    private void patternDFS(List<PatternOccurrence> m, int depth) {
+    void patternDFS(List<PatternOccurrence> m, int depth) {
 
         if (!constraint.branchCanProduceResults(m)) {
+            collectMaximalCandidates(m);
             m.clear();
             return;
         }
 
+        orderPartition(m);
+
         List<List<PatternOccurrence>> partitions = new ArrayList<>();
 
         for (int i = 0; i < m.size(); i++) {
@@ -56,16 +78,27 @@ public class HTPMDFSLowStorage extends HTPMDFS {
         for (int i = 0; i < m.size(); i++) {
             calculateBranch(m, depth, partitions, i);
 
+            if (partitions.get(i).isEmpty()) {
+                collectMaximalCandidates(Collections.singletonList(m.get(i)));
+            }
+            final boolean selectable = branchCanProduceSelectedPatterns(m.get(i), partitions.get(i));
+
             //release current pattern, we will not use it any more
             // also removes it from the partitions stored by the calling subroutine
             m.set(i, null);
 
+            if (!selectable) {
+                partitions.get(i).clear();
+                continue;
+            }
+
             //continuously output found patterns
-            output(Collections.singletonList(new ArrayList<>(partitions.get(i))), depth);
+            output(Collections.singletonList(new ArrayList<>(selectForOutput(partitions.get(i)))), depth);
 
             if (constraint.shouldGeneratePatternsOfLength(depth + 1)) {
                 patternDFS(partitions.get(i), depth + 1);
             } else {
+                collectMaximalCandidates(partitions.get(i));
                 partitions.get(i).clear();
             }
         }
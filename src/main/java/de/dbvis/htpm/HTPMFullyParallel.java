@@ -20,7 +20,18 @@ public class HTPMFullyParallel extends HTPMDFS {
      * @param constraint - The constraint determining the pre- and post-joining pruning behavior.
      */
     public HTPMFullyParallel(HybridEventSequenceDatabase d, HTPMConstraint constraint, int numThreads) {
-        super(d, constraint);
+        this(d, constraint, numThreads, MiningMode.ALL);
+    }
+
+    /**
+     * Creates a new HTPM-Algorithm-Object.
+     *
+     * @param d          - The Database containing the series.
+     * @param constraint - The constraint determining the pre- and post-joining pruning behavior.
+     * @param mode       - Which of the patterns are output.
+     */
+    public HTPMFullyParallel(HybridEventSequenceDatabase d, HTPMConstraint constraint, int numThreads, MiningMode mode) {
+        super(d, constraint, mode);
         this.numThreads = numThreads;
     }
 
@@ -32,6 +43,7 @@ public class HTPMFullyParallel extends HTPMDFS {
 
         miningExecutor = new ForkJoinPool(numThreads);
         outputExecutor = Executors.newSingleThreadExecutor();
+        metrics.setQueueDepthGauge(() -> (int) miningExecutor.getQueuedTaskCount());
 
         if (!constraint.shouldGeneratePatternsOfLength(1)) {
             return;
@@ -39,19 +51,56 @@ public class HTPMFullyParallel extends HTPMDFS {
 
         List<PatternOccurrence> patterns = this.genL1().get(0);
 
-        output(Collections.singletonList(new ArrayList<>(patterns)), 1);
+        prepareSelection();
+        output(Collections.singletonList(new ArrayList<>(selectForOutput(patterns))), 1);
+
+        orderBranches(patterns);
 
         try {
-            int depth = 1;
-            if (constraint.shouldGeneratePatternsOfLength(depth + 1)) {
-                MiningChunk newChunk = new MiningChunk(patterns, depth, this);
-                miningExecutor.invoke(newChunk);
+            mine(patterns);
+
+            for (List<PatternOccurrence> maximalPatterns : maximalPatternsByLength()) {
+                output(Collections.singletonList(maximalPatterns), maximalPatterns.get(0).pattern.length());
             }
         } finally {
             shutdown();
         }
     }
 
+    /**
+     * Mines the patterns that are longer than the 1-patterns.
+     * @param onePatterns the 1-patterns, which are released while they are mined
+     */
+    protected void mine(List<PatternOccurrence> onePatterns) {
+        int depth = 1;
+        if (constraint.shouldGeneratePatternsOfLength(depth + 1)) {
+            MiningChunk newChunk = new MiningChunk(onePatterns, depth, this);
+            miningExecutor.invoke(newChunk);
+        } else {
+            collectMaximalCandidates(onePatterns);
+        }
+    }
+
+    /**
+     * Mines the partitions depth-first, in parallel.
+     * @param partitions patterns of the same length, partitioned by pattern parent, which are released while they are mined
+     * @param depth the generation number (length of the patterns to be generated)
+     */
+    void mineChunks(List<List<PatternOccurrence>> partitions, int depth) {
+        final List<MiningChunk> chunks = new ArrayList<>(partitions.size());
+        for (List<PatternOccurrence> partition : partitions) {
+            chunks.add(new MiningChunk(partition, depth, this));
+        }
+        miningExecutor.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(chunks)));
+    }
+
+    /**
+     * @return the pool of the mining tasks, while the algorithm runs
+     */
+    ForkJoinPool getMiningExecutor() {
+        return miningExecutor;
+    }
+
     /* Parallelization overhead does not justify this. Additionally, to fully parallelize
        we would have to call ORAlign in parallel
 
@@ -127,9 +176,22 @@ public class HTPMFullyParallel extends HTPMDFS {
         @Override
         protected void compute() {
             if (!htpm.constraint.branchCanProduceResults(m)) {
+                htpm.collectMaximalCandidates(m);
                 return;
             }
 
+            htpm.orderPartition(m);
+
+            final MiningEvents.ChunkEvent event = new MiningEvents.ChunkEvent();
+            //the patterns are released while the chunk runs, so the event keeps what describes them
+            final HybridTemporalPattern prefix = m.isEmpty() ? null : m.get(0).prefix;
+            final int length = m.isEmpty() ? 0 : m.get(0).pattern.length();
+            final int partitionSize = m.size();
+            if (event.isEnabled()) {
+                event.occurrencesIn = countOccurrences(m);
+            }
+            event.begin();
+
             List<List<PatternOccurrence>> partitions = new ArrayList<>();
             List<MiningChunk> startedTasks = new ArrayList<>();
 
@@ -141,20 +203,44 @@ public class HTPMFullyParallel extends HTPMDFS {
                 htpm.calculateBranch(m, depth, partitions, i);
                 List<PatternOccurrence> finishedPartition = partitions.get(i);
 
+                if (finishedPartition.isEmpty()) {
+                    htpm.collectMaximalCandidates(Collections.singletonList(m.get(i)));
+                }
+
+                final boolean selectable = htpm.branchCanProduceSelectedPatterns(m.get(i), finishedPartition);
+                //the depth is not advanced for the chunks, the length of the patterns limits the recursion
+                final int nextLength = m.get(i).pattern.length() + 2;
+
                 //release current pattern, we will not use it any more
                 // also removes it from the partitions stored by the calling subroutine
                 m.set(i, null);
 
+                if (!selectable) {
+                    finishedPartition.clear();
+                    continue;
+                }
+
                 //continuously output found patterns
-                htpm.output(Collections.singletonList(new ArrayList<>(finishedPartition)), depth);
+                htpm.output(Collections.singletonList(new ArrayList<>(htpm.selectForOutput(finishedPartition))), depth);
 
-                if (htpm.constraint.shouldGeneratePatternsOfLength(depth + 1)) {
+                if (htpm.constraint.shouldGeneratePatternsOfLength(nextLength)) {
                     MiningChunk newChunk = new MiningChunk(finishedPartition, depth, htpm);
                     newChunk.fork();
                     startedTasks.add(newChunk);
+                } else {
+                    htpm.collectMaximalCandidates(finishedPartition);
                 }
             }
 
+            event.end();
+            if (event.shouldCommit()) {
+                event.length = length;
+                event.prefix = MiningEvents.describe(prefix);
+                event.partitionSize = partitionSize;
+                event.forkedTasks = startedTasks.size();
+                event.commit();
+            }
+
             startedTasks.forEach(ForkJoinTask::join);
         }
     }
@@ -0,0 +1,111 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.HTPMConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Mines the short patterns breadth-first like {@link HTPM}, where a complete generation prunes well,
+ * and the longer patterns depth-first like {@link HTPMFullyParallel}, one task per partition with work stealing.
+ * <br/>
+ * The joins of the breadth-first generations run on the same pool as the depth-first tasks. The first depth-first
+ * length is pruned with the sub-patterns of the last breadth-first generation, which is released partition by
+ * partition as the tasks mine it. Only {@link MiningMode#ALL} is supported.
+ */
+public class HybridHTPM extends HTPMFullyParallel {
+
+    /**
+     * The longest patterns that are mined breadth-first when the length is detected.
+     */
+    static final int MAX_AUTO_BREADTH_FIRST_LENGTH = 3;
+
+    /**
+     * When the length is detected, breadth-first mining stops as soon as there are this many partitions per thread.
+     */
+    static final int PARTITIONS_PER_THREAD = 4;
+
+    private final int breadthFirstLength;
+
+    private int lastBreadthFirstLength;
+
+    /**
+     * Creates a new HTPM-Algorithm-Object that detects how long the patterns are that are mined breadth-first:
+     * up to length 3, until there are enough partitions to keep the threads busy.
+     *
+     * @param d          - The Database containing the series.
+     * @param constraint - The constraint determining the pre- and post-joining pruning behavior.
+     * @param numThreads - The number of threads.
+     */
+    public HybridHTPM(HybridEventSequenceDatabase d, HTPMConstraint constraint, int numThreads) {
+        this(d, constraint, numThreads, 0);
+    }
+
+    /**
+     * Creates a new HTPM-Algorithm-Object.
+     *
+     * @param d                  - The Database containing the series.
+     * @param constraint         - The constraint determining the pre- and post-joining pruning behavior.
+     * @param numThreads         - The number of threads.
+     * @param breadthFirstLength - The length of the longest patterns that are mined breadth-first, 0 to detect it.
+     */
+    public HybridHTPM(HybridEventSequenceDatabase d, HTPMConstraint constraint, int numThreads, int breadthFirstLength) {
+        super(d, constraint, numThreads);
+        if (breadthFirstLength < 0) {
+            throw new IllegalArgumentException("Breadth-first length must not be negative, was " + breadthFirstLength);
+        }
+        this.breadthFirstLength = breadthFirstLength;
+    }
+
+    /**
+     * @return the length of the longest patterns the last run mined breadth-first
+     */
+    public int getLastBreadthFirstLength() {
+        return lastBreadthFirstLength;
+    }
+
+    @Override
+    protected void mine(List<PatternOccurrence> onePatterns) {
+        List<List<PatternOccurrence>> m = Collections.singletonList(onePatterns);
+        int k = 2;
+
+        while (constraint.shouldGeneratePatternsOfLength(k) && continueBreadthFirst(m, k)) {
+            m = genLk(m, k);
+            //the output runs later, when the tasks may have released the patterns
+            output(m.stream().map(ArrayList::new).collect(Collectors.toList()), k);
+            k++;
+        }
+        lastBreadthFirstLength = k - 1;
+
+        if (!constraint.shouldGeneratePatternsOfLength(k)) {
+            return;
+        }
+        if (constraint.fulfillsAprioriProperty()) {
+            //the sub-patterns of the first depth-first length are all known, the ones of longer patterns are not
+            rememberGeneration(m, k - 1);
+        }
+        mineChunks(m, k);
+    }
+
+    /**
+     * @param generation all patterns of length k - 1, partitioned by pattern parent
+     * @param k the length of the patterns to generate
+     * @return true if the patterns of length k are generated breadth-first
+     */
+    private boolean continueBreadthFirst(List<List<PatternOccurrence>> generation, int k) {
+        if (breadthFirstLength > 0) {
+            return k <= breadthFirstLength;
+        }
+        return k <= MAX_AUTO_BREADTH_FIRST_LENGTH
+                && generation.size() < PARTITIONS_PER_THREAD * getMiningExecutor().getParallelism();
+    }
+
+    @Override
+    protected ExecutorService joinExecutor() {
+        return getMiningExecutor();
+    }
+}
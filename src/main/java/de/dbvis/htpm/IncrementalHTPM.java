@@ -0,0 +1,498 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AcceptAllConstraint;
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * HTPM with minimum support that can be updated when sequences are appended to or removed from the database,
+ * without joining the occurrences in the sequences that were mined before again.
+ * <br/>
+ * Besides the frequent patterns, a run keeps their negative border: the patterns that the joins of
+ * frequent patterns produced, but which are not frequent, with their occurrences.
+ * They are stored by the pair of patterns that was joined, together with the frequent patterns of the pair,
+ * whose occurrences are those of the result.
+ * An update repeats the level-wise joins of {@link HTPM} over the whole database:
+ * pairs that were joined before only join their occurrences in the new sequences,
+ * and the stored candidates of the pair provide the occurrences in the old sequences.
+ * Pairs that were not joined before (because one of the patterns was not frequent) join all occurrences.
+ * The occurrences in removed sequences are dropped from the stored candidates, and the parents of the remaining
+ * occurrences are renumbered like the occurrences of their parent patterns.
+ * Support is checked after merging, against the size of the updated database,
+ * so the result is the same as a run of {@link HTPM} with an {@link AgrawalSupportConstraint}
+ * of the same minimum support over the updated database.
+ * Candidates are merged by pair and pattern, so the result does not depend on the order of the patterns in a partition.
+ * <br/>
+ * Storing the negative border takes more memory than a normal run, as much as its occurrences.
+ * Sequences must not be changed between updates.
+ * <br/>
+ * Example:
+ * <pre>
+ * IncrementalHTPM htpm = new IncrementalHTPM(d, 0.5);
+ * htpm.start();
+ * d.add(newSequence);
+ * IncrementalHTPM updated = new IncrementalHTPM(htpm, Collections.singletonList(newSequence));
+ * updated.start();
+ * d.remove(oldSequence);
+ * updated = new IncrementalHTPM(updated, Collections.singletonList(oldSequence), Collections.emptyList());
+ * updated.start();
+ * </pre>
+ */
+public class IncrementalHTPM extends HTPM {
+
+    private final double minSupport;
+
+    /**
+     * checks the support of the merged candidates, the joins themselves keep all candidates
+     */
+    private final AgrawalSupportConstraint supportConstraint;
+
+    /**
+     * the run whose candidates are updated, null for the first run; released after the update
+     */
+    private IncrementalHTPM previous;
+
+    /**
+     * the sequences that were not mined by the previous run
+     */
+    private final Set<HybridEventSequence> newSequences;
+
+    /**
+     * the sequences of the previous run that were removed from the database
+     */
+    private final Set<HybridEventSequence> removedSequences;
+
+    /**
+     * the sequences that were mined by start(), in database order
+     */
+    private List<HybridEventSequence> minedSequences;
+
+    /**
+     * the frequent 1-patterns and the negative border of the 1-patterns
+     */
+    private Candidates candidates1;
+
+    /**
+     * for each generation k, the frequent patterns and the negative border produced by each joined pair of patterns
+     */
+    private List<Map<JoinedPair, JoinedCandidates>> candidates;
+
+    /**
+     * Creates a new incremental HTPM, which mines the whole database on start.
+     * @param d - The Database containing the series.
+     * @param minSupport - The minimum support of the patterns.
+     */
+    public IncrementalHTPM(HybridEventSequenceDatabase d, double minSupport) {
+        super(d, new KeepCandidatesConstraint());
+        this.minSupport = minSupport;
+        this.supportConstraint = new AgrawalSupportConstraint(d.size(), minSupport);
+        this.previous = null;
+        this.newSequences = Collections.emptySet();
+        this.removedSequences = Collections.emptySet();
+    }
+
+    /**
+     * Creates an update of a previous run, which mines only the new sequences on start.
+     * The new sequences must have been appended to the database of the previous run.
+     * @param previous - The run to update, it must have been started.
+     * @param newSequences - The sequences that were appended to the database since the previous run, in database order.
+     */
+    public IncrementalHTPM(IncrementalHTPM previous, Collection<HybridEventSequence> newSequences) {
+        this(previous, Collections.emptyList(), newSequences);
+    }
+
+    /**
+     * Creates an update of a previous run, which drops the occurrences in the removed sequences
+     * and mines only the new sequences on start.
+     * The database must consist of the remaining sequences of the previous run, in their order,
+     * followed by the new sequences.
+     * @param previous - The run to update, it must have been started.
+     * @param removedSequences - The sequences of the previous run that were removed from the database.
+     * @param newSequences - The sequences that were appended to the database since the previous run, in database order.
+     */
+    public IncrementalHTPM(IncrementalHTPM previous, Collection<HybridEventSequence> removedSequences,
+                           Collection<HybridEventSequence> newSequences) {
+        super(previous.d, new KeepCandidatesConstraint());
+        if (previous.candidates == null) {
+            throw new IllegalArgumentException("The previous run has to be started first");
+        }
+        this.removedSequences = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.removedSequences.addAll(removedSequences);
+        final List<HybridEventSequence> expected = new ArrayList<>(previous.minedSequences.size() + newSequences.size());
+        for (HybridEventSequence s : previous.minedSequences) {
+            if (!this.removedSequences.contains(s)) {
+                expected.add(s);
+            }
+        }
+        if (expected.size() + this.removedSequences.size() != previous.minedSequences.size()) {
+            throw new IllegalArgumentException("The removed sequences must have been mined by the previous run");
+        }
+        expected.addAll(newSequences);
+        if (!expected.equals(d.getSequences())) {
+            throw new IllegalArgumentException("The database must consist of the remaining sequences of the previous run, "
+                    + "followed by the new sequences");
+        }
+        this.minSupport = previous.minSupport;
+        this.supportConstraint = new AgrawalSupportConstraint(d.size(), minSupport);
+        this.previous = previous;
+        this.newSequences = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.newSequences.addAll(newSequences);
+    }
+
+    @Override
+    public void start() {
+        this.patterns = new ArrayList<>();
+        this.candidates = new ArrayList<>();
+        this.minedSequences = new ArrayList<>(d.getSequences());
+
+        List<List<PatternOccurrence>> m = Collections.singletonList(genCandidates1());
+        this.patterns.add(m);
+
+        int totalNumPatterns = m.get(0).size();
+        output(m, 1);
+
+        int k = 2;
+
+        //same termination as HTPM
+        while (totalNumPatterns > 1) {
+            m = this.genCandidatesK(m, k);
+
+            this.patterns.add(m);
+
+            totalNumPatterns = m.stream().mapToInt(List::size).sum();
+            output(m, k);
+
+            k++;
+        }
+
+        //the candidates of the previous run are now part of the candidates of this run
+        this.previous = null;
+    }
+
+    /**
+     * Merges the stored 1-patterns with those of the new sequences.
+     * @return the frequent 1-patterns
+     */
+    private List<PatternOccurrence> genCandidates1() {
+        final List<HybridEventSequence> sequences = d.getSequences();
+        final List<HybridEventSequence> sequencesToMine = previous == null
+                ? sequences
+                : sequences.subList(sequences.size() - newSequences.size(), sequences.size());
+
+        final Map<HybridTemporalPattern, PatternOccurrence> found = genL1(sequencesToMine).get(0).stream()
+                .collect(Collectors.toMap(po -> po.pattern, po -> po));
+        //the parents are the indices of the sequences, in the whole database
+        found.values().forEach(po -> offsetParents(po, sequences.size() - sequencesToMine.size()));
+
+        //the parents of the 1-patterns are the sequences, the remaining ones keep their order
+        final Map<HybridTemporalPattern, PatternOccurrence> merged = previous == null
+                ? found
+                : previous.candidates1.merge(found, null, renumber(previous.minedSequences.size(),
+                        i -> removedSequences.contains(previous.minedSequences.get(i))));
+        candidates1 = split(merged, 1);
+        return candidates1.frequent;
+    }
+
+    /**
+     * Joins the patterns of one generation within their partitions, like {@link HTPM#genLk(List, int)}.
+     * @param partitionedOccurrences - The current generation of patterns, partitioned by pattern parent.
+     * @param k the generation number (length of patterns to be generated)
+     * @return the frequent patterns of the next generation, partitioned by pattern parent
+     */
+    private List<List<PatternOccurrence>> genCandidatesK(List<List<PatternOccurrence>> partitionedOccurrences, int k) {
+        final Map<JoinedPair, JoinedCandidates> previousCandidates =
+                previous != null && previous.candidates.size() > k
+                        ? previous.candidates.get(k)
+                        : Collections.emptyMap();
+
+        while (candidates.size() <= k) {
+            candidates.add(new HashMap<>());
+        }
+        final Map<JoinedPair, JoinedCandidates> currentCandidates = candidates.get(k);
+
+        //the patterns of the previous run whose occurrences are the parents of its stored candidates
+        final Map<HybridTemporalPattern, PatternOccurrence> previousParents = new HashMap<>();
+        if (!removedSequences.isEmpty() && !previousCandidates.isEmpty()) {
+            previous.patterns.get(k - 2).forEach(partition -> partition.forEach(po -> previousParents.put(po.pattern, po)));
+        }
+        final Map<HybridTemporalPattern, int[]> parentIndices = new HashMap<>();
+
+        final List<List<PatternOccurrence>> result = new ArrayList<>();
+
+        for (List<PatternOccurrence> partition : partitionedOccurrences) {
+            final PatternOccurrence[] restrictedToNewSequences = new PatternOccurrence[partition.size()];
+
+            final List<Map<HybridTemporalPattern, PatternOccurrence>> partitionResult = new ArrayList<>(partition.size());
+            for (int i = 0; i < partition.size(); i++) {
+                partitionResult.add(new HashMap<>());
+            }
+
+            for (int i = 0; i < partition.size(); i++) {
+                final PatternOccurrence first = partition.get(i);
+
+                for (int j = 0; j <= i; j++) {
+                    final PatternOccurrence second = partition.get(j);
+                    final JoinedPair pair = new JoinedPair(first.pattern, second.pattern);
+                    final JoinedCandidates stored = previousCandidates.get(pair);
+
+                    final List<Map<HybridTemporalPattern, PatternOccurrence>> joined;
+                    if (stored == null) {
+                        joined = join(first, second, k);
+                    } else {
+                        final PatternOccurrence newFirst = restrictToNewSequences(partition, restrictedToNewSequences, i);
+                        final PatternOccurrence newSecond = restrictToNewSequences(partition, restrictedToNewSequences, j);
+                        final List<Map<HybridTemporalPattern, PatternOccurrence>> newJoined = join(newFirst, newSecond, k);
+                        //the occurrences in the new sequences follow those in the old ones
+                        newJoined.get(0).values().forEach(po -> offsetParents(po,
+                                first.occurrences.size() - newFirst.occurrences.size()));
+                        newJoined.get(1).values().forEach(po -> offsetParents(po,
+                                second.occurrences.size() - newSecond.occurrences.size()));
+                        joined = Arrays.asList(
+                                stored.parentFirst.merge(newJoined.get(0), first.pattern,
+                                        parentIndices(previousParents, parentIndices, first.pattern)),
+                                stored.parentSecond.merge(newJoined.get(1), second.pattern,
+                                        parentIndices(previousParents, parentIndices, second.pattern)));
+                    }
+                    final JoinedCandidates split = new JoinedCandidates(split(joined.get(0), k), split(joined.get(1), k));
+                    currentCandidates.put(pair, split);
+
+                    for (PatternOccurrence po : split.parentFirst.frequent) {
+                        partitionResult.get(i).put(po.pattern, po);
+                    }
+                    for (PatternOccurrence po : split.parentSecond.frequent) {
+                        partitionResult.get(j).put(po.pattern, po);
+                    }
+                }
+            }
+
+            partitionResult.forEach(map -> result.add(new ArrayList<>(map.values())));
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks the support of merged candidates.
+     * @param merged the candidates with their occurrences in all sequences
+     * @param k the length of the candidates
+     * @return the frequent candidates and the negative border
+     */
+    private Candidates split(Map<HybridTemporalPattern, PatternOccurrence> merged, int k) {
+        final Candidates split = new Candidates();
+        for (PatternOccurrence po : merged.values()) {
+            (isFrequent(po, k) ? split.frequent : split.border).add(po);
+        }
+        return split;
+    }
+
+    /**
+     * @param previousParents the patterns of the previous run that are parents of stored candidates
+     * @param computed the indices computed so far
+     * @param parent a pattern of the previous run
+     * @return the indices of the occurrences of the pattern in this run by their indices in the previous run,
+     * -1 for occurrences in removed sequences, or null if no sequence was removed
+     */
+    private int[] parentIndices(Map<HybridTemporalPattern, PatternOccurrence> previousParents,
+                                Map<HybridTemporalPattern, int[]> computed, HybridTemporalPattern parent) {
+        if (removedSequences.isEmpty()) {
+            return null;
+        }
+        return computed.computeIfAbsent(parent, p -> {
+            final List<PatternOccurrence.OccurrenceTreeLink> occurrences = previousParents.get(p).occurrences;
+            return renumber(occurrences.size(),
+                    i -> removedSequences.contains(occurrences.get(i).child.getHybridEventSequence()));
+        });
+    }
+
+    /**
+     * @param size the number of elements
+     * @param removed whether the element at an index is removed
+     * @return the index of each element among the remaining ones, -1 for removed elements,
+     * or null if no sequence was removed
+     */
+    private int[] renumber(int size, IntPredicate removed) {
+        if (removedSequences.isEmpty()) {
+            return null;
+        }
+        final int[] indices = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            indices[i] = removed.test(i) ? -1 : n++;
+        }
+        return indices;
+    }
+
+    private PatternOccurrence restrictToNewSequences(List<PatternOccurrence> partition,
+                                                     PatternOccurrence[] restricted, int index) {
+        if (restricted[index] == null) {
+            final PatternOccurrence po = partition.get(index);
+            restricted[index] = new PatternOccurrence(po.prefix, po.pattern, po.occurrences.stream()
+                    .filter(link -> newSequences.contains(link.child.getHybridEventSequence()))
+                    .collect(Collectors.toList()));
+        }
+        return restricted[index];
+    }
+
+    /**
+     * Turns the parents of occurrences that were found in the new sequences only into parents among all occurrences.
+     * @param po a pattern found in the new sequences
+     * @param offset the number of parent occurrences in the old sequences, which precede the new ones
+     */
+    private static void offsetParents(PatternOccurrence po, int offset) {
+        if (offset == 0) {
+            return;
+        }
+        po.occurrences.replaceAll(link -> new PatternOccurrence.OccurrenceTreeLink(link.parent + offset, link.child));
+    }
+
+    private boolean isFrequent(PatternOccurrence po, int k) {
+        final Set<Occurrence> occurrences = po.occurrences.stream().map(link -> link.child).collect(Collectors.toSet());
+        return supportConstraint.patternFulfillsConstraints(po.pattern, occurrences, k);
+    }
+
+    /**
+     * Two patterns that were joined, in the order of the join.
+     * The order matters for the occurrence marks of the result, so pairs joined in the other order are not reused.
+     */
+    private static final class JoinedPair {
+        private final HybridTemporalPattern first;
+        private final HybridTemporalPattern second;
+
+        private JoinedPair(HybridTemporalPattern first, HybridTemporalPattern second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof JoinedPair)) {
+                return false;
+            }
+            final JoinedPair other = (JoinedPair) o;
+            return first.equals(other.first) && second.equals(other.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * first.hashCode() + second.hashCode();
+        }
+    }
+
+    /**
+     * The candidates a join produced, for each parent.
+     */
+    private static final class JoinedCandidates {
+        private final Candidates parentFirst;
+        private final Candidates parentSecond;
+
+        private JoinedCandidates(Candidates parentFirst, Candidates parentSecond) {
+            this.parentFirst = parentFirst;
+            this.parentSecond = parentSecond;
+        }
+    }
+
+    /**
+     * Candidates with the same parent, split by their support.
+     * The frequent candidates are part of the result of the run, the negative border is only kept here.
+     */
+    private static final class Candidates {
+        private final List<PatternOccurrence> frequent = new ArrayList<>();
+        private final List<PatternOccurrence> border = new ArrayList<>();
+
+        /**
+         * Appends the candidates that were found in the new sequences to copies of the stored ones.
+         * Occurrences in the new sequences come after those in the old ones, as in a run over the whole database.
+         * @param found the candidates found in the new sequences
+         * @param parent the parent of the candidates
+         * @param parentIndices the new index of each parent occurrence, -1 for those in removed sequences,
+         *                      null if no sequence was removed
+         * @return the candidates with their occurrences in all sequences
+         */
+        private Map<HybridTemporalPattern, PatternOccurrence> merge(Map<HybridTemporalPattern, PatternOccurrence> found,
+                                                                    HybridTemporalPattern parent, int[] parentIndices) {
+            final Map<HybridTemporalPattern, PatternOccurrence> merged = new HashMap<>();
+            for (List<PatternOccurrence> stored : Arrays.asList(frequent, border)) {
+                for (PatternOccurrence po : stored) {
+                    final List<PatternOccurrence.OccurrenceTreeLink> occurrences = parentIndices == null
+                            ? new ArrayList<>(po.occurrences)
+                            : remaining(po.occurrences, parentIndices);
+                    if (!occurrences.isEmpty()) {
+                        merged.put(po.pattern, new PatternOccurrence(parent, po.pattern, occurrences));
+                    }
+                }
+            }
+            for (PatternOccurrence po : found.values()) {
+                final PatternOccurrence candidate = merged.get(po.pattern);
+                if (candidate == null) {
+                    merged.put(po.pattern, po);
+                } else {
+                    candidate.occurrences.addAll(po.occurrences);
+                }
+            }
+            return merged;
+        }
+
+        /**
+         * An occurrence is in a removed sequence exactly if its parent is, because both are in the same sequence.
+         */
+        private static List<PatternOccurrence.OccurrenceTreeLink> remaining(List<PatternOccurrence.OccurrenceTreeLink> links,
+                                                                            int[] parentIndices) {
+            final List<PatternOccurrence.OccurrenceTreeLink> remaining = new ArrayList<>(links.size());
+            for (PatternOccurrence.OccurrenceTreeLink link : links) {
+                final int parent = parentIndices[link.parent];
+                if (parent >= 0) {
+                    remaining.add(new PatternOccurrence.OccurrenceTreeLink(parent, link.child));
+                }
+            }
+            return remaining;
+        }
+    }
+
+    /**
+     * Keeps all candidates during the joins, the support is checked after the candidates are merged.
+     */
+    private static final class KeepCandidatesConstraint extends AcceptAllConstraint {
+
+        @Override
+        public boolean shouldOutputOccurrence(HybridTemporalPattern p, Occurrence occurrence) {
+            return true;
+        }
+
+        @Override
+        public boolean shouldOutputPattern(HybridTemporalPattern p, Set<Occurrence> occurrences) {
+            return true;
+        }
+
+        @Override
+        public int getPatternJoinPreventedCount() {
+            return 0;
+        }
+
+        @Override
+        public int getOccurrenceJoinPreventedCount() {
+            return 0;
+        }
+
+        @Override
+        public int getOccurrencesDiscardedCount() {
+            return 0;
+        }
+
+        @Override
+        public int getPatternsDiscardedCount() {
+            return 0;
+        }
+
+        @Override
+        public int getBranchesCutCount() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.htp.DefaultHybridTemporalPatternBuilder;
+import de.dbvis.htpm.occurrence.Occurrence;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The transient state of the joins of one thread, reused from join to join.
+ * <br/>
+ * A join aligns every pair of occurrences with the same parent in a builder, collects the new occurrences of all
+ * candidate patterns and checks the support of each candidate, after which only the frequent patterns survive.
+ * The arena provides the builder, the lists of the candidates and the set of the support check. The lists are
+ * released in bulk once the join has copied its frequent patterns, so that the candidates leave no garbage
+ * besides their occurrences. The arena of a thread is taken by one join at a time; a join that finds it taken,
+ * e.g. because a task ran another join on the same thread, allocates its own state.
+ */
+final class JoinArena {
+
+    /**
+     * lists and sets that grow larger are not kept, so that a large join does not pin their arrays
+     */
+    static final int MAX_RETAINED_OCCURRENCES = 1 << 16;
+
+    private static final ThreadLocal<JoinArena> ARENA = ThreadLocal.withInitial(JoinArena::new);
+
+    private final DefaultHybridTemporalPatternBuilder builder = new DefaultHybridTemporalPatternBuilder(null, 2);
+    private final List<List<PatternOccurrence.OccurrenceTreeLink>> candidates = new ArrayList<>();
+    private final Set<Occurrence> occurrences = new HashSet<>();
+    private int usedCandidates;
+    private boolean taken;
+
+    private JoinArena() {
+    }
+
+    /**
+     * @return the arena of the current thread, which has to be released after the join,
+     * or a new arena if the one of the thread is taken
+     */
+    static JoinArena take() {
+        final JoinArena arena = ARENA.get();
+        if (arena.taken) {
+            return new JoinArena();
+        }
+        arena.taken = true;
+        return arena;
+    }
+
+    /**
+     * @param seq the sequence of the next occurrence
+     * @return the builder of the arena, emptied
+     */
+    DefaultHybridTemporalPatternBuilder builder(HybridEventSequence seq) {
+        builder.reset(seq);
+        return builder;
+    }
+
+    /**
+     * @return an empty list for the occurrences of a candidate pattern, valid until the arena is released
+     */
+    List<PatternOccurrence.OccurrenceTreeLink> candidateOccurrences() {
+        if (usedCandidates == candidates.size()) {
+            candidates.add(new ArrayList<>());
+        }
+        return candidates.get(usedCandidates++);
+    }
+
+    /**
+     * @param links the occurrences of a pattern
+     * @return the set of their occurrences, valid until the next call
+     */
+    Set<Occurrence> occurrences(List<PatternOccurrence.OccurrenceTreeLink> links) {
+        final Set<Occurrence> set = links.size() <= MAX_RETAINED_OCCURRENCES ? occurrences : new HashSet<>();
+        set.clear();
+        for (PatternOccurrence.OccurrenceTreeLink link : links) {
+            set.add(link.child);
+        }
+        return set;
+    }
+
+    /**
+     * Empties all lists of candidates at once and returns the arena to its thread.
+     */
+    void release() {
+        int kept = 0;
+        for (int i = 0; i < usedCandidates; i++) {
+            final List<PatternOccurrence.OccurrenceTreeLink> list = candidates.get(i);
+            if (list.size() <= MAX_RETAINED_OCCURRENCES) {
+                list.clear();
+                candidates.set(kept++, list);
+            }
+        }
+        candidates.subList(kept, usedCandidates).clear();
+        usedCandidates = 0;
+        occurrences.clear();
+        taken = false;
+    }
+}
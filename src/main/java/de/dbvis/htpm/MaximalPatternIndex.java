@@ -0,0 +1,200 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.DefaultHybridTemporalPatternBuilder;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.htp.eventnodes.EventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEndEventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalStartEventNode;
+import de.dbvis.htpm.htp.eventnodes.OrderRelation;
+import de.dbvis.htpm.htp.eventnodes.PointEventNode;
+import de.dbvis.htpm.occurrence.Occurrence;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The maximal patterns among the patterns added so far, used by the depth-first engines in {@link MiningMode#MAXIMAL}.
+ * <br/>
+ * The engines add every frequent pattern without frequent extensions in its branch,
+ * and the patterns found by the look-ahead {@link #tailUnion(PatternOccurrence, List)}.
+ * A pattern is dropped if it is contained in a pattern of the index, and removes the patterns it contains.
+ * To test containment, a pattern is turned into a sequence with one event per event of the pattern,
+ * in which the contained pattern is searched.
+ * A bit mask of the event types of each pattern rules out most pairs before that.
+ * <br/>
+ * Thread-safe.
+ */
+final class MaximalPatternIndex {
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Adds a pattern, unless it is contained in a pattern of the index.
+     * @param po the pattern with its occurrences
+     */
+    synchronized void add(PatternOccurrence po) {
+        final Entry entry = new Entry(po);
+        for (Entry other : entries) {
+            if (other.contains(entry)) {
+                return;
+            }
+        }
+        entries.removeIf(entry::contains);
+        entries.add(entry);
+    }
+
+    /**
+     * @return the maximal patterns, grouped by length in ascending order
+     */
+    synchronized List<List<PatternOccurrence>> getPatternsByLength() {
+        final TreeMap<Integer, List<PatternOccurrence>> byLength = entries.stream()
+                .map(entry -> entry.po)
+                .collect(Collectors.groupingBy(po -> po.pattern.length(), TreeMap::new, Collectors.toList()));
+        return new ArrayList<>(byLength.values());
+    }
+
+    /**
+     * Look-ahead for the branch of a pattern, which contains all patterns with the pattern as prefix.
+     * Their events other than the prefix start no earlier than the last start of the prefix,
+     * and by the Apriori property, they have the types of the events added by the finished partition of the prefix.
+     * So each of their occurrences lies within an occurrence of the prefix together with all such events,
+     * the tail of the occurrence. If the pattern of one occurrence with its tail contains the patterns
+     * of all other occurrences with their tails, it contains all patterns of the branch.
+     * @param po the prefix of the branch with all its occurrences
+     * @param partition the patterns of the branch with one more event than the prefix
+     * @return the pattern that contains all patterns of the branch, with the occurrences that form it,
+     * or null if there is none, or none longer than the prefix
+     */
+    static PatternOccurrence tailUnion(PatternOccurrence po, List<PatternOccurrence> partition) {
+        if (partition.isEmpty()) {
+            return null;
+        }
+        final Set<String> pointTypes = new HashSet<>();
+        final Set<String> intervalTypes = new HashSet<>();
+        for (PatternOccurrence child : partition) {
+            final List<EventNode> nodes = child.pattern.getEventNodes();
+            final EventNode added = nodes.get(lastStartIndex(nodes));
+            (added instanceof PointEventNode ? pointTypes : intervalTypes).add(added.getStringEventId());
+        }
+
+        final int lastStart = lastStartIndex(po.pattern.getEventNodes());
+        final Map<HybridTemporalPattern, List<PatternOccurrence.OccurrenceTreeLink>> unions = new HashMap<>();
+        HybridTemporalPattern largest = null;
+        for (int i = 0; i < po.occurrences.size(); i++) {
+            final Occurrence o = po.occurrences.get(i).child;
+            final Set<HybridEvent> used = Collections.newSetFromMap(new IdentityHashMap<>());
+            final List<HybridEvent> events = new ArrayList<>();
+            for (HybridEvent e : o.ops()) {
+                if (used.add(e)) {
+                    events.add(e);
+                }
+            }
+            final double startsFrom = startOf(o.get(lastStart));
+            for (HybridEvent e : o.getHybridEventSequence().getEvents()) {
+                if (!used.contains(e) && startOf(e) >= startsFrom
+                        && (e.isPointEvent() ? pointTypes : intervalTypes).contains(e.getEventId())) {
+                    events.add(e);
+                }
+            }
+
+            final DefaultHybridTemporalPatternBuilder builder =
+                    DefaultHybridTemporalPatternBuilder.buildFromHybridEventList(o.getHybridEventSequence(), events);
+            final HybridTemporalPattern union = builder.getPattern();
+            unions.computeIfAbsent(union, u -> new ArrayList<>())
+                    .add(new PatternOccurrence.OccurrenceTreeLink(i, builder.getOccurence()));
+            if (largest == null || union.length() > largest.length()) {
+                largest = union;
+            }
+        }
+        if (largest == null || largest.length() == po.pattern.length()) {
+            return null;
+        }
+
+        final Entry entry = new Entry(new PatternOccurrence(null, largest, unions.get(largest)));
+        for (HybridTemporalPattern union : unions.keySet()) {
+            if (!entry.contains(new Entry(new PatternOccurrence(null, union, Collections.emptyList())))) {
+                return null;
+            }
+        }
+        return entry.po;
+    }
+
+    private static int lastStartIndex(List<EventNode> nodes) {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            if (!(nodes.get(i) instanceof IntervalEndEventNode)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Pattern has no events");
+    }
+
+    private static double startOf(HybridEvent e) {
+        return e.isPointEvent() ? e.getTimePoint() : e.getStartPoint();
+    }
+
+    private static final class Entry {
+        private final PatternOccurrence po;
+        private final int length;
+        private final long typeMask;
+
+        /**
+         * the pattern as a sequence, created on the first containment test
+         */
+        private HybridEventSequence sequence;
+
+        private Entry(PatternOccurrence po) {
+            this.po = po;
+            this.length = po.pattern.length();
+            long mask = 0;
+            for (EventNode node : po.pattern.getEventNodes()) {
+                mask |= 1L << node.id;
+            }
+            this.typeMask = mask;
+        }
+
+        /**
+         * @return true if the pattern of the other entry is a sub-pattern of this one, or the same pattern
+         */
+        private boolean contains(Entry other) {
+            if (other.length > length || (other.typeMask & ~typeMask) != 0) {
+                return false;
+            }
+            if (sequence == null) {
+                sequence = asSequence(po.pattern);
+            }
+            return sequence.supports(other.po.pattern);
+        }
+
+        /**
+         * Events of the sequence get the number of SMALLER relations before their nodes as times.
+         */
+        private static HybridEventSequence asSequence(HybridTemporalPattern pattern) {
+            final List<EventNode> nodes = pattern.getEventNodes();
+            final List<OrderRelation> relations = pattern.getOrderRelations();
+            final HybridEventSequence sequence = new DefaultHybridEventSequence("maximal");
+            final Map<Integer, Map<Integer, Integer>> startTimes = new HashMap<>();
+            int time = 0;
+            for (int i = 0; i < nodes.size(); i++) {
+                if (i > 0 && relations.get(i - 1) == OrderRelation.SMALLER) {
+                    time++;
+                }
+                final EventNode node = nodes.get(i);
+                if (node instanceof IntervalStartEventNode) {
+                    startTimes.computeIfAbsent(node.id, id -> new HashMap<>())
+                            .put(((IntervalEventNode) node).getOccurrenceMark(), time);
+                } else if (node instanceof IntervalEndEventNode) {
+                    final int start = startTimes.get(node.id).get(((IntervalEventNode) node).getOccurrenceMark());
+                    sequence.add(new DefaultHybridEvent(node.getStringEventId(), start, time));
+                } else {
+                    sequence.add(new DefaultHybridEvent(node.getStringEventId(), time));
+                }
+            }
+            return sequence;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import jdk.jfr.*;
+
+/**
+ * The JDK Flight Recorder events of the engines, to find the levels, branches and joins
+ * where the time and the allocations of a run go.
+ * <br/>
+ * The events are only committed if they last longer than their threshold, which keeps them cheap enough
+ * to stay enabled; a recording can lower the thresholds, e.g. with
+ * {@code recording.enable("de.dbvis.htpm.Join").withThreshold(Duration.ZERO)}.
+ * The patterns of an event are only converted to strings if the event is committed.
+ */
+final class MiningEvents {
+
+    private MiningEvents() {
+    }
+
+    @Name("de.dbvis.htpm.Level")
+    @Label("Level")
+    @Category({"HTPM"})
+    @Description("Generation of all patterns of one length by the breadth-first engine")
+    @Threshold("0 ms")
+    static final class LevelEvent extends Event {
+        @Label("Length")
+        int length;
+
+        @Label("Partitions")
+        int partitions;
+
+        @Label("Patterns In")
+        int patternsIn;
+
+        @Label("Occurrences In")
+        long occurrencesIn;
+
+        @Label("Patterns Out")
+        int patternsOut;
+
+        @Label("Occurrences Out")
+        long occurrencesOut;
+    }
+
+    @Name("de.dbvis.htpm.Branch")
+    @Label("Branch")
+    @Category({"HTPM"})
+    @Description("Joins of one pattern with its siblings by a depth-first engine, which complete its partition")
+    @Threshold("10 ms")
+    static final class BranchEvent extends Event {
+        @Label("Length")
+        @Description("The length of the generated patterns")
+        int length;
+
+        @Label("Prefix")
+        @Description("The pattern whose partition is completed")
+        String prefix;
+
+        @Label("Partition Size")
+        @Description("The number of siblings of the pattern, including itself")
+        int partitionSize;
+
+        @Label("Occurrences In")
+        long occurrencesIn;
+
+        @Label("Patterns Out")
+        int patternsOut;
+
+        @Label("Occurrences Out")
+        long occurrencesOut;
+    }
+
+    @Name("de.dbvis.htpm.Chunk")
+    @Label("Mining Chunk")
+    @Category({"HTPM"})
+    @Description("Mining of one partition by a task of the fully parallel engine, without its forked sub-tasks")
+    @Threshold("10 ms")
+    static final class ChunkEvent extends Event {
+        @Label("Length")
+        @Description("The length of the patterns of the partition")
+        int length;
+
+        @Label("Prefix")
+        @Description("The common prefix of the patterns of the partition")
+        String prefix;
+
+        @Label("Partition Size")
+        int partitionSize;
+
+        @Label("Occurrences In")
+        long occurrencesIn;
+
+        @Label("Forked Tasks")
+        int forkedTasks;
+    }
+
+    @Name("de.dbvis.htpm.Join")
+    @Label("Join")
+    @Category({"HTPM"})
+    @Description("Join of two patterns and their occurrences")
+    @Threshold("1 ms")
+    static final class JoinEvent extends Event {
+        @Label("Length")
+        @Description("The length of the generated patterns")
+        int length;
+
+        @Label("Prefix")
+        @Description("The common prefix of the joined patterns")
+        String prefix;
+
+        @Label("First")
+        String first;
+
+        @Label("Second")
+        String second;
+
+        @Label("Occurrences of First")
+        int occurrencesFirst;
+
+        @Label("Occurrences of Second")
+        int occurrencesSecond;
+
+        @Label("Occurrence Pairs")
+        @Description("The number of pairs of occurrences that were compared")
+        long occurrencePairs;
+
+        @Label("Patterns Out")
+        int patternsOut;
+
+        @Label("Occurrences Out")
+        long occurrencesOut;
+    }
+
+    /**
+     * @return the pattern as string, or an empty string for the empty prefix of the 1-patterns
+     */
+    static String describe(HybridTemporalPattern pattern) {
+        return pattern == null ? "" : pattern.toString();
+    }
+}
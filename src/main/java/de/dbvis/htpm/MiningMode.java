@@ -0,0 +1,24 @@
+package de.dbvis.htpm;
+
+/**
+ * Selects which of the frequent patterns the depth-first engines output.
+ */
+public enum MiningMode {
+
+    /**
+     * all patterns that fulfill the constraints
+     */
+    ALL,
+
+    /**
+     * only closed patterns, i.e. patterns without a super-pattern that occurs in the same sequences.
+     * Branches that cannot contain closed patterns are not mined.
+     */
+    CLOSED,
+
+    /**
+     * only maximal patterns, i.e. patterns that are not contained in another pattern that fulfills the constraints.
+     * They are output after mining. Branches whose patterns are all contained in one pattern are not mined.
+     */
+    MAXIMAL
+}
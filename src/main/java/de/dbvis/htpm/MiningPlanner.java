@@ -0,0 +1,438 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.HTPMConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.HybridEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Recommends an engine and its parameters for mining a database with a minimum support,
+ * within a heap and a time budget.
+ * <br/>
+ * A profiling pass over the sequences, in parallel, counts the supports of the event types and of the 2-patterns.
+ * From this profile, the occurrences of each length are estimated: an occurrence of a k-pattern is a set of k events
+ * of a sequence, which can only be frequent if all its pairs of events form frequent 2-patterns; the pairs are assumed
+ * to be independent. The time is estimated from the pairs of occurrences the joins compare, at the speed of the
+ * profiling pass. The estimates ignore constraints other than the minimum support and are rough for long patterns,
+ * but they show which engines are out of the question.
+ * <br/>
+ * Engines that keep all patterns are preferred; the others only output the patterns to the listeners.
+ */
+public class MiningPlanner {
+
+    /**
+     * The engines the planner chooses from.
+     */
+    public enum Engine {
+        HTPM, HTPM_DFS, HTPM_DFS_LOW_STORAGE, HTPM_FULLY_PARALLEL, ADAPTIVE_HTPM
+    }
+
+    /**
+     * The estimated size in bytes of a pattern of length k with its entry in the pattern tree, without occurrences.
+     */
+    private static long patternBytes(int k) {
+        return 96 + 48L * k;
+    }
+
+    /**
+     * What the profiling pass found out about the database.
+     */
+    public static final class Profile {
+        public final int numSequences;
+        public final long numEvents;
+        public final int numTypes;
+        public final int frequentTypes;
+
+        /**
+         * the number of events whose type occurred before in the same sequence
+         */
+        public final long repeatedTypeEvents;
+
+        /**
+         * the mean number of other events that overlap an interval event
+         */
+        public final double meanIntervalOverlap;
+
+        /**
+         * the number of pairs of events of frequent types in the same sequence
+         */
+        public final long eventPairs;
+
+        /**
+         * the number of pairs of events that are occurrences of frequent 2-patterns
+         */
+        public final long frequentEventPairs;
+        public final int frequentTwoPatterns;
+
+        /**
+         * the time the profiling pass took per pair of events
+         */
+        public final double nanosPerPair;
+
+        /**
+         * the number of events of frequent types of each sequence
+         */
+        final int[] frequentEventsPerSequence;
+
+        Profile(int numSequences, long numEvents, int numTypes, int frequentTypes, long repeatedTypeEvents,
+                double meanIntervalOverlap, long eventPairs, long frequentEventPairs, int frequentTwoPatterns,
+                double nanosPerPair, int[] frequentEventsPerSequence) {
+            this.numSequences = numSequences;
+            this.numEvents = numEvents;
+            this.numTypes = numTypes;
+            this.frequentTypes = frequentTypes;
+            this.repeatedTypeEvents = repeatedTypeEvents;
+            this.meanIntervalOverlap = meanIntervalOverlap;
+            this.eventPairs = eventPairs;
+            this.frequentEventPairs = frequentEventPairs;
+            this.frequentTwoPatterns = frequentTwoPatterns;
+            this.nanosPerPair = nanosPerPair;
+            this.frequentEventsPerSequence = frequentEventsPerSequence;
+        }
+    }
+
+    /**
+     * The estimated work and size of the patterns of one length.
+     */
+    public static final class LevelEstimate {
+        public final int length;
+        public final double patterns;
+        public final double occurrences;
+
+        /**
+         * the pairs of occurrences compared by the joins that generate the patterns
+         */
+        public final double occurrencePairs;
+
+        /**
+         * the size of the patterns and their occurrences
+         */
+        public final double bytes;
+
+        LevelEstimate(int length, double patterns, double occurrences, double occurrencePairs) {
+            this.length = length;
+            this.patterns = patterns;
+            this.occurrences = occurrences;
+            this.occurrencePairs = occurrencePairs;
+            this.bytes = occurrences * AdaptiveHTPM.occurrenceBytes(length) + patterns * patternBytes(length);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("length %d: %.0f patterns, %.0f occurrences, %.0f pairs, %.0f MB",
+                    length, patterns, occurrences, occurrencePairs, bytes / (1 << 20));
+        }
+    }
+
+    /**
+     * A recommended engine with its parameters and the estimates for it.
+     */
+    public final class Plan {
+        public final Engine engine;
+        public final int threads;
+        public final boolean saveMemory;
+        public final double estimatedPeakBytes;
+        public final double estimatedMillis;
+        public final boolean fitsHeap;
+        public final boolean fitsTime;
+
+        Plan(Engine engine, int threads, boolean saveMemory, double estimatedPeakBytes, double estimatedMillis,
+             long heapBytes, long timeBudgetMillis) {
+            this.engine = engine;
+            this.threads = threads;
+            this.saveMemory = saveMemory;
+            this.estimatedPeakBytes = estimatedPeakBytes;
+            this.estimatedMillis = estimatedMillis;
+            this.fitsHeap = estimatedPeakBytes <= AdaptiveHTPM.DEFAULT_HEAP_WATERMARK * heapBytes;
+            this.fitsTime = estimatedMillis <= timeBudgetMillis;
+        }
+
+        /**
+         * @return whether the patterns can be retrieved from the engine after the run
+         */
+        public boolean keepsPatterns() {
+            return engine == Engine.HTPM_DFS || (engine == Engine.HTPM && !saveMemory);
+        }
+
+        /**
+         * Creates the recommended engine.
+         * @param constraint the constraint, which should contain the minimum support the plan was made for
+         * @return the engine, ready to start
+         */
+        public HTPM createEngine(HTPMConstraint constraint) {
+            switch (engine) {
+                case HTPM:
+                    return new HTPM(d, constraint, saveMemory, threads);
+                case HTPM_DFS:
+                    return new HTPMDFS(d, constraint);
+                case HTPM_DFS_LOW_STORAGE:
+                    return new HTPMDFSLowStorage(d, constraint);
+                case HTPM_FULLY_PARALLEL:
+                    return new HTPMFullyParallel(d, constraint, threads);
+                case ADAPTIVE_HTPM:
+                    return new AdaptiveHTPM(d, constraint);
+                default:
+                    throw new IllegalStateException("Unknown engine " + engine);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s with %d thread(s)%s: %.0f MB, %.0f ms%s%s", engine, threads,
+                    saveMemory ? ", saving memory" : "", estimatedPeakBytes / (1 << 20), estimatedMillis,
+                    fitsHeap ? "" : ", exceeds the heap", fitsTime ? "" : ", exceeds the time budget");
+        }
+    }
+
+    private final HybridEventSequenceDatabase d;
+    private final double minSupport;
+    private Profile profile;
+
+    /**
+     * Creates a planner.
+     * @param d - The Database containing the series.
+     * @param minSupport - The minimum support of the patterns.
+     */
+    public MiningPlanner(HybridEventSequenceDatabase d, double minSupport) {
+        if (minSupport <= 0 || minSupport > 1) {
+            throw new IllegalArgumentException("Minimum support must be 0 < min_support <= 1");
+        }
+        this.d = d;
+        this.minSupport = minSupport;
+    }
+
+    private boolean isFrequent(long numSequences) {
+        return (double) numSequences / d.size() >= minSupport;
+    }
+
+    /**
+     * Profiles the database, once.
+     * @return the profile
+     */
+    public synchronized Profile profile() {
+        if (profile != null) {
+            return profile;
+        }
+        final List<HybridEventSequence> sequences = d.getSequences();
+
+        final Map<String, Long> typeSupport = sequences.parallelStream()
+                .flatMap(seq -> seq.getEvents().stream().map(HybridEvent::getEventId).distinct())
+                .collect(Collectors.groupingByConcurrent(id -> id, Collectors.counting()));
+        final Set<String> frequentTypes = typeSupport.entrySet().stream()
+                .filter(e -> isFrequent(e.getValue())).map(Map.Entry::getKey).collect(Collectors.toSet());
+
+        //the supporting sequences and the occurrences of each 2-pattern, identified by the types and the order of its points
+        final ConcurrentMap<String, LongAdder> pairSupport = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, LongAdder> pairOccurrences = new ConcurrentHashMap<>();
+        final int[] frequentEvents = new int[sequences.size()];
+        final LongAdder repeated = new LongAdder();
+        final LongAdder intervals = new LongAdder();
+        final LongAdder overlaps = new LongAdder();
+        final LongAdder eventPairs = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        IntStream.range(0, sequences.size()).parallel().forEach(s -> {
+            final long startNanos = System.nanoTime();
+            final List<HybridEvent> events = sequences.get(s).getEvents();
+            final Map<String, Integer> keys = new HashMap<>();
+            repeated.add(events.size() - events.stream().map(HybridEvent::getEventId).distinct().count());
+            long pairs = 0;
+            for (int i = 0; i < events.size(); i++) {
+                final HybridEvent e1 = events.get(i);
+                final boolean frequent1 = frequentTypes.contains(e1.getEventId());
+                if (frequent1) {
+                    frequentEvents[s]++;
+                }
+                if (!e1.isPointEvent()) {
+                    intervals.increment();
+                }
+                for (int j = 0; j < events.size(); j++) {
+                    final HybridEvent e2 = events.get(j);
+                    if (i == j) {
+                        continue;
+                    }
+                    if (!e1.isPointEvent() && start(e2) <= end(e1) && end(e2) >= start(e1)) {
+                        overlaps.increment();
+                    }
+                    if (j < i && frequent1 && frequentTypes.contains(e2.getEventId())) {
+                        keys.merge(twoPatternKey(e1, e2), 1, Integer::sum);
+                        pairs++;
+                    }
+                }
+            }
+            keys.forEach((key, count) -> {
+                pairSupport.computeIfAbsent(key, k -> new LongAdder()).increment();
+                pairOccurrences.computeIfAbsent(key, k -> new LongAdder()).add(count);
+            });
+            eventPairs.add(pairs);
+            nanos.add(System.nanoTime() - startNanos);
+        });
+
+        long frequentEventPairs = 0;
+        int frequentTwoPatterns = 0;
+        for (Map.Entry<String, LongAdder> e : pairSupport.entrySet()) {
+            if (isFrequent(e.getValue().sum())) {
+                frequentTwoPatterns++;
+                frequentEventPairs += pairOccurrences.get(e.getKey()).sum();
+            }
+        }
+        final long numIntervals = intervals.sum();
+        final long pairs = eventPairs.sum();
+        profile = new Profile(sequences.size(), sequences.stream().mapToLong(seq -> seq.getEvents().size()).sum(),
+                typeSupport.size(), frequentTypes.size(), repeated.sum(),
+                numIntervals == 0 ? 0 : (double) overlaps.sum() / numIntervals,
+                pairs, frequentEventPairs, frequentTwoPatterns,
+                pairs == 0 ? 0 : (double) nanos.sum() / pairs, frequentEvents);
+        return profile;
+    }
+
+    private static double start(HybridEvent e) {
+        return e.isPointEvent() ? e.getTimePoint() : e.getStartPoint();
+    }
+
+    private static double end(HybridEvent e) {
+        return e.isPointEvent() ? e.getTimePoint() : e.getEndPoint();
+    }
+
+    /**
+     * @return a key that is equal for two pairs of events if they are occurrences of the same 2-pattern
+     */
+    private static String twoPatternKey(HybridEvent e1, HybridEvent e2) {
+        //order the events as a pattern would, by start, end and type
+        int c = Double.compare(start(e1), start(e2));
+        if (c == 0) {
+            c = Double.compare(end(e1), end(e2));
+        }
+        if (c == 0) {
+            c = e1.getEventId().compareTo(e2.getEventId());
+        }
+        final HybridEvent a = c <= 0 ? e1 : e2;
+        final HybridEvent b = c <= 0 ? e2 : e1;
+        final int order = 27 * Integer.signum(Double.compare(end(a), start(b)))
+                + 9 * Integer.signum(Double.compare(end(a), end(b)))
+                + 3 * Integer.signum(Double.compare(start(a), start(b)))
+                + Integer.signum(Double.compare(start(a), end(b)));
+        return a.getEventId() + (a.isPointEvent() ? '.' : '+') + b.getEventId() + (b.isPointEvent() ? '.' : '+') + order;
+    }
+
+    /**
+     * Estimates the patterns of each length, until no more patterns are expected.
+     * @return the estimates, starting with length 1
+     */
+    public List<LevelEstimate> estimateLevels() {
+        final Profile p = profile();
+        final List<LevelEstimate> levels = new ArrayList<>();
+        levels.add(new LevelEstimate(1, p.frequentTypes, Arrays.stream(p.frequentEventsPerSequence).sum(), 0));
+        if (p.frequentEventPairs == 0) {
+            return levels;
+        }
+        //the probability that a pair of events forms a frequent 2-pattern
+        final double pairFrequency = (double) p.frequentEventPairs / p.eventPairs;
+        //near the minimum support, frequent patterns have about as many occurrences as the frequent 2-patterns
+        final double occurrencesPerPattern = (double) p.frequentEventPairs / p.frequentTwoPatterns;
+        final int maxLength = Arrays.stream(p.frequentEventsPerSequence).max().orElse(0);
+
+        for (int k = 2; k <= maxLength; k++) {
+            final double frequentFraction = Math.pow(pairFrequency, k * (k - 1) / 2.0);
+            double occurrences = 0;
+            for (int n : p.frequentEventsPerSequence) {
+                occurrences += binomial(n, k) * frequentFraction;
+            }
+            if (occurrences < 1 || Double.isInfinite(occurrences)) {
+                if (Double.isInfinite(occurrences)) {
+                    levels.add(new LevelEstimate(k, occurrences, occurrences, occurrences));
+                }
+                break;
+            }
+            //a compared pair of occurrences yields a frequent occurrence if the pair of their last events is frequent
+            final double patterns = k == 2 ? p.frequentTwoPatterns : Math.max(1, occurrences / occurrencesPerPattern);
+            levels.add(new LevelEstimate(k, patterns, occurrences, occurrences / pairFrequency));
+        }
+        return levels;
+    }
+
+    private static double binomial(int n, int k) {
+        if (k > n) {
+            return 0;
+        }
+        double result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    /**
+     * Recommends an engine for this JVM: its maximum heap and available processors.
+     * @param timeBudgetMillis - The time the run may take.
+     * @return the plan
+     */
+    public Plan plan(long timeBudgetMillis) {
+        return plan(Runtime.getRuntime().maxMemory(), timeBudgetMillis, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Recommends an engine. The first of these that fits the heap and the time budget is chosen:
+     * the depth-first or, for shallow patterns, the breadth-first engine on one thread,
+     * the breadth-first engine on all threads, the fully parallel engine, the breadth-first engine saving memory,
+     * the adaptive engine. If none fits, the fastest one that fits the heap is chosen, otherwise the low storage engine.
+     * @param heapBytes - The heap the run may use.
+     * @param timeBudgetMillis - The time the run may take.
+     * @param maxThreads - The number of threads the run may use.
+     * @return the plan
+     */
+    public Plan plan(long heapBytes, long timeBudgetMillis, int maxThreads) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive, was " + maxThreads);
+        }
+        final List<LevelEstimate> levels = estimateLevels();
+        final double nanosPerPair = profile().nanosPerPair;
+
+        double allBytes = 0;
+        double twoLevelBytes = 0;
+        double branchBytes = levels.size() > 1 ? levels.get(1).bytes : 0;
+        double millis = 0;
+        for (int i = 0; i < levels.size(); i++) {
+            final LevelEstimate level = levels.get(i);
+            allBytes += level.bytes;
+            twoLevelBytes = Math.max(twoLevelBytes, level.bytes + (i > 0 ? levels.get(i - 1).bytes : 0));
+            if (i >= 2) {
+                //depth-first, the patterns of one partition of the previous length are extended at a time
+                branchBytes += level.bytes / Math.max(1, levels.get(i - 2).patterns);
+            }
+            millis += level.occurrencePairs * nanosPerPair / 1_000_000;
+        }
+        final double levelTwoBytes = levels.size() > 1 ? levels.get(1).bytes : 0;
+
+        final List<Plan> candidates = new ArrayList<>();
+        final boolean shallow = levels.size() <= 3;
+        candidates.add(new Plan(shallow ? Engine.HTPM : Engine.HTPM_DFS, 1, false, allBytes, millis,
+                heapBytes, timeBudgetMillis));
+        if (maxThreads > 1) {
+            candidates.add(new Plan(Engine.HTPM, maxThreads, false, allBytes, millis / maxThreads,
+                    heapBytes, timeBudgetMillis));
+            candidates.add(new Plan(Engine.HTPM_FULLY_PARALLEL, maxThreads, false,
+                    levelTwoBytes + maxThreads * (branchBytes - levelTwoBytes), millis / maxThreads,
+                    heapBytes, timeBudgetMillis));
+        }
+        candidates.add(new Plan(Engine.HTPM, maxThreads, true, twoLevelBytes, millis / maxThreads,
+                heapBytes, timeBudgetMillis));
+        candidates.add(new Plan(Engine.ADAPTIVE_HTPM, 1, false, Math.min(twoLevelBytes, branchBytes), millis,
+                heapBytes, timeBudgetMillis));
+        //the last resort, if no other plan fits the heap
+        final Plan lowStorage = new Plan(Engine.HTPM_DFS_LOW_STORAGE, 1, false, branchBytes, millis,
+                heapBytes, timeBudgetMillis);
+
+        return candidates.stream().filter(plan -> plan.fitsHeap && plan.fitsTime).findFirst()
+                .orElseGet(() -> candidates.stream().filter(plan -> plan.fitsHeap)
+                        .min(Comparator.comparingDouble(plan -> plan.estimatedMillis))
+                        .orElse(lowStorage));
+    }
+}
@@ -0,0 +1,294 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.occurrence.DefaultOccurrence;
+import de.dbvis.htpm.occurrence.Occurrence;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Stores the occurrences of patterns outside of the heap, in direct buffers.
+ * <br/>
+ * All occurrences of a pattern have the same number of occurrence points, so each list of occurrences is stored
+ * as fixed-width records: the parent, the index of the sequence and, for each occurrence point, the index of its
+ * event in the sequence, followed by its order and time rank if all occurrences of the list carry ranks.
+ * Lists are cut from slabs of {@link #SLAB_BYTES}, which every thread allocates for itself; larger lists get
+ * a buffer of their own. The memory of a slab is freed by the garbage collector once none of its lists is reachable.
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to the maximum heap size.
+ * <br/>
+ * The elements of a list are links to views of the records, created on access. Loops over many occurrences,
+ * like the joins, read the records through a {@link Cursor} instead, which can be moved from record to record.
+ */
+final class OffHeapOccurrences {
+
+    static final int SLAB_BYTES = 1 << 20;
+
+    private final HybridEventSequence[] sequences;
+    private final HybridEvent[][] events;
+    private final Map<HybridEventSequence, Integer> sequenceIndices = new IdentityHashMap<>();
+    private final List<Map<HybridEvent, Integer>> eventIndices;
+    private final ThreadLocal<ByteBuffer> slabs = new ThreadLocal<>();
+
+    /**
+     * @param d the database of the occurrences, which must not change while occurrences are stored
+     */
+    OffHeapOccurrences(HybridEventSequenceDatabase d) {
+        final List<HybridEventSequence> sequenceList = d.getSequences();
+        this.sequences = sequenceList.toArray(new HybridEventSequence[0]);
+        this.events = new HybridEvent[sequences.length][];
+        this.eventIndices = new ArrayList<>(sequences.length);
+        for (int i = 0; i < sequences.length; i++) {
+            sequenceIndices.put(sequences[i], i);
+            events[i] = sequences[i].getEvents().toArray(new HybridEvent[0]);
+            eventIndices.add(ShardProtocol.indexEvents(sequences[i]));
+        }
+    }
+
+    /**
+     * Copies occurrences into a new list outside of the heap.
+     * @param links the occurrences of one pattern
+     * @param numPoints the number of occurrence points of the pattern
+     * @return the stored occurrences
+     */
+    OccurrenceList copyOf(List<PatternOccurrence.OccurrenceTreeLink> links, int numPoints) {
+        boolean ranked = true;
+        for (PatternOccurrence.OccurrenceTreeLink link : links) {
+            if (link.child.size() != numPoints) {
+                throw new IllegalArgumentException("Occurrence " + link.child + " does not have " + numPoints + " points");
+            }
+            ranked &= link.child.isRanked();
+        }
+        final OccurrenceList list = new OccurrenceList(links.size(), numPoints, ranked);
+        for (int i = 0; i < links.size(); i++) {
+            list.write(i, links.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * @param links a list of occurrences
+     * @return a cursor over the list if it is stored outside of the heap, else null
+     */
+    static Cursor cursor(List<PatternOccurrence.OccurrenceTreeLink> links) {
+        return links instanceof OccurrenceList ? ((OccurrenceList) links).cursor() : null;
+    }
+
+    private IntBuffer allocate(int numInts) {
+        final int bytes = Math.multiplyExact(numInts, Integer.BYTES);
+        if (bytes > SLAB_BYTES / 4) {
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        ByteBuffer slab = slabs.get();
+        if (slab == null || slab.remaining() < bytes) {
+            slab = ByteBuffer.allocateDirect(SLAB_BYTES).order(ByteOrder.nativeOrder());
+            slabs.set(slab);
+        }
+        final ByteBuffer slice = slab.duplicate();
+        slice.limit(slab.position() + bytes);
+        slab.position(slab.position() + bytes);
+        return slice.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * The occurrences of one pattern with their parents, stored outside of the heap.
+     * The list has a fixed size, its elements can be replaced.
+     */
+    final class OccurrenceList extends AbstractList<PatternOccurrence.OccurrenceTreeLink> implements RandomAccess {
+        private final IntBuffer records;
+        private final int size;
+        private final int numPoints;
+        private final boolean ranked;
+        private final int recordInts;
+
+        private OccurrenceList(int size, int numPoints, boolean ranked) {
+            this.size = size;
+            this.numPoints = numPoints;
+            this.ranked = ranked;
+            this.recordInts = 2 + numPoints * (ranked ? 3 : 1);
+            this.records = allocate(Math.multiplyExact(size, recordInts));
+        }
+
+        private void write(int index, PatternOccurrence.OccurrenceTreeLink link) {
+            final Occurrence o = link.child;
+            final Integer seqIndex = sequenceIndices.get(o.getHybridEventSequence());
+            if (seqIndex == null) {
+                throw new IllegalArgumentException("Occurrence " + o + " is not in the database");
+            }
+            final Map<HybridEvent, Integer> indices = eventIndices.get(seqIndex);
+            int p = index * recordInts;
+            records.put(p++, link.parent);
+            records.put(p++, seqIndex);
+            for (int i = 0; i < numPoints; i++) {
+                records.put(p++, indices.get(o.get(i)));
+                if (ranked) {
+                    records.put(p++, o.getOrderRank(i));
+                    records.put(p++, o.getTimeRank(i));
+                }
+            }
+        }
+
+        /**
+         * @return a new cursor before the first record
+         */
+        Cursor cursor() {
+            return new Cursor(this);
+        }
+
+        @Override
+        public PatternOccurrence.OccurrenceTreeLink get(int index) {
+            final Cursor view = cursor().moveTo(index);
+            return new PatternOccurrence.OccurrenceTreeLink(view.parent(), view);
+        }
+
+        /**
+         * Overwrites a record, the link that is returned holds a copy of the replaced occurrence.
+         */
+        @Override
+        public PatternOccurrence.OccurrenceTreeLink set(int index, PatternOccurrence.OccurrenceTreeLink link) {
+            if (link.child.size() != numPoints || ranked && !link.child.isRanked()) {
+                throw new IllegalArgumentException("Occurrence " + link.child + " does not fit the records of the list");
+            }
+            final Cursor replaced = cursor().moveTo(index);
+            final PatternOccurrence.OccurrenceTreeLink previous =
+                    new PatternOccurrence.OccurrenceTreeLink(replaced.parent(), replaced.copy());
+            write(index, link);
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A view of a record of an {@link OccurrenceList}, which can be moved to other records of the list.
+     * Its equality and hash code are those of a {@link DefaultOccurrence} with the same sequence and events.
+     */
+    final class Cursor implements Occurrence {
+        private final OccurrenceList list;
+        private int offset = -1;
+
+        private Cursor(OccurrenceList list) {
+            this.list = list;
+        }
+
+        /**
+         * @param index the index of a record in the list
+         * @return this cursor, at the record
+         */
+        Cursor moveTo(int index) {
+            Objects.checkIndex(index, list.size);
+            offset = index * list.recordInts;
+            return this;
+        }
+
+        /**
+         * @return the parent of the occurrence
+         */
+        int parent() {
+            return list.records.get(offset);
+        }
+
+        /**
+         * @return a copy of the occurrence on the heap, which keeps its record when the cursor moves
+         */
+        DefaultOccurrence copy() {
+            if (!list.ranked) {
+                return new DefaultOccurrence(getHybridEventSequence(), ops());
+            }
+            final int[] orderRanks = new int[size()];
+            final int[] timeRanks = new int[size()];
+            for (int i = 0; i < size(); i++) {
+                orderRanks[i] = getOrderRank(i);
+                timeRanks[i] = getTimeRank(i);
+            }
+            return new DefaultOccurrence(getHybridEventSequence(), ops(), orderRanks, timeRanks);
+        }
+
+        private int point(int i) {
+            return offset + 2 + i * (list.ranked ? 3 : 1);
+        }
+
+        @Override
+        public HybridEventSequence getHybridEventSequence() {
+            return sequences[list.records.get(offset + 1)];
+        }
+
+        @Override
+        public HybridEvent get(int i) {
+            Objects.checkIndex(i, list.numPoints);
+            return events[list.records.get(offset + 1)][list.records.get(point(i))];
+        }
+
+        @Override
+        public int size() {
+            return list.numPoints;
+        }
+
+        @Override
+        public List<HybridEvent> ops() {
+            final HybridEvent[] ops = new HybridEvent[list.numPoints];
+            for (int i = 0; i < ops.length; i++) {
+                ops[i] = get(i);
+            }
+            return Arrays.asList(ops);
+        }
+
+        @Override
+        public boolean isRanked() {
+            return list.ranked;
+        }
+
+        @Override
+        public int getOrderRank(int i) {
+            if (!list.ranked) {
+                return Occurrence.super.getOrderRank(i);
+            }
+            Objects.checkIndex(i, list.numPoints);
+            return list.records.get(point(i) + 1);
+        }
+
+        @Override
+        public int getTimeRank(int i) {
+            if (!list.ranked) {
+                return Occurrence.super.getTimeRank(i);
+            }
+            Objects.checkIndex(i, list.numPoints);
+            return list.records.get(point(i) + 2);
+        }
+
+        @Override
+        public String toString() {
+            return copy().toString();
+        }
+
+        @Override
+        public int hashCode() {
+            //same as the HashCodeBuilder of DefaultOccurrence over the sequence and the list of events
+            int eventsHash = 1;
+            for (int i = 0; i < list.numPoints; i++) {
+                eventsHash = 31 * eventsHash + get(i).hashCode();
+            }
+            return (17 * 37 + getHybridEventSequence().hashCode()) * 37 + eventsHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Occurrence) {
+                final Occurrence other = (Occurrence) o;
+                return new EqualsBuilder()
+                        .append(getHybridEventSequence(), other.getHybridEventSequence())
+                        .append(ops(), other.ops())
+                        .isEquals();
+            }
+            return false;
+        }
+    }
+}
@@ -6,19 +6,14 @@ import de.dbvis.htpm.hes.HybridEventSequence;
 import de.dbvis.htpm.hes.events.HybridEvent;
 import de.dbvis.htpm.htp.DefaultHybridTemporalPatternBuilder;
 import de.dbvis.htpm.htp.HybridTemporalPattern;
-import de.dbvis.htpm.htp.eventnodes.IntervalEndEventNode;
-import de.dbvis.htpm.htp.eventnodes.IntervalStartEventNode;
-import de.dbvis.htpm.htp.eventnodes.PointEventNode;
-import de.dbvis.htpm.occurrence.DefaultOccurrence;
+import de.dbvis.htpm.htp.eventnodes.EventNodeFactory;
 import de.dbvis.htpm.occurrence.Occurrence;
 import de.dbvis.htpm.util.HTPMListener;
 import de.dbvis.htpm.util.HTPMOutputEvent;
 import de.dbvis.htpm.util.HTPMOutputListener;
-import org.apache.commons.lang3.builder.EqualsBuilder;
 
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class OriginalHTPM implements TemporalPatternProducer {
@@ -64,27 +59,28 @@ public class OriginalHTPM implements TemporalPatternProducer {
         Map<HybridTemporalPattern, List<PatternOccurrence.OccurrenceTreeLink>> map =
                 new HashMap<>();
 
-        for(HybridEventSequence seq : d.getSequences()) {
+        final List<HybridEventSequence> sequences = d.getSequences();
+        for(int seqIndex = 0; seqIndex < sequences.size(); seqIndex++) {
 
-            Occurrence emptyOccurrencePrefix = new DefaultOccurrence(seq, Collections.emptyList());
+            final HybridEventSequence seq = sequences.get(seqIndex);
 
             for(HybridEvent e : seq.getEvents()) {
 
                 DefaultHybridTemporalPatternBuilder builder = new DefaultHybridTemporalPatternBuilder(seq, 1);
 
                 if (e.isPointEvent()) {
-                    builder.append(0, new PointEventNode(e.getEventId()), e);
+                    builder.append(0, EventNodeFactory.point(e.getEventId()), e);
                 } else {
-                    builder.append(0, new IntervalStartEventNode(e.getEventId(), 0), e);
-                    builder.append(0, new IntervalEndEventNode(e.getEventId(), 0), e);
+                    builder.append(0, EventNodeFactory.intervalStart(e.getEventId(), 0), e);
+                    builder.append(0, EventNodeFactory.intervalEnd(e.getEventId(), 0), e);
                 }
 
                 Occurrence occ = builder.getOccurence();
                 HybridTemporalPattern p = builder.getPattern();
 
-                //set empty occurrence as prefix
+                //set the empty occurrence of the sequence as prefix
                 map.computeIfAbsent(p, pattern -> new ArrayList<>())
-                            .add(new PatternOccurrence.OccurrenceTreeLink(emptyOccurrencePrefix, occ));
+                            .add(new PatternOccurrence.OccurrenceTreeLink(seqIndex, occ));
             }
         }
 
@@ -165,7 +161,7 @@ public class OriginalHTPM implements TemporalPatternProducer {
         //	i1++;
         for (int i1 = 0; i1 < or1.size(); i1++) {
             final PatternOccurrence.OccurrenceTreeLink link1 = or1.get(i1);
-            Occurrence occurrencePrefix1 = link1.parent;
+            int occurrencePrefix1 = link1.parent;
             Occurrence s1 = link1.child;
 
             //avoid join of same occurrences twice (happens if both are from the same occurrence record)
@@ -184,10 +180,10 @@ public class OriginalHTPM implements TemporalPatternProducer {
             for (int i2 = 0; i2 <= maxI2; i2++) {
                 //for (int i2 = minI2; i2 < or2.size(); i2++) {
                 final PatternOccurrence.OccurrenceTreeLink link2 = or2.get(i2);
-                final Occurrence occurrencePrefix2 = link2.parent;
+                final int occurrencePrefix2 = link2.parent;
                 Occurrence s2 = link2.child;
 
-                if (!compareOccurrences(occurrencePrefix1, occurrencePrefix2)) {
+                if (occurrencePrefix1 != occurrencePrefix2) {
                     continue;
                 }
 
@@ -202,7 +198,7 @@ public class OriginalHTPM implements TemporalPatternProducer {
                         //newPattern, p -> new PatternOccurrence(newPatternPrefix, newPattern, new ArrayList<>()))
                         //newPattern, p -> new PatternOccurrence(newPatternPrefix, newPattern, new LinkedList<>()))
                         newPattern, p -> new PatternOccurrence(newPatternPrefix, newPattern, newOccurrenceCountHeuristic))
-                        .occurrences.add(new PatternOccurrence.OccurrenceTreeLink(b.getOccurrencePrefix(), newOccurrence));
+                        .occurrences.add(new PatternOccurrence.OccurrenceTreeLink(b.getOccurrencePrefix() == s1 ? i1 : i2, newOccurrence));
             }
         }
 
@@ -220,25 +216,6 @@ public class OriginalHTPM implements TemporalPatternProducer {
         return result.values();
     }
 
-    private boolean compareOccurrences(Occurrence o1, Occurrence o2) {
-        if (o1.size() != o2.size()) {
-            return false;
-        } else {
-            return o1.getHybridEventSequence().equals(o2.getHybridEventSequence())
-                    && IntStream.range(0, o1.size())
-                    .allMatch(i -> compareHybridEvents(o1.get(i), o2.get(i)));
-        }
-    }
-
-    private boolean compareHybridEvents(HybridEvent h1, HybridEvent h2) {
-        return new EqualsBuilder()
-                .append(h1.getEventId(), h2.getEventId())
-                .append(h1.isPointEvent(), h2.isPointEvent())
-                .append(h1.getStartPoint(), h2.getStartPoint())
-                .append(h1.getEndPoint(), h2.getEndPoint())
-                .isEquals();
-    }
-
     /**
      * Adds an HTPMListener, which receives update events about the pattern mining process.
      * @param l - the HTPMListener to be added.
@@ -34,11 +34,15 @@ public class PatternOccurrence {
          * The canonical parent must be from the same sequence,
          * and have the same occurrences for the prefix nodes as its child occurrence.
          * Prefix thereby refers to the prefix of the pattern, which the occurrence is associated to.
+         * <br/>
+         * The parent is identified by its index in the occurrences of the prefix, for 1-patterns by the index of
+         * the sequence. The index is only meaningful within a partition, i.e. among the patterns with the same prefix,
+         * so that the occurrences of the prefix are not referenced and can be collected once their children exist.
          */
-        public final Occurrence parent;
+        public final int parent;
         public final Occurrence child;
 
-        OccurrenceTreeLink(Occurrence parent, Occurrence child) {
+        OccurrenceTreeLink(int parent, Occurrence child) {
             this.parent = parent;
             this.child = child;
         }
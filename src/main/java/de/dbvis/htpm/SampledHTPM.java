@@ -0,0 +1,323 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.constraints.HTPMConstraint;
+import de.dbvis.htpm.constraints.SupportBasedConstraint;
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import de.dbvis.htpm.util.HTPMListener;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+import de.dbvis.htpm.util.HTPMOutputListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Estimates the frequent patterns of a database from random samples of its sequences,
+ * for quick approximate results on large databases.
+ * <br/>
+ * The sample starts with a given number of sequences and grows by a factor in each round,
+ * each sample containing the previous one. A round mines its sample with one of the {@link HTPM} engines
+ * and estimates the support of each pattern in the database, with a confidence interval
+ * (the Wilson score interval, with the sample size corrected for sampling without replacement).
+ * Like in Toivonen's sampling algorithm, the sample is mined with a lowered minimum support,
+ * so that every pattern whose confidence interval reaches the minimum support is found.
+ * Sampling stops when the patterns estimated to be frequent hardly change from one round to the next,
+ * i.e. when the Jaccard similarity of the pattern sets reaches the given stability, or when the sample is the database.
+ * <br/>
+ * Optionally, the patterns whose confidence interval reaches the minimum support are verified in one parallel pass
+ * over the database, which yields their exact support. Verification drops wrongly estimated patterns,
+ * but patterns that are frequent and were not found in the sample stay missing,
+ * which happens with a probability that decreases with the sample size and the confidence.
+ * <br/>
+ * Each round sends the patterns estimated to be frequent to the listeners as one {@link HTPMOutputEvent},
+ * with the number of the round as generation and the occurrences in the sample.
+ * The verification sends the frequent patterns with all their occurrences as the last event.
+ */
+public class SampledHTPM implements TemporalPatternProducer {
+
+    /**
+     * The estimated support of a pattern in the database, and its confidence interval.
+     */
+    public static final class SupportEstimate {
+        public final double support;
+        public final double lower;
+        public final double upper;
+
+        /**
+         * true if the support was counted in the whole database
+         */
+        public final boolean exact;
+
+        SupportEstimate(double support, double lower, double upper, boolean exact) {
+            this.support = support;
+            this.lower = lower;
+            this.upper = upper;
+            this.exact = exact;
+        }
+
+        @Override
+        public String toString() {
+            return exact ? String.format("%.3f", support)
+                    : String.format("%.3f [%.3f, %.3f]", support, lower, upper);
+        }
+    }
+
+    private final HybridEventSequenceDatabase d;
+    private final double minSupport;
+    private final int initialSampleSize;
+    private final double growthFactor;
+    private final double stability;
+    private final boolean verify;
+    private final Random random;
+    private final BiFunction<HybridEventSequenceDatabase, HTPMConstraint, HTPM> engine;
+
+    /**
+     * the z-value of the confidence level
+     */
+    private final double z;
+
+    private final List<HTPMListener> listeners = new LinkedList<>();
+
+    private Map<HybridTemporalPattern, SupportEstimate> estimates = Collections.emptyMap();
+    private int sampleSize;
+    private int rounds;
+
+    /**
+     * Creates an approximate miner with 95% confidence intervals, a growth factor of 2 and a stability of 0.9,
+     * which mines the samples with {@link HTPMDFS}.
+     * @param d - The Database containing the series.
+     * @param minSupport - The minimum support of the patterns.
+     * @param initialSampleSize - The number of sequences in the first sample.
+     * @param verify - Whether to count the supports of the patterns in the database after sampling.
+     */
+    public SampledHTPM(HybridEventSequenceDatabase d, double minSupport, int initialSampleSize, boolean verify) {
+        this(d, minSupport, initialSampleSize, 2, 0.95, 0.9, verify, new Random(), HTPMDFS::new);
+    }
+
+    /**
+     * Creates an approximate miner.
+     * @param d - The Database containing the series.
+     * @param minSupport - The minimum support of the patterns.
+     * @param initialSampleSize - The number of sequences in the first sample.
+     * @param growthFactor - The factor by which the sample grows in each round, greater than 1.
+     * @param confidence - The confidence level of the intervals, between 0 and 1.
+     * @param stability - The Jaccard similarity of the patterns of two rounds at which sampling stops.
+     * @param verify - Whether to count the supports of the patterns in the database after sampling.
+     * @param random - The source of the samples.
+     * @param engine - Creates the engine that mines a sample with a constraint, its patterns must be retrievable.
+     */
+    public SampledHTPM(HybridEventSequenceDatabase d, double minSupport, int initialSampleSize, double growthFactor,
+                       double confidence, double stability, boolean verify, Random random,
+                       BiFunction<HybridEventSequenceDatabase, HTPMConstraint, HTPM> engine) {
+        if (d == null) {
+            throw new IllegalArgumentException("HybridEventDatabase must not be null");
+        }
+        if (minSupport <= 0 || minSupport > 1) {
+            throw new IllegalArgumentException("Minimum support must be 0 < min_support <= 1");
+        }
+        if (initialSampleSize < 1) {
+            throw new IllegalArgumentException("The initial sample size must be at least 1");
+        }
+        if (!(growthFactor > 1)) {
+            throw new IllegalArgumentException("The growth factor must be greater than 1");
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("The confidence must be between 0 and 1");
+        }
+        this.d = d;
+        this.minSupport = minSupport;
+        this.initialSampleSize = initialSampleSize;
+        this.growthFactor = growthFactor;
+        this.stability = stability;
+        this.verify = verify;
+        this.random = random;
+        this.engine = engine;
+        this.z = inverseNormal((1 + confidence) / 2);
+    }
+
+    @Override
+    public void start() {
+        final List<Integer> order = new ArrayList<>(d.size());
+        for (int i = 0; i < d.size(); i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+
+        Set<HybridTemporalPattern> previous = null;
+        Map<HybridTemporalPattern, Set<Occurrence>> candidates = Collections.emptyMap();
+        sampleSize = 0;
+        rounds = 0;
+        while (sampleSize < d.size()) {
+            sampleSize = rounds == 0 ? Math.min(initialSampleSize, d.size())
+                    : (int) Math.min(d.size(), Math.ceil(sampleSize * growthFactor));
+            rounds++;
+
+            final DefaultHybridEventSequenceDatabase sample = new DefaultHybridEventSequenceDatabase();
+            for (int i = 0; i < sampleSize; i++) {
+                sample.add(d.getSequence(order.get(i)));
+            }
+            final AgrawalSupportConstraint constraint =
+                    new AgrawalSupportConstraint(sampleSize, loweredMinSupport(sampleSize));
+            final HTPM htpm = engine.apply(sample, constraint);
+            htpm.start();
+            candidates = htpm.getPatterns();
+
+            final Map<HybridTemporalPattern, SupportEstimate> roundEstimates = new HashMap<>(candidates.size() * 2);
+            candidates.forEach((p, occurrences) ->
+                    roundEstimates.put(p, estimate(constraint.getSupport(p, occurrences), sampleSize)));
+            estimates = roundEstimates;
+
+            final Set<HybridTemporalPattern> frequent = new HashSet<>();
+            roundEstimates.forEach((p, estimate) -> {
+                if (estimate.support >= minSupport) {
+                    frequent.add(p);
+                }
+            });
+            output(rounds, frequent, candidates);
+
+            if (previous != null && jaccard(previous, frequent) >= stability) {
+                break;
+            }
+            previous = frequent;
+        }
+
+        if (verify) {
+            verify(candidates.keySet());
+        }
+    }
+
+    /**
+     * Counts the supports of the patterns in one parallel pass over the sequences of the database,
+     * and keeps the frequent ones.
+     */
+    private void verify(Set<HybridTemporalPattern> candidates) {
+        final SupportBasedConstraint constraint = new AgrawalSupportConstraint(d.size(), minSupport);
+        final Map<HybridTemporalPattern, Set<Occurrence>> occurrences = new ConcurrentHashMap<>();
+        d.getSequences().parallelStream().forEach(s -> {
+            for (HybridTemporalPattern p : candidates) {
+                final List<Occurrence> sequenceOccurrences = s.occur(p);
+                if (!sequenceOccurrences.isEmpty()) {
+                    occurrences.computeIfAbsent(p, key -> ConcurrentHashMap.newKeySet()).addAll(sequenceOccurrences);
+                }
+            }
+        });
+
+        final Map<HybridTemporalPattern, SupportEstimate> verified = new HashMap<>();
+        occurrences.forEach((p, patternOccurrences) -> {
+            final double support = constraint.getSupport(p, patternOccurrences);
+            if (support >= minSupport) {
+                verified.put(p, new SupportEstimate(support, support, support, true));
+            }
+        });
+        estimates = verified;
+        output(rounds + 1, verified.keySet(), occurrences);
+    }
+
+    private void output(int generation, Set<HybridTemporalPattern> patterns,
+                        Map<HybridTemporalPattern, Set<Occurrence>> occurrences) {
+        fireHTPMEvent(new HTPMOutputEvent(this, generation, patterns.size(), patterns.stream()
+                .map(p -> new HTPMOutputEvent.PatternOccurrence(p, occurrences.get(p)))));
+    }
+
+    private void fireHTPMEvent(HTPMOutputEvent e) {
+        for (HTPMListener l : this.listeners) {
+            l.generationCalculated(e);
+
+            if (l instanceof HTPMOutputListener) {
+                ((HTPMOutputListener) l).outputGenerated(e);
+            }
+        }
+    }
+
+    /**
+     * @return the smallest support in a sample whose confidence interval reaches the minimum support
+     */
+    private double loweredMinSupport(int n) {
+        for (int count = 1; count < n; count++) {
+            if (estimate((double) count / n, n).upper >= minSupport) {
+                return (double) count / n;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Wilson score interval of a support in a sample of n sequences,
+     * with n corrected for sampling without replacement from the database.
+     */
+    private SupportEstimate estimate(double support, int n) {
+        if (n >= d.size()) {
+            return new SupportEstimate(support, support, support, true);
+        }
+        final double effectiveN = n * (d.size() - 1.0) / (d.size() - n);
+        final double z2 = z * z / effectiveN;
+        final double center = (support + z2 / 2) / (1 + z2);
+        final double halfWidth = z * Math.sqrt(support * (1 - support) / effectiveN + z2 / (4 * effectiveN)) / (1 + z2);
+        return new SupportEstimate(support, Math.max(0, center - halfWidth), Math.min(1, center + halfWidth), false);
+    }
+
+    private static double jaccard(Set<HybridTemporalPattern> a, Set<HybridTemporalPattern> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1;
+        }
+        int intersection = 0;
+        for (HybridTemporalPattern p : a) {
+            if (b.contains(p)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    /**
+     * Inverse of the standard normal distribution function,
+     * by the rational approximation 26.2.23 of Abramowitz and Stegun (absolute error below 4.5e-4).
+     */
+    static double inverseNormal(double p) {
+        final double q = p < 0.5 ? p : 1 - p;
+        final double t = Math.sqrt(-2 * Math.log(q));
+        final double x = t - (2.515517 + 0.802853 * t + 0.010328 * t * t)
+                / (1 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t);
+        return p < 0.5 ? -x : x;
+    }
+
+    /**
+     * Returns the estimated supports of the patterns, which are the patterns whose confidence interval reaches
+     * the minimum support in the last sample, or the frequent patterns after verification.
+     * @return the estimates by pattern
+     */
+    public Map<HybridTemporalPattern, SupportEstimate> getEstimates() {
+        return Collections.unmodifiableMap(estimates);
+    }
+
+    /**
+     * @return the number of sequences in the last sample
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * @return the number of samples that were mined
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    @Override
+    public void addHTPMListener(HTPMListener l) {
+        if (l == null) {
+            return;
+        }
+        this.listeners.add(l);
+    }
+
+    @Override
+    public void removeHTPMListener(HTPMListener l) {
+        this.listeners.remove(l);
+    }
+}
@@ -0,0 +1,274 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.DefaultHybridTemporalPattern;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.htp.eventnodes.EventNode;
+import de.dbvis.htpm.htp.eventnodes.EventNodeFactory;
+import de.dbvis.htpm.htp.eventnodes.IntervalEndEventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEventNode;
+import de.dbvis.htpm.htp.eventnodes.OrderRelation;
+import de.dbvis.htpm.htp.eventnodes.PointEventNode;
+import de.dbvis.htpm.occurrence.DefaultOccurrence;
+import de.dbvis.htpm.occurrence.Occurrence;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+import de.dbvis.htpm.util.UniqueIDConverter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The messages between {@link ShardedHTPM} and its {@link ShardWorker}s.
+ * <br/>
+ * After connecting, a worker sends the token it was started with,
+ * and receives the database and the serialized constraint factory.
+ * Then it receives tasks one at a time, each the path of patterns from a 1-pattern to the prefix of a branch.
+ * For a task, the worker sends the patterns it finds in batches, optionally sub-tasks for the branches
+ * it leaves to others, and finally a message that the task is done.
+ * <br/>
+ * Patterns are sent as their event nodes and order relations, see {@link #writePattern(DataOutput, HybridTemporalPattern)}.
+ * Occurrences are sent as the index of their sequence in the database
+ * and the indices of their events in {@link HybridEventSequence#getEvents()},
+ * which are the same on both sides, because the worker's database is built in that order.
+ */
+final class ShardProtocol {
+
+    static final byte STOP = 0;
+    static final byte TASK = 1;
+    static final byte PATTERNS = 2;
+    static final byte SUB_TASKS = 3;
+    static final byte DONE = 4;
+    static final byte ERROR = 5;
+
+    private static final byte POINT_NODE = 0;
+    private static final byte INTERVAL_START_NODE = 1;
+    private static final byte INTERVAL_END_NODE = 2;
+
+    private ShardProtocol() {
+    }
+
+    static void writeString(DataOutput out, String s) throws IOException {
+        //writeUTF is limited to 64K, which long patterns can exceed
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes the event nodes of a pattern, each as its kind, the string id of its event type
+     * and the occurrence mark of intervals, followed by the order relations between them.
+     * The nodes are written in the order of the integer ids of the writer,
+     * which the reader shares, see {@link #writeDatabase(DataOutput, HybridEventSequenceDatabase)}.
+     */
+    static void writePattern(DataOutput out, HybridTemporalPattern pattern) throws IOException {
+        final List<EventNode> nodes = pattern.getEventNodes();
+        out.writeInt(nodes.size());
+        for (EventNode node : nodes) {
+            if (node instanceof PointEventNode) {
+                out.writeByte(POINT_NODE);
+            } else {
+                out.writeByte(node instanceof IntervalEndEventNode ? INTERVAL_END_NODE : INTERVAL_START_NODE);
+            }
+            writeString(out, node.getStringEventId());
+            if (node instanceof IntervalEventNode) {
+                out.writeInt(((IntervalEventNode) node).getOccurrenceMark());
+            }
+        }
+        for (OrderRelation relation : pattern.getOrderRelations()) {
+            out.writeBoolean(relation == OrderRelation.EQUAL);
+        }
+    }
+
+    static HybridTemporalPattern readPattern(DataInput in) throws IOException {
+        final int numNodes = in.readInt();
+        final List<EventNode> nodes = new ArrayList<>(numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            final byte kind = in.readByte();
+            final String id = readString(in);
+            switch (kind) {
+                case POINT_NODE:
+                    nodes.add(EventNodeFactory.point(id));
+                    break;
+                case INTERVAL_START_NODE:
+                    nodes.add(EventNodeFactory.intervalStart(id, in.readInt()));
+                    break;
+                case INTERVAL_END_NODE:
+                    nodes.add(EventNodeFactory.intervalEnd(id, in.readInt()));
+                    break;
+                default:
+                    throw new IOException("Unknown event node kind " + kind);
+            }
+        }
+        final List<OrderRelation> relations = new ArrayList<>(Math.max(numNodes - 1, 0));
+        for (int i = 1; i < numNodes; i++) {
+            relations.add(in.readBoolean() ? OrderRelation.EQUAL : OrderRelation.SMALLER);
+        }
+        return new DefaultHybridTemporalPattern(nodes, relations);
+    }
+
+    /**
+     * Writes the sequences of a database, preceded by its event types.
+     * Patterns order simultaneous events by the integer ids of their types, see {@link UniqueIDConverter},
+     * which the worker assigns in the same order, so that patterns are written in the same way on both sides.
+     */
+    static void writeDatabase(DataOutput out, HybridEventSequenceDatabase d) throws IOException {
+        final SortedMap<Integer, String> types = new TreeMap<>();
+        for (HybridEventSequence s : d.getSequences()) {
+            for (HybridEvent e : s.getEvents()) {
+                types.putIfAbsent(UniqueIDConverter.getIntegerId(e.getEventId()), e.getEventId());
+            }
+        }
+        out.writeInt(types.size());
+        for (String type : types.values()) {
+            writeString(out, type);
+        }
+
+        out.writeInt(d.size());
+        for (HybridEventSequence s : d.getSequences()) {
+            writeString(out, s.getSequenceId());
+            final List<HybridEvent> events = s.getEvents();
+            out.writeInt(events.size());
+            for (HybridEvent e : events) {
+                writeString(out, e.getEventId());
+                out.writeBoolean(e.isPointEvent());
+                if (e.isPointEvent()) {
+                    out.writeDouble(e.getTimePoint());
+                } else {
+                    out.writeDouble(e.getStartPoint());
+                    out.writeDouble(e.getEndPoint());
+                }
+            }
+        }
+    }
+
+    static HybridEventSequenceDatabase readDatabase(DataInput in) throws IOException {
+        final int numTypes = in.readInt();
+        for (int i = 0; i < numTypes; i++) {
+            UniqueIDConverter.getIntegerId(readString(in));
+        }
+
+        final DefaultHybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        final int numSequences = in.readInt();
+        for (int i = 0; i < numSequences; i++) {
+            final DefaultHybridEventSequence s = new DefaultHybridEventSequence(readString(in));
+            final int numEvents = in.readInt();
+            for (int j = 0; j < numEvents; j++) {
+                final String id = readString(in);
+                if (in.readBoolean()) {
+                    s.add(new DefaultHybridEvent(id, in.readDouble()));
+                } else {
+                    s.add(new DefaultHybridEvent(id, in.readDouble(), in.readDouble()));
+                }
+            }
+            d.add(s);
+        }
+        return d;
+    }
+
+    static void writeTask(DataOutput out, List<HybridTemporalPattern> path, boolean mayShare) throws IOException {
+        out.writeByte(TASK);
+        out.writeBoolean(mayShare);
+        out.writeInt(path.size());
+        for (HybridTemporalPattern pattern : path) {
+            writePattern(out, pattern);
+        }
+    }
+
+    /**
+     * Reads a task, after its type was read.
+     */
+    static List<HybridTemporalPattern> readTaskPath(DataInput in) throws IOException {
+        final int length = in.readInt();
+        final List<HybridTemporalPattern> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(readPattern(in));
+        }
+        return path;
+    }
+
+    /**
+     * Writes patterns with their occurrences.
+     * @param sequenceIndices the index of each sequence of the database, by identity
+     * @param eventIndices the index of each event in its sequence, by identity, filled as sequences are encountered
+     */
+    static void writePatterns(DataOutput out, int generation, List<HTPMOutputEvent.PatternOccurrence> patterns,
+                              Map<HybridEventSequence, Integer> sequenceIndices,
+                              Map<HybridEventSequence, Map<HybridEvent, Integer>> eventIndices) throws IOException {
+        out.writeByte(PATTERNS);
+        out.writeInt(generation);
+        out.writeInt(patterns.size());
+        for (HTPMOutputEvent.PatternOccurrence po : patterns) {
+            writePattern(out, po.pattern);
+            out.writeInt(po.occurrences.size());
+            for (Occurrence o : po.occurrences) {
+                final HybridEventSequence s = o.getHybridEventSequence();
+                final Map<HybridEvent, Integer> indices = eventIndices.computeIfAbsent(s, ShardProtocol::indexEvents);
+                out.writeInt(sequenceIndices.get(s));
+                out.writeInt(o.size());
+                for (HybridEvent e : o.ops()) {
+                    out.writeInt(indices.get(e));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads patterns with their occurrences, after the type and generation of the message were read.
+     * @param events the events of each sequence by its index, filled as sequences are encountered
+     */
+    static List<HTPMOutputEvent.PatternOccurrence> readPatterns(DataInput in, HybridEventSequenceDatabase d,
+                                                                Map<Integer, List<HybridEvent>> events) throws IOException {
+        final int numPatterns = in.readInt();
+        final List<HTPMOutputEvent.PatternOccurrence> patterns = new ArrayList<>(numPatterns);
+        for (int i = 0; i < numPatterns; i++) {
+            final HybridTemporalPattern pattern = readPattern(in);
+            final int numOccurrences = in.readInt();
+            final Set<Occurrence> occurrences = new HashSet<>(numOccurrences * 2);
+            for (int j = 0; j < numOccurrences; j++) {
+                final int index = in.readInt();
+                final HybridEventSequence s = d.getSequence(index);
+                final List<HybridEvent> sequenceEvents = events.computeIfAbsent(index, key -> s.getEvents());
+                final int size = in.readInt();
+                final List<HybridEvent> ops = new ArrayList<>(size);
+                for (int k = 0; k < size; k++) {
+                    ops.add(sequenceEvents.get(in.readInt()));
+                }
+                occurrences.add(new DefaultOccurrence(s, ops));
+            }
+            patterns.add(new HTPMOutputEvent.PatternOccurrence(pattern, occurrences));
+        }
+        return patterns;
+    }
+
+    static Map<HybridEvent, Integer> indexEvents(HybridEventSequence s) {
+        final List<HybridEvent> events = s.getEvents();
+        final Map<HybridEvent, Integer> indices = new IdentityHashMap<>(events.size() * 2);
+        for (int i = 0; i < events.size(); i++) {
+            indices.put(events.get(i), i);
+        }
+        return indices;
+    }
+}
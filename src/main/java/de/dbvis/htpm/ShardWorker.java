@@ -0,0 +1,167 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.HTPMConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.util.HTPMEvent;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+import de.dbvis.htpm.util.HTPMOutputListener;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A worker process of {@link ShardedHTPM}, started by the coordinator.
+ * <br/>
+ * Arguments: the local port of the coordinator and the token to identify with.
+ * The worker mines the branches it is assigned depth-first, like {@link HTPMDFSLowStorage},
+ * and streams the patterns it finds to the coordinator.
+ */
+public final class ShardWorker {
+
+    private ShardWorker() {
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: ShardWorker <port> <token>");
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeLong(Long.parseLong(args[1]));
+            out.flush();
+
+            final HybridEventSequenceDatabase d = ShardProtocol.readDatabase(in);
+            final ShardedHTPM.ConstraintFactory factory;
+            try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(ShardProtocol.readBytes(in)))) {
+                factory = (ShardedHTPM.ConstraintFactory) objects.readObject();
+            }
+            new Miner(d, factory.create(d), out).run(in);
+        }
+    }
+
+    private static final class Miner extends HTPMDFSLowStorage {
+
+        private final DataOutputStream out;
+
+        /**
+         * the 1-patterns, the roots of all task paths
+         */
+        private List<PatternOccurrence> onePatterns;
+
+        private final Map<HybridEventSequence, Integer> sequenceIndices = new IdentityHashMap<>();
+        private final Map<HybridEventSequence, Map<HybridEvent, Integer>> eventIndices = new IdentityHashMap<>();
+
+        private Miner(HybridEventSequenceDatabase d, HTPMConstraint constraint, DataOutputStream out) {
+            super(d, constraint);
+            this.out = out;
+            for (int i = 0; i < d.size(); i++) {
+                sequenceIndices.put(d.getSequence(i), i);
+            }
+            addHTPMListener(new HTPMOutputListener() {
+                @Override
+                public void outputGenerated(HTPMOutputEvent event) {
+                    final List<HTPMOutputEvent.PatternOccurrence> patterns =
+                            event.getPatternOccurrenceStream().collect(Collectors.toList());
+                    if (patterns.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        ShardProtocol.writePatterns(out, event.getGeneration(), patterns, sequenceIndices, eventIndices);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void generationCalculated(HTPMEvent event) {
+                }
+            });
+        }
+
+        private void run(DataInputStream in) throws IOException {
+            onePatterns = genL1().get(0);
+            prepareSelection();
+
+            while (in.readByte() == ShardProtocol.TASK) {
+                final boolean mayShare = in.readBoolean();
+                final List<HybridTemporalPattern> path = ShardProtocol.readTaskPath(in);
+                try {
+                    mine(path, mayShare);
+                } catch (RuntimeException e) {
+                    out.writeByte(ShardProtocol.ERROR);
+                    ShardProtocol.writeString(out, e.toString());
+                    out.flush();
+                    throw e;
+                }
+                out.writeByte(ShardProtocol.DONE);
+                out.flush();
+            }
+        }
+
+        /**
+         * Mines the branch of the last pattern of a path.
+         * The partitions along the path are calculated again, from the 1-patterns.
+         * @param mayShare whether the sub-branches may be handed back to the coordinator as new tasks
+         */
+        private void mine(List<HybridTemporalPattern> path, boolean mayShare) throws IOException {
+            List<PatternOccurrence> partition = onePatterns;
+            for (int i = 0; i < path.size(); i++) {
+                partition = partitionOf(partition, indexOf(partition, path.get(i)), i + 2);
+            }
+            final int depth = path.size() + 1;
+            output(Collections.singletonList(partition), depth);
+
+            if (partition.isEmpty() || !constraint.shouldGeneratePatternsOfLength(depth + 1)
+                    || !constraint.branchCanProduceResults(partition)) {
+                return;
+            }
+            if (mayShare && partition.size() > 1) {
+                out.writeByte(ShardProtocol.SUB_TASKS);
+                out.writeInt(partition.size());
+                for (PatternOccurrence po : partition) {
+                    ShardProtocol.writePattern(out, po.pattern);
+                }
+                return;
+            }
+            patternDFS(partition, depth + 1);
+        }
+
+        private static int indexOf(List<PatternOccurrence> partition, HybridTemporalPattern pattern) {
+            for (int i = 0; i < partition.size(); i++) {
+                if (partition.get(i).pattern.equals(pattern)) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("Pattern " + pattern + " of the task was not found");
+        }
+
+        /**
+         * Calculates the finished partition of one pattern, which {@link #calculateBranch} calculates
+         * together with the partitions of the patterns before it.
+         * @param m the pattern and its siblings
+         * @param index the index of the pattern
+         * @param k the length of the patterns of the partition
+         * @return the patterns with the pattern as parent
+         */
+        private List<PatternOccurrence> partitionOf(List<PatternOccurrence> m, int index, int k) {
+            final PatternOccurrence parent = m.get(index);
+            final List<PatternOccurrence> partition = new ArrayList<>();
+            for (int j = 0; j < m.size(); j++) {
+                final PatternOccurrence first = j < index ? m.get(j) : parent;
+                final PatternOccurrence second = j < index ? parent : m.get(j);
+                if (!constraint.patternsQualifyForJoin(first.prefix, first.pattern, second.pattern, k)) {
+                    continue;
+                }
+                partition.addAll(join(first, second, k).get(j < index ? 1 : 0).values());
+            }
+            return partition;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.constraints.HTPMConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.*;
+
+/**
+ * Mines the patterns of a database with several worker processes on the local machine,
+ * so that mining is not limited to the heap of one JVM.
+ * <br/>
+ * The coordinator calculates the 1-patterns and outputs them. The branch of each 1-pattern
+ * is a task, which a {@link ShardWorker} process mines depth-first and streams the patterns back over a local socket.
+ * The patterns are sent to the listeners of the coordinator as they arrive, so their order is not deterministic,
+ * and they are not kept: {@link #getPatterns()} is not supported.
+ * <br/>
+ * Load is balanced dynamically: workers take the next task when they are done with one.
+ * When fewer tasks are waiting than there are workers, a worker that gets a task
+ * outputs the partition of the task and hands the branches of its patterns back to the coordinator as new tasks,
+ * instead of mining them itself. A worker calculates the partitions along the path of a task again,
+ * so tasks are small messages.
+ * <br/>
+ * Each worker creates its own constraint with a {@link ConstraintFactory}, which is serialized to it.
+ * The workers mine their branches independently, so constraints that share state between branches,
+ * such as a {@link de.dbvis.htpm.constraints.TopKSupportConstraint}, do not work across workers.
+ * Likewise, the joins happen in the workers, so the {@link #getMetrics() metrics} of the coordinator
+ * only count the patterns the workers send and the tasks that wait for a worker.
+ * <br/>
+ * Example:
+ * <pre>
+ * ShardedHTPM htpm = new ShardedHTPM(d, ShardedHTPM.minSupport(0.5), 4, Collections.singletonList("-Xmx8g"));
+ * htpm.addHTPMListener(listener);
+ * htpm.start();
+ * </pre>
+ */
+public class ShardedHTPM extends HTPM {
+
+    /**
+     * Creates the constraint for a database, in the coordinator and in each worker.
+     * Has to be serializable, e.g. a lambda that only captures serializable values.
+     */
+    @FunctionalInterface
+    public interface ConstraintFactory extends Serializable {
+        HTPMConstraint create(HybridEventSequenceDatabase d);
+    }
+
+    /**
+     * How long to wait for a started worker to connect
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 60_000;
+
+    private final ConstraintFactory constraintFactory;
+    private final int numWorkers;
+    private final List<String> workerJvmOptions;
+
+    /**
+     * the paths of the tasks that wait for a worker, and the number of tasks being mined
+     */
+    private final Deque<List<HybridTemporalPattern>> tasks = new ArrayDeque<>();
+    private int running;
+
+    /**
+     * the first error of a worker, which ends the run
+     */
+    private volatile Exception failure;
+
+    /**
+     * Creates a coordinator whose workers run with the default options of the JVM.
+     * @param d          - The Database containing the series.
+     * @param constraintFactory - Creates the constraint for the coordinator and the workers.
+     * @param numWorkers - The number of worker processes.
+     */
+    public ShardedHTPM(HybridEventSequenceDatabase d, ConstraintFactory constraintFactory, int numWorkers) {
+        this(d, constraintFactory, numWorkers, Collections.emptyList());
+    }
+
+    /**
+     * Creates a coordinator.
+     * @param d          - The Database containing the series.
+     * @param constraintFactory - Creates the constraint for the coordinator and the workers.
+     * @param numWorkers - The number of worker processes.
+     * @param workerJvmOptions - Options of the JVMs of the workers, e.g. their maximum heap size.
+     */
+    public ShardedHTPM(HybridEventSequenceDatabase d, ConstraintFactory constraintFactory, int numWorkers,
+                       List<String> workerJvmOptions) {
+        super(d, constraintFactory.create(d), true, 1);
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("There must be at least 1 worker");
+        }
+        this.constraintFactory = constraintFactory;
+        this.numWorkers = numWorkers;
+        this.workerJvmOptions = new ArrayList<>(workerJvmOptions);
+    }
+
+    /**
+     * @param minSupport the minimum support of the patterns
+     * @return a factory for an {@link AgrawalSupportConstraint}
+     */
+    public static ConstraintFactory minSupport(double minSupport) {
+        return d -> new AgrawalSupportConstraint(d.size(), minSupport);
+    }
+
+    /**
+     * Starts the workers and mines the patterns, returns when all workers are done.
+     * @throws RuntimeException if a worker cannot be started or fails
+     */
+    @Override
+    public void start() {
+        if (!constraint.shouldGeneratePatternsOfLength(1)) {
+            return;
+        }
+        final List<PatternOccurrence> onePatterns = genL1().get(0);
+        output(Collections.singletonList(onePatterns), 1);
+
+        if (onePatterns.isEmpty() || !constraint.shouldGeneratePatternsOfLength(2)) {
+            return;
+        }
+        for (PatternOccurrence po : onePatterns) {
+            tasks.add(Collections.singletonList(po.pattern));
+        }
+        metrics.setQueueDepthGauge(() -> {
+            synchronized (tasks) {
+                return tasks.size();
+            }
+        });
+
+        final List<Process> processes = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, numWorkers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            final byte[] factory = serialize(constraintFactory);
+            final long token = new SecureRandom().nextLong();
+            for (int i = 0; i < numWorkers; i++) {
+                processes.add(new ProcessBuilder(workerCommand(server.getLocalPort(), token))
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+            while (threads.size() < numWorkers) {
+                final Socket socket = server.accept();
+                final DataInputStream in = authenticate(socket, token);
+                if (in == null) {
+                    continue;
+                }
+                final Thread thread = new Thread(() -> coordinate(socket, in, factory), "htpm-shard-" + threads.size());
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (IOException | InterruptedException e) {
+            fail(e);
+        } finally {
+            processes.forEach(Process::destroy);
+            synchronized (tasks) {
+                tasks.clear();
+                running = 0;
+            }
+        }
+        if (failure != null) {
+            throw new RuntimeException("Sharded mining failed", failure);
+        }
+    }
+
+    /**
+     * Reads the token of a new connection, waiting at most as long as for a connection.
+     * @return the input of the connection, or null if it was closed, because it did not send the token
+     */
+    private static DataInputStream authenticate(Socket socket, long token) {
+        try {
+            socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readLong() == token) {
+                //mining a task may take arbitrarily long
+                socket.setSoTimeout(0);
+                return in;
+            }
+        } catch (IOException e) {
+            //dropped below
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //the connection is dropped anyway
+        }
+        return null;
+    }
+
+    private List<String> workerCommand(int port, long token) {
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(workerJvmOptions);
+        final Module module = ShardWorker.class.getModule();
+        final String modulePath = System.getProperty("jdk.module.path");
+        if (module.isNamed() && modulePath != null) {
+            command.add("--module-path");
+            command.add(modulePath);
+            command.add("--module");
+            command.add(module.getName() + "/" + ShardWorker.class.getName());
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(ShardWorker.class.getName());
+        }
+        command.add(String.valueOf(port));
+        command.add(String.valueOf(token));
+        return command;
+    }
+
+    /**
+     * Sends tasks to one worker until all tasks are done, and outputs the patterns it sends back.
+     */
+    private void coordinate(Socket socket, DataInputStream in, byte[] factory) {
+        try (socket) {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            ShardProtocol.writeDatabase(out, d);
+            ShardProtocol.writeBytes(out, factory);
+
+            final Map<Integer, List<HybridEvent>> events = new HashMap<>();
+            List<HybridTemporalPattern> path;
+            while ((path = nextTask()) != null) {
+                try {
+                    ShardProtocol.writeTask(out, path, shouldShare());
+                    out.flush();
+                    receive(in, path, events);
+                } finally {
+                    finishTask();
+                }
+            }
+            out.writeByte(ShardProtocol.STOP);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void receive(DataInputStream in, List<HybridTemporalPattern> path, Map<Integer, List<HybridEvent>> events)
+            throws IOException {
+        while (true) {
+            final byte type = in.readByte();
+            switch (type) {
+                case ShardProtocol.PATTERNS:
+                    final int generation = in.readInt();
+                    final List<HTPMOutputEvent.PatternOccurrence> patterns = ShardProtocol.readPatterns(in, d, events);
+                    patterns.forEach(po -> metrics.recordPattern(generation, po.occurrences.size()));
+                    synchronized (listeners) {
+                        fireHTPMEvent(new HTPMOutputEvent(this, generation, patterns.size(), patterns.stream()));
+                    }
+                    break;
+                case ShardProtocol.SUB_TASKS:
+                    final int numTasks = in.readInt();
+                    final List<List<HybridTemporalPattern>> subTasks = new ArrayList<>(numTasks);
+                    for (int i = 0; i < numTasks; i++) {
+                        final List<HybridTemporalPattern> subTask = new ArrayList<>(path);
+                        subTask.add(ShardProtocol.readPattern(in));
+                        subTasks.add(subTask);
+                    }
+                    synchronized (tasks) {
+                        tasks.addAll(subTasks);
+                        tasks.notifyAll();
+                    }
+                    break;
+                case ShardProtocol.DONE:
+                    return;
+                case ShardProtocol.ERROR:
+                    throw new RuntimeException("Worker failed: " + ShardProtocol.readString(in));
+                default:
+                    throw new IOException("Unknown message type " + type);
+            }
+        }
+    }
+
+    /**
+     * @return the next task, waiting while other workers may still add tasks, or null if all tasks are done
+     */
+    private List<HybridTemporalPattern> nextTask() {
+        synchronized (tasks) {
+            while (tasks.isEmpty() && running > 0 && failure == null) {
+                try {
+                    tasks.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            if (tasks.isEmpty() || failure != null) {
+                return null;
+            }
+            running++;
+            return tasks.poll();
+        }
+    }
+
+    private void finishTask() {
+        synchronized (tasks) {
+            running--;
+            tasks.notifyAll();
+        }
+    }
+
+    /**
+     * @return true if workers may run out of tasks, then a task should be split
+     */
+    private boolean shouldShare() {
+        synchronized (tasks) {
+            return tasks.size() < numWorkers;
+        }
+    }
+
+    private void fail(Exception e) {
+        synchronized (tasks) {
+            if (failure == null) {
+                failure = e;
+            }
+            tasks.notifyAll();
+        }
+    }
+
+    private static byte[] serialize(ConstraintFactory factory) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(factory);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,248 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import de.dbvis.htpm.util.HTPMListener;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+import de.dbvis.htpm.util.HTPMOutputListener;
+
+import java.util.*;
+
+/**
+ * Mines the frequent hybrid temporal patterns of a sliding window over a stream of sequences.
+ * <br/>
+ * Sequences are added one after another with {@link #add(HybridEventSequence)}.
+ * The window either holds the last n sequences (count-based),
+ * or the sequences whose time lies within a time span before the latest time seen (time-based).
+ * The time of a sequence is the latest time point of its events.
+ * Sequences that leave the window are dropped; the patterns of the last update keep their occurrences
+ * until the next update replaces them.
+ * <br/>
+ * After every n added sequences, the patterns of the window are updated and sent to the listeners
+ * as one {@link HTPMOutputEvent}, whose generation is the number of the update.
+ * Updates are made with {@link IncrementalHTPM}: the occurrences in the sequences that left the window are dropped
+ * from the patterns and the negative border of the last update, and only the added sequences are joined.
+ * The memory is bounded by the occurrences of the patterns and the negative border in the window.
+ * Updates are only made after {@link #start()} was called, which updates the patterns of the current window.
+ * <br/>
+ * The patterns of each update are the same as those of {@link HTPM} with an
+ * {@link de.dbvis.htpm.constraints.AgrawalSupportConstraint} over the sequences of the window.
+ * Mining runs in the thread that adds the sequence which triggers an update.
+ * <br/>
+ * Example:
+ * <pre>
+ * StreamingHTPM htpm = StreamingHTPM.countBased(0.5, 1000, 100);
+ * htpm.addHTPMListener(listener);
+ * htpm.start();
+ * for (HybridEventSequence s : stream) {
+ *     htpm.add(s);
+ * }
+ * </pre>
+ */
+public class StreamingHTPM implements TemporalPatternProducer {
+
+    private final double minSupport;
+
+    /**
+     * the maximum number of sequences in the window, Integer.MAX_VALUE for a time-based window
+     */
+    private final int maxSequences;
+
+    /**
+     * the time span of the window, infinite for a count-based window
+     */
+    private final double maxTimeSpan;
+
+    /**
+     * the number of added sequences after which the patterns are updated
+     */
+    private final int updateInterval;
+
+    private final List<HTPMListener> listeners = new LinkedList<>();
+
+    /**
+     * the sequences of the window in the order they were added, and their times
+     */
+    private final DefaultHybridEventSequenceDatabase window = new DefaultHybridEventSequenceDatabase();
+    private final Map<HybridEventSequence, Double> times = new IdentityHashMap<>();
+    private double latestTime = Double.NEGATIVE_INFINITY;
+
+    /**
+     * the sequences added since the last update
+     */
+    private final List<HybridEventSequence> added = new ArrayList<>();
+
+    /**
+     * the sequences mined in the last update that have left the window since
+     */
+    private final List<HybridEventSequence> removed = new ArrayList<>();
+
+    private boolean started;
+    private int numUpdates;
+
+    /**
+     * the run of the last update, null before the first one
+     */
+    private IncrementalHTPM miner;
+
+    private StreamingHTPM(double minSupport, int maxSequences, double maxTimeSpan, int updateInterval) {
+        if (updateInterval < 1) {
+            throw new IllegalArgumentException("The update interval must be at least 1");
+        }
+        this.minSupport = minSupport;
+        this.maxSequences = maxSequences;
+        this.maxTimeSpan = maxTimeSpan;
+        this.updateInterval = updateInterval;
+    }
+
+    /**
+     * Creates a miner over a window of the last sequences.
+     * @param minSupport - The minimum support of the patterns within the window.
+     * @param windowSize - The maximum number of sequences in the window.
+     * @param updateInterval - The number of added sequences after which the patterns are updated.
+     * @return the miner
+     */
+    public static StreamingHTPM countBased(double minSupport, int windowSize, int updateInterval) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("The window size must be at least 1");
+        }
+        return new StreamingHTPM(minSupport, windowSize, Double.POSITIVE_INFINITY, updateInterval);
+    }
+
+    /**
+     * Creates a miner over a window of the sequences whose time is less than a time span before the latest time.
+     * @param minSupport - The minimum support of the patterns within the window.
+     * @param timeSpan - The time span of the window.
+     * @param updateInterval - The number of added sequences after which the patterns are updated.
+     * @return the miner
+     */
+    public static StreamingHTPM timeBased(double minSupport, double timeSpan, int updateInterval) {
+        if (!(timeSpan > 0)) {
+            throw new IllegalArgumentException("The time span must be positive");
+        }
+        return new StreamingHTPM(minSupport, Integer.MAX_VALUE, timeSpan, updateInterval);
+    }
+
+    /**
+     * Updates the patterns of the current window and sends them to the listeners,
+     * later updates are made while sequences are added.
+     */
+    @Override
+    public synchronized void start() {
+        this.started = true;
+        update();
+    }
+
+    /**
+     * Adds a sequence to the window, removes the sequences that leave the window
+     * and updates the patterns if the update interval is reached.
+     * @param s - The sequence to be added, its id must be unique within the window.
+     */
+    public synchronized void add(HybridEventSequence s) {
+        if (window.getSequence(s.getSequenceId()) != null) {
+            throw new IllegalArgumentException("A sequence with id " + s.getSequenceId() + " is already in the window");
+        }
+        final double time = timeOf(s);
+        latestTime = Math.max(latestTime, time);
+
+        window.add(s);
+        times.put(s, time);
+        added.add(s);
+
+        expire();
+
+        if (started && added.size() >= updateInterval) {
+            update();
+        }
+    }
+
+    /**
+     * Returns the patterns of the last update.
+     * @return the patterns with their occurrences in the window, empty before the first update
+     */
+    public synchronized Map<HybridTemporalPattern, Set<Occurrence>> getPatterns() {
+        return miner == null ? Collections.emptyMap() : miner.getPatterns();
+    }
+
+    /**
+     * Returns the sequences currently in the window, in the order they were added.
+     * @return a copy of the sequences
+     */
+    public synchronized List<HybridEventSequence> getWindow() {
+        return new ArrayList<>(window.getSequences());
+    }
+
+    @Override
+    public void addHTPMListener(HTPMListener l) {
+        if (l == null) {
+            return;
+        }
+        this.listeners.add(l);
+    }
+
+    @Override
+    public void removeHTPMListener(HTPMListener l) {
+        this.listeners.remove(l);
+    }
+
+    private void expire() {
+        final List<HybridEventSequence> leaving = new ArrayList<>();
+        final List<HybridEventSequence> sequences = window.getSequences();
+        final int excess = sequences.size() - maxSequences;
+        final boolean timeBased = maxTimeSpan != Double.POSITIVE_INFINITY;
+        for (int i = 0; i < sequences.size(); i++) {
+            final HybridEventSequence s = sequences.get(i);
+            if (i < excess || timeBased && times.get(s) <= latestTime - maxTimeSpan) {
+                leaving.add(s);
+            }
+        }
+        for (HybridEventSequence s : leaving) {
+            window.remove(s);
+            times.remove(s);
+            //sequences that leave before they were mined are not part of the last update
+            if (!added.removeIf(a -> a == s)) {
+                removed.add(s);
+            }
+        }
+    }
+
+    private void update() {
+        if (miner == null) {
+            miner = new IncrementalHTPM(window, minSupport);
+        } else {
+            miner = new IncrementalHTPM(miner, removed, added);
+        }
+        miner.start();
+        added.clear();
+        removed.clear();
+        numUpdates++;
+
+        final Map<HybridTemporalPattern, Set<Occurrence>> patterns = miner.getPatterns();
+        fireHTPMEvent(new HTPMOutputEvent(this, numUpdates, patterns.size(), patterns.entrySet().stream()
+                .map(e -> new HTPMOutputEvent.PatternOccurrence(e.getKey(), e.getValue()))));
+    }
+
+    private void fireHTPMEvent(HTPMOutputEvent e) {
+        for (HTPMListener l : this.listeners) {
+            l.generationCalculated(e);
+
+            if (l instanceof HTPMOutputListener) {
+                ((HTPMOutputListener) l).outputGenerated(e);
+            }
+        }
+    }
+
+    /**
+     * @return the latest time point of the events of the sequence, or the latest time seen if it has no events
+     */
+    private double timeOf(HybridEventSequence s) {
+        double time = Double.NEGATIVE_INFINITY;
+        for (HybridEvent e : s.getEvents()) {
+            time = Math.max(time, e.isPointEvent() ? e.getTimePoint() : e.getEndPoint());
+        }
+        return time == Double.NEGATIVE_INFINITY ? latestTime : time;
+    }
+}
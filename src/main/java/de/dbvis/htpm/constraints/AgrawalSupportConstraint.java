@@ -4,6 +4,7 @@ import de.dbvis.htpm.htp.HybridTemporalPattern;
 import de.dbvis.htpm.occurrence.Occurrence;
 
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AgrawalSupportConstraint extends AcceptAllConstraint implements SupportBasedConstraint {
 
@@ -17,8 +18,8 @@ public class AgrawalSupportConstraint extends AcceptAllConstraint implements Sup
      */
     private final double numSequences;
 
-    private int unsupportedCount = 0;
-    private int unsupportedOccurrences = 0;
+    private final LongAdder unsupportedCount = new LongAdder();
+    private final LongAdder unsupportedOccurrences = new LongAdder();
 
     public AgrawalSupportConstraint(int numSequences, double minSupport) {
         this.numSequences = numSequences;
@@ -33,12 +34,18 @@ public class AgrawalSupportConstraint extends AcceptAllConstraint implements Sup
         //prune patterns which do not fulfill minimum support
         boolean isSupported = isSupported(occurrences);
         if (!isSupported) {
-            unsupportedCount++;
-            unsupportedOccurrences += occurrences.size();
+            unsupportedCount.increment();
+            unsupportedOccurrences.add(occurrences.size());
         }
         return isSupported;
     }
 
+    @Override
+    public boolean fulfillsAprioriProperty() {
+        //every sequence supporting a pattern supports its sub-patterns
+        return true;
+    }
+
     @Override
     public boolean shouldOutputOccurrence(HybridTemporalPattern p, Occurrence occurrence) {
         return true;
@@ -61,12 +68,12 @@ public class AgrawalSupportConstraint extends AcceptAllConstraint implements Sup
 
     @Override
     public int getOccurrencesDiscardedCount() {
-        return unsupportedOccurrences;
+        return (int) unsupportedOccurrences.sum();
     }
 
     @Override
     public int getPatternsDiscardedCount() {
-        return unsupportedCount;
+        return (int) unsupportedCount.sum();
     }
 
     @Override
@@ -102,6 +109,6 @@ public class AgrawalSupportConstraint extends AcceptAllConstraint implements Sup
     @Override
     public String toString() {
         return "MinSupport " + String.format("%.3f", minSupport) + " constraint " +
-                "(discarded " + unsupportedCount + " patterns)";
+                "(discarded " + unsupportedCount.sum() + " patterns)";
     }
 }
@@ -2,14 +2,13 @@ package de.dbvis.htpm.constraints;
 
 import de.dbvis.htpm.HTPM;
 import de.dbvis.htpm.db.HybridEventSequenceDatabase;
-import de.dbvis.htpm.htp.DefaultHybridTemporalPattern;
 import de.dbvis.htpm.htp.HybridTemporalPattern;
 import de.dbvis.htpm.htp.eventnodes.*;
 import de.dbvis.htpm.occurrence.Occurrence;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
-import static de.dbvis.htpm.htp.eventnodes.OrderRelation.EQUAL;
 import static de.dbvis.htpm.htp.eventnodes.OrderRelation.SMALLER;
 
 /**
@@ -30,12 +29,22 @@ public class CMAPConstraint extends AcceptAllConstraint {
         ConstraintCollection constraint = new ConstraintCollection(Arrays.asList(constraintsForSubpatterns, maxSizeConstraint));
         HTPM htpm = new HTPM(d, constraint, false, 1);
         htpm.start();
-        this.twoPatterns.addAll(htpm.getPatterns().keySet());
+        this.twoPatterns = TwoPatternMatrix.fromPatterns(htpm.getPatterns().keySet());
     }
 
-    private final Set<HybridTemporalPattern> twoPatterns = new HashSet<>();
+    /**
+     * Finds the 2-patterns in one parallel pass over the sequences of the database instead of running HTPM.
+     * Only to be used if the {@link AgrawalSupportConstraint} is the only constraint that restricts subpatterns.
+     * @param d the database on which HTPM will mine
+     * @param minSupport the minimum support of the AgrawalSupportConstraint
+     */
+    public CMAPConstraint(HybridEventSequenceDatabase d, double minSupport) {
+        this.twoPatterns = TwoPatternMatrix.fromDatabase(d, minSupport);
+    }
+
+    private final TwoPatternMatrix twoPatterns;
 
-    private int joinPreventedCount = 0;
+    private final LongAdder joinPreventedCount = new LongAdder();
 
     @Override
     public boolean patternsQualifyForJoin(HybridTemporalPattern commonPrefix, HybridTemporalPattern firstPattern, HybridTemporalPattern secondPattern, int k) {
@@ -63,11 +72,17 @@ public class CMAPConstraint extends AcceptAllConstraint {
 
         final boolean accept = testPatterns(pa1, pa2, index1, index2);
         if (!accept) {
-            joinPreventedCount++;
+            joinPreventedCount.increment();
         }
         return accept;
     }
 
+    @Override
+    public boolean fulfillsAprioriProperty() {
+        //only prevents joins that cannot produce frequent patterns
+        return true;
+    }
+
     @Override
     public boolean shouldOutputOccurrence(HybridTemporalPattern p, Occurrence occurrence) {
         return true;
@@ -80,7 +95,7 @@ public class CMAPConstraint extends AcceptAllConstraint {
 
     @Override
     public int getPatternJoinPreventedCount() {
-        return joinPreventedCount;
+        return (int) joinPreventedCount.sum();
     }
 
     @Override
@@ -106,301 +121,90 @@ public class CMAPConstraint extends AcceptAllConstraint {
     private boolean testPatterns(List<EventNode> pa1, List<EventNode> pa2,
                                  IndexPair index1, IndexPair index2) {
 
-        //build possible 2-patterns and apply constraint
-
-        final EventNode firstStart = pa1.get(index1.startIndex);
-        final EventNode secondStart = pa2.get(index2.startIndex);
-
-        final boolean firstIsInterval = index1.endGroup >= 0;
-        final boolean secondIsInterval = index2.endGroup >= 0;
-
-        final EventNode firstEnd = firstIsInterval ? pa1.get(index1.endIndex) : null;
-        final EventNode secondEnd = secondIsInterval ? pa2.get(index2.endIndex) : null;
-
-        final boolean firstAndSecondSameIntervalType = firstIsInterval && secondIsInterval
-                && firstStart.getIntegerEventID() == secondStart.getIntegerEventID();
-        int firstOccurrenceMark = 0;
-        int secondOccurrenceMark = firstAndSecondSameIntervalType ? 1 : 0;
-
-        if (index1.startGroup < index2.startGroup) {
-            //FIRST START FIRST
-            return testPatternsStartBeforeStart(index1, index2,
-                    firstStart, secondStart, firstEnd, secondEnd, false,
-                    firstOccurrenceMark, secondOccurrenceMark);
-        } else if (index1.startGroup > index2.startGroup) {
-            //SECOND START FIRST
-            return testPatternsStartBeforeStart(index2, index1,
-                    secondStart, firstStart, secondEnd, firstEnd, true,
-                    firstOccurrenceMark, secondOccurrenceMark);
-        } else if (index1.startGroup % 2 == 1) {
-            //both starts are fixed at the same time as some prefix node
-            //FIRST START == SECOND START
-            return testPatternsStartEqualsStart(index1, index2,
-                    firstStart, secondStart, firstEnd, secondEnd,
-                    firstOccurrenceMark, secondOccurrenceMark);
-        } else {
-            //Multiple possible arrangements for start event nodes
-            //FIRST START ?? SECOND START
-
-            //test multiple variants
-            boolean firstStartFirst = //FIRST START FIRST
-                    testPatternsStartBeforeStart(index1, index2,
-                            firstStart, secondStart, firstEnd, secondEnd, false,
-                            firstOccurrenceMark, secondOccurrenceMark);
-            if (firstStartFirst) {
-                return true;
-            }
-
-            boolean secondStartFirst = //SECOND START FIRST
-                    testPatternsStartBeforeStart(index2, index1,
-                            secondStart, firstStart, secondEnd, firstEnd, true,
-                            firstOccurrenceMark, secondOccurrenceMark);
-            if (secondStartFirst) {
-                return true;
-            }
-
-            //FIRST START == SECOND START
-            return testPatternsStartEqualsStart(index1, index2,
-                    firstStart, secondStart, firstEnd, secondEnd,
-                    firstOccurrenceMark, secondOccurrenceMark);
-        }
-    }
-
-    private boolean testPatternsStartBeforeStart(IndexPair index1, IndexPair index2,
-                                                 EventNode firstStart, EventNode secondStart, EventNode firstEnd, EventNode secondEnd,
-                                                 boolean inverted,
-                                                 int firstOccurrenceMark, int secondOccurrenceMark) {
+        //test all possible 2-patterns of the suffixes of first and second pattern
 
-        ArrayList<EventNode> nodes = new ArrayList<>(4);
-        ArrayList<OrderRelation> relations = new ArrayList<>(3);
+        final int firstId = pa1.get(index1.startIndex).getIntegerEventID();
+        final int secondId = pa2.get(index2.startIndex).getIntegerEventID();
 
         final boolean firstIsInterval = index1.endGroup >= 0;
         final boolean secondIsInterval = index2.endGroup >= 0;
 
-        //FIRST START FIRST
-        nodes.add(firstIsInterval ? new IntervalStartEventNode(firstStart, firstOccurrenceMark)
-                : new PointEventNode(firstStart));
-
-        if ((!firstIsInterval) || index2.startGroup < index1.endGroup) {
-            //SECOND START SECOND
-            return testPatternsSecondStartSecond(index1, index2,
-                    secondStart, firstEnd, secondEnd, inverted,
-                    firstOccurrenceMark, secondOccurrenceMark,
-                    secondIsInterval,
-                    nodes, relations);
-        } else if (index2.startGroup > index1.endGroup) {
-            //FIRST END SECOND
-            return testPatternsFirstEndSecond(secondStart, firstEnd, secondEnd,
-                    firstOccurrenceMark, secondOccurrenceMark,
-                    secondIsInterval,
-                    nodes, relations);
-        } else if (index2.startGroup % 2 == 1) {
-            //both are fixed at the same time as some prefix node
-            //SECOND START == FIRST END
-            return testPatternsStartEqualsEnd(secondStart, firstEnd, secondEnd,
-                    firstOccurrenceMark, secondOccurrenceMark,
-                    secondIsInterval, nodes, relations);
-        } else {
-            //relation of first start and second end unknown
-            //FIRST START ?? SECOND END
-            //test multiple variants
+        //the first suffix is fixed, the second suffix is tried before, at and after each of its nodes
+        final int firstStart = time(index1.startGroup, fixedSlot(index1.startGroup, 0));
+        final int firstEnd = firstIsInterval
+                ? time(index1.endGroup, fixedSlot(index1.endGroup, index1.startGroup == index1.endGroup ? 1 : 0))
+                : -1;
 
-            ArrayList<EventNode> nodes2 = new ArrayList<>(nodes);
-            ArrayList<OrderRelation> relations2 = new ArrayList<>(relations);
+        final boolean secondInOneGroup = secondIsInterval && index2.startGroup == index2.endGroup;
+        final int startSlots = numSlots(index2.startGroup, index1);
+        final int endSlots = secondIsInterval ? numSlots(index2.endGroup, index1) : 1;
 
-            //SECOND START SECOND
-            boolean secondStartSecond = testPatternsSecondStartSecond(index1, index2, secondStart, firstEnd, secondEnd, inverted, firstOccurrenceMark, secondOccurrenceMark, secondIsInterval, nodes2, relations2);
-            if (secondStartSecond) {
-                return true;
+        for (int startSlot = 0; startSlot < startSlots; startSlot++) {
+            if (!secondInOneGroup && isRedundantSlot(index2.startGroup, startSlot)) {
+                continue;
             }
-
-            ArrayList<EventNode> nodes3 = new ArrayList<>(nodes);
-            ArrayList<OrderRelation> relations3 = new ArrayList<>(relations);
-
-            //FIRST END SECOND
-            boolean firstEndSecond = testPatternsFirstEndSecond(secondStart, firstEnd, secondEnd, firstOccurrenceMark, secondOccurrenceMark, secondIsInterval, nodes3, relations3);
-            if (firstEndSecond) {
-                return true;
+            final int secondStart = time(index2.startGroup, startSlot);
+            if (!secondIsInterval) {
+                if (twoPatterns.contains(firstId, firstIsInterval, firstStart, firstEnd,
+                        secondId, false, secondStart, -1)) {
+                    return true;
+                }
+                continue;
+            }
+            for (int endSlot = 0; endSlot < endSlots; endSlot++) {
+                if (!secondInOneGroup && isRedundantSlot(index2.endGroup, endSlot)) {
+                    continue;
+                }
+                final int secondEnd = time(index2.endGroup, endSlot);
+                if (secondEnd > secondStart
+                        && twoPatterns.contains(firstId, firstIsInterval, firstStart, firstEnd,
+                        secondId, true, secondStart, secondEnd)) {
+                    return true;
+                }
             }
-
-            //SECOND START == FIRST END
-            return testPatternsStartEqualsEnd(secondStart, firstEnd, secondEnd,
-                    firstOccurrenceMark, secondOccurrenceMark,
-                    secondIsInterval, nodes, relations);
-        }
-    }
-
-    private boolean testPatternsStartEqualsStart(IndexPair index1, IndexPair index2,
-                                                 EventNode firstStart, EventNode secondStart, EventNode firstEnd, EventNode secondEnd,
-                                                 int firstOccurrenceMark, int secondOccurrenceMark) {
-
-        ArrayList<EventNode> nodes = new ArrayList<>(4);
-        ArrayList<OrderRelation> relations = new ArrayList<>(3);
-
-        final boolean firstIsInterval = index1.endGroup >= 0;
-        final boolean secondIsInterval = index2.endGroup >= 0;
-
-        if (firstStart.compareTo(secondStart) < 0) {
-            nodes.add(firstIsInterval ? new IntervalStartEventNode(firstStart, firstOccurrenceMark)
-                    : new PointEventNode(firstStart));
-            nodes.add(secondIsInterval ? new IntervalStartEventNode(secondStart, secondOccurrenceMark)
-                    : new PointEventNode(secondStart));
-            relations.add(EQUAL);
-            return testPatternsEndVsEnd(index1, index2, firstEnd, secondEnd, firstOccurrenceMark, secondOccurrenceMark, nodes, relations);
-        } else {
-            nodes.add(secondIsInterval ? new IntervalStartEventNode(secondStart, firstOccurrenceMark)
-                    : new PointEventNode(secondStart));
-            nodes.add(firstIsInterval ? new IntervalStartEventNode(firstStart, secondOccurrenceMark)
-                    : new PointEventNode(firstStart));
-            relations.add(EQUAL);
-            return testPatternsEndVsEnd(index1, index2, firstEnd, secondEnd, secondOccurrenceMark, firstOccurrenceMark, nodes, relations);
-        }
-    }
-
-    private boolean testPatternsFirstEndSecond(EventNode secondStart, EventNode firstEnd, EventNode secondEnd,
-                                               int firstOccurrenceMark, int secondOccurrenceMark,
-                                               boolean secondIsInterval,
-                                               ArrayList<EventNode> nodes, ArrayList<OrderRelation> relations) {
-        nodes.add(new IntervalEndEventNode(firstEnd, firstOccurrenceMark));
-        relations.add(SMALLER);
-        //SECOND START THIRD
-        nodes.add(secondIsInterval ? new IntervalStartEventNode(secondStart, secondOccurrenceMark)
-                : new PointEventNode(secondStart));
-        relations.add(SMALLER);
-        return testPatternsLastEnd(secondEnd, secondOccurrenceMark, secondIsInterval, nodes, relations);
-    }
-
-    private boolean testPatternsSecondStartSecond(IndexPair index1, IndexPair index2, EventNode secondStart, EventNode firstEnd, EventNode secondEnd, boolean inverted, int firstOccurrenceMark, int secondOccurrenceMark, boolean secondIsInterval, ArrayList<EventNode> nodes, ArrayList<OrderRelation> relations) {
-        boolean secondStartSecond; //SECOND START SECOND
-        nodes.add(secondIsInterval ? new IntervalStartEventNode(secondStart, secondOccurrenceMark)
-                : new PointEventNode(secondStart));
-        relations.add(SMALLER);
-        if (inverted) {
-            secondStartSecond = testPatternsEndVsEnd(index2, index1, secondEnd, firstEnd, secondOccurrenceMark, firstOccurrenceMark, nodes, relations);
-        } else {
-            secondStartSecond = testPatternsEndVsEnd(index1, index2, firstEnd, secondEnd, firstOccurrenceMark, secondOccurrenceMark, nodes, relations);
         }
-        return secondStartSecond;
+        return false;
     }
 
-    private boolean testPatternsEndVsEnd(IndexPair index1, IndexPair index2,
-                                         EventNode firstEnd, EventNode secondEnd,
-                                         int firstOccurrenceMark, int secondOccurrenceMark,
-                                         ArrayList<EventNode> nodes, ArrayList<OrderRelation> relations) {
-
-        final boolean firstIsInterval = index1.endGroup >= 0;
-        final boolean secondIsInterval = index2.endGroup >= 0;
-
-        if (!secondIsInterval) {
-            //end node of second pattern suffix nonexistent
-            //FIRST END THIRD
-            return testPatternsLastEnd(firstEnd, firstOccurrenceMark, firstIsInterval, nodes, relations);
-        } else if (!firstIsInterval) {
-            //end node of first pattern suffix nonexistent
-            //SECOND END THIRD
-            return testPatternsLastEnd(secondEnd, secondOccurrenceMark, secondIsInterval, nodes, relations);
-        } else if (index1.endGroup < index2.endGroup) {
-            return testPatternsFirstEndThird(firstEnd, secondEnd, firstOccurrenceMark, secondOccurrenceMark, secondIsInterval, nodes, relations);
-        } else if (index1.endGroup > index2.endGroup) {
-            //SECOND END THIRD
-            return testPatternsFirstEndThird(secondEnd, firstEnd, secondOccurrenceMark, firstOccurrenceMark, firstIsInterval, nodes, relations);
-        } else if (index1.endGroup % 2 == 1) {
-            //both end nodes are fixed at the same time as some prefix node
-            //FIRST END == SECOND END
-            return testPatternsEndEqualsEnd(firstEnd, secondEnd, firstOccurrenceMark, secondOccurrenceMark, nodes, relations);
-        } else {
-            //unclear order of end event nodes
-            //FIRST END ?? SECOND END
-            //test multiple variants
-
-            ArrayList<EventNode> nodes2 = new ArrayList<>(nodes);
-            ArrayList<OrderRelation> relations2 = new ArrayList<>(relations);
-            //FIRST END THIRD
-            boolean firstEndThird = testPatternsFirstEndThird(firstEnd, secondEnd, firstOccurrenceMark, secondOccurrenceMark, secondIsInterval, nodes2, relations2);
-            if (firstEndThird) {
-                return true;
-            }
+    /*
+     * Nodes of the suffixes are placed at slots within their groups.
+     * In an odd group all nodes happen at the same time as the prefix node, so there is only one slot.
+     * In an even group, the i-th node of the first suffix is at slot 3i+2,
+     * the slots 3i and 3i+1 before it allow one or two nodes of the second suffix to be placed before it.
+     */
 
-            ArrayList<EventNode> nodes3 = new ArrayList<>(nodes);
-            ArrayList<OrderRelation> relations3 = new ArrayList<>(relations);
-            //SECOND END THIRD
-            boolean secondEndThird = testPatternsFirstEndThird(secondEnd, firstEnd, secondOccurrenceMark, firstOccurrenceMark, firstIsInterval, nodes3, relations3);
-            if (secondEndThird) {
-                return true;
-            }
+    private static final int SLOTS_PER_GROUP = 8;
 
-            //FIRST END == SECOND END
-            return testPatternsEndEqualsEnd(firstEnd, secondEnd, firstOccurrenceMark, secondOccurrenceMark, nodes, relations);
-        }
+    private static int time(int group, int slot) {
+        return group * SLOTS_PER_GROUP + slot;
     }
 
-    private boolean testPatternsFirstEndThird(EventNode firstEnd, EventNode secondEnd,
-                                              int firstOccurrenceMark, int secondOccurrenceMark,
-                                              boolean secondIsInterval,
-                                              ArrayList<EventNode> nodes, ArrayList<OrderRelation> relations) {
-        //FIRST END THIRD
-        nodes.add(new IntervalEndEventNode(firstEnd, firstOccurrenceMark));
-        relations.add(SMALLER);
-        //SECOND END FOURTH
-        return testPatternsLastEnd(secondEnd, secondOccurrenceMark, secondIsInterval, nodes, relations);
+    private static int fixedSlot(int group, int nodeOfFirstInGroup) {
+        return group % 2 == 1 ? 0 : 3 * nodeOfFirstInGroup + 2;
     }
 
-
-    private boolean testPatternsStartEqualsEnd(EventNode secondStart, EventNode firstEnd, EventNode secondEnd,
-                                               int firstOccurrenceMark, int secondOccurrenceMark,
-                                               boolean secondIsInterval,
-                                               ArrayList<EventNode> nodes, ArrayList<OrderRelation> relations) {
-
-        //FIRST END EQUALS SECOND START
-        if (firstEnd.compareTo(secondStart) < 0) {
-            nodes.add(new IntervalEndEventNode(firstEnd, firstOccurrenceMark));
-            nodes.add(secondIsInterval ? new IntervalStartEventNode(secondStart, secondOccurrenceMark)
-                    : new PointEventNode(secondStart));
-        } else {
-            nodes.add(secondIsInterval ? new IntervalStartEventNode(secondStart, secondOccurrenceMark)
-                    : new PointEventNode(secondStart));
-            nodes.add(new IntervalEndEventNode(firstEnd, firstOccurrenceMark));
+    private static int numSlots(int group, IndexPair first) {
+        if (group % 2 == 1) {
+            return 1;
         }
-        relations.add(SMALLER);
-        relations.add(EQUAL);
-
-        return testPatternsLastEnd(secondEnd, secondOccurrenceMark, secondIsInterval, nodes, relations);
-    }
-
-    private boolean testPatternsEndEqualsEnd(EventNode firstEnd, EventNode secondEnd,
-                                             int firstOccurrenceMark, int secondOccurrenceMark,
-                                             ArrayList<EventNode> nodes, ArrayList<OrderRelation> relations) {
-        //FIRST END == SECOND END
-        if (firstEnd.compareTo(secondEnd) < 0) {
-            nodes.add(new IntervalEndEventNode(firstEnd, firstOccurrenceMark));
-            nodes.add(new IntervalEndEventNode(secondEnd, secondOccurrenceMark));
-        } else {
-            nodes.add(new IntervalEndEventNode(secondEnd, secondOccurrenceMark));
-            nodes.add(new IntervalEndEventNode(firstEnd, firstOccurrenceMark));
+        int nodesOfFirst = 0;
+        if (first.startGroup == group) {
+            nodesOfFirst++;
         }
-        relations.add(SMALLER);
-        relations.add(EQUAL);
-        //test
-        return testCompletePattern(nodes, relations);
-    }
-
-    private boolean testPatternsLastEnd(EventNode end, int occurrenceMark, boolean isInterval,
-                                        ArrayList<EventNode> nodes, ArrayList<OrderRelation> relations) {
-        if (isInterval) {
-            //END LAST
-            nodes.add(new IntervalEndEventNode(end, occurrenceMark));
-            relations.add(SMALLER);
+        if (first.endGroup == group) {
+            nodesOfFirst++;
         }
-        //test
-        return testCompletePattern(nodes, relations);
+        return 3 * nodesOfFirst + 2;
     }
 
-
-    private boolean testCompletePattern(List<EventNode> nodes, List<OrderRelation> relations) {
-        return twoPatterns.contains(new DefaultHybridTemporalPattern(nodes, relations));
+    /**
+     * If only one node of the second suffix is in a group, placing it at the second slot of a gap
+     * yields the same 2-pattern as placing it at the first slot.
+     */
+    private static boolean isRedundantSlot(int group, int slot) {
+        return group % 2 == 0 && slot % 3 == 1;
     }
 
-
     /**
      * Group indices of start and end node:
      * Even number means the node is between prefix nodes, odd number that it is at the same time as a prefix node
@@ -496,6 +300,6 @@ public class CMAPConstraint extends AcceptAllConstraint {
 
     @Override
     public String toString() {
-        return "CMAP Constraint (prevented" + joinPreventedCount + "joins )";
+        return "CMAP Constraint (prevented" + joinPreventedCount.sum() + "joins )";
     }
 }
@@ -55,6 +55,26 @@ public class ConstraintCollection implements HTPMConstraint {
         return true;
     }
 
+    @Override
+    public boolean fulfillsAprioriProperty() {
+        for (HTPMConstraint c1 : constraints) {
+            if (!c1.fulfillsAprioriProperty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean prefersFrequentBranchesFirst() {
+        for (HTPMConstraint c1 : constraints) {
+            if (c1.prefersFrequentBranchesFirst()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean patternFulfillsConstraints(HybridTemporalPattern p, Set<Occurrence> occurrences, int k) {
         for (HTPMConstraint c1 : constraints) {
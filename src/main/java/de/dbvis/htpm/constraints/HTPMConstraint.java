@@ -51,7 +51,7 @@ public interface HTPMConstraint {
     /**
      * whether the found pattern lies within the desired parameters (e.g. support threshold)
      * @param p the created pattern
-     * @param occurrences all occurrences of pattern p
+     * @param occurrences all occurrences of pattern p, the set may be reused after the call and must not be kept
      * @param k the desired length of the patterns that have been created
      * @return whether the pattern p is within the constraints or should be pruned
      */
@@ -84,6 +84,26 @@ public interface HTPMConstraint {
      */
     boolean shouldOutputPattern(HybridTemporalPattern p, Set<Occurrence> occurrences);
 
+    /**
+     * Whether all sub-patterns of a pattern fulfilling this constraint during mining fulfill it as well
+     * (Apriori property, e.g. minimum support).
+     * If the constraint of a run has this property, candidates with a sub-pattern that was not found can be pruned.
+     * Constraints that only restrict the output do not break the property.
+     * @return true if the constraint has the Apriori property with respect to sub-patterns
+     */
+    default boolean fulfillsAprioriProperty() {
+        return false;
+    }
+
+    /**
+     * Whether the depth-first engines should explore the branches of the 1-patterns in order of descending support,
+     * e.g. because the constraint gets stricter with every frequent pattern that is found.
+     * @return true if frequent branches should be explored first
+     */
+    default boolean prefersFrequentBranchesFirst() {
+        return false;
+    }
+
     int getPatternJoinPreventedCount();
     int getOccurrenceJoinPreventedCount();
     int getOccurrencesDiscardedCount();
@@ -4,13 +4,14 @@ import de.dbvis.htpm.htp.HybridTemporalPattern;
 import de.dbvis.htpm.occurrence.Occurrence;
 
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 public class MaxDurationConstraint extends AcceptAllConstraint {
 
     private final double maxDuration;
 
-    private int occurrenceJoinPreventedCount;
-    private int occurrencesDiscardedCount;
+    private final LongAdder occurrenceJoinPreventedCount = new LongAdder();
+    private final LongAdder occurrencesDiscardedCount = new LongAdder();
 
     public MaxDurationConstraint(double maxDuration) {
         this.maxDuration = maxDuration;
@@ -25,7 +26,7 @@ public class MaxDurationConstraint extends AcceptAllConstraint {
         final boolean join = k > 2
                 || !willExceedMaxDurationAfterJoin(firstPattern, firstOccurrence, secondPattern, secondOccurrence);
         if (!join) {
-            occurrenceJoinPreventedCount++;
+            occurrenceJoinPreventedCount.increment();
         }
         return join;
     }
@@ -35,11 +36,17 @@ public class MaxDurationConstraint extends AcceptAllConstraint {
         //only check first generation for too long intervals
         final boolean fulfills = k > 1 || this.isUnderMaxDuration(pattern, occurrence);
         if (!fulfills) {
-            occurrencesDiscardedCount++;
+            occurrencesDiscardedCount.increment();
         }
         return fulfills;
     }
 
+    @Override
+    public boolean fulfillsAprioriProperty() {
+        //deleting events from an occurrence never increases its duration
+        return true;
+    }
+
     @Override
     public boolean shouldOutputOccurrence(HybridTemporalPattern p, Occurrence occurrence) {
         return isUnderMaxDuration(p, occurrence);
@@ -57,12 +64,12 @@ public class MaxDurationConstraint extends AcceptAllConstraint {
 
     @Override
     public int getOccurrenceJoinPreventedCount() {
-        return occurrenceJoinPreventedCount;
+        return (int) occurrenceJoinPreventedCount.sum();
     }
 
     @Override
     public int getOccurrencesDiscardedCount() {
-        return occurrencesDiscardedCount;
+        return (int) occurrencesDiscardedCount.sum();
     }
 
     @Override
@@ -105,7 +112,7 @@ public class MaxDurationConstraint extends AcceptAllConstraint {
     @Override
     public String toString() {
         return "Max duration " + String.format("%.3f", maxDuration) + " constraint " +
-                "(" + occurrenceJoinPreventedCount + " occ. joins prevented, " +
-                occurrencesDiscardedCount + " occurrences discarded)";
+                "(" + occurrenceJoinPreventedCount.sum() + " occ. joins prevented, " +
+                occurrencesDiscardedCount.sum() + " occurrences discarded)";
     }
 }
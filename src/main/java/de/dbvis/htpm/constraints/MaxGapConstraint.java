@@ -10,6 +10,7 @@ import de.dbvis.htpm.occurrence.Occurrence;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * this is an adaptation of the maxGap constraint.
@@ -21,7 +22,7 @@ public class MaxGapConstraint extends AcceptAllConstraint {
 
     private final double maxGap;
 
-    private int occurrencesDiscardedCount;
+    private final LongAdder occurrencesDiscardedCount = new LongAdder();
 
     public MaxGapConstraint(double maxGap) {
         if (maxGap < 0) {
@@ -56,7 +57,7 @@ public class MaxGapConstraint extends AcceptAllConstraint {
         double gap = gapEnd - gapStart;
 
         if (gap > maxGap) {
-            occurrencesDiscardedCount++;
+            occurrencesDiscardedCount.increment();
             return false;
         }
 
@@ -106,7 +107,7 @@ public class MaxGapConstraint extends AcceptAllConstraint {
 
     @Override
     public int getOccurrencesDiscardedCount() {
-        return occurrencesDiscardedCount;
+        return (int) occurrencesDiscardedCount.sum();
     }
 
     @Override
@@ -122,6 +123,6 @@ public class MaxGapConstraint extends AcceptAllConstraint {
     @Override
     public String toString() {
         return "Max gap " + maxGap + " constraint " +
-                "(" + occurrencesDiscardedCount + " occurrences discarded)";
+                "(" + occurrencesDiscardedCount.sum() + " occurrences discarded)";
     }
 }
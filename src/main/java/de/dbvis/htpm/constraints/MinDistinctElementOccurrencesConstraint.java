@@ -6,13 +6,14 @@ import de.dbvis.htpm.occurrence.Occurrence;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.IntStream;
 
 public class MinDistinctElementOccurrencesConstraint extends AcceptAllConstraint implements SupportBasedConstraint {
     private final int minOccurrences;
 
-    private int patternsDiscardedCount = 0;
-    private int occurrencesDiscardedCount = 0;
+    private final LongAdder patternsDiscardedCount = new LongAdder();
+    private final LongAdder occurrencesDiscardedCount = new LongAdder();
 
     public MinDistinctElementOccurrencesConstraint(int minOccurrences) {
         if (minOccurrences <= 0) {
@@ -25,8 +26,8 @@ public class MinDistinctElementOccurrencesConstraint extends AcceptAllConstraint
     public boolean patternFulfillsConstraints(HybridTemporalPattern p, Set<Occurrence> occurrences, int k) {
         final boolean supported = isSupported(p, occurrences);
         if (!supported) {
-            patternsDiscardedCount++;
-            occurrencesDiscardedCount += occurrences.size();
+            patternsDiscardedCount.increment();
+            occurrencesDiscardedCount.add(occurrences.size());
         }
         return supported;
     }
@@ -43,12 +44,12 @@ public class MinDistinctElementOccurrencesConstraint extends AcceptAllConstraint
 
     @Override
     public int getPatternsDiscardedCount() {
-        return patternsDiscardedCount;
+        return (int) patternsDiscardedCount.sum();
     }
 
     @Override
     public int getOccurrencesDiscardedCount() {
-        return occurrencesDiscardedCount;
+        return (int) occurrencesDiscardedCount.sum();
     }
 
     @Override
@@ -107,6 +108,6 @@ public class MinDistinctElementOccurrencesConstraint extends AcceptAllConstraint
     @Override
     public String toString() {
         return "Min " + minOccurrences + " distinct element occurrences constraint, all combinations count " +
-                "(discarded " + patternsDiscardedCount + " patterns with a total of " + occurrencesDiscardedCount + " occurrences)";
+                "(discarded " + patternsDiscardedCount.sum() + " patterns with a total of " + occurrencesDiscardedCount.sum() + " occurrences)";
     }
 }
@@ -7,14 +7,15 @@ import org.apache.commons.lang3.tuple.Pair;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 public class MinDistinctTimeOccurrencesConstraint extends AcceptAllConstraint implements SupportBasedConstraint {
 
     private final int minMinimalOccurrences;
 
-    private int patternsDiscardedCount = 0;
-    private int occurrencesDiscardedCount = 0;
+    private final LongAdder patternsDiscardedCount = new LongAdder();
+    private final LongAdder occurrencesDiscardedCount = new LongAdder();
 
     public MinDistinctTimeOccurrencesConstraint(int minMinimalOccurrences) {
         this.minMinimalOccurrences = minMinimalOccurrences;
@@ -25,8 +26,8 @@ public class MinDistinctTimeOccurrencesConstraint extends AcceptAllConstraint im
     public boolean patternFulfillsConstraints(HybridTemporalPattern p, Set<Occurrence> occurrences, int k) {
         final boolean supported = isSupported(p, occurrences);
         if (!supported) {
-            patternsDiscardedCount++;
-            occurrencesDiscardedCount += occurrences.size();
+            patternsDiscardedCount.increment();
+            occurrencesDiscardedCount.add(occurrences.size());
         }
         return supported;
     }
@@ -53,12 +54,12 @@ public class MinDistinctTimeOccurrencesConstraint extends AcceptAllConstraint im
 
     @Override
     public int getOccurrencesDiscardedCount() {
-        return occurrencesDiscardedCount;
+        return (int) occurrencesDiscardedCount.sum();
     }
 
     @Override
     public int getPatternsDiscardedCount() {
-        return patternsDiscardedCount;
+        return (int) patternsDiscardedCount.sum();
     }
 
     @Override
@@ -118,6 +119,6 @@ public class MinDistinctTimeOccurrencesConstraint extends AcceptAllConstraint im
     @Override
     public String toString() {
         return "Min " + minMinimalOccurrences + " minimal occurrences constraint, all combinations count " +
-                "(discarded " + patternsDiscardedCount + " patterns with a total of " + occurrencesDiscardedCount + " occurrences)";
+                "(discarded " + patternsDiscardedCount.sum() + " patterns with a total of " + occurrencesDiscardedCount.sum() + " occurrences)";
     }
 }
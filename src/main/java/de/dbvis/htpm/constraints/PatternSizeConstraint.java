@@ -27,6 +27,11 @@ public class PatternSizeConstraint extends AcceptAllConstraint {
         return k <= maxPatternLength;
     }
 
+    @Override
+    public boolean fulfillsAprioriProperty() {
+        return true;
+    }
+
     @Override
     public boolean shouldOutputOccurrence(HybridTemporalPattern p, Occurrence occurrence) {
         return true;
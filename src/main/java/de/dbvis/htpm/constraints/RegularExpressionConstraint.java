@@ -5,6 +5,7 @@ import de.dbvis.htpm.htp.HybridTemporalPattern;
 import de.dbvis.htpm.occurrence.Occurrence;
 
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
@@ -24,7 +25,7 @@ public class RegularExpressionConstraint extends AcceptAllConstraint {
     private final Pattern expression;
     private final boolean prefixSelective;
 
-    private int patternsDiscardedCount = 0;
+    private final LongAdder patternsDiscardedCount = new LongAdder();
 
     /**
      * Creates regular expression constraint with user-supplied pattern (must be a java regex)
@@ -44,7 +45,7 @@ public class RegularExpressionConstraint extends AcceptAllConstraint {
         //if regular expression is not considered selective on prefix, we skip matching.
         final boolean passes = (!prefixSelective) || prefixMatched(p);
         if (!passes) {
-            patternsDiscardedCount++;
+            patternsDiscardedCount.increment();
         }
         return passes;
     }
@@ -93,7 +94,7 @@ public class RegularExpressionConstraint extends AcceptAllConstraint {
 
     @Override
     public int getPatternsDiscardedCount() {
-        return patternsDiscardedCount;
+        return (int) patternsDiscardedCount.sum();
     }
 
     @Override
@@ -6,6 +6,7 @@ import de.dbvis.htpm.htp.HybridTemporalPattern;
 import de.dbvis.htpm.htp.eventnodes.*;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -14,7 +15,7 @@ public class SubPatternConstraint extends RegularExpressionConstraint {
 
     private final HybridTemporalPattern subPattern;
     private final List<Pattern> nodeRegexes;
-    private int branchesCutCount = 0;
+    private final LongAdder branchesCutCount = new LongAdder();
 
     public SubPatternConstraint(HybridTemporalPattern subPattern) {
         super(toRegex(subPattern), false);
@@ -81,14 +82,14 @@ public class SubPatternConstraint extends RegularExpressionConstraint {
                         .anyMatch(pattern -> pattern.getEventNodes().stream()
                                 .anyMatch(n -> nodeRegex.matcher(n.getStringEventId()).matches())));
         if (!keepBranch) {
-            branchesCutCount++;
+            branchesCutCount.increment();
         }
         return keepBranch;
     }
 
     @Override
     public int getBranchesCutCount() {
-        return branchesCutCount;
+        return (int) branchesCutCount.sum();
     }
 
     @Override
@@ -0,0 +1,184 @@
+package de.dbvis.htpm.constraints;
+
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the k patterns with the highest support, without a minimum support given in advance.
+ * <br/>
+ * The supports of the k best patterns found so far are kept in a min-heap.
+ * Once it is full, the support of its root is the minimum support a pattern needs to be among the k best,
+ * and patterns with less support are pruned. The threshold only rises while patterns are found,
+ * and support is anti-monotone, so no pattern of the final result is pruned.
+ * The threshold is shared atomically, so one instance can be used by the parallel engines.
+ * <br/>
+ * After mining, the output consists of all patterns whose support reaches the final threshold,
+ * which are k patterns, or more if several patterns have the same support as the k-th one.
+ * Patterns that are sent to listeners during mining are filtered with the threshold at that time,
+ * so they may contain patterns that are later pushed out of the top k.
+ * <br/>
+ * Every pattern that is accepted during mining counts towards the top k,
+ * so if this constraint is combined with others in a {@link ConstraintCollection}, it has to be the last one.
+ * An instance can only be used for one run.
+ */
+public class TopKSupportConstraint extends AcceptAllConstraint implements SupportBasedConstraint {
+
+    private final int k;
+
+    /**
+     * Number of sequences in the database
+     */
+    private final double numSequences;
+
+    /**
+     * the number of supporting sequences of the k best patterns found so far, and those patterns
+     */
+    private final PriorityQueue<RankedPattern> best;
+    private final Set<HybridTemporalPattern> bestPatterns;
+
+    /**
+     * the number of supporting sequences a pattern needs
+     */
+    private final AtomicInteger threshold;
+
+    private final AtomicInteger unsupportedCount = new AtomicInteger();
+    private final AtomicInteger unsupportedOccurrences = new AtomicInteger();
+
+    /**
+     * Creates a top-k constraint.
+     * @param numSequences the number of sequences in the database
+     * @param k the number of patterns to find
+     */
+    public TopKSupportConstraint(int numSequences, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        this.numSequences = numSequences;
+        this.k = k;
+        this.best = new PriorityQueue<>(k);
+        this.bestPatterns = new HashSet<>(k * 2);
+        //every pattern that was found occurs in at least one sequence
+        this.threshold = new AtomicInteger(1);
+    }
+
+    @Override
+    public boolean patternFulfillsConstraints(HybridTemporalPattern p, Set<Occurrence> occurrences, int k) {
+        final int numSupporting = countSupportingSequences(occurrences);
+        if (numSupporting < threshold.get()) {
+            unsupportedCount.incrementAndGet();
+            unsupportedOccurrences.addAndGet(occurrences.size());
+            return false;
+        }
+        offer(p, numSupporting);
+        return true;
+    }
+
+    private void offer(HybridTemporalPattern p, int numSupporting) {
+        synchronized (best) {
+            if (bestPatterns.contains(p)) {
+                return;
+            }
+            if (best.size() == k) {
+                if (numSupporting <= best.peek().numSupporting) {
+                    return;
+                }
+                bestPatterns.remove(best.poll().pattern);
+            }
+            best.add(new RankedPattern(p, numSupporting));
+            bestPatterns.add(p);
+            if (best.size() == k) {
+                threshold.accumulateAndGet(best.peek().numSupporting, Math::max);
+            }
+        }
+    }
+
+    @Override
+    public boolean fulfillsAprioriProperty() {
+        //a pattern is only pruned if its support is below a threshold that never falls
+        return true;
+    }
+
+    @Override
+    public boolean prefersFrequentBranchesFirst() {
+        //frequent patterns fill the heap early and raise the threshold
+        return true;
+    }
+
+    @Override
+    public boolean shouldOutputOccurrence(HybridTemporalPattern p, Occurrence occurrence) {
+        return true;
+    }
+
+    @Override
+    public boolean shouldOutputPattern(HybridTemporalPattern p, Set<Occurrence> occurrences) {
+        return countSupportingSequences(occurrences) >= threshold.get();
+    }
+
+    /**
+     * Returns the support a pattern needs to be among the best k patterns found so far.
+     * @return the current support threshold, the final one after mining
+     */
+    public double getMinSupport() {
+        return threshold.get() / numSequences;
+    }
+
+    @Override
+    public double getSupport(HybridTemporalPattern p, Set<Occurrence> occurrences) {
+        return AgrawalSupportConstraint.calculateSupport(occurrences, numSequences);
+    }
+
+    @Override
+    public int getPatternJoinPreventedCount() {
+        return 0;
+    }
+
+    @Override
+    public int getOccurrenceJoinPreventedCount() {
+        return 0;
+    }
+
+    @Override
+    public int getOccurrencesDiscardedCount() {
+        return unsupportedOccurrences.get();
+    }
+
+    @Override
+    public int getPatternsDiscardedCount() {
+        return unsupportedCount.get();
+    }
+
+    @Override
+    public int getBranchesCutCount() {
+        return 0;
+    }
+
+    private static int countSupportingSequences(Set<Occurrence> occurrences) {
+        return (int) occurrences.stream().map(Occurrence::getHybridEventSequence).distinct().count();
+    }
+
+    @Override
+    public String toString() {
+        return "Top " + k + " support constraint, min support " + String.format("%.3f", getMinSupport()) +
+                " (discarded " + unsupportedCount + " patterns)";
+    }
+
+    private static final class RankedPattern implements Comparable<RankedPattern> {
+        private final HybridTemporalPattern pattern;
+        private final int numSupporting;
+
+        private RankedPattern(HybridTemporalPattern pattern, int numSupporting) {
+            this.pattern = pattern;
+            this.numSupporting = numSupporting;
+        }
+
+        @Override
+        public int compareTo(RankedPattern o) {
+            return Integer.compare(numSupporting, o.numSupporting);
+        }
+    }
+}
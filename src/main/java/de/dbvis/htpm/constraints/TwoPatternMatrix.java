@@ -0,0 +1,301 @@
+package de.dbvis.htpm.constraints;
+
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.htp.eventnodes.EventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEndEventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEventNode;
+import de.dbvis.htpm.htp.eventnodes.PointEventNode;
+import de.dbvis.htpm.htp.eventnodes.OrderRelation;
+import de.dbvis.htpm.util.UniqueIDConverter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dense bit matrix of 2-patterns, used by the {@link CMAPConstraint}.
+ * <br/>
+ * A 2-pattern consists of two events X and Y, where X is the event of the first node of the pattern.
+ * Each event is given by its type and kind (point or interval).
+ * The arrangement of both events is one of at most 24 shapes:
+ * the order of the remaining nodes of the pattern, and whether each order relation is SMALLER or EQUAL.
+ * The matrix holds one bit for each (X type/kind, Y type/kind, shape), so a lookup is a single bit test.
+ * <br/>
+ * The time of a node is given as an int, only the order of these times is relevant.
+ * If two intervals of the same type start at the same time, the assignment of their occurrence marks is ambiguous,
+ * such patterns are normalized so that X is the interval that ends first.
+ * <br/>
+ * Memory grows quadratically with the number of event types, 12 bytes per pair of event types.
+ * Counting the 2-patterns of a database only takes memory for the 2-patterns that occur in it.
+ */
+final class TwoPatternMatrix {
+
+    private static final int NUM_SHAPES = 24;
+
+    private static final int START = 0;
+    private static final int POINT = 1;
+    private static final int END = 2;
+
+    private final int numKeys;
+    private final long[] bits;
+
+    private TwoPatternMatrix(int numTypes) {
+        this.numKeys = numTypes * 2;
+        final long numBits = (long) numKeys * numKeys * NUM_SHAPES;
+        if (numBits > (long) Integer.MAX_VALUE * Long.SIZE) {
+            throw new IllegalArgumentException("Too many event types for a 2-pattern matrix: " + numTypes);
+        }
+        this.bits = new long[(int) ((numBits + Long.SIZE - 1) / Long.SIZE)];
+    }
+
+    /**
+     * Creates a matrix containing the given 2-patterns. Patterns of other lengths are ignored.
+     * @param patterns the patterns
+     * @return the matrix
+     */
+    static TwoPatternMatrix fromPatterns(Collection<HybridTemporalPattern> patterns) {
+        int maxId = -1;
+        for (HybridTemporalPattern p : patterns) {
+            for (EventNode n : p.getEventNodes()) {
+                maxId = Math.max(maxId, n.getIntegerEventID());
+            }
+        }
+        final TwoPatternMatrix matrix = new TwoPatternMatrix(maxId + 1);
+        for (HybridTemporalPattern p : patterns) {
+            if (p.length() == 2) {
+                matrix.add(p.getEventNodes(), p.getOrderRelations());
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Creates a matrix of all 2-patterns that occur in enough sequences of the database,
+     * in one parallel pass over the sequences.
+     * A 2-pattern is added if it fulfills the {@link AgrawalSupportConstraint} with the given minimum support.
+     * Each part of the pass counts the supporting sequences of the 2-patterns it finds in a map of its own,
+     * the maps are merged at the end.
+     * @param d the database
+     * @param minSupport the minimum support
+     * @return the matrix
+     */
+    static TwoPatternMatrix fromDatabase(HybridEventSequenceDatabase d, double minSupport) {
+        final List<HybridEventSequence> sequences = d.getSequences();
+        final double numSequences = d.size();
+
+        final int maxId = sequences.parallelStream()
+                .flatMap(s -> s.getEvents().stream())
+                .mapToInt(e -> UniqueIDConverter.getIntegerId(e.getEventId()))
+                .max().orElse(-1);
+        final TwoPatternMatrix matrix = new TwoPatternMatrix(maxId + 1);
+
+        final Map<Long, Integer> counts = sequences.parallelStream()
+                .map(matrix::distinctIndices)
+                .collect(HashMap::new, (Map<Long, Integer> m, long[] indices) -> {
+                    for (long index : indices) {
+                        m.merge(index, 1, Integer::sum);
+                    }
+                }, (m1, m2) -> m2.forEach((index, count) -> m1.merge(index, count, Integer::sum)));
+
+        counts.forEach((index, count) -> {
+            if (count / numSequences >= minSupport) {
+                matrix.set(index);
+            }
+        });
+        return matrix;
+    }
+
+    /**
+     * @param sequence a sequence of the database the matrix was created for
+     * @return the sorted indices of the distinct 2-patterns of the sequence
+     */
+    private long[] distinctIndices(HybridEventSequence sequence) {
+        final List<HybridEvent> events = sequence.getEvents();
+        final int size = events.size();
+        final int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = UniqueIDConverter.getIntegerId(events.get(i).getEventId());
+        }
+
+        //times are compared as doubles, so they are replaced by their ranks
+        final double[] times = new double[size * 2];
+        for (int i = 0; i < size; i++) {
+            final HybridEvent e = events.get(i);
+            times[2 * i] = e.isPointEvent() ? e.getTimePoint() : e.getStartPoint();
+            times[2 * i + 1] = e.isPointEvent() ? e.getTimePoint() : e.getEndPoint();
+        }
+        final double[] sortedTimes = times.clone();
+        Arrays.sort(sortedTimes);
+
+        final int[] startRanks = new int[size];
+        final int[] endRanks = new int[size];
+        for (int i = 0; i < size; i++) {
+            startRanks[i] = Arrays.binarySearch(sortedTimes, times[2 * i]);
+            endRanks[i] = Arrays.binarySearch(sortedTimes, times[2 * i + 1]);
+        }
+
+        final long[] indices = new long[Math.toIntExact((long) size * (size - 1) / 2)];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            final boolean iInterval = !events.get(i).isPointEvent();
+            for (int j = i + 1; j < size; j++) {
+                final boolean jInterval = !events.get(j).isPointEvent();
+                indices[n++] = index(ids[i], iInterval, startRanks[i], iInterval ? endRanks[i] : -1,
+                        ids[j], jInterval, startRanks[j], jInterval ? endRanks[j] : -1);
+            }
+        }
+
+        //a sequence supports each of its 2-patterns once
+        Arrays.sort(indices);
+        int distinct = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i] != indices[i - 1]) {
+                indices[distinct++] = indices[i];
+            }
+        }
+        return Arrays.copyOf(indices, distinct);
+    }
+
+    private void add(List<EventNode> nodes, List<OrderRelation> relations) {
+        //time of each node is the number of SMALLER relations before it
+        int time = 0;
+        EventNode start1 = null;
+        EventNode start2 = null;
+        int start1Time = -1;
+        int start2Time = -1;
+        int end1Time = -1;
+        int end2Time = -1;
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0 && relations.get(i - 1) == OrderRelation.SMALLER) {
+                time++;
+            }
+            final EventNode node = nodes.get(i);
+            if (node instanceof IntervalEndEventNode) {
+                if (sameEvent(start1, node)) {
+                    end1Time = time;
+                } else {
+                    end2Time = time;
+                }
+            } else if (start1 == null) {
+                start1 = node;
+                start1Time = time;
+            } else {
+                start2 = node;
+                start2Time = time;
+            }
+        }
+        set(index(start1.getIntegerEventID(), !(start1 instanceof PointEventNode), start1Time, end1Time,
+                start2.getIntegerEventID(), !(start2 instanceof PointEventNode), start2Time, end2Time));
+    }
+
+    private static boolean sameEvent(EventNode start, EventNode end) {
+        return start instanceof IntervalEventNode
+                && start.getIntegerEventID() == end.getIntegerEventID()
+                && ((IntervalEventNode) start).getOccurrenceMark() == ((IntervalEventNode) end).getOccurrenceMark();
+    }
+
+    private void set(long index) {
+        bits[(int) (index >>> 6)] |= 1L << index;
+    }
+
+    /**
+     * Checks whether the 2-pattern made of the two given events is contained.
+     * The events may be given in any order. End times of point events are ignored.
+     * @return true if the 2-pattern is contained
+     */
+    boolean contains(int aId, boolean aInterval, int aStart, int aEnd,
+                     int bId, boolean bInterval, int bStart, int bEnd) {
+        if (aId >= numKeys / 2 || bId >= numKeys / 2) {
+            //event type did not appear at all
+            return false;
+        }
+        final long index = index(aId, aInterval, aStart, aEnd, bId, bInterval, bStart, bEnd);
+        return (bits[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    private long index(int aId, boolean aInterval, int aStart, int aEnd,
+                       int bId, boolean bInterval, int bStart, int bEnd) {
+        //the event whose start (or point) node comes first is X
+        final int order = compareNodes(aStart, aId, aInterval ? START : POINT, 0,
+                bStart, bId, bInterval ? START : POINT, 0);
+        final boolean swap = order > 0
+                || order == 0 && aInterval && bInterval && bEnd < aEnd;
+        if (swap) {
+            return shapeIndex(bId, bInterval, bStart, bEnd, aId, aInterval, aStart, aEnd);
+        }
+        return shapeIndex(aId, aInterval, aStart, aEnd, bId, bInterval, bStart, bEnd);
+    }
+
+    private long shapeIndex(int xId, boolean xInterval, int xStart, int xEnd,
+                            int yId, boolean yInterval, int yStart, int yEnd) {
+        //occurrence marks only matter for two intervals of the same type, then X has the first start
+        final int yMark = xInterval && yInterval && xId == yId ? 1 : 0;
+        final int yStartType = yInterval ? START : POINT;
+
+        final int shape;
+        if (xInterval && yInterval) {
+            if (compareNodes(yStart, yId, yStartType, yMark, xEnd, xId, END, 0) > 0) {
+                //X+ X- Y+ Y-
+                shape = relationBits(xStart, xEnd, yStart, yEnd);
+            } else if (compareNodes(xEnd, xId, END, 0, yEnd, yId, END, yMark) < 0) {
+                //X+ Y+ X- Y-
+                shape = 8 + relationBits(xStart, yStart, xEnd, yEnd);
+            } else {
+                //X+ Y+ Y- X-
+                shape = 16 + relationBits(xStart, yStart, yEnd, xEnd);
+            }
+        } else if (xInterval) {
+            if (compareNodes(yStart, yId, yStartType, yMark, xEnd, xId, END, 0) > 0) {
+                //X+ X- Y
+                shape = relationBits(xStart, xEnd, yStart);
+            } else {
+                //X+ Y X-
+                shape = 4 + relationBits(xStart, yStart, xEnd);
+            }
+        } else if (yInterval) {
+            //X Y+ Y-
+            shape = relationBits(xStart, yStart, yEnd);
+        } else {
+            //X Y
+            shape = relationBits(xStart, yStart);
+        }
+
+        final long x = xId * 2L + (xInterval ? 1 : 0);
+        final long y = yId * 2L + (yInterval ? 1 : 0);
+        return (x * numKeys + y) * NUM_SHAPES + shape;
+    }
+
+    /**
+     * Compares nodes in the canonical order of definition 6: by time, id, type and occurrence mark.
+     */
+    private static int compareNodes(int time1, int id1, int type1, int mark1, int time2, int id2, int type2, int mark2) {
+        int c = Integer.compare(time1, time2);
+        if (c == 0) {
+            c = Integer.compare(id1, id2);
+        }
+        if (c == 0) {
+            c = Integer.compare(type1, type2);
+        }
+        if (c == 0) {
+            c = Integer.compare(mark1, mark2);
+        }
+        return c;
+    }
+
+    private static int relationBits(int t0, int t1) {
+        return t0 == t1 ? 1 : 0;
+    }
+
+    private static int relationBits(int t0, int t1, int t2) {
+        return relationBits(t0, t1) << 1 | relationBits(t1, t2);
+    }
+
+    private static int relationBits(int t0, int t1, int t2, int t3) {
+        return relationBits(t0, t1, t2) << 1 | relationBits(t2, t3);
+    }
+}
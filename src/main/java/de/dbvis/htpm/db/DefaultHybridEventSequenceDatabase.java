@@ -4,29 +4,46 @@ import de.dbvis.htpm.hes.HybridEventSequence;
 import de.dbvis.htpm.htp.HybridTemporalPattern;
 import de.dbvis.htpm.occurrence.Occurrence;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class DefaultHybridEventSequenceDatabase implements HybridEventSequenceDatabase {
 	protected List<HybridEventSequence> sequences;
 
+	/**
+	 * read-only view of the sequences, handed out by getSequences()
+	 */
+	private final List<HybridEventSequence> sequencesView;
+
+	/**
+	 * index of the first sequence with each id
+	 */
 	protected Map<String, Integer> sequenceIDs;
 	
 	protected Map<HybridTemporalPattern, Double> support_cache;
 	
 	public DefaultHybridEventSequenceDatabase() {
 		this.sequences = new ArrayList<>();
+		this.sequencesView = Collections.unmodifiableList(this.sequences);
+		this.sequenceIDs = new HashMap<>();
 		this.support_cache = new ConcurrentHashMap<>();
 	}
 	
 	public void add(HybridEventSequence seq) {
 		this.sequences.add(seq);
+		this.sequenceIDs.putIfAbsent(seq.getSequenceId(), this.sequences.size() - 1);
+		this.support_cache.clear();
 	}
 	
 	public void remove(HybridEventSequence seq) {
-		this.sequences.remove(seq);
+		if(this.sequences.remove(seq)) {
+			//indices of later sequences have shifted
+			this.sequenceIDs.clear();
+			for(int i = 0; i < this.sequences.size(); i++) {
+				this.sequenceIDs.putIfAbsent(this.sequences.get(i).getSequenceId(), i);
+			}
+		}
+		this.support_cache.clear();
 	}
 
 	@Override
@@ -34,18 +51,27 @@ public class DefaultHybridEventSequenceDatabase implements HybridEventSequenceDa
 		return this.sequences.size();
 	}
 
+	/**
+	 * Returns a read-only view of the sequences, which reflects later changes of the database.
+	 */
 	public List<HybridEventSequence> getSequences() {
-		return new ArrayList<>(this.sequences);
+		return this.sequencesView;
 	}
 
 	@Override
 	public HybridEventSequence getSequence(final String id) {
-		for(HybridEventSequence s : sequences) {
-			if(s.getSequenceId().equals(id)) {
-				return s;
-			}
-		}
-		return null;
+		final Integer index = this.sequenceIDs.get(id);
+		return index == null ? null : this.sequences.get(index);
+	}
+
+	@Override
+	public HybridEventSequence getSequence(final int index) {
+		return this.sequences.get(index);
+	}
+
+	@Override
+	public int indexOf(final String id) {
+		return this.sequenceIDs.getOrDefault(id, -1);
 	}
 
 	@Override
@@ -59,6 +85,20 @@ public class DefaultHybridEventSequenceDatabase implements HybridEventSequenceDa
 		return this.support_cache.get(p);
 	}
 	
+	/**
+	 * Calculates the supports in parallel, each pattern is matched against all sequences.
+	 */
+	@Override
+	public Map<HybridTemporalPattern, Double> support(final Collection<HybridTemporalPattern> patterns) {
+		final Map<HybridTemporalPattern, Double> result = new LinkedHashMap<>();
+		final List<HybridTemporalPattern> list = new ArrayList<>(patterns);
+		final double[] supports = list.parallelStream().mapToDouble(this::support).toArray();
+		for(int i = 0; i < supports.length; i++) {
+			result.put(list.get(i), supports[i]);
+		}
+		return result;
+	}
+
 	protected double calcSupport(HybridTemporalPattern p) {
 		double i = 0.d;
 		for(HybridEventSequence seq : this.sequences) {
@@ -4,7 +4,12 @@ import de.dbvis.htpm.hes.HybridEventSequence;
 import de.dbvis.htpm.htp.HybridTemporalPattern;
 import de.dbvis.htpm.occurrence.Occurrence;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface HybridEventSequenceDatabase {
 	/**
@@ -26,7 +31,9 @@ public interface HybridEventSequenceDatabase {
 	int size();
 
 	/**
-	 * Returns a List of all the HybridEventSequences contained in the database
+	 * Returns a List of all the HybridEventSequences contained in the database, in index order.
+	 * The list must not be modified, it may be a read-only view of the database
+	 * that reflects later changes, so callers that change the database while they use the list have to copy it.
 	 * @return a List of all HybridEventSequences
 	 */
 	List<HybridEventSequence> getSequences();
@@ -38,6 +45,55 @@ public interface HybridEventSequenceDatabase {
 	 */
 	HybridEventSequence getSequence(final String id);
 
+	/**
+	 * Returns the HybridEventSequence with the given index.
+	 * The index of a sequence is its position in getSequences(),
+	 * it does not change when sequences are added, but when sequences are removed.
+	 * @param index the index of the HybridEventSequence
+	 * @return the HybridEventSequence
+	 * @throws IndexOutOfBoundsException if there is no sequence with this index
+	 */
+	default HybridEventSequence getSequence(final int index) {
+		return getSequences().get(index);
+	}
+
+	/**
+	 * Returns the index of the (first) HybridEventSequence with the given id.
+	 * @param id the id of the HybridEventSequence
+	 * @return the index or -1 if not found
+	 */
+	default int indexOf(final String id) {
+		final List<HybridEventSequence> sequences = getSequences();
+		for(int i = 0; i < sequences.size(); i++) {
+			if(sequences.get(i).getSequenceId().equals(id)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Splits the sequences into at most numShards contiguous ranges of almost equal size.
+	 * Empty shards are omitted. The shards are only valid until the database is modified.
+	 * @param numShards the maximum number of shards, must be positive
+	 * @return the shards, in index order
+	 */
+	default List<SequenceShard> getShards(final int numShards) {
+		if(numShards <= 0) {
+			throw new IllegalArgumentException("Number of shards must be positive, was " + numShards);
+		}
+		final List<HybridEventSequence> sequences = Collections.unmodifiableList(getSequences());
+		final int shards = Math.min(numShards, sequences.size());
+		final List<SequenceShard> result = new ArrayList<>(shards);
+		for(int i = 0; i < shards; i++) {
+			//rounding the bounds down spreads the remainder over the later shards
+			final int from = (int) ((long) sequences.size() * i / shards);
+			final int to = (int) ((long) sequences.size() * (i + 1) / shards);
+			result.add(new SequenceShard(i, sequences, from, to));
+		}
+		return result;
+	}
+
 	/**
 	 * Calculates the support of a given HybridTemproalPattern
 	 * If p is null, the support will be 0.
@@ -46,6 +102,20 @@ public interface HybridEventSequenceDatabase {
 	 */
 	double support(final HybridTemporalPattern p);
 
+	/**
+	 * Calculates the support of each of the given HybridTemporalPatterns,
+	 * e.g. to score patterns that were mined before against new sequences.
+	 * @param patterns the HybridTemporalPatterns
+	 * @return the support (0-1) of each HybridTemporalPattern
+	 */
+	default Map<HybridTemporalPattern, Double> support(final Collection<HybridTemporalPattern> patterns) {
+		final Map<HybridTemporalPattern, Double> result = new LinkedHashMap<>();
+		for(HybridTemporalPattern p : patterns) {
+			result.put(p, support(p));
+		}
+		return result;
+	}
+
 	/**
 	 * Returns all the Occurrences that can be found in all HybridEventSequences that are stored in the database.
 	 * @param p the HybridTemporalPattern
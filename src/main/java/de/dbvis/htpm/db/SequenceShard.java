@@ -0,0 +1,78 @@
+package de.dbvis.htpm.db;
+
+import de.dbvis.htpm.hes.HybridEventSequence;
+
+import java.util.List;
+
+/**
+ * A contiguous range of the sequences of a database, addressed by their integer indices in the database.
+ * Shards of one database are disjoint and cover all of its sequences, so they can be processed in parallel.
+ *
+ * @see HybridEventSequenceDatabase#getShards(int)
+ */
+public final class SequenceShard {
+
+	private final int shardIndex;
+	private final int from;
+	private final int to;
+	private final List<HybridEventSequence> sequences;
+
+	/**
+	 * Creates a shard.
+	 * @param shardIndex the index of the shard
+	 * @param allSequences all sequences of the database, in index order
+	 * @param from the index of the first sequence of the shard (inclusive)
+	 * @param to the index after the last sequence of the shard (exclusive)
+	 */
+	SequenceShard(int shardIndex, List<HybridEventSequence> allSequences, int from, int to) {
+		if(from < 0 || to > allSequences.size() || from > to) {
+			throw new IndexOutOfBoundsException("Invalid shard range [" + from + ", " + to + ")");
+		}
+		this.shardIndex = shardIndex;
+		this.from = from;
+		this.to = to;
+		this.sequences = allSequences.subList(from, to);
+	}
+
+	/**
+	 * @return the index of this shard among all shards of the database
+	 */
+	public int getShardIndex() {
+		return shardIndex;
+	}
+
+	/**
+	 * @return the database index of the first sequence of the shard
+	 */
+	public int getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return the database index after the last sequence of the shard
+	 */
+	public int getTo() {
+		return to;
+	}
+
+	/**
+	 * @return the number of sequences in the shard
+	 */
+	public int size() {
+		return to - from;
+	}
+
+	/**
+	 * Returns a read-only view of the sequences of the shard.
+	 * The sequence at position i in this list has the database index getFrom() + i.
+	 * @return the sequences of the shard
+	 */
+	public List<HybridEventSequence> getSequences() {
+		return sequences;
+	}
+
+	@Override
+	public String toString() {
+		return "shard " + shardIndex + " [" + from + ", " + to + ")";
+	}
+}
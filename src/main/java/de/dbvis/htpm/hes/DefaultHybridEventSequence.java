@@ -2,16 +2,12 @@ package de.dbvis.htpm.hes;
 
 import de.dbvis.htpm.hes.events.HybridEvent;
 import de.dbvis.htpm.htp.HybridTemporalPattern;
-import de.dbvis.htpm.htp.eventnodes.*;
 import de.dbvis.htpm.occurrence.DefaultOccurrence;
 import de.dbvis.htpm.occurrence.Occurrence;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static de.dbvis.htpm.htp.DefaultHybridTemporalPatternBuilder.buildFromHybridEventList;
 
 /**
  * This class implements the HybridEventSequence.
@@ -48,10 +44,14 @@ public class DefaultHybridEventSequence implements HybridEventSequence {
 	}
 
 	/**
-	 * This hashmap points from the timepoint, to the eventid, to all HybridEvents that occur there
+	 * The postings lists used by the occur(HybridTemporalPattern) methods,
+	 * built on first use and discarded when the sequence changes
 	 */
-	private Map<Double, Map<EventType, List<HybridEvent>>> occurrenceIndex = new HashMap<>();
+	private volatile SequenceIndex sequenceIndex;
 
+	/**
+	 * counts how often each occurrence point is contained in the sequence, used by isValid(...)
+	 */
 	private Map<MyItem, Integer> myIndex = new HashMap<>();
 
 	private Set<HybridEvent> containedEvents = new HashSet<>();
@@ -101,27 +101,35 @@ public class DefaultHybridEventSequence implements HybridEventSequence {
 			this.eventids.add(e.getEventId());
 
 			//build up index structure:
-			//addToIndex(e);
+			addToIndex(e);
 
 			this.containedEvents.add(e);
+			this.sequenceIndex = null;
 		}
 	}
 
 	public void addToIndex(HybridEvent e) {
 		if(e.isPointEvent()) {
-			this.addHybridEventToIndex(e.getTimePoint(), EventType.point, e);
-
 			this.addToIndex(this.myIndex, new MyItem(e, e.getTimePoint()));
-
 		} else {
-			this.addHybridEventToIndex(e.getStartPoint(), EventType.start, e);
-			this.addHybridEventToIndex(e.getEndPoint(), EventType.end, e);
-
 			this.addToIndex(this.myIndex, new MyItem(e, e.getStartPoint()));
 			this.addToIndex(this.myIndex, new MyItem(e, e.getEndPoint()));
 		}
 	}
 
+	protected void removeFromIndex(HybridEvent e) {
+		if(e.isPointEvent()) {
+			this.removeFromIndex(this.myIndex, new MyItem(e, e.getTimePoint()));
+		} else {
+			this.removeFromIndex(this.myIndex, new MyItem(e, e.getStartPoint()));
+			this.removeFromIndex(this.myIndex, new MyItem(e, e.getEndPoint()));
+		}
+	}
+
+	protected void removeFromIndex(final Map<MyItem, Integer> index, final MyItem item) {
+		index.computeIfPresent(item, (key, count) -> count > 1 ? count - 1 : null);
+	}
+
 	protected void addToIndex(final Map<MyItem, Integer> index, final MyItem item) {
 		if(!index.containsKey(item)) {
 			index.put(item, 0);
@@ -131,7 +139,15 @@ public class DefaultHybridEventSequence implements HybridEventSequence {
 	
 	@Override
 	public void remove(HybridEvent e) {
-		this.events.remove(e);
+		if(!this.events.remove(e)) {
+			return;
+		}
+		removeFromIndex(e);
+		if(!this.events.contains(e)) {
+			this.containedEvents.remove(e);
+		}
+		this.sequenceIndex = null;
+
 		boolean contains = false;
 		for(HybridEvent e2 : events) {
 			if(e2.getEventId().equals(e.getEventId())) {
@@ -196,9 +212,13 @@ public class DefaultHybridEventSequence implements HybridEventSequence {
 
 		//since the HybridEvent equals with
 		final Map<MyItem, Integer> seenItems = new HashMap<>();
+		final Map<HybridEvent, Integer> appearances = new HashMap<>();
 
 		for(HybridEvent op : o.ops()) {
-			if(!occurs(op, seenItems)) {
+			//an interval appears twice in an occurrence, first for its start, then for its end
+			final int appearance = appearances.merge(op, 1, Integer::sum);
+			final double timepoint = op.isPointEvent() || appearance % 2 == 1 ? op.getTimePoint() : op.getEndPoint();
+			if(!occurs(op, timepoint, seenItems)) {
 				return false;
 			}
 		}
@@ -206,13 +226,13 @@ public class DefaultHybridEventSequence implements HybridEventSequence {
 		return true;
 	}
 
-	protected boolean occurs(HybridEvent op, final Map<MyItem, Integer> seenEvents) {
+	protected boolean occurs(HybridEvent op, double timepoint, final Map<MyItem, Integer> seenEvents) {
 
 		if(!this.containedEvents.contains(op)) {
 			return false;
 		}
 
-		MyItem searchItem = new MyItem(op, op.getTimePoint());
+		MyItem searchItem = new MyItem(op, timepoint);
 
 		if(!this.myIndex.containsKey(searchItem)) {
 			return false;
@@ -224,21 +244,9 @@ public class DefaultHybridEventSequence implements HybridEventSequence {
 
 	}
 
-	protected void addHybridEventToIndex(final double timepoint, final EventType type, final HybridEvent e) {
-		if(!this.occurrenceIndex.containsKey(timepoint)) {
-			this.occurrenceIndex.put(timepoint, new HashMap<>());
-		}
-
-		if(!this.occurrenceIndex.get(timepoint).containsKey(type)) {
-			this.occurrenceIndex.get(timepoint).put(type, new LinkedList<>());
-		}
-
-		this.occurrenceIndex.get(timepoint).get(type).add(e);
-	}
-
 	/**
 	 * The internal implementation of the occur(HybridTemporPattern) method.
-	 * Is speeded up by using some simple heuristics.
+	 * Searches the postings lists of the event types of the pattern, see {@link SequenceIndex}.
 	 * @param p the HybridTemporalPattern to check with
 	 * @param findfirst if true it only returns the first found occurrence (used by the support method in order to speed it up)
 	 * @return A collection of Occurrences
@@ -248,197 +256,13 @@ public class DefaultHybridEventSequence implements HybridEventSequence {
 		if(p.length() > this.events.size()) {
 			return Collections.emptyList();
 		}
-		
-		//heur2: check if an event id of p is not in seq
-		for(String eid : p.getEventIds()) {
-			if(!this.eventids.contains(eid)) {
-				return Collections.emptyList();
-			}
-		}
-		
-		List<HybridEvent> pevents = new ArrayList<>();
-		for(String eid : p.getEventIds()) {
-			pevents.addAll(this.events.stream().filter(e -> eid.equals(e.getEventId())).collect(Collectors.toList()));
-		}
-		
-		//transform both, the pattern and this sequence into a
-		//list of HTPItems to find occurrences
-		List<HTPItem> own = buildFromHybridEventList(this, pevents).getPattern().getPatternItemsInIntegerIdOrder();
-		List<HTPItem> ext = p.getPatternItemsInIntegerIdOrder();
-		
-		//return occur2impl(own, ext, findfirst);
-		return Collections.emptyList();
-	}
-	
-	/** TODO: this is currently not working. fix or remove.
-	 * Finds occurrences based on the HTPItem-Lists.
-	 * @param own the own HTPItems
-	 * @param pattern the HTPItems of the pattern
-	 * @param findfirst if true, abort search after we found the first occurrence (speedup)
-	 * @return A list of occurrences
-	 */
-	/*protected List<Occurrence> occur2impl(List<HTPItem> own, List<HTPItem> pattern, boolean findfirst) {
-		List<Occurrence> results = new ArrayList<>();
-		List<List<HTPItem>> partials = new CopyOnWriteArrayList<>();
-		for (HTPItem item : own) {
-			for (List<HTPItem> partial : partials) {
-				if (isRequiredEndEvent(partial, item)) {
-					partials.remove(partial);
-				}
-				if (!isAppendable(partial, item)) continue;
-
-				if (!isPartialMatch(partial, item, pattern)) {
-					continue;
-				} 
-				List<HTPItem> child = new ArrayList<>(partial.size() + 1);
-				child.addAll(partial);
-				child.add(item);
-				if (child.size() == pattern.size()) {
-					DefaultOccurrence oc = new DefaultOccurrence(this);
-					child.stream().filter(part -> part instanceof EventNode).forEach(part -> oc.add(
-							new DefaultOccurrencePoint(((EventNode) part).getHybridEvent(),
-									part instanceof IntervalStartEventNode)));
-					results.add(oc);
-					if(findfirst) {
-						return results;
-					}
-				} else {
-					if (item instanceof OrderRelation) {
-						partials.remove(partial);
-					}
-					partials.add(child);
-				}
-			}
-			if (isStart(item, pattern)) {
-				if (pattern.size() == 1) {
-					//GeneralOccurrence resultOccurence = new GeneralOccurrence();
-					DefaultOccurrence oc = new DefaultOccurrence(this);
-					if (item instanceof EventNode) {
-						//resultOccurence.add(((EventNode) item).getTimePoint(), ((EventNode) item).getMetadata());
-						oc.add(new DefaultOccurrencePoint(((EventNode) item).getHybridEvent(),
-								item instanceof IntervalStartEventNode));
-					}
-					//results.add(resultOccurence);
-					results.add(oc);
-					if(findfirst) {
-						return results;
-					}
-				} else {
-					partials.add(Collections.singletonList(item));
-				}
-			}
-		}
-		return results;
-	}*/
-	
-	/**
-	 * Checks if a given HTPItem (end event) has a corresponding start event in the partial list.
-	 * @param partial the partial list
-	 * @param item the end event
-	 * @return true if the corresponding start event can be found, false otherwise
-	 */
-	protected boolean isRequiredEndEvent(List<HTPItem> partial, HTPItem item) {
-		if (!(item instanceof IntervalEndEventNode)) return false;
-		IntervalEndEventNode itemEvent = (IntervalEndEventNode) item;
-		for (HTPItem p : partial) {
-			if (p instanceof IntervalStartEventNode) {
-				IntervalStartEventNode pEvent = (IntervalStartEventNode) p;
-				if (pEvent.getStringEventId().equals(itemEvent.getStringEventId()) && pEvent.getOccurrenceMark() == itemEvent.getOccurrenceMark()) {
-					return true;
-				}
-			}
-		}
-		return false;
-	}
 
-	/**
-	 * Checks if the given sequence is appendable by a given HTPItem.
-	 * This is true if either the last event is an order relation (/event node) and the item is a event node (/order relation)
-	 * or the sequence is empty
-	 * @param sequence the sequence
-	 * @param item the item to append
-	 * @return true if it satisfies the constraints defined above, false otherwise
-	 */
-	protected boolean isAppendable(List<HTPItem> sequence, HTPItem item) {
-		assert (sequence != null);
-		assert (!sequence.isEmpty());
-		HTPItem last = sequence.get(sequence.size() - 1);
-		return (last instanceof OrderRelation && item instanceof EventNode)
-				|| (last instanceof EventNode && item instanceof OrderRelation);
-	}
-	
-	/**
-	 * Checks if a given HTPItem is the start of a given pattern
-	 * @param item the HTPItem
-	 * @param pattern the pattern
-	 * @return true if it is the start, false otherwise
-	 */
-	protected boolean isStart(HTPItem item, List<HTPItem> pattern) {
-		HTPItem head = pattern.get(0);
-		if (!item.getClass().equals(head.getClass())) return false;
-		if (item instanceof OrderRelation) {
-			return item.equals(head);
-		} else if (item instanceof EventNode) {
-			return ((EventNode) item).getStringEventId().equals(((EventNode) head).getStringEventId());
-		} else {
-			throw new IllegalStateException("Unknown item type " + item.getClass().getName());
+		SequenceIndex index = this.sequenceIndex;
+		if(index == null) {
+			index = new SequenceIndex(this.events);
+			this.sequenceIndex = index;
 		}
-	}
-	
-	/**
-	 * Checks if given list of items is a partial match in the pattern.
-	 * If yes it does the same for the given item.
-	 * @param items the List of HTPItems
-	 * @param item the HTPItem
-	 * @param pattern the pattern
-	 * @return true if it is a partial match, false otherwise
-	 */
-	protected boolean isPartialMatch(List<HTPItem> items, HTPItem item, List<HTPItem> pattern) {
-		if (items.size() >= pattern.size()) return false;
-		Map<String, Integer> occurenceMap = new HashMap<>();
-		for (int i = 0; i < items.size(); ++i) {
-			HTPItem item2 = items.get(i);
-			HTPItem pat = pattern.get(i);
-			if(!isMatching(occurenceMap, item2, pat)) {
-				return false;
-			}
-		}
-		return isMatching(occurenceMap, item, pattern.get(items.size()));
-	}
-	
-	/**
-	 * A helper method of the isPartialMatch method.
-	 * Checks if a item is matching another item from the pattern.
-	 * @param occurenceMap a memory for the interval events, to find either the corresponding start/end interval event
-	 * @param item the item to check
-	 * @param pat the item from the pattern to check against
-	 * @return true if it matches, false otherwise
-	 */
-	protected boolean isMatching(Map<String, Integer> occurenceMap, HTPItem item, HTPItem pat) {
-		if (!item.getClass().equals(pat.getClass())) return false;
-		if (item instanceof OrderRelation) {
-			return item.equals(pat);
-		} else if (item instanceof PointEventNode) {
-			return ((PointEventNode) item).getStringEventId().equals(((PointEventNode) pat).getStringEventId());
-		} else if (item instanceof IntervalStartEventNode) {
-			IntervalStartEventNode itemNode = (IntervalStartEventNode) item;
-			IntervalStartEventNode patNode = (IntervalStartEventNode) pat;
-			if (!itemNode.getStringEventId().equals(patNode.getStringEventId())) return false;
-			occurenceMap.put(patNode.getStringEventId() + "+" + patNode.getOccurrenceMark(), itemNode.getOccurrenceMark());
-		} else {
-			if (item instanceof IntervalEndEventNode) {
-				IntervalEndEventNode itemNode = (IntervalEndEventNode) item;
-				IntervalEndEventNode patNode = (IntervalEndEventNode) pat;
-				if (!itemNode.getStringEventId().equals(patNode.getStringEventId())) return false;
-				Integer occurenceMark = occurenceMap.get(patNode.getStringEventId() + "+" + patNode.getOccurrenceMark());
-				if (occurenceMark == null)
-					throw new IllegalArgumentException("End event " + pat + " before start event.");
-				return itemNode.getOccurrenceMark() == occurenceMark;
-			} else {
-				throw new IllegalStateException("Unknown item type " + item.getClass().getName());
-			}
-		}
-		return true;
+		return index.occur(this, p, findfirst);
 	}
 
 	@Override
@@ -0,0 +1,145 @@
+package de.dbvis.htpm.hes;
+
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.util.UniqueIDConverter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Precomputed ranks of all occurrence points (starts, ends and points) of the events in a sequence.
+ * <br/>
+ * The order rank of an occurrence point is its dense rank in the canonical order of definition 6:
+ * by time, then by integer event id, then by node type (interval start, point, interval end).
+ * Occurrence points with the same order rank can only be told apart by the occurrence marks of their nodes.
+ * <br/>
+ * The time rank of an occurrence point is the dense rank of its time among all times of the sequence.
+ * Two occurrence points happen at the same time iff their time ranks are equal.
+ * <br/>
+ * Ranks are only comparable to ranks computed from the same event list.
+ */
+public final class OccurrencePointRanks {
+
+    private static final int START = 0;
+    private static final int POINT = 1;
+    private static final int END = 2;
+
+    private final int[] startOrderRanks;
+    private final int[] endOrderRanks;
+    private final int[] startTimeRanks;
+    private final int[] endTimeRanks;
+
+    /**
+     * Computes the ranks for all occurrence points of the given events.
+     * @param events the events of a sequence; ranks are addressed by the index of the event in this list
+     */
+    public OccurrencePointRanks(List<HybridEvent> events) {
+        final int numEvents = events.size();
+
+        this.startOrderRanks = new int[numEvents];
+        this.endOrderRanks = new int[numEvents];
+        this.startTimeRanks = new int[numEvents];
+        this.endTimeRanks = new int[numEvents];
+
+        int numPoints = 0;
+        for (HybridEvent e : events) {
+            numPoints += e.isPointEvent() ? 1 : 2;
+        }
+
+        final double[] times = new double[numPoints];
+        final int[] ids = new int[numPoints];
+        final int[] types = new int[numPoints];
+        final int[] eventIndices = new int[numPoints];
+        final Integer[] order = new Integer[numPoints];
+
+        int p = 0;
+        for (int i = 0; i < numEvents; i++) {
+            final HybridEvent e = events.get(i);
+            final int id = UniqueIDConverter.getIntegerId(e.getEventId());
+            if (e.isPointEvent()) {
+                p = addPoint(p, e.getTimePoint(), id, POINT, i, times, ids, types, eventIndices, order);
+            } else {
+                p = addPoint(p, e.getStartPoint(), id, START, i, times, ids, types, eventIndices, order);
+                p = addPoint(p, e.getEndPoint(), id, END, i, times, ids, types, eventIndices, order);
+            }
+        }
+
+        Arrays.sort(order, (a, b) -> {
+            int c = Double.compare(times[a], times[b]);
+            if (c == 0) {
+                c = Integer.compare(ids[a], ids[b]);
+            }
+            if (c == 0) {
+                c = Integer.compare(types[a], types[b]);
+            }
+            return c;
+        });
+
+        int orderRank = -1;
+        int timeRank = -1;
+        for (int i = 0; i < numPoints; i++) {
+            final int current = order[i];
+            final boolean sameTime = i > 0 && Double.compare(times[order[i - 1]], times[current]) == 0;
+            if (!sameTime) {
+                timeRank++;
+            }
+            if (!sameTime || ids[order[i - 1]] != ids[current] || types[order[i - 1]] != types[current]) {
+                orderRank++;
+            }
+
+            final int eventIndex = eventIndices[current];
+            if (types[current] == END) {
+                endOrderRanks[eventIndex] = orderRank;
+                endTimeRanks[eventIndex] = timeRank;
+            } else {
+                //points are stored as start, they have no end
+                startOrderRanks[eventIndex] = orderRank;
+                startTimeRanks[eventIndex] = timeRank;
+                endOrderRanks[eventIndex] = orderRank;
+                endTimeRanks[eventIndex] = timeRank;
+            }
+        }
+    }
+
+    private static int addPoint(int p, double time, int id, int type, int eventIndex,
+                                double[] times, int[] ids, int[] types, int[] eventIndices, Integer[] order) {
+        times[p] = time;
+        ids[p] = id;
+        types[p] = type;
+        eventIndices[p] = eventIndex;
+        order[p] = p;
+        return p + 1;
+    }
+
+    /**
+     * @param eventIndex index of the event in the event list
+     * @return order rank of the start (or time point) of the event
+     */
+    public int getStartOrderRank(int eventIndex) {
+        return startOrderRanks[eventIndex];
+    }
+
+    /**
+     * @param eventIndex index of the event in the event list
+     * @return order rank of the end (or time point) of the event
+     */
+    public int getEndOrderRank(int eventIndex) {
+        return endOrderRanks[eventIndex];
+    }
+
+    /**
+     * @param eventIndex index of the event in the event list
+     * @return time rank of the start (or time point) of the event
+     */
+    public int getStartTimeRank(int eventIndex) {
+        return startTimeRanks[eventIndex];
+    }
+
+    /**
+     * @param eventIndex index of the event in the event list
+     * @return time rank of the end (or time point) of the event
+     */
+    public int getEndTimeRank(int eventIndex) {
+        return endTimeRanks[eventIndex];
+    }
+}
@@ -0,0 +1,312 @@
+package de.dbvis.htpm.hes;
+
+import de.dbvis.htpm.hes.events.HybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.htp.eventnodes.EventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEndEventNode;
+import de.dbvis.htpm.htp.eventnodes.IntervalEventNode;
+import de.dbvis.htpm.htp.eventnodes.OrderRelation;
+import de.dbvis.htpm.htp.eventnodes.PointEventNode;
+import de.dbvis.htpm.occurrence.DefaultOccurrence;
+import de.dbvis.htpm.occurrence.Occurrence;
+import de.dbvis.htpm.util.UniqueIDConverter;
+
+import java.util.*;
+
+/**
+ * An index over the events of a sequence that finds the occurrences of a pattern.
+ * <br/>
+ * The events are kept in postings lists, one per event type and kind (point or interval), sorted by time.
+ * A pattern is matched by binding its events one after another in the order of their start (or point) nodes,
+ * each to an unused event of the sequence with the same type and kind.
+ * Nodes connected by EQUAL relations form a group that must get the same time,
+ * and the times of the groups must strictly increase.
+ * Only events whose start lies between the times of the neighbouring groups that are bound already are tried,
+ * these are found by binary search in the postings list. If no event fits, the search backtracks.
+ * <br/>
+ * Occurrences consist of one occurrence point per node of the pattern, like the occurrences found during mining.
+ * If two intervals of the same type start at the same time, both assignments of their occurrence marks
+ * are found, while mining assigns them by the order of the events.
+ * <br/>
+ * The index does not change when the sequence changes, it has to be rebuilt.
+ */
+public final class SequenceIndex {
+
+    private final Map<Integer, Postings> points = new HashMap<>();
+    private final Map<Integer, Postings> intervals = new HashMap<>();
+
+    /**
+     * Builds the index.
+     * @param events the events of a sequence
+     */
+    public SequenceIndex(List<HybridEvent> events) {
+        final Map<Integer, List<HybridEvent>> pointEvents = new HashMap<>();
+        final Map<Integer, List<HybridEvent>> intervalEvents = new HashMap<>();
+        for (HybridEvent e : events) {
+            final int id = UniqueIDConverter.getIntegerId(e.getEventId());
+            (e.isPointEvent() ? pointEvents : intervalEvents).computeIfAbsent(id, k -> new ArrayList<>()).add(e);
+        }
+        pointEvents.forEach((id, list) -> points.put(id, new Postings(list)));
+        intervalEvents.forEach((id, list) -> intervals.put(id, new Postings(list)));
+    }
+
+    /**
+     * Finds the occurrences of a pattern.
+     * @param seq the sequence the index was built from, it is referenced by the occurrences
+     * @param p the pattern
+     * @param findfirst if true, the search stops after the first occurrence
+     * @return the occurrences, may be empty but never null
+     */
+    public List<Occurrence> occur(HybridEventSequence seq, HybridTemporalPattern p, boolean findfirst) {
+        final Match match = new Match(seq, p, findfirst);
+        if (match.postings == null) {
+            //an event type of the pattern does not occur in the sequence
+            return Collections.emptyList();
+        }
+        match.bind(0);
+        return new ArrayList<>(match.results);
+    }
+
+    /**
+     * Events of one type and kind, sorted by start time, then end time.
+     */
+    private static final class Postings {
+        private final double[] starts;
+        private final double[] ends;
+        private final HybridEvent[] events;
+
+        private Postings(List<HybridEvent> list) {
+            this.events = list.toArray(new HybridEvent[0]);
+            Arrays.sort(events, Comparator.comparingDouble(Postings::start).thenComparingDouble(Postings::end));
+            this.starts = new double[events.length];
+            this.ends = new double[events.length];
+            for (int i = 0; i < events.length; i++) {
+                starts[i] = start(events[i]);
+                ends[i] = end(events[i]);
+            }
+        }
+
+        private static double start(HybridEvent e) {
+            return e.isPointEvent() ? e.getTimePoint() : e.getStartPoint();
+        }
+
+        private static double end(HybridEvent e) {
+            return e.isPointEvent() ? e.getTimePoint() : e.getEndPoint();
+        }
+
+        /**
+         * @return the index of the first event with a start time greater than (or equal to, if inclusive) the given time
+         */
+        private int firstStartAfter(double time, boolean inclusive) {
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (starts[mid] < time || !inclusive && starts[mid] == time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * The state of the search for the occurrences of one pattern.
+     */
+    private final class Match {
+        private final HybridEventSequence seq;
+        private final boolean findfirst;
+        private final List<EventNode> nodes;
+
+        /**
+         * the group of each node, which is the number of SMALLER relations before it
+         */
+        private final int[] groups;
+
+        /**
+         * the start (or point) nodes in pattern order, and for each the index of its end node or -1
+         */
+        private final int[] startNodes;
+        private final int[] endNodes;
+        private final Postings[] postings;
+
+        /**
+         * the bound postings index of each start node, the time of each group and the number of bound nodes in it
+         */
+        private final int[] bound;
+        private final double[] groupTimes;
+        private final int[] groupSizes;
+
+        /**
+         * occurrences in the order they are found, equal occurrences (of equal events) are kept once
+         */
+        private final Set<Occurrence> results = new LinkedHashSet<>();
+
+        private Match(HybridEventSequence seq, HybridTemporalPattern p, boolean findfirst) {
+            this.seq = seq;
+            this.findfirst = findfirst;
+            this.nodes = p.getEventNodes();
+            final List<OrderRelation> relations = p.getOrderRelations();
+
+            this.groups = new int[nodes.size()];
+            for (int i = 1; i < nodes.size(); i++) {
+                groups[i] = groups[i - 1] + (relations.get(i - 1) == OrderRelation.SMALLER ? 1 : 0);
+            }
+
+            final int numEvents = p.length();
+            this.startNodes = new int[numEvents];
+            this.endNodes = new int[numEvents];
+            Postings[] eventPostings = new Postings[numEvents];
+            int n = 0;
+            for (int i = 0; i < nodes.size(); i++) {
+                final EventNode node = nodes.get(i);
+                if (node instanceof IntervalEndEventNode) {
+                    continue;
+                }
+                startNodes[n] = i;
+                endNodes[n] = node instanceof PointEventNode ? -1 : findEndNode(i);
+                eventPostings[n] = (node instanceof PointEventNode ? points : intervals).get(node.id);
+                if (eventPostings[n] == null) {
+                    eventPostings = null;
+                    break;
+                }
+                n++;
+            }
+            this.postings = eventPostings;
+
+            this.bound = new int[numEvents];
+            final int numGroups = nodes.isEmpty() ? 0 : groups[nodes.size() - 1] + 1;
+            this.groupTimes = new double[numGroups];
+            this.groupSizes = new int[numGroups];
+        }
+
+        private int findEndNode(int startNode) {
+            final IntervalEventNode start = (IntervalEventNode) nodes.get(startNode);
+            for (int i = startNode + 1; i < nodes.size(); i++) {
+                final EventNode node = nodes.get(i);
+                if (node instanceof IntervalEndEventNode && node.id == start.id
+                        && ((IntervalEndEventNode) node).occurrencemark == start.occurrencemark) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Interval " + start + " has no end in the pattern");
+        }
+
+        /**
+         * Binds the n-th event of the pattern and all following ones.
+         * @return true if the search is finished
+         */
+        private boolean bind(int n) {
+            if (n == startNodes.length) {
+                results.add(occurrence());
+                return findfirst;
+            }
+            final Postings list = postings[n];
+            final int group = groups[startNodes[n]];
+
+            //range of start times that fit between the groups that are bound already
+            final int from;
+            final double upper;
+            final boolean exact = groupSizes[group] > 0;
+            if (exact) {
+                from = list.firstStartAfter(groupTimes[group], true);
+                upper = groupTimes[group];
+            } else {
+                final int lowerGroup = boundGroupBelow(group);
+                from = lowerGroup < 0 ? 0 : list.firstStartAfter(groupTimes[lowerGroup], false);
+                final int upperGroup = boundGroupAbove(group);
+                upper = upperGroup < 0 ? Double.POSITIVE_INFINITY : groupTimes[upperGroup];
+            }
+
+            for (int i = from; i < list.starts.length; i++) {
+                final double start = list.starts[i];
+                if (exact ? start > upper : start >= upper) {
+                    break;
+                }
+                if (isBound(n, list, i)) {
+                    continue;
+                }
+                bound[n] = i;
+                assign(group, start);
+                final int endGroup = endNodes[n] < 0 ? -1 : groups[endNodes[n]];
+                if (endGroup < 0 || fits(endGroup, list.ends[i])) {
+                    if (endGroup >= 0) {
+                        assign(endGroup, list.ends[i]);
+                    }
+                    final boolean finished = bind(n + 1);
+                    if (endGroup >= 0) {
+                        groupSizes[endGroup]--;
+                    }
+                    if (finished) {
+                        groupSizes[group]--;
+                        return true;
+                    }
+                }
+                groupSizes[group]--;
+            }
+            return false;
+        }
+
+        /**
+         * @return true if an earlier event of the pattern is bound to the same event of the sequence
+         */
+        private boolean isBound(int n, Postings list, int index) {
+            for (int j = 0; j < n; j++) {
+                if (postings[j] == list && bound[j] == index) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void assign(int group, double time) {
+            groupTimes[group] = time;
+            groupSizes[group]++;
+        }
+
+        /**
+         * @return true if the group can get the given time
+         */
+        private boolean fits(int group, double time) {
+            if (groupSizes[group] > 0) {
+                return groupTimes[group] == time;
+            }
+            final int lowerGroup = boundGroupBelow(group);
+            final int upperGroup = boundGroupAbove(group);
+            return (lowerGroup < 0 || groupTimes[lowerGroup] < time)
+                    && (upperGroup < 0 || time < groupTimes[upperGroup]);
+        }
+
+        private int boundGroupBelow(int group) {
+            for (int g = group - 1; g >= 0; g--) {
+                if (groupSizes[g] > 0) {
+                    return g;
+                }
+            }
+            return -1;
+        }
+
+        private int boundGroupAbove(int group) {
+            for (int g = group + 1; g < groupSizes.length; g++) {
+                if (groupSizes[g] > 0) {
+                    return g;
+                }
+            }
+            return -1;
+        }
+
+        private Occurrence occurrence() {
+            final HybridEvent[] ops = new HybridEvent[nodes.size()];
+            for (int n = 0; n < startNodes.length; n++) {
+                final HybridEvent e = postings[n].events[bound[n]];
+                ops[startNodes[n]] = e;
+                if (endNodes[n] >= 0) {
+                    ops[endNodes[n]] = e;
+                }
+            }
+            return new DefaultOccurrence(seq, Arrays.asList(ops));
+        }
+    }
+}
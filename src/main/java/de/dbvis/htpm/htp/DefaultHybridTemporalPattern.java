@@ -17,6 +17,7 @@ public class DefaultHybridTemporalPattern implements HybridTemporalPattern {
 	private String patternstr = null;
 	private Integer hashcode = null;
 	private List<String> eventids = null;
+	private List<HTPItem> itemsInStringIdOrder = null;
 	private Boolean isValid = null;
 
 	/**
@@ -90,7 +91,7 @@ public class DefaultHybridTemporalPattern implements HybridTemporalPattern {
 				if (lastRel != null) {
 					orderrelations.add(lastRel);
 				}
-				eventnodes.add(new PointEventNode(id.toString()));
+				eventnodes.add(EventNodeFactory.point(id.toString()));
 				id = new StringBuilder(100);
 				lastRel = OrderRelation.fromChar(c);
 				continue;
@@ -114,9 +115,9 @@ public class DefaultHybridTemporalPattern implements HybridTemporalPattern {
 					orderrelations.add(lastRel);
 				}
 				if(isStartEvent) {
-					eventnodes.add(new IntervalStartEventNode(id.toString(), Integer.parseInt(oc.toString())));
+					eventnodes.add(EventNodeFactory.intervalStart(id.toString(), Integer.parseInt(oc.toString())));
 				} else {
-					eventnodes.add(new IntervalEndEventNode(id.toString(), Integer.parseInt(oc.toString())));
+					eventnodes.add(EventNodeFactory.intervalEnd(id.toString(), Integer.parseInt(oc.toString())));
 				}
 
 				id = new StringBuilder(100);
@@ -274,16 +275,20 @@ public class DefaultHybridTemporalPattern implements HybridTemporalPattern {
 		if (eventnodes == null || eventnodes.length == 0) {
 			return Collections.emptyList();
 		}
-		List<EventNode> nodes = Arrays.asList(eventnodes);
-		List<OrderRelation> relations = Arrays.asList(orderrelations);
-		HTPUtils.sortItemsets(nodes, relations, EventNode::compareByStringId);
-		List<HTPItem> items = new ArrayList<>(relations.size() * 2 + 1);
-		for (int i = 0; i < orderrelations.length; i++) {
-			items.add(nodes.get(i));
-			items.add(relations.get(i));
+		if (itemsInStringIdOrder == null) {
+			//sort a copy, the event nodes of this pattern have to stay in integer id order
+			List<EventNode> nodes = Arrays.asList(eventnodes.clone());
+			List<OrderRelation> relations = Arrays.asList(orderrelations);
+			HTPUtils.sortItemsets(nodes, relations, EventNode::compareByStringId);
+			List<HTPItem> items = new ArrayList<>(relations.size() * 2 + 1);
+			for (int i = 0; i < orderrelations.length; i++) {
+				items.add(nodes.get(i));
+				items.add(relations.get(i));
+			}
+			items.add(nodes.get(nodes.size() - 1));
+			this.itemsInStringIdOrder = Collections.unmodifiableList(items);
 		}
-		items.add(eventnodes[eventnodes.length - 1]);
-		return items;
+		return this.itemsInStringIdOrder;
 	}
 
 	@Override
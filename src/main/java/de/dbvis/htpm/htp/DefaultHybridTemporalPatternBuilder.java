@@ -19,7 +19,14 @@ public class DefaultHybridTemporalPatternBuilder {
     protected final List<EventNode> ev;
     protected final List<OrderRelation> ors;
     protected final List<HybridEvent> ops;
-    protected final HybridEventSequence seq;
+    protected HybridEventSequence seq;
+
+    /**
+     * order and time ranks of the occurrence points, valid as long as all occurrence points were appended with ranks
+     */
+    protected int[] orderRanks;
+    protected int[] timeRanks;
+    protected boolean ranked = true;
 
     protected final Map<Integer, Integer> occurrencemarks;
     protected final Map<Integer, Map<Integer, Map<Integer, Integer>>> occurrencemarkOfStartinterval;
@@ -51,16 +58,16 @@ public class DefaultHybridTemporalPatternBuilder {
         for (HybridEvent ev : events) {
             if (ev.isPointEvent()) {
                 NodeOccurrencePointPair pair = new NodeOccurrencePointPair();
-                pair.eventNode = new PointEventNode(ev.getEventId());
+                pair.eventNode = EventNodeFactory.point(ev.getEventId());
                 pair.op = ev;
                 pairs.add(pair);
             } else {
                 NodeOccurrencePointPair pair1 = new NodeOccurrencePointPair();
-                pair1.eventNode = new IntervalStartEventNode(ev.getEventId(), occurrenceMark);
+                pair1.eventNode = EventNodeFactory.intervalStart(ev.getEventId(), occurrenceMark);
                 pair1.op = ev;
                 pairs.add(pair1);
                 NodeOccurrencePointPair pair2 = new NodeOccurrencePointPair();
-                pair2.eventNode = new IntervalEndEventNode(ev.getEventId(), occurrenceMark);
+                pair2.eventNode = EventNodeFactory.intervalEnd(ev.getEventId(), occurrenceMark);
                 pair2.op = ev;
                 pairs.add(pair2);
                 occurrenceMark++;
@@ -82,83 +89,45 @@ public class DefaultHybridTemporalPatternBuilder {
         return buildFromHybridEventList(seq, events);
     }
 
+    /**
+     * Builds the sub-pattern that results from deleting one event of a pattern.
+     * If the node belongs to an interval, both its start and end node are deleted,
+     * and the occurrence marks of later intervals of the same type are shifted down.
+     * The order relations are recalculated from the times of the remaining nodes.
+     *
+     * @param pattern - The pattern.
+     * @param deletionIndex - The index of a node of the event to delete.
+     * @return the sub-pattern
+     */
     public static HybridTemporalPattern buildSubPatternByDeletingNode(HybridTemporalPattern pattern, int deletionIndex) {
-        //TODO: for unknown reasons, this procedure does not work properly
-        List<EventNode> eventNodes = pattern.getEventNodes();
-        EventNode nodeToDelete = eventNodes.get(deletionIndex);
-
-        if (nodeToDelete instanceof IntervalEndEventNode) {
-            //go back to find start event node
-            for (int i = deletionIndex; i > 0; i--) {
-                final EventNode n = eventNodes.get(i);
-                if (n instanceof IntervalStartEventNode
-                        && ((IntervalStartEventNode) n).getOccurrenceMark() == ((IntervalEndEventNode) nodeToDelete).getOccurrenceMark()) {
-                    nodeToDelete = n;
-                    deletionIndex = i;
-                    break;
-                }
+        final List<EventNode> eventNodes = pattern.getEventNodes();
+        final List<OrderRelation> orderRelations = pattern.getOrderRelations();
+        final EventNode nodeToDelete = eventNodes.get(deletionIndex);
+
+        final ArrayList<EventNode> subPatternNodes = new ArrayList<>(eventNodes.size());
+        final ArrayList<OrderRelation> subPatternRelations = new ArrayList<>(eventNodes.size());
+
+        //time of a node is the number of SMALLER relations before it
+        int time = 0;
+        int lastTime = -1;
+        for (int i = 0; i < eventNodes.size(); i++) {
+            if (i > 0 && orderRelations.get(i - 1) == OrderRelation.SMALLER) {
+                time++;
             }
-        }
-
-        int eventNodeType = nodeToDelete.getIntegerEventID();
-        int occMark = -1;
-        if (nodeToDelete instanceof IntervalStartEventNode) {
-            occMark = ((IntervalStartEventNode) nodeToDelete).getOccurrenceMark();
-        }
-
-        final ArrayList<EventNode> subPatternNodes = new ArrayList<>(eventNodes.subList(0, deletionIndex));
-        final ArrayList<OrderRelation> subPatternRelations = deletionIndex == 0
-                ? new ArrayList<>()
-                : new ArrayList<>(pattern.getOrderRelations().subList(0, deletionIndex-1));
-
-        boolean skippedNode = true;
-        boolean removeFirstRelation = false;
-
-        for (int j = deletionIndex+1; j < eventNodes.size(); j++) {
-            final EventNode nodeToAdd = eventNodes.get(j);
-            final OrderRelation relationToAdd;
-            if (skippedNode) {
-                if (j-2 >= 0) {
-                    relationToAdd = pattern.small(j - 2, j);
-                } else {
-                    //add dummy relation which we later remove
-                    relationToAdd = OrderRelation.SMALLER;
-                    removeFirstRelation = true;
-                }
-                skippedNode = false;
-            } else {
-                relationToAdd = pattern.small(j-1, j);
+            final EventNode node = eventNodes.get(i);
+            if (HTPUtils.isDeleted(node, i, nodeToDelete, deletionIndex)) {
+                continue;
             }
-
-            if (nodeToAdd instanceof IntervalEventNode && nodeToAdd.getIntegerEventID() == eventNodeType) {
-                //is either end event node or other node whose occurrence mark maybe needs to be shifted
-                if (((IntervalEventNode) nodeToAdd).getOccurrenceMark() == occMark) {
-                    //do not add node, it is the end node of removed node.
-                    //We have to get the order relations right! Set flag to do it in next loop.
-                    skippedNode = true;
-                } else if (((IntervalEventNode) nodeToAdd).getOccurrenceMark() > occMark) {
-                    //shift occurrence mark by 1
-                    //because this node is an interval of same type with later occurrence than deleted one
-                    final int newOccurrenceMark = ((IntervalEventNode) nodeToAdd).getOccurrenceMark() - 1;
-                    subPatternNodes.add(nodeToAdd instanceof IntervalStartEventNode
-                            ? new IntervalStartEventNode(nodeToAdd, newOccurrenceMark)
-                            : new IntervalEndEventNode(nodeToAdd, newOccurrenceMark));
-                    subPatternRelations.add(relationToAdd);
-                } else {
-                    //is Intervaleventnode without occurrence mark shift needed, can be added as-is
-                    subPatternNodes.add(nodeToAdd);
-                    subPatternRelations.add(relationToAdd);
-                }
+            if (!subPatternNodes.isEmpty()) {
+                subPatternRelations.add(time == lastTime ? OrderRelation.EQUAL : OrderRelation.SMALLER);
+            }
+            final int mark = HTPUtils.markAfterDeletion(node, nodeToDelete);
+            if (node instanceof IntervalEventNode && mark != ((IntervalEventNode) node).getOccurrenceMark()) {
+                subPatternNodes.add(EventNodeFactory.withOccurrenceMark(node, mark));
             } else {
-                //this node is not deleted, is PointEventNode
-                subPatternNodes.add(nodeToAdd);
-                subPatternRelations.add(relationToAdd);
+                subPatternNodes.add(node);
             }
-        }
-
-        if (removeFirstRelation) {
-            //we put a dummy relation at the beginning, now remove it
-            subPatternRelations.remove(0);
+            lastTime = time;
         }
 
         return new DefaultHybridTemporalPattern(subPatternNodes, subPatternRelations);
@@ -176,15 +145,54 @@ public class DefaultHybridTemporalPatternBuilder {
         this.occurrencemarkOfStartinterval = new HashMap<>(length);
         this.ops = new ArrayList<>(length * 2);
         this.seq = seq;
+        this.orderRanks = new int[length * 2];
+        this.timeRanks = new int[length * 2];
+    }
+
+    /**
+     * Empties the builder, so that it builds a new pattern and occurrence in the given sequence.
+     * The lists, maps and rank arrays are kept with their capacity, patterns and occurrences
+     * that were built before are not affected.
+     * @param seq - The sequence of the next occurrence.
+     */
+    public void reset(HybridEventSequence seq) {
+        this.seq = seq;
+        ev.clear();
+        ors.clear();
+        ops.clear();
+        ranked = true;
+        occurrencemarks.clear();
+        //keep the maps of the patterns and event ids, they are needed again for the next pair of patterns
+        occurrencemarkOfStartinterval.values().forEach(marks -> marks.values().forEach(Map::clear));
+        patternPrefix = null;
+        occurrencePrefix = null;
+        htp = null;
+        occ = null;
     }
 
     /**
      * This method appends an EventNode to a list. It takes care of start and end nodes.
+     * The resulting occurrence will not carry any ranks.
      * @param frompattern - for occurrence mark mapping
      * @param e - The EventNode to add.
      * @param op - The occurence point of the event node.
      */
     public void append(int frompattern, EventNode e, HybridEvent op) {
+        ranked = false;
+        append(frompattern, e, op, -1, -1);
+    }
+
+    /**
+     * This method appends an EventNode to a list. It takes care of start and end nodes.
+     * Order relations are derived from the time ranks instead of the times of the occurrence points.
+     * @param frompattern - for occurrence mark mapping
+     * @param e - The EventNode to add.
+     * @param op - The occurence point of the event node.
+     * @param orderRank - The order rank of the occurrence point in its sequence.
+     * @param timeRank - The time rank of the occurrence point in its sequence.
+     * @see de.dbvis.htpm.hes.OccurrencePointRanks
+     */
+    public void append(int frompattern, EventNode e, HybridEvent op, int orderRank, int timeRank) {
 
         final int eventNodeId = e.getIntegerEventID();
 
@@ -193,7 +201,7 @@ public class DefaultHybridTemporalPatternBuilder {
         int offset = 0;
 
         if(e instanceof PointEventNode) {
-            node = new PointEventNode(e);
+            node = EventNodeFactory.point(eventNodeId);
 
         } else if(e instanceof IntervalStartEventNode) {
             final IntervalStartEventNode is = (IntervalStartEventNode) e;
@@ -208,7 +216,7 @@ public class DefaultHybridTemporalPatternBuilder {
                     .computeIfAbsent(eventNodeId, i -> new HashMap<>())
                     .put(originalOccurrenceMark, newOccurrenceMark);
 
-            node = new IntervalStartEventNode(e, newOccurrenceMark);
+            node = EventNodeFactory.intervalStart(eventNodeId, newOccurrenceMark);
 
         } else if(e instanceof IntervalEndEventNode) {
             IntervalEndEventNode ie = (IntervalEndEventNode) e;
@@ -228,12 +236,14 @@ public class DefaultHybridTemporalPatternBuilder {
                         npe);
             }
 
-            node = new IntervalEndEventNode(e, startNodeOccurrenceMark);
+            node = EventNodeFactory.intervalEnd(eventNodeId, startNodeOccurrenceMark);
 
             //end event node order not guaranteed if occurrence marks change
             while (offset < ops.size()
                     && ev.get(ev.size() - 1 - offset) instanceof IntervalEndEventNode
-                    && Objects.equals(op.getEndPoint(), ops.get(ops.size() - 1 - offset).getEndPoint())
+                    && (ranked
+                        ? timeRank == timeRanks[ops.size() - 1 - offset]
+                        : Objects.equals(op.getEndPoint(), ops.get(ops.size() - 1 - offset).getEndPoint()))
                     && node.compareTo(ev.get(ev.size() - 1 - offset)) < 1) {
                 offset++;
             }
@@ -243,7 +253,9 @@ public class DefaultHybridTemporalPatternBuilder {
         }
 
         if (ev.size() > 0) {
-            final int order = HTPUtils.compareOccurrencePointTimes(ops.get(ops.size() - 1), ev.get(ev.size() - 1), op, e);
+            final int order = ranked
+                    ? Integer.compare(timeRanks[ops.size() - 1], timeRank)
+                    : HTPUtils.compareOccurrencePointTimes(ops.get(ops.size() - 1), ev.get(ev.size() - 1), op, e);
             if (order < 0) {
                 ors.add(OrderRelation.SMALLER);
             } else if (order == 0) {
@@ -253,8 +265,24 @@ public class DefaultHybridTemporalPatternBuilder {
             }
         }
 
+        final int insertionIndex = ops.size() - offset;
+        if (ranked) {
+            insertRanks(insertionIndex, orderRank, timeRank);
+        }
         ev.add(ev.size() - offset, node);
-        ops.add(ops.size() - offset, op);
+        ops.add(insertionIndex, op);
+    }
+
+    private void insertRanks(int index, int orderRank, int timeRank) {
+        final int size = ops.size();
+        if (size == orderRanks.length) {
+            orderRanks = Arrays.copyOf(orderRanks, size * 2 + 2);
+            timeRanks = Arrays.copyOf(timeRanks, size * 2 + 2);
+        }
+        System.arraycopy(orderRanks, index, orderRanks, index + 1, size - index);
+        System.arraycopy(timeRanks, index, timeRanks, index + 1, size - index);
+        orderRanks[index] = orderRank;
+        timeRanks[index] = timeRank;
     }
 
     public void setPrefixes(HybridTemporalPattern patternPrefix, Occurrence occurrencePrefix) {
@@ -279,7 +307,9 @@ public class DefaultHybridTemporalPatternBuilder {
 
     public Occurrence getOccurence() {
         if (this.occ == null) {
-            occ = new DefaultOccurrence(seq, ops);
+            occ = ranked
+                    ? new DefaultOccurrence(seq, ops, orderRanks, timeRanks)
+                    : new DefaultOccurrence(seq, ops);
         }
         return this.occ;
     }
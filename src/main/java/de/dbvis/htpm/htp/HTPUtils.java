@@ -147,6 +147,27 @@ public final class HTPUtils {
         return useIntId ? EventNode.compareByIntId(n1, n2) : EventNode.compareByStringId(n1, n2);
     }
 
+    /**
+     * This method compares two ranked occurrence points according to definition 6, like
+     * {@link #compareOccurrencePoints(HybridEvent, EventNode, HybridEvent, EventNode, boolean)} with integer ids.
+     * The order ranks already encode time, id and node type, so only ties need to look at the event nodes.
+     *
+     * @param orderRank1 - The order rank of the occurrence point of the first EventNode.
+     * @param n1 - The first EventNode
+     * @param orderRank2 - The order rank of the occurrence point of the second EventNode.
+     * @param n2 - The second EventNode
+     * @return <0 If a is lexically before b, >0 if b is lexically before a, 0 if lexically equal.
+     * @see de.dbvis.htpm.hes.OccurrencePointRanks
+     */
+    public static int compareRankedOccurrencePoints(int orderRank1, EventNode n1, int orderRank2, EventNode n2) {
+        final int rankComparison = Integer.compare(orderRank1, orderRank2);
+        if (rankComparison != 0) {
+            return rankComparison;
+        }
+        //same time, id and type: only the occurrence marks can differ
+        return EventNode.compareByIntId(n1, n2);
+    }
+
     /**
      * This method compares the times of occurrence of two event nodes.
      *
@@ -165,4 +186,120 @@ public final class HTPUtils {
 
         return Double.compare(time1, time2);
     }
+
+    /**
+     * Computes a 64 bit fingerprint of a pattern. Equal patterns have equal fingerprints.
+     *
+     * @param pattern - The pattern.
+     * @return the fingerprint
+     */
+    public static long fingerprint(HybridTemporalPattern pattern) {
+        return subPatternFingerprint(pattern, -1);
+    }
+
+    /**
+     * Computes the fingerprint of the sub-pattern that results from deleting one event of a pattern, like
+     * {@link DefaultHybridTemporalPatternBuilder#buildSubPatternByDeletingNode(HybridTemporalPattern, int)},
+     * without building the sub-pattern.
+     *
+     * @param pattern - The pattern.
+     * @param deletionIndex - The index of a node of the event to delete, -1 to delete nothing.
+     * @return the fingerprint of the sub-pattern
+     */
+    public static long subPatternFingerprint(HybridTemporalPattern pattern, int deletionIndex) {
+        final List<EventNode> nodes = pattern.getEventNodes();
+        final List<OrderRelation> relations = pattern.getOrderRelations();
+        final EventNode deleted = deletionIndex >= 0 ? nodes.get(deletionIndex) : null;
+
+        long hash = 0xcbf29ce484222325L;
+        int time = 0;
+        int lastTime = -1;
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0 && relations.get(i - 1) == OrderRelation.SMALLER) {
+                time++;
+            }
+            final EventNode node = nodes.get(i);
+            if (isDeleted(node, i, deleted, deletionIndex)) {
+                continue;
+            }
+            final int type = node instanceof IntervalStartEventNode ? 0 : (node instanceof PointEventNode ? 1 : 2);
+            final long code = ((long) node.id << 32)
+                    ^ ((long) markAfterDeletion(node, deleted) << 3)
+                    ^ (type << 1)
+                    ^ (time == lastTime ? 1 : 0);
+            hash = (hash ^ code) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 32;
+            lastTime = time;
+        }
+        //finalizer of MurmurHash3
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Checks whether the sub-pattern that results from deleting one event of a pattern has two intervals
+     * of the same type that start at the same time.
+     * The occurrence marks of such intervals depend on the order in which the events were joined,
+     * so the same arrangement of events can be found as different patterns.
+     *
+     * @param pattern - The pattern.
+     * @param deletionIndex - The index of a node of the event to delete, -1 to delete nothing.
+     * @return true if the occurrence marks of the sub-pattern are ambiguous
+     */
+    public static boolean subPatternHasAmbiguousOccurrenceMarks(HybridTemporalPattern pattern, int deletionIndex) {
+        final List<EventNode> nodes = pattern.getEventNodes();
+        final List<OrderRelation> relations = pattern.getOrderRelations();
+        final EventNode deleted = deletionIndex >= 0 ? nodes.get(deletionIndex) : null;
+
+        EventNode last = null;
+        boolean equalToLast = false;
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0 && relations.get(i - 1) == OrderRelation.SMALLER) {
+                equalToLast = false;
+            }
+            final EventNode node = nodes.get(i);
+            if (isDeleted(node, i, deleted, deletionIndex)) {
+                continue;
+            }
+            //starts of the same type at the same time are adjacent in a pattern
+            if (equalToLast && node instanceof IntervalStartEventNode
+                    && last instanceof IntervalStartEventNode && last.id == node.id) {
+                return true;
+            }
+            last = node;
+            equalToLast = true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the node at index i is a node of the deleted event
+     */
+    static boolean isDeleted(EventNode node, int i, EventNode deleted, int deletionIndex) {
+        if (deleted instanceof IntervalEventNode) {
+            return node instanceof IntervalEventNode
+                    && node.id == deleted.id
+                    && ((IntervalEventNode) node).occurrencemark == ((IntervalEventNode) deleted).occurrencemark;
+        }
+        return i == deletionIndex;
+    }
+
+    /**
+     * @return the occurrence mark of a node after deletion of the given event, marks of later intervals of the same type shift
+     */
+    static int markAfterDeletion(EventNode node, EventNode deleted) {
+        if (!(node instanceof IntervalEventNode)) {
+            return 0;
+        }
+        final int mark = ((IntervalEventNode) node).occurrencemark;
+        if (deleted instanceof IntervalEventNode && node.id == deleted.id
+                && mark > ((IntervalEventNode) deleted).occurrencemark) {
+            return mark - 1;
+        }
+        return mark;
+    }
 }
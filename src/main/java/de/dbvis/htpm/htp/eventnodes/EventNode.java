@@ -20,6 +20,14 @@ public abstract class EventNode implements HTPItem, Comparable<EventNode> {
 		this.id = node.id;
 	}
 
+	/**
+	 * Creates a new EventNode for an already known integer id.
+	 * @param id the integer id of the event type, see {@link UniqueIDConverter}
+	 */
+	protected EventNode(int id) {
+		this.id = id;
+	}
+
 	/**
 	 * Creates a new EventNode without any association to a HybridEvent, for use in a pattern.
 	 * @param id the id of the EventNode
@@ -73,7 +81,8 @@ public abstract class EventNode implements HTPItem, Comparable<EventNode> {
 
 	private static Comparator<EventNode> integerIdComparator = Comparator.comparingInt(EventNode::getIntegerEventID);
 
-	private static Comparator<EventNode> stringIdComparator = Comparator.comparing(EventNode::getStringEventId);
+	//compares precomputed string order ranks instead of the strings themselves
+	private static Comparator<EventNode> stringIdComparator = (a, b) -> UniqueIDConverter.compareByStringId(a.id, b.id);
 
 	private static Comparator<EventNode> typeComparator = (a, b) -> {
 		int typeComparison = 0;
@@ -0,0 +1,168 @@
+package de.dbvis.htpm.htp.eventnodes;
+
+import de.dbvis.htpm.util.UniqueIDConverter;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+/**
+ * Hands out canonical EventNodes.
+ * EventNodes are immutable values that are fully defined by their event type, their kind
+ * (point, interval start or interval end) and their occurrence mark.
+ * This factory creates each of these values only once and returns the same instance afterwards,
+ * so nodes created by the factory can be compared by identity and patterns do not allocate nodes of their own.
+ * <br/>
+ * Lookups are lock-free, only the creation of a node that was not requested before is synchronized.
+ * Nodes created by the public constructors are still equal to the canonical ones, but not identical.
+ */
+public final class EventNodeFactory {
+
+	private static final NodeTable points = new NodeTable((id, mark) -> new PointEventNode(id));
+	private static final NodeTable intervalStarts = new NodeTable(IntervalStartEventNode::new);
+	private static final NodeTable intervalEnds = new NodeTable(IntervalEndEventNode::new);
+
+	private EventNodeFactory() {
+	}
+
+	/**
+	 * @param id the integer id of the event type
+	 * @return the canonical PointEventNode of the event type
+	 */
+	public static PointEventNode point(int id) {
+		return (PointEventNode) points.get(id, 0);
+	}
+
+	/**
+	 * @param id the string id of the event type
+	 * @return the canonical PointEventNode of the event type
+	 */
+	public static PointEventNode point(String id) {
+		return point(integerId(id));
+	}
+
+	/**
+	 * @param id the integer id of the event type
+	 * @param occurrencemark the occurrence mark
+	 * @return the canonical IntervalStartEventNode of the event type with the given occurrence mark
+	 */
+	public static IntervalStartEventNode intervalStart(int id, int occurrencemark) {
+		return (IntervalStartEventNode) intervalStarts.get(id, occurrencemark);
+	}
+
+	/**
+	 * @param id the string id of the event type
+	 * @param occurrencemark the occurrence mark
+	 * @return the canonical IntervalStartEventNode of the event type with the given occurrence mark
+	 */
+	public static IntervalStartEventNode intervalStart(String id, int occurrencemark) {
+		return intervalStart(integerId(id), occurrencemark);
+	}
+
+	/**
+	 * @param id the integer id of the event type
+	 * @param occurrencemark the occurrence mark
+	 * @return the canonical IntervalEndEventNode of the event type with the given occurrence mark
+	 */
+	public static IntervalEndEventNode intervalEnd(int id, int occurrencemark) {
+		return (IntervalEndEventNode) intervalEnds.get(id, occurrencemark);
+	}
+
+	/**
+	 * @param id the string id of the event type
+	 * @param occurrencemark the occurrence mark
+	 * @return the canonical IntervalEndEventNode of the event type with the given occurrence mark
+	 */
+	public static IntervalEndEventNode intervalEnd(String id, int occurrencemark) {
+		return intervalEnd(integerId(id), occurrencemark);
+	}
+
+	/**
+	 * Returns the canonical node of the same kind and event type as the given node, but with another occurrence mark.
+	 * @param node an IntervalEventNode
+	 * @param occurrencemark the new occurrence mark
+	 * @return the canonical node
+	 */
+	public static IntervalEventNode withOccurrenceMark(EventNode node, int occurrencemark) {
+		if (node instanceof IntervalStartEventNode) {
+			return intervalStart(node.id, occurrencemark);
+		} else if (node instanceof IntervalEndEventNode) {
+			return intervalEnd(node.id, occurrencemark);
+		}
+		throw new IllegalArgumentException("Only interval event nodes have an occurrence mark");
+	}
+
+	/**
+	 * @param node any EventNode
+	 * @return the canonical instance that equals the given node
+	 */
+	public static EventNode canonical(EventNode node) {
+		if (node instanceof PointEventNode) {
+			return point(node.id);
+		} else if (node instanceof IntervalEventNode) {
+			return withOccurrenceMark(node, ((IntervalEventNode) node).occurrencemark);
+		}
+		throw new UnsupportedOperationException("Unknown EventNode type");
+	}
+
+	private static int integerId(String id) {
+		if (id == null) {
+			throw new NullPointerException("id of pattern must not be null");
+		}
+		return UniqueIDConverter.getIntegerId(id);
+	}
+
+	/**
+	 * Nodes of one kind, indexed by event type id and occurrence mark.
+	 * Rows and the table only grow; a slot is written once and never changed afterwards.
+	 * Readers that see a stale (null) slot fall back to the synchronized creation, which rechecks.
+	 * Publishing a node through a plain array write is safe because all fields of event nodes are final.
+	 */
+	private static final class NodeTable {
+
+		private final BiFunction<Integer, Integer, EventNode> constructor;
+
+		private volatile EventNode[][] nodes = new EventNode[64][];
+
+		private NodeTable(BiFunction<Integer, Integer, EventNode> constructor) {
+			this.constructor = constructor;
+		}
+
+		private EventNode get(int id, int mark) {
+			final EventNode[][] table = nodes;
+			if (id >= 0 && id < table.length) {
+				final EventNode[] row = table[id];
+				if (row != null && mark >= 0 && mark < row.length) {
+					final EventNode node = row[mark];
+					if (node != null) {
+						return node;
+					}
+				}
+			}
+			return create(id, mark);
+		}
+
+		private synchronized EventNode create(int id, int mark) {
+			if (id < 0 || mark < 0) {
+				throw new IllegalArgumentException("Event type id and occurrence mark must not be negative");
+			}
+			EventNode[][] table = nodes;
+			if (id >= table.length) {
+				table = Arrays.copyOf(table, Math.max(table.length * 2, id + 1));
+			}
+			EventNode[] row = table[id];
+			if (row == null) {
+				row = new EventNode[Math.max(4, mark + 1)];
+			} else if (mark >= row.length) {
+				row = Arrays.copyOf(row, Math.max(row.length * 2, mark + 1));
+			}
+			EventNode node = row[mark];
+			if (node == null) {
+				node = constructor.apply(id, mark);
+				row[mark] = node;
+			}
+			table[id] = row;
+			nodes = table;
+			return node;
+		}
+	}
+}
@@ -11,6 +11,15 @@ public final class IntervalEndEventNode extends IntervalEventNode {
 		}
 	}
 
+	/**
+	 * Only used by the {@link EventNodeFactory}, which shares one instance per event type and occurrence mark.
+	 * @param id the integer id
+	 * @param occurrencemark the occurrence mark
+	 */
+	IntervalEndEventNode(int id, int occurrencemark) {
+		super(id, occurrencemark);
+	}
+
 	/**
 	 * Creates a new IntervalEndEvent based on a given id, time point and occurrence mark.
 	 * This IntervalEndEventNode will not be associated to an HybridEvent.
@@ -46,7 +55,7 @@ public final class IntervalEndEventNode extends IntervalEventNode {
 	 */
 	@Override
 	public boolean equals(Object o) {
-		return o instanceof IntervalEndEventNode
+		return o == this || o instanceof IntervalEndEventNode
 				&& ((IntervalEndEventNode) o).id == this.id
 				&& ((IntervalEndEventNode) o).occurrencemark == this.occurrencemark;
 	}
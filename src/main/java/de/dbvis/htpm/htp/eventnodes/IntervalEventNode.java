@@ -19,6 +19,11 @@ public abstract class IntervalEventNode extends EventNode {
 		this.occurrencemark = occurrencemark;
 	}
 
+	protected IntervalEventNode(int id, int occurrencemark) {
+		super(id);
+		this.occurrencemark = occurrencemark;
+	}
+
 	/**
 	 * Creates a new IntervalEventNode by an explicit id, time point and occurrence mark.
 	 * This IntervalEventNode will not be associated to an HybridEvent.
@@ -17,6 +17,15 @@ public final class IntervalStartEventNode extends IntervalEventNode {
 		}
 	}
 
+	/**
+	 * Only used by the {@link EventNodeFactory}, which shares one instance per event type and occurrence mark.
+	 * @param id the integer id
+	 * @param occurrencemark the occurrence mark
+	 */
+	IntervalStartEventNode(int id, int occurrencemark) {
+		super(id, occurrencemark);
+	}
+
 	/**
 	 * Creates a new IntervalStartEvent based on a given id, time point and occurrence mark.
 	 * This IntervalStartEventNode will not be associated to an HybridEvent.
@@ -52,7 +61,7 @@ public final class IntervalStartEventNode extends IntervalEventNode {
 	 */
 	@Override
 	public boolean equals(Object o) {
-		return o instanceof IntervalStartEventNode
+		return o == this || o instanceof IntervalStartEventNode
 				&& ((IntervalStartEventNode) o).id == this.id
 				&& ((IntervalStartEventNode) o).occurrencemark == this.occurrencemark;
 	}
@@ -16,6 +16,14 @@ public final class PointEventNode extends EventNode {
 		}
 	}
 
+	/**
+	 * Only used by the {@link EventNodeFactory}, which shares one instance per event type.
+	 * @param id the integer id
+	 */
+	PointEventNode(int id) {
+		super(id);
+	}
+
 	/**
 	 * Creates a new PointEventNode based on an id and a time point.
 	 * This PointEventNode will not be associated to an HybridEvent.
@@ -49,7 +57,7 @@ public final class PointEventNode extends EventNode {
 	 */
 	@Override
 	public boolean equals(Object o) {
-		return o instanceof PointEventNode
+		return o == this || o instanceof PointEventNode
 				&& ((PointEventNode) o).id == this.id;
 	}
 }
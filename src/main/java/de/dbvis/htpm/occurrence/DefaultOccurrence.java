@@ -28,12 +28,36 @@ public class DefaultOccurrence implements Occurrence {
 	 */
 	private final HybridEvent[] ops;
 
+	/**
+	 * The order and time ranks of the OccurrencePoints, null if not known
+	 */
+	private final int[] orderRanks;
+	private final int[] timeRanks;
+
 	public DefaultOccurrence(HybridEventSequence seq, List<HybridEvent> ops) {
+		this(seq, ops, null, null);
+	}
+
+	/**
+	 * Creates an occurrence which carries the ranks of its OccurrencePoints.
+	 * @param seq the sequence of the occurrence
+	 * @param ops the OccurrencePoints
+	 * @param orderRanks the order ranks of the OccurrencePoints, at least as long as ops (or null)
+	 * @param timeRanks the time ranks of the OccurrencePoints, at least as long as ops (or null)
+	 */
+	public DefaultOccurrence(HybridEventSequence seq, List<HybridEvent> ops, int[] orderRanks, int[] timeRanks) {
 		if(seq == null) {
 			throw new NullPointerException("HybridEventSequence must not be null");
 		}
 		this.seq = seq;
 		this.ops = ops.toArray(new HybridEvent[0]);
+		if (orderRanks != null && timeRanks != null) {
+			this.orderRanks = Arrays.copyOf(orderRanks, this.ops.length);
+			this.timeRanks = Arrays.copyOf(timeRanks, this.ops.length);
+		} else {
+			this.orderRanks = null;
+			this.timeRanks = null;
+		}
 	}
 	
 	@Override
@@ -56,6 +80,21 @@ public class DefaultOccurrence implements Occurrence {
 		return this.ops.length;
 	}
 
+	@Override
+	public boolean isRanked() {
+		return this.orderRanks != null;
+	}
+
+	@Override
+	public int getOrderRank(int i) {
+		return this.orderRanks[i];
+	}
+
+	@Override
+	public int getTimeRank(int i) {
+		return this.timeRanks[i];
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
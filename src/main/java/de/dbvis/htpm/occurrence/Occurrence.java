@@ -47,6 +47,34 @@ public interface Occurrence {
 	 * Returns the list of occurrence points in order of occurrence
 	 */
 	public List<HybridEvent> ops();
+
+	/**
+	 * Whether the occurrence carries precomputed ranks for its occurrence points.
+	 * Ranks are only present for occurrences created during mining.
+	 * @return true if getOrderRank and getTimeRank may be called
+	 * @see de.dbvis.htpm.hes.OccurrencePointRanks
+	 */
+	public default boolean isRanked() {
+		return false;
+	}
+
+	/**
+	 * Returns the rank of an OccurrencePoint in the canonical order of its sequence.
+	 * @param i the position in the list (0 <= i < Occurrence.size())
+	 * @return the order rank of the OccurrencePoint at position i
+	 */
+	public default int getOrderRank(int i) {
+		throw new UnsupportedOperationException("Occurrence does not carry ranks");
+	}
+
+	/**
+	 * Returns the rank of the time of an OccurrencePoint among all times of its sequence.
+	 * @param i the position in the list (0 <= i < Occurrence.size())
+	 * @return the time rank of the OccurrencePoint at position i
+	 */
+	public default int getTimeRank(int i) {
+		throw new UnsupportedOperationException("Occurrence does not carry ranks");
+	}
 	
 	/**
 	 * Returns a String representation of the Occurrence, the representation
@@ -0,0 +1,373 @@
+package de.dbvis.htpm.util;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters, histograms and timers of the internals of a mining run, which the engines update concurrently.
+ * <br/>
+ * The metrics can be pulled with the getters or {@link #getSnapshot()} while mining runs,
+ * or be exposed via JMX with {@link #register(String)}, e.g. to alert on runs that grow beyond expectations.
+ * Per-level metrics are indexed by the length of the generated patterns:
+ * the time and the bytes allocated by the threads while joining the patterns of a level,
+ * and the number of patterns created. The bytes allocated are only available on JVMs that measure
+ * the allocations of threads, and are 0 otherwise, e.g. if the optional jdk.management module is not present.
+ * The measurement is a setting of the whole JVM, which the metrics only read;
+ * it can be turned on with {@link #enableAllocatedBytes()} before mining starts.
+ * <br/>
+ * Example:
+ * <pre>
+ * HTPM htpm = new HTPMDFS(d, constraint);
+ * htpm.getMetrics().register("nightly-run");
+ * htpm.start();
+ * htpm.getMetrics().unregister();
+ * </pre>
+ */
+public class MiningMetrics implements MiningMetricsMXBean {
+
+    /**
+     * the bucket of a value v > 0 holds the values with the same number of bits as v, bucket 0 holds 0
+     */
+    private static final int HISTOGRAM_BUCKETS = Integer.SIZE + 1;
+
+    /**
+     * the bytes allocated by the current thread, null if the JVM cannot measure them
+     */
+    private static final LongSupplier ALLOCATED_BYTES = allocationCounter();
+
+    private static final class Level {
+        private final LongAdder patterns = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+
+    private final LongAdder joinsAttempted = new LongAdder();
+    private final LongAdder occurrencePairsCompared = new LongAdder();
+    private final LongAdder patternsCreated = new LongAdder();
+    private final LongAdder patternsPruned = new LongAdder();
+    private final LongAdder occurrencesCreated = new LongAdder();
+    private final AtomicLongArray occurrencesPerPattern = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    private final AtomicInteger currentLevel = new AtomicInteger();
+
+    /**
+     * the time of the first recorded level or join, 0 before
+     */
+    private final AtomicLong startNanos = new AtomicLong();
+
+    /**
+     * indexed by level, replaced by a larger copy when a deeper level is recorded
+     */
+    private volatile Level[] levels = new Level[0];
+
+    private volatile IntSupplier queueDepth = () -> 0;
+
+    private ObjectName objectName;
+
+    /**
+     * Creates metrics with all counters at zero.
+     */
+    public MiningMetrics() {
+    }
+
+    /**
+     * @return the number of bytes the current thread has allocated so far, or 0 if the JVM does not measure it
+     */
+    public static long allocatedBytes() {
+        return ALLOCATED_BYTES == null ? 0 : ALLOCATED_BYTES.getAsLong();
+    }
+
+    /**
+     * Turns on the measurement of the bytes allocated by threads, for all threads of the JVM.
+     * Many JVMs measure them by default.
+     * @return whether the bytes allocated are measured
+     */
+    public static boolean enableAllocatedBytes() {
+        return ALLOCATED_BYTES != null && SunThreads.enable();
+    }
+
+    /**
+     * Records the join of two patterns.
+     * @param k the length of the generated patterns
+     * @param occurrencePairs the number of pairs of occurrences that were compared
+     * @param nanos the time the join took
+     * @param bytes the number of bytes allocated by the join
+     */
+    public void recordJoin(int k, long occurrencePairs, long nanos, long bytes) {
+        joinsAttempted.increment();
+        occurrencePairsCompared.add(occurrencePairs);
+        recordLevel(k, nanos, bytes);
+    }
+
+    /**
+     * Records work on a level that is not a join, such as the generation of the 1-patterns.
+     * @param k the length of the generated patterns
+     * @param nanos the time the work took
+     * @param bytes the number of bytes allocated by the work
+     */
+    public void recordLevel(int k, long nanos, long bytes) {
+        startNanos.compareAndSet(0, System.nanoTime() - nanos);
+        if (k > currentLevel.get()) {
+            currentLevel.accumulateAndGet(k, Math::max);
+        }
+        final Level level = level(k);
+        level.nanos.add(nanos);
+        level.bytes.add(bytes);
+    }
+
+    /**
+     * Records a pattern that fulfills the constraints.
+     * @param k the length of the pattern
+     * @param occurrences the number of occurrences of the pattern
+     */
+    public void recordPattern(int k, int occurrences) {
+        patternsCreated.increment();
+        occurrencesCreated.add(occurrences);
+        occurrencesPerPattern.incrementAndGet(Integer.SIZE - Integer.numberOfLeadingZeros(occurrences));
+        level(k).patterns.increment();
+    }
+
+    /**
+     * Records patterns that were found and pruned because they do not fulfill the constraints.
+     * @param count the number of patterns
+     */
+    public void recordPruned(long count) {
+        patternsPruned.add(count);
+    }
+
+    /**
+     * Sets the gauge of the number of tasks that wait for a thread or worker.
+     * @param queueDepth returns the current number of waiting tasks
+     */
+    public void setQueueDepthGauge(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth == null ? () -> 0 : queueDepth;
+    }
+
+    private Level level(int k) {
+        Level[] l = levels;
+        if (k < l.length) {
+            return l[k];
+        }
+        synchronized (this) {
+            l = levels;
+            if (k >= l.length) {
+                final int length = l.length;
+                l = Arrays.copyOf(l, Math.max(k + 1, 2 * length));
+                for (int i = length; i < l.length; i++) {
+                    l[i] = new Level();
+                }
+                levels = l;
+            }
+            return l[k];
+        }
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server,
+     * as {@code de.dbvis.htpm:type=MiningMetrics,name=<name>}.
+     * @param name the name of the run
+     * @return the name of the MBean
+     * @throws IllegalStateException if the metrics are registered already, or the name is taken
+     */
+    public synchronized ObjectName register(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("The metrics are registered as " + objectName + " already");
+        }
+        try {
+            final ObjectName objectName = new ObjectName("de.dbvis.htpm:type=MiningMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register the metrics as " + name, e);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server, if they are registered.
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister the metrics " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        final long start = startNanos.get();
+        return start == 0 ? 0 : (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @Override
+    public int getCurrentLevel() {
+        return currentLevel.get();
+    }
+
+    @Override
+    public long getJoinsAttempted() {
+        return joinsAttempted.sum();
+    }
+
+    @Override
+    public long getOccurrencePairsCompared() {
+        return occurrencePairsCompared.sum();
+    }
+
+    @Override
+    public long getPatternsCreated() {
+        return patternsCreated.sum();
+    }
+
+    @Override
+    public long getPatternsPruned() {
+        return patternsPruned.sum();
+    }
+
+    @Override
+    public long getOccurrencesCreated() {
+        return occurrencesCreated.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public long[] getPatternsByLevel() {
+        return Arrays.stream(levels).mapToLong(level -> level.patterns.sum()).toArray();
+    }
+
+    @Override
+    public long[] getNanosByLevel() {
+        return Arrays.stream(levels).mapToLong(level -> level.nanos.sum()).toArray();
+    }
+
+    @Override
+    public long[] getBytesAllocatedByLevel() {
+        return Arrays.stream(levels).mapToLong(level -> level.bytes.sum()).toArray();
+    }
+
+    /**
+     * Bucket 0 counts the patterns without occurrences, bucket b > 0 those with 2^(b-1) to 2^b - 1 occurrences.
+     * @return the number of patterns by bucket, up to the last non-empty bucket
+     */
+    @Override
+    public long[] getOccurrencesPerPatternHistogram() {
+        final long[] counts = new long[HISTOGRAM_BUCKETS];
+        int length = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = occurrencesPerPattern.get(i);
+            if (counts[i] != 0) {
+                length = i + 1;
+            }
+        }
+        return Arrays.copyOf(counts, length);
+    }
+
+    @Override
+    public Map<String, Long> getSnapshot() {
+        final Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("elapsedMillis", getElapsedMillis());
+        snapshot.put("currentLevel", (long) getCurrentLevel());
+        snapshot.put("joinsAttempted", getJoinsAttempted());
+        snapshot.put("occurrencePairsCompared", getOccurrencePairsCompared());
+        snapshot.put("patternsCreated", getPatternsCreated());
+        snapshot.put("patternsPruned", getPatternsPruned());
+        snapshot.put("occurrencesCreated", getOccurrencesCreated());
+        snapshot.put("queueDepth", (long) getQueueDepth());
+        final Level[] l = levels;
+        for (int k = 1; k < l.length; k++) {
+            if (l[k].nanos.sum() == 0 && l[k].patterns.sum() == 0) {
+                continue;
+            }
+            snapshot.put("level" + k + ".patterns", l[k].patterns.sum());
+            snapshot.put("level" + k + ".nanos", l[k].nanos.sum());
+            snapshot.put("level" + k + ".bytesAllocated", l[k].bytes.sum());
+        }
+        final long[] histogram = getOccurrencesPerPatternHistogram();
+        for (int b = 0; b < histogram.length; b++) {
+            snapshot.put("occurrencesPerPattern.upTo" + ((1L << b) - 1), histogram[b]);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public synchronized void reset() {
+        joinsAttempted.reset();
+        occurrencePairsCompared.reset();
+        patternsCreated.reset();
+        patternsPruned.reset();
+        occurrencesCreated.reset();
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            occurrencesPerPattern.set(i, 0);
+        }
+        currentLevel.set(0);
+        startNanos.set(0);
+        levels = new Level[0];
+    }
+
+    @Override
+    public String toString() {
+        return "MiningMetrics " + getSnapshot();
+    }
+
+    private static LongSupplier allocationCounter() {
+        try {
+            return SunThreads.allocationCounter();
+        } catch (LinkageError e) {
+            //jdk.management is not present or not read by this module
+            return null;
+        }
+    }
+
+    /**
+     * Accesses the extension of the ThreadMXBean in jdk.management, which is loaded only when it is used.
+     */
+    private static final class SunThreads {
+
+        private static LongSupplier allocationCounter() {
+            final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            final com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            try {
+                if (!sunThreads.isThreadAllocatedMemorySupported()) {
+                    return null;
+                }
+            } catch (UnsupportedOperationException | SecurityException e) {
+                return null;
+            }
+            //-1 while the measurement is disabled
+            return () -> Math.max(sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId()), 0);
+        }
+
+        private static boolean enable() {
+            final com.sun.management.ThreadMXBean sunThreads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            try {
+                sunThreads.setThreadAllocatedMemoryEnabled(true);
+                return true;
+            } catch (UnsupportedOperationException | SecurityException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package de.dbvis.htpm.util;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link MiningMetrics}, as it is exposed via JMX.
+ * Arrays by level are indexed by pattern length, index 0 is unused.
+ */
+public interface MiningMetricsMXBean {
+
+    long getElapsedMillis();
+
+    int getCurrentLevel();
+
+    long getJoinsAttempted();
+
+    long getOccurrencePairsCompared();
+
+    long getPatternsCreated();
+
+    long getPatternsPruned();
+
+    long getOccurrencesCreated();
+
+    int getQueueDepth();
+
+    long[] getPatternsByLevel();
+
+    long[] getNanosByLevel();
+
+    long[] getBytesAllocatedByLevel();
+
+    long[] getOccurrencesPerPatternHistogram();
+
+    /**
+     * @return all metrics by name, the arrays by level and the histogram buckets flattened to one entry each
+     */
+    Map<String, Long> getSnapshot();
+
+    void reset();
+}
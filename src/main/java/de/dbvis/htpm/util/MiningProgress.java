@@ -0,0 +1,264 @@
+package de.dbvis.htpm.util;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Tracks how far a mining run is, and estimates the remaining time.
+ * <br/>
+ * The unit of work is a branch: the joins of a pattern with its siblings, which complete the partition
+ * of the pattern, i.e. its children. When the engine starts to join a partition, all its patterns become
+ * pending branches of the next length, which are explored one by one. The estimate assumes that the
+ * pending branches behave like the explored ones of the same length: each explored branch of length k
+ * has been followed by a number of branches of length k + 1 (the observed branching factor, which
+ * includes the effect of pruning) and has taken an average time. Lengths that were not reached yet are
+ * extrapolated with the last observed branching factor, up to the maximum pattern length;
+ * if that factor is not below 1, the work cannot be extrapolated and the estimate is unknown.
+ * The estimate is rough at the start of a run and improves as the run goes on; it is best for the
+ * depth-first engines, which reach all lengths early.
+ * <br/>
+ * The engines only add to striped counters; {@link #snapshot()} sums them up,
+ * which can be done from any thread, e.g. at a fixed rate with {@link #publish(long, TimeUnit, Consumer)}.
+ */
+public class MiningProgress {
+
+    private static final ScheduledExecutorService PUBLISHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "htpm-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The progress of a run at one point in time. Arrays are indexed by the length of the generated patterns.
+     */
+    public static final class Snapshot {
+        public final long elapsedMillis;
+        public final long[] scheduledBranches;
+        public final long[] exploredBranches;
+        public final long[] occurrencesIn;
+        public final long[] occurrencesOut;
+
+        /**
+         * the estimated number of branches of all lengths that are still to be explored, NaN if unknown
+         */
+        public final double remainingBranches;
+
+        /**
+         * the estimated fraction of the work that is done, between 0 and 1, NaN if unknown
+         */
+        public final double fractionDone;
+
+        /**
+         * the estimated time until the run is done, -1 if unknown
+         */
+        public final long remainingMillis;
+
+        Snapshot(long elapsedMillis, long[] scheduledBranches, long[] exploredBranches, long[] occurrencesIn,
+                 long[] occurrencesOut, double remainingBranches, double fractionDone, long remainingMillis) {
+            this.elapsedMillis = elapsedMillis;
+            this.scheduledBranches = scheduledBranches;
+            this.exploredBranches = exploredBranches;
+            this.occurrencesIn = occurrencesIn;
+            this.occurrencesOut = occurrencesOut;
+            this.remainingBranches = remainingBranches;
+            this.fractionDone = fractionDone;
+            this.remainingMillis = remainingMillis;
+        }
+
+        /**
+         * @param length the length of the generated patterns
+         * @return the number of branches of the length that were scheduled and are not explored yet
+         */
+        public long getPendingBranches(int length) {
+            return length < scheduledBranches.length ? scheduledBranches[length] - exploredBranches[length] : 0;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder(remainingMillis < 0 ? "remaining work unknown"
+                    : String.format("%.1f%% done, %d s remaining", fractionDone * 100, remainingMillis / 1000));
+            for (int k = 1; k < exploredBranches.length; k++) {
+                if (scheduledBranches[k] != 0) {
+                    sb.append(", length ").append(k).append(": ")
+                            .append(exploredBranches[k]).append('/').append(scheduledBranches[k]);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class Length {
+        private final LongAdder scheduled = new LongAdder();
+        private final LongAdder explored = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder occurrencesIn = new LongAdder();
+        private final LongAdder occurrencesOut = new LongAdder();
+    }
+
+    /**
+     * indexed by length, replaced by a larger copy when a longer length is recorded
+     */
+    private volatile Length[] lengths = new Length[0];
+
+    private volatile long startNanos;
+
+    /**
+     * the time the first branch was scheduled, 0 before
+     */
+    private final AtomicLong joinStartNanos = new AtomicLong();
+    private volatile int maxLength = Integer.MAX_VALUE;
+    private volatile boolean depthFirst;
+
+    /**
+     * Creates the progress of an engine, which is reset by {@link #start(int, boolean)} at the start of each run.
+     */
+    public MiningProgress() {
+    }
+
+    /**
+     * Resets the progress at the start of a run.
+     * @param maxLength the maximum length of the patterns, which limits the extrapolation
+     * @param depthFirst whether the engine joins the partition of a pattern as soon as it is complete,
+     *                   otherwise the patterns of a length are joined after all partitions of the length are complete
+     */
+    public synchronized void start(int maxLength, boolean depthFirst) {
+        this.lengths = new Length[0];
+        this.maxLength = maxLength;
+        this.depthFirst = depthFirst;
+        this.startNanos = System.nanoTime();
+        this.joinStartNanos.set(0);
+    }
+
+    /**
+     * Records that the engine starts to join a partition.
+     * @param length the length of the patterns generated by the joins
+     * @param numBranches the number of patterns of the partition
+     */
+    public void scheduled(int length, int numBranches) {
+        if (joinStartNanos.get() == 0) {
+            joinStartNanos.compareAndSet(0, System.nanoTime());
+        }
+        length(length).scheduled.add(numBranches);
+    }
+
+    /**
+     * Records an explored branch.
+     * @param length the length of the patterns generated by the joins
+     * @param nanos the time the joins took
+     * @param occurrencesIn the number of occurrences of the pattern of the branch
+     * @param occurrencesOut the number of occurrences of the generated patterns
+     */
+    public void explored(int length, long nanos, long occurrencesIn, long occurrencesOut) {
+        final Length l = length(length);
+        l.explored.increment();
+        l.nanos.add(nanos);
+        l.occurrencesIn.add(occurrencesIn);
+        l.occurrencesOut.add(occurrencesOut);
+    }
+
+    private Length length(int k) {
+        Length[] l = lengths;
+        if (k < l.length) {
+            return l[k];
+        }
+        synchronized (this) {
+            l = lengths;
+            if (k >= l.length) {
+                final int length = l.length;
+                l = Arrays.copyOf(l, Math.max(k + 1, 2 * length));
+                for (int i = length; i < l.length; i++) {
+                    l[i] = new Length();
+                }
+                lengths = l;
+            }
+            return l[k];
+        }
+    }
+
+    /**
+     * Sums up the counters and estimates the remaining work.
+     * @return the current progress
+     */
+    public Snapshot snapshot() {
+        final long now = System.nanoTime();
+        final long elapsedNanos = startNanos == 0 ? 0 : now - startNanos;
+        final long joinNanos = joinStartNanos.get() == 0 ? 0 : now - joinStartNanos.get();
+        final Length[] l = lengths;
+        final int n = l.length;
+        final long[] scheduled = new long[n];
+        final long[] explored = new long[n];
+        final long[] nanos = new long[n];
+        final long[] occurrencesIn = new long[n];
+        final long[] occurrencesOut = new long[n];
+        for (int k = 0; k < n; k++) {
+            //explored before scheduled, so that no more branches are explored than scheduled
+            explored[k] = l[k].explored.sum();
+            scheduled[k] = Math.max(explored[k], l[k].scheduled.sum());
+            nanos[k] = l[k].nanos.sum();
+            occurrencesIn[k] = l[k].occurrencesIn.sum();
+            occurrencesOut[k] = l[k].occurrencesOut.sum();
+        }
+
+        //propagate the pending branches to longer lengths with the observed branching factors
+        double remainingBranches = 0;
+        double remainingNanos = 0;
+        double branchesOfLength = 0;
+        double branchingFactor = 0;
+        double nanosPerBranch = 0;
+        boolean anyObserved = false;
+        boolean extrapolated = false;
+        boolean known = true;
+        for (int k = 1; k <= maxLength && (k < n || branchesOfLength >= 0.5); k++) {
+            if (extrapolated && branchesOfLength > 0 && (!anyObserved || branchingFactor >= 1)) {
+                known = false;
+                break;
+            }
+            if (k < n && explored[k] > 0) {
+                nanosPerBranch = (double) nanos[k] / explored[k];
+            }
+            branchesOfLength = branchesOfLength * branchingFactor + (k < n ? scheduled[k] - explored[k] : 0);
+            remainingBranches += branchesOfLength;
+            remainingNanos += branchesOfLength * nanosPerBranch;
+
+            //depth-first, the children of an explored branch are scheduled right away,
+            //breadth-first only when the next length starts
+            final long scheduledChildren = k + 1 < n ? scheduled[k + 1] : 0;
+            final boolean observed = k < n && explored[k] > 0 && (depthFirst || scheduledChildren > 0);
+            if (observed) {
+                branchingFactor = (double) scheduledChildren / explored[k];
+                anyObserved = true;
+            }
+            extrapolated = !observed;
+        }
+
+        final long doneNanos = Arrays.stream(nanos).sum();
+        if (!known || doneNanos == 0) {
+            return new Snapshot(elapsedNanos / 1_000_000, scheduled, explored, occurrencesIn, occurrencesOut,
+                    Double.NaN, Double.NaN, -1);
+        }
+        final double fractionDone = doneNanos / (doneNanos + remainingNanos);
+        //the ratio of wall time and work time since the joins started accounts for parallel threads
+        //and the time not spent joining
+        final long remainingMillis = (long) (remainingNanos * joinNanos / doneNanos / 1_000_000);
+        return new Snapshot(elapsedNanos / 1_000_000, scheduled, explored, occurrencesIn, occurrencesOut,
+                remainingBranches, fractionDone, remainingMillis);
+    }
+
+    /**
+     * Sends snapshots of the progress to a consumer at a fixed rate, from a background thread.
+     * @param period the time between two snapshots
+     * @param unit the unit of the period
+     * @param consumer receives the snapshots
+     * @return the scheduled publishing, which has to be cancelled when the run is done,
+     * and ends if the consumer throws an exception
+     */
+    public ScheduledFuture<?> publish(long period, TimeUnit unit, Consumer<Snapshot> consumer) {
+        return PUBLISHER.scheduleAtFixedRate(() -> consumer.accept(snapshot()), period, period, unit);
+    }
+}
@@ -1,26 +1,41 @@
 package de.dbvis.htpm.util;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class UniqueIDConverter {
 
     /**
      * A map holding all mappings from string ID to integer ID. This limits number of event types to 4 billion.
      */
-    private static Map<String, Integer> integerIDMap = new HashMap<>(100);
+    private static Map<String, Integer> integerIDMap = new ConcurrentHashMap<>(100);
     private static List<String> stringIDList = new ArrayList<>(100);
     private static final String forbiddenCharacters = "[\"]";
     private static final String forbiddenUnquotedCharacters = "[-+<=]";
 
+    /**
+     * The string ids as displayed in patterns (quoted if necessary), indexed by integer id.
+     * May be longer than the number of ids. Written before the id is published in the integerIDMap.
+     */
+    private static volatile String[] displayIds = new String[100];
+
+    /**
+     * The rank of each integer id in the order of the display string ids.
+     * Null if it was not calculated yet or has to be recalculated, because new ids were added.
+     */
+    private static volatile int[] stringOrderRanks = null;
+
     public static int getIntegerId(String eventId) {
 
         String unquotedId = !isQuotedQuickTest(eventId) ? eventId : eventId.substring(1, eventId.length() - 1);
 
-        if (integerIDMap.containsKey(unquotedId)) {
-            return integerIDMap.get(unquotedId);
+        final Integer integerId = integerIDMap.get(unquotedId);
+        if (integerId != null) {
+            return integerId;
         } else {
             if (!eventIDValid(eventId)) {
                 throw new IllegalArgumentException("Problem with event name \"" + eventId + "\":\n" +
@@ -31,10 +46,25 @@ public final class UniqueIDConverter {
         }
     }
 
-    private static int addNewId(String eventId) {
+    private static synchronized int addNewId(String eventId) {
+        final Integer existingId = integerIDMap.get(eventId);
+        if (existingId != null) {
+            //added concurrently
+            return existingId;
+        }
         int newIntegerId = stringIDList.size();
-        integerIDMap.put(eventId, newIntegerId);
         stringIDList.add(eventId);
+
+        String[] ids = displayIds;
+        if (ids.length <= newIntegerId) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[newIntegerId] = containsForbiddenCharsIfUnquoted(eventId) ? quote(eventId) : eventId;
+        displayIds = ids;
+        //ranks of existing ids may change when the new id is sorted in
+        stringOrderRanks = null;
+
+        integerIDMap.put(eventId, newIntegerId);
         return newIntegerId;
     }
 
@@ -72,9 +102,64 @@ public final class UniqueIDConverter {
     }
 
     public static String getStringId(int id) {
-        if (stringIDList.size() > id) {
-            String eventId = stringIDList.get(id);
-            return containsForbiddenCharsIfUnquoted(eventId) ? quote(eventId) : eventId;
+        final String[] ids = displayIds;
+        if (0 <= id && id < ids.length) {
+            return ids[id];
         } else return null;
     }
+
+    /**
+     * Returns the position of an id in the order of string ids.
+     * Comparing ranks yields the same result as comparing the string ids of two event types.
+     * Ranks are recalculated when new event types are added, but their relative order never changes.
+     * @param id the integer id of the event type
+     * @return the rank of the string id among all string ids
+     */
+    public static int getStringOrderRank(int id) {
+        int[] ranks = stringOrderRanks;
+        if (ranks == null || ranks.length <= id) {
+            ranks = calculateStringOrderRanks();
+        }
+        return ranks[id];
+    }
+
+    /**
+     * Compares two event types by their string ids, using the precomputed string order ranks.
+     * @param id1 integer id of the first event type
+     * @param id2 integer id of the second event type
+     * @return the result of comparing the string ids of both event types
+     */
+    public static int compareByStringId(int id1, int id2) {
+        if (id1 == id2) {
+            return 0;
+        }
+        int[] ranks = stringOrderRanks;
+        if (ranks == null || ranks.length <= id1 || ranks.length <= id2) {
+            ranks = calculateStringOrderRanks();
+        }
+        return Integer.compare(ranks[id1], ranks[id2]);
+    }
+
+    private static synchronized int[] calculateStringOrderRanks() {
+        int[] ranks = stringOrderRanks;
+        if (ranks != null) {
+            //already calculated by other thread
+            return ranks;
+        }
+        final String[] ids = displayIds;
+        final int numIds = stringIDList.size();
+
+        final Integer[] order = new Integer[numIds];
+        for (int i = 0; i < numIds; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> ids[i]));
+
+        ranks = new int[numIds];
+        for (int rank = 0; rank < numIds; rank++) {
+            ranks[order[rank]] = rank;
+        }
+        stringOrderRanks = ranks;
+        return ranks;
+    }
 }
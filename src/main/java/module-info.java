@@ -1,6 +1,9 @@
 module de.dbvis.htpm {
     requires java.xml;
     requires java.desktop;
+    requires transitive java.management;
+    requires static jdk.management;
+    requires jdk.jfr;
     requires org.apache.commons.lang3;
 
     opens de.dbvis.htpm;
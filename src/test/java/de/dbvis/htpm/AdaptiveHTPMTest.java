@@ -0,0 +1,85 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class AdaptiveHTPMTest {
+
+    /**
+     * @return the lengths of the patterns in the order in which they were output
+     */
+    private static List<Integer> lengths(Map<HybridTemporalPattern, Set<Occurrence>> output) {
+        return output.keySet().stream().map(HybridTemporalPattern::length).collect(Collectors.toList());
+    }
+
+    private static Set<HybridTemporalPattern> expected(HybridEventSequenceDatabase d) {
+        final HTPMDFS htpm = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        htpm.start();
+        return htpm.getPatterns().keySet();
+    }
+
+    @Test
+    public void testBreadthFirst() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 3);
+        final AdaptiveHTPM htpm = new AdaptiveHTPM(d, new AgrawalSupportConstraint(d.size(), 0.5), 1);
+        final Map<HybridTemporalPattern, Set<Occurrence>> output = MiningFixtures.output(htpm);
+
+        Assert.assertEquals(0, htpm.getSwitchLength());
+        Assert.assertEquals(expected(d), output.keySet());
+        //generation by generation
+        final List<Integer> lengths = lengths(output);
+        final List<Integer> sorted = new ArrayList<>(lengths);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, lengths);
+    }
+
+    @Test
+    public void testSwitchToDepthFirst() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 3);
+        final Set<HybridTemporalPattern> expected = expected(d);
+        Assert.assertTrue(expected.stream().anyMatch(p -> p.length() >= 4));
+
+        final AdaptiveHTPM htpm = new AdaptiveHTPM(d, new AgrawalSupportConstraint(d.size(), 0.5), 0);
+        final Map<HybridTemporalPattern, Set<Occurrence>> output = MiningFixtures.output(htpm);
+
+        //nothing fits below a watermark of 0, so only the 1-patterns are mined breadth-first
+        Assert.assertEquals(2, htpm.getSwitchLength());
+        Assert.assertEquals(expected, output.keySet());
+        //then the branches one by one, so a longer pattern comes before a 2-pattern of a later branch
+        final List<Integer> lengths = lengths(output);
+        final int numOnePatterns = Collections.frequency(lengths, 1);
+        Assert.assertEquals(Collections.nCopies(numOnePatterns, 1), lengths.subList(0, numOnePatterns));
+        Assert.assertTrue(lengths.lastIndexOf(2) > lengths.indexOf(3));
+    }
+
+    @Test
+    public void testOccurrencePairs() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 3);
+        final AdaptiveHTPM htpm = new AdaptiveHTPM(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        final List<List<PatternOccurrence>> l1 = htpm.genL1();
+        final List<List<PatternOccurrence>> l2 = htpm.genLk(l1, 2);
+
+        //each pair of occurrences yields at most one occurrence of a 2-pattern
+        final long pairs = AdaptiveHTPM.occurrencePairs(l1);
+        Assert.assertTrue(pairs > 0);
+        Assert.assertTrue(l2.stream().mapToLong(HTPM::countOccurrences).sum() <= pairs);
+        Assert.assertEquals(d.getSequences().stream().mapToLong(s -> {
+            final long n = l1.get(0).stream().flatMap(po -> po.occurrences.stream())
+                    .filter(link -> link.child.getHybridEventSequence() == s).count();
+            return n * (n - 1) / 2;
+        }).sum(), pairs);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWatermark() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 3);
+        new AdaptiveHTPM(d, new AgrawalSupportConstraint(d.size(), 0.5), 1.5);
+    }
+}
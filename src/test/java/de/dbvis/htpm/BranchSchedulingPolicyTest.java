@@ -0,0 +1,71 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class BranchSchedulingPolicyTest {
+
+    private static final BranchSchedulingPolicy[] POLICIES = {
+            BranchSchedulingPolicy.DISCOVERY_ORDER, BranchSchedulingPolicy.LARGEST_COST_FIRST,
+            BranchSchedulingPolicy.SMALLEST_COST_FIRST, BranchSchedulingPolicy.SUPPORT_DESCENDING};
+
+    @Test
+    public void testSamePatterns() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 4, 7);
+        final HTPMDFS reference = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.4));
+        reference.start();
+        final Map<HybridTemporalPattern, Set<Occurrence>> expected = reference.getPatterns();
+
+        for (BranchSchedulingPolicy policy : POLICIES) {
+            final HTPMDFS dfs = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.4));
+            dfs.setSchedulingPolicy(policy);
+            dfs.start();
+            Assert.assertEquals(expected, dfs.getPatterns());
+
+            final HTPMDFS lowStorage = new HTPMDFSLowStorage(d, new AgrawalSupportConstraint(d.size(), 0.4));
+            lowStorage.setSchedulingPolicy(policy);
+            Assert.assertEquals(expected, MiningFixtures.output(lowStorage));
+
+            final HTPMDFS parallel = new HTPMFullyParallel(d, new AgrawalSupportConstraint(d.size(), 0.4), 2);
+            parallel.setSchedulingPolicy(policy);
+            Assert.assertEquals(expected, MiningFixtures.output(parallel));
+        }
+    }
+
+    @Test
+    public void testOrder() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 4, 7);
+        final HTPM htpm = new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.4));
+        final List<PatternOccurrence> onePatterns = new ArrayList<>(htpm.genL1().get(0));
+
+        BranchSchedulingPolicy.LARGEST_COST_FIRST.order(onePatterns);
+        final List<Integer> sizes = onePatterns.stream().map(po -> po.occurrences.size()).collect(Collectors.toList());
+        final List<Integer> descending = new ArrayList<>(sizes);
+        descending.sort(Comparator.reverseOrder());
+        Assert.assertEquals(descending, sizes);
+
+        BranchSchedulingPolicy.SMALLEST_COST_FIRST.order(onePatterns);
+        Collections.reverse(descending);
+        Assert.assertEquals(descending, onePatterns.stream().map(po -> po.occurrences.size()).collect(Collectors.toList()));
+
+        final List<PatternOccurrence> discovered = new ArrayList<>(onePatterns);
+        BranchSchedulingPolicy.DISCOVERY_ORDER.order(onePatterns);
+        Assert.assertEquals(discovered, onePatterns);
+
+        BranchSchedulingPolicy.SUPPORT_DESCENDING.order(onePatterns);
+        final List<Long> supports = onePatterns.stream().map(po -> po.occurrences.stream()
+                .map(link -> link.child.getHybridEventSequence()).distinct().count()).collect(Collectors.toList());
+        final List<Long> supportsDescending = new ArrayList<>(supports);
+        supportsDescending.sort(Comparator.reverseOrder());
+        Assert.assertEquals(supportsDescending, supports);
+        //sequences with several occurrences of a pattern make its cost larger than its support
+        Assert.assertNotEquals(sizes, onePatterns.stream().map(po -> po.occurrences.size()).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,88 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import de.dbvis.htpm.util.HTPMEvent;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+import de.dbvis.htpm.util.HTPMOutputListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class HTPMDFSIterativeTest {
+
+    @Test
+    public void testSameAsRecursive() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(6, 4, 11);
+        final HTPMDFS recursive = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        recursive.start();
+        final Map<HybridTemporalPattern, Set<Occurrence>> expected = recursive.getPatterns();
+        Assert.assertTrue(expected.keySet().stream().anyMatch(p -> p.length() >= 5));
+
+        final HTPMDFSIterative iterative = new HTPMDFSIterative(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        Assert.assertEquals(expected, MiningFixtures.output(iterative));
+        Assert.assertEquals(0, iterative.getSpilledPartitions());
+        Assert.assertTrue(iterative.getPeakFrontierBytes() > 0);
+        //one frame for the partition of each length of the longest branch
+        Assert.assertTrue(iterative.getMaxStackDepth()
+                >= expected.keySet().stream().mapToInt(HybridTemporalPattern::length).max().getAsInt());
+    }
+
+    @Test
+    public void testSpill() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(6, 4, 11);
+        final HTPMDFS recursive = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        recursive.start();
+
+        for (boolean compress : new boolean[]{false, true}) {
+            final HTPMDFSIterative iterative = new HTPMDFSIterative(d, new AgrawalSupportConstraint(d.size(), 0.5),
+                    MiningMode.ALL, 0, compress);
+            Assert.assertEquals(recursive.getPatterns(), MiningFixtures.output(iterative));
+            Assert.assertTrue(iterative.getSpilledPartitions() > 0);
+        }
+    }
+
+    @Test
+    public void testSpillFilesAreDeletedOnFailure() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(6, 4, 11);
+        final long filesBefore = spillFiles();
+        final HTPMDFSIterative iterative = new HTPMDFSIterative(d, new AgrawalSupportConstraint(d.size(), 0.5),
+                MiningMode.ALL, 0, false);
+        iterative.addHTPMListener(new HTPMOutputListener() {
+            @Override
+            public void outputGenerated(HTPMOutputEvent event) {
+                if (iterative.getSpilledPartitions() > 2) {
+                    throw new IllegalStateException("listener failed");
+                }
+            }
+
+            @Override
+            public void generationCalculated(HTPMEvent event) {
+            }
+        });
+        try {
+            iterative.start();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("listener failed", e.getMessage());
+        }
+        Assert.assertEquals(filesBefore, spillFiles());
+    }
+
+    private static long spillFiles() {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(f -> f.getFileName().toString().startsWith("htpm-frontier")).count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -112,7 +112,302 @@ public class HTPMTest {
 						"(b+0=c<a+0=c<a-0=b-0)=[1(6.0,6.0,8.0,8.0,12.0,12.0), 2(6.0,6.0,8.0,8.0,11.0,11.0)]]",
 				patterns4.toString());
 
+		//same result with the 2-patterns found in a single pass over the database
+		CMAPConstraint onePassCmap = new CMAPConstraint(d, minSupport);
+		htpm = new HTPM(d, new ConstraintCollection(Arrays.asList(defaultConstraint, sbp, onePassCmap)));
+		htpm.start();
+		Assert.assertEquals(patterns4.toString(),
+				getPatternsSortedWithFixedOccurrenceOrder(htpm.getPatternsSortedByLength()).toString());
+
+	}
+
+	@Test
+	public void incrementalHtpmTest() {
+		HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+
+		HybridEventSequence s = new DefaultHybridEventSequence("1");
+		s.add(new DefaultHybridEvent("c", 6));
+		s.add(new DefaultHybridEvent("c", 8));
+		s.add(new DefaultHybridEvent("a", 5, 10));
+		s.add(new DefaultHybridEvent("b", 6, 12));
+		s.add(new DefaultHybridEvent("a", 8, 12));
+		d.add(s);
+
+		s = new DefaultHybridEventSequence("2");
+		s.add(new DefaultHybridEvent("c", 6));
+		s.add(new DefaultHybridEvent("c", 8));
+		s.add(new DefaultHybridEvent("b", 6, 11));
+		s.add(new DefaultHybridEvent("a", 8, 11));
+		d.add(s);
+
+		final double minSupport = 0.5;
+		IncrementalHTPM htpm = new IncrementalHTPM(d, minSupport);
+		htpm.start();
+
+		s = new DefaultHybridEventSequence("3");
+		s.add(new DefaultHybridEvent("c", 4));
+		s.add(new DefaultHybridEvent("a", 4, 10));
+		s.add(new DefaultHybridEvent("b", 4, 12));
+		s.add(new DefaultHybridEvent("a", 9, 12));
+		d.add(s);
+
+		htpm = new IncrementalHTPM(htpm, Collections.singletonList(s));
+		htpm.start();
+
+		HTPM full = new HTPM(d, new AgrawalSupportConstraint(d.size(), minSupport));
+		full.start();
+
+		Assert.assertEquals(full.getPatterns(), htpm.getPatterns());
+
+		//sequences have to be appended to the database
+		try {
+			new IncrementalHTPM(htpm, Collections.singletonList(d.getSequence(0)));
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void incrementalHtpmBatchesTest() {
+		for (double minSupport : new double[]{0.2, 0.4, 0.6}) {
+			final Random random = new Random(7);
+			HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+			for (int i = 0; i < 5; i++) {
+				d.add(randomSequence(random, String.valueOf(d.size())));
+			}
+			IncrementalHTPM htpm = new IncrementalHTPM(d, minSupport);
+			htpm.start();
+
+			//batches of different sizes, the last one is empty
+			for (int batchSize : new int[]{1, 3, 2, 0}) {
+				final List<HybridEventSequence> batch = new ArrayList<>();
+				for (int i = 0; i < batchSize; i++) {
+					final HybridEventSequence s = randomSequence(random, String.valueOf(d.size()));
+					d.add(s);
+					batch.add(s);
+				}
+				htpm = new IncrementalHTPM(htpm, batch);
+				htpm.start();
+
+				HTPM full = new HTPM(d, new AgrawalSupportConstraint(d.size(), minSupport));
+				full.start();
+				Assert.assertEquals("min support " + minSupport + ", " + d.size() + " sequences",
+						full.getPatterns(), htpm.getPatterns());
+			}
+		}
+	}
+
+	@Test
+	public void incrementalHtpmRemovalTest() {
+		for (double minSupport : new double[]{0.2, 0.4, 0.6}) {
+			final Random random = new Random(11);
+			HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+			for (int i = 0; i < 6; i++) {
+				d.add(randomSequence(random, "s" + i));
+			}
+			IncrementalHTPM htpm = new IncrementalHTPM(d, minSupport);
+			htpm.start();
+
+			int numAdded = 6;
+			for (int update = 0; update < 6; update++) {
+				//remove sequences anywhere in the database, and append some
+				final List<HybridEventSequence> removed = new ArrayList<>();
+				for (HybridEventSequence s : d.getSequences()) {
+					if (random.nextInt(3) == 0) {
+						removed.add(s);
+					}
+				}
+				removed.forEach(d::remove);
+				final List<HybridEventSequence> added = new ArrayList<>();
+				for (int i = random.nextInt(3); i > 0; i--) {
+					final HybridEventSequence s = randomSequence(random, "s" + numAdded++);
+					d.add(s);
+					added.add(s);
+				}
+				htpm = new IncrementalHTPM(htpm, removed, added);
+				htpm.start();
+
+				HTPM full = new HTPM(d, new AgrawalSupportConstraint(d.size(), minSupport));
+				full.start();
+				Assert.assertEquals("min support " + minSupport + ", update " + update,
+						full.getPatterns(), htpm.getPatterns());
+			}
+
+			//only sequences of the previous run can be removed
+			try {
+				new IncrementalHTPM(htpm, Collections.singletonList(randomSequence(random, "x")), Collections.emptyList());
+				Assert.fail();
+			} catch (IllegalArgumentException e) {
+				//expected
+			}
+		}
+	}
+
+	/**
+	 * Creates a sequence of few event types, so that intervals of the same type often start at the same time.
+	 */
+	private static HybridEventSequence randomSequence(Random random, String id) {
+		final HybridEventSequence s = new DefaultHybridEventSequence(id);
+		for (int i = 0; i < 6; i++) {
+			final String type = String.valueOf((char) ('a' + random.nextInt(3)));
+			final int start = random.nextInt(6);
+			s.add(random.nextBoolean() ? new DefaultHybridEvent(type, start)
+					: new DefaultHybridEvent(type, start, start + 1 + random.nextInt(3)));
+		}
+		return s;
+	}
+
+	@Test
+	public void occurrenceParentsTest() {
+		HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+		for (int i = 0; i < 3; i++) {
+			HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+			s.add(new DefaultHybridEvent("a", 0, 4));
+			s.add(new DefaultHybridEvent("b", 1));
+			s.add(new DefaultHybridEvent("a", 2, 3 + i % 2));
+			s.add(new DefaultHybridEvent("c", 5));
+			d.add(s);
+		}
+
+		HTPM htpm = new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.5));
+		List<List<PatternOccurrence>> m = htpm.genL1();
+		for (PatternOccurrence po : m.get(0)) {
+			for (PatternOccurrence.OccurrenceTreeLink link : po.occurrences) {
+				Assert.assertSame(d.getSequence(link.parent), link.child.getHybridEventSequence());
+			}
+		}
+
+		for (int k = 2; k <= 4; k++) {
+			Map<HybridTemporalPattern, PatternOccurrence> parents = m.stream().flatMap(List::stream)
+					.collect(Collectors.toMap(po -> po.pattern, po -> po));
+			m = htpm.genLk(m, k);
+			Assert.assertFalse(m.stream().allMatch(List::isEmpty));
+
+			for (List<PatternOccurrence> partition : m) {
+				for (PatternOccurrence po : partition) {
+					List<PatternOccurrence.OccurrenceTreeLink> parentOccurrences = parents.get(po.prefix).occurrences;
+					for (PatternOccurrence.OccurrenceTreeLink link : po.occurrences) {
+						//the parent is the occurrence of the prefix, which the child extends
+						Occurrence parent = parentOccurrences.get(link.parent).child;
+						Assert.assertSame(parent.getHybridEventSequence(), link.child.getHybridEventSequence());
+						Assert.assertTrue(link.child.ops().containsAll(parent.ops()));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void failedJoinReleasesArenaTest() {
+		HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+		for (int i = 0; i < 2; i++) {
+			HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+			s.add(new DefaultHybridEvent("a", 0, 4));
+			s.add(new DefaultHybridEvent("b", 1));
+			d.add(s);
+		}
 
+		HTPM htpm = new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.5) {
+			@Override
+			public boolean patternFulfillsConstraints(HybridTemporalPattern p, Set<Occurrence> occurrences, int k) {
+				if (k == 2) {
+					throw new IllegalStateException("constraint failed");
+				}
+				return super.patternFulfillsConstraints(p, occurrences, k);
+			}
+		});
+		List<List<PatternOccurrence>> m = htpm.genL1();
+		try {
+			htpm.genLk(m, 2);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("constraint failed", e.getMessage());
+		}
+
+		//the join ran on this thread and returned the arena of the thread, which is handed out again
+		JoinArena arena = JoinArena.take();
+		arena.release();
+		Assert.assertSame(arena, JoinArena.take());
+		arena.release();
+	}
+
+	@Test
+	public void closedPatternsTest() {
+		HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+
+		for (int i = 1; i <= 2; i++) {
+			HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+			s.add(new DefaultHybridEvent("c", 0));
+			s.add(new DefaultHybridEvent("a", 1, 3));
+			s.add(new DefaultHybridEvent("b", 2));
+			d.add(s);
+		}
+		HybridEventSequence s = new DefaultHybridEventSequence("3");
+		s.add(new DefaultHybridEvent("a", 5, 6));
+		d.add(s);
+
+		final Set<HybridTemporalPattern> expected = new HashSet<>(Arrays.asList(
+				new DefaultHybridTemporalPattern("a+0<a-0"),
+				new DefaultHybridTemporalPattern("c<a+0<b<a-0")));
+
+		HTPMDFS htpm = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5), MiningMode.CLOSED);
+		htpm.start();
+		Assert.assertEquals(expected, htpm.getPatterns().keySet());
+
+		Assert.assertEquals(expected, runHTPM(new HTPMDFSLowStorage(d,
+				new AgrawalSupportConstraint(d.size(), 0.5), MiningMode.CLOSED)));
+		Assert.assertEquals(expected, runHTPM(new HTPMFullyParallel(d,
+				new AgrawalSupportConstraint(d.size(), 0.5), 4, MiningMode.CLOSED)));
+
+		//without longer patterns, the 2-patterns are closed
+		final ConstraintCollection maxLength2 = new ConstraintCollection(Arrays.asList(
+				new AgrawalSupportConstraint(d.size(), 0.5), new PatternSizeConstraint(2, 2)));
+		htpm = new HTPMDFS(d, maxLength2, MiningMode.CLOSED);
+		htpm.start();
+		Assert.assertEquals(new HashSet<>(Arrays.asList(
+				new DefaultHybridTemporalPattern("c<a+0<a-0"),
+				new DefaultHybridTemporalPattern("c<b"),
+				new DefaultHybridTemporalPattern("a+0<b<a-0"))), htpm.getPatterns().keySet());
+	}
+
+	@Test
+	public void maximalPatternsTest() {
+		HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+
+		for (int i = 1; i <= 2; i++) {
+			HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+			s.add(new DefaultHybridEvent("c", 0));
+			s.add(new DefaultHybridEvent("a", 1, 3));
+			s.add(new DefaultHybridEvent("b", 2));
+			d.add(s);
+		}
+		HybridEventSequence s = new DefaultHybridEventSequence("3");
+		s.add(new DefaultHybridEvent("a", 5, 6));
+		d.add(s);
+
+		//a+0<a-0 is contained in the longer pattern, although it occurs in more sequences
+		final Set<HybridTemporalPattern> expected = Collections.singleton(
+				new DefaultHybridTemporalPattern("c<a+0<b<a-0"));
+
+		HTPMDFS htpm = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5), MiningMode.MAXIMAL);
+		htpm.start();
+		Assert.assertEquals(expected, htpm.getPatterns().keySet());
+
+		Assert.assertEquals(expected, runHTPM(new HTPMDFSLowStorage(d,
+				new AgrawalSupportConstraint(d.size(), 0.5), MiningMode.MAXIMAL)));
+		Assert.assertEquals(expected, runHTPM(new HTPMFullyParallel(d,
+				new AgrawalSupportConstraint(d.size(), 0.5), 4, MiningMode.MAXIMAL)));
+
+		//the patterns are maximal among the patterns that fulfill the constraints
+		final ConstraintCollection maxLength2 = new ConstraintCollection(Arrays.asList(
+				new AgrawalSupportConstraint(d.size(), 0.5), new PatternSizeConstraint(2, 0)));
+		htpm = new HTPMDFS(d, maxLength2, MiningMode.MAXIMAL);
+		htpm.start();
+		Assert.assertEquals(new HashSet<>(Arrays.asList(
+				new DefaultHybridTemporalPattern("c<a+0<a-0"),
+				new DefaultHybridTemporalPattern("c<b"),
+				new DefaultHybridTemporalPattern("a+0<b<a-0"))), htpm.getPatterns().keySet());
 	}
 
 	private List<Map.Entry<HybridTemporalPattern, List<Occurrence>>> getPatternsSortedByLength(TemporalPatternProducer htpm) {
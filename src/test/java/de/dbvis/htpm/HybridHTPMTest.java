@@ -0,0 +1,57 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class HybridHTPMTest {
+
+    @Test
+    public void testBreadthFirstLengths() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 5);
+        final HTPMDFS dfs = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        dfs.start();
+        final Set<HybridTemporalPattern> expected = dfs.getPatterns().keySet();
+        Assert.assertTrue(expected.stream().anyMatch(p -> p.length() >= 5));
+
+        for (int length = 1; length <= 6; length++) {
+            final HybridHTPM htpm = new HybridHTPM(d, new AgrawalSupportConstraint(d.size(), 0.5), 2, length);
+            final Map<HybridTemporalPattern, Set<Occurrence>> output = MiningFixtures.output(htpm);
+
+            Assert.assertEquals(length, htpm.getLastBreadthFirstLength());
+            Assert.assertEquals(expected, output.keySet());
+            assertBreadthFirstUpTo(length, output);
+        }
+    }
+
+    @Test
+    public void testDetectedLength() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 5);
+        final HybridHTPM htpm = new HybridHTPM(d, new AgrawalSupportConstraint(d.size(), 0.5), 1);
+        final Map<HybridTemporalPattern, Set<Occurrence>> output = MiningFixtures.output(htpm);
+
+        //the 1-patterns are a single partition, the 2-patterns are enough partitions for one thread
+        Assert.assertEquals(2, htpm.getLastBreadthFirstLength());
+        assertBreadthFirstUpTo(2, output);
+    }
+
+    /**
+     * Asserts that the generations up to a length were output one after the other, before all longer patterns.
+     */
+    private static void assertBreadthFirstUpTo(int length, Map<HybridTemporalPattern, Set<Occurrence>> output) {
+        int previous = 1;
+        for (HybridTemporalPattern p : output.keySet()) {
+            if (previous > length) {
+                Assert.assertTrue(p + " after the breadth-first generations", p.length() > length);
+            } else {
+                Assert.assertTrue(p + " out of generation order", p.length() >= previous);
+            }
+            previous = p.length();
+        }
+    }
+}
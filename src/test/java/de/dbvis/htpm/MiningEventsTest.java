@@ -0,0 +1,98 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MiningEventsTest {
+
+    private static List<RecordedEvent> record(TemporalPatternProducer htpm) throws Exception {
+        final Path file = Files.createTempFile("htpm", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"Level", "Branch", "Chunk", "Join"}) {
+                recording.enable("de.dbvis.htpm." + name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            htpm.start();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("de.dbvis.htpm."))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals("de.dbvis.htpm." + name))
+                .collect(Collectors.toList());
+    }
+
+    private static Map<Integer, List<HybridTemporalPattern>> byLength(Map<HybridTemporalPattern, Set<Occurrence>> patterns) {
+        return patterns.keySet().stream().collect(Collectors.groupingBy(HybridTemporalPattern::length));
+    }
+
+    @Test
+    public void testBreadthFirstEvents() throws Exception {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(4, 2, 17);
+        final HTPM htpm = new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        final List<RecordedEvent> events = record(htpm);
+        final Map<HybridTemporalPattern, Set<Occurrence>> patterns = htpm.getPatterns();
+        final Map<Integer, List<HybridTemporalPattern>> byLength = byLength(patterns);
+
+        //one event for each length from 2 to the longest pattern, with the patterns of the previous and of its length
+        final List<RecordedEvent> levels = ofType(events, "Level");
+        Assert.assertEquals(byLength.size() - 1, levels.size());
+        for (RecordedEvent level : levels) {
+            final int length = level.getInt("length");
+            final List<HybridTemporalPattern> out = byLength.get(length);
+            Assert.assertEquals(byLength.get(length - 1).size(), level.getInt("patternsIn"));
+            Assert.assertEquals(out.size(), level.getInt("patternsOut"));
+            //the occurrences are counted with their parents, so an occurrence of several parents counts several times
+            Assert.assertTrue(out.stream().mapToLong(p -> patterns.get(p).size()).sum() <= level.getLong("occurrencesOut"));
+        }
+
+        final List<RecordedEvent> joins = ofType(events, "Join");
+        Assert.assertFalse(joins.isEmpty());
+        Assert.assertEquals(patterns.size() - byLength.get(1).size(),
+                joins.stream().mapToInt(e -> e.getInt("patternsOut")).sum());
+    }
+
+    @Test
+    public void testDepthFirstEvents() throws Exception {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(4, 2, 17);
+        final HTPMDFS dfs = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        dfs.start();
+        final Map<Integer, List<HybridTemporalPattern>> byLength = byLength(dfs.getPatterns());
+        final int numOnePatterns = byLength.get(1).size();
+        final List<RecordedEvent> events = record(new HTPMFullyParallel(d, new AgrawalSupportConstraint(d.size(), 0.5), 2));
+
+        final List<RecordedEvent> branches = ofType(events, "Branch");
+        Assert.assertFalse(branches.isEmpty());
+        Assert.assertEquals(dfs.getPatterns().size() - numOnePatterns,
+                branches.stream().mapToInt(e -> e.getInt("patternsOut")).sum());
+        //the levels are the lengths of the generated patterns, although the engine does not advance its depth
+        Assert.assertEquals(numOnePatterns, branches.stream().filter(e -> e.getInt("length") == 2).count());
+
+        final List<RecordedEvent> chunks = ofType(events, "Chunk");
+        Assert.assertFalse(chunks.isEmpty());
+        Assert.assertTrue(chunks.stream().anyMatch(e -> e.getInt("length") == 1
+                && e.getInt("partitionSize") == numOnePatterns));
+    }
+}
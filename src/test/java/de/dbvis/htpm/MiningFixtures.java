@@ -0,0 +1,77 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import de.dbvis.htpm.util.HTPMEvent;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+import de.dbvis.htpm.util.HTPMOutputListener;
+import org.junit.Assert;
+
+import java.util.*;
+
+/**
+ * The database and the output collector the tests of the mining engines share.
+ */
+final class MiningFixtures {
+
+    private MiningFixtures() {
+    }
+
+    /**
+     * Creates sequences that share the 6-pattern a+0&lt;b&lt;c+0&lt;a-0&lt;a&lt;c-0&lt;d+0&lt;b&lt;d-0,
+     * whose interval c ends at 5 or 6, with random events of the types a to d added to each sequence.
+     * @param numSequences the number of sequences
+     * @param noise the number of random events of each sequence
+     * @param seed the seed of the random events
+     * @return the database
+     */
+    static HybridEventSequenceDatabase database(int numSequences, int noise, long seed) {
+        final HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        final Random random = new Random(seed);
+        for (int i = 0; i < numSequences; i++) {
+            final HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+            s.add(new DefaultHybridEvent("a", 0, 3));
+            s.add(new DefaultHybridEvent("b", 1));
+            s.add(new DefaultHybridEvent("c", 2, 5 + i % 2));
+            s.add(new DefaultHybridEvent("a", 4));
+            s.add(new DefaultHybridEvent("d", 7, 9));
+            s.add(new DefaultHybridEvent("b", 8));
+            for (int j = 0; j < noise; j++) {
+                final String id = String.valueOf((char) ('a' + random.nextInt(4)));
+                final int start = random.nextInt(10);
+                s.add(random.nextBoolean() ? new DefaultHybridEvent(id, start)
+                        : new DefaultHybridEvent(id, start, start + 1 + random.nextInt(3)));
+            }
+            d.add(s);
+        }
+        return d;
+    }
+
+    /**
+     * Starts a producer and collects the patterns it outputs, asserting that none is output twice.
+     * The listener may be called by several threads.
+     * @param htpm the producer
+     * @return the patterns with their occurrences, in the order in which they were output
+     */
+    static Map<HybridTemporalPattern, Set<Occurrence>> output(TemporalPatternProducer htpm) {
+        final Map<HybridTemporalPattern, Set<Occurrence>> patterns = Collections.synchronizedMap(new LinkedHashMap<>());
+        htpm.addHTPMListener(new HTPMOutputListener() {
+            @Override
+            public void outputGenerated(HTPMOutputEvent event) {
+                event.getPatternOccurrenceStream().forEach(po ->
+                        Assert.assertNull("output twice: " + po.pattern, patterns.put(po.pattern, po.occurrences)));
+            }
+
+            @Override
+            public void generationCalculated(HTPMEvent event) {
+            }
+        });
+        htpm.start();
+        return patterns;
+    }
+}
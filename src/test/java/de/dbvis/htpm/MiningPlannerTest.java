@@ -0,0 +1,82 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class MiningPlannerTest {
+
+    private static HybridEventSequenceDatabase database() {
+        final HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        for (int i = 0; i < 4; i++) {
+            final HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+            s.add(new DefaultHybridEvent("a", 0, 3));
+            s.add(new DefaultHybridEvent("b", 1));
+            s.add(new DefaultHybridEvent("c", 2, 4 + i));
+            if (i == 0) {
+                s.add(new DefaultHybridEvent("b", 5));
+                s.add(new DefaultHybridEvent("d", 6));
+            }
+            d.add(s);
+        }
+        return d;
+    }
+
+    @Test
+    public void testProfile() {
+        final MiningPlanner.Profile profile = new MiningPlanner(database(), 0.5).profile();
+
+        Assert.assertEquals(4, profile.numSequences);
+        Assert.assertEquals(14, profile.numEvents);
+        Assert.assertEquals(4, profile.numTypes);
+        Assert.assertEquals(3, profile.frequentTypes);
+        Assert.assertEquals(1, profile.repeatedTypeEvents);
+        //the pairs of a, b and c in each sequence, and the pairs with the second b in the first one
+        Assert.assertEquals(4 * 3 + 3, profile.eventPairs);
+        Assert.assertEquals(3, profile.frequentTwoPatterns);
+        Assert.assertEquals(4 * 3, profile.frequentEventPairs);
+        //a overlaps b and c, c overlaps a
+        Assert.assertEquals((4 * 2 + 4) / 8.0, profile.meanIntervalOverlap, 0.0001);
+    }
+
+    @Test
+    public void testEstimateLevels() {
+        final List<MiningPlanner.LevelEstimate> levels = new MiningPlanner(database(), 0.5).estimateLevels();
+
+        Assert.assertEquals(3, levels.size());
+        Assert.assertEquals(3, levels.get(0).patterns, 0.0001);
+        Assert.assertEquals(13, levels.get(0).occurrences, 0.0001);
+        Assert.assertEquals(3, levels.get(1).patterns, 0.0001);
+        Assert.assertEquals(12, levels.get(1).occurrences, 0.0001);
+        //all pairs of the first sequence are assumed to be frequent with a probability of 12/15
+        Assert.assertEquals(3 * Math.pow(0.8, 3) + 4 * Math.pow(0.8, 3), levels.get(2).occurrences, 0.0001);
+    }
+
+    @Test
+    public void testPlan() {
+        final HybridEventSequenceDatabase d = database();
+        final MiningPlanner planner = new MiningPlanner(d, 0.5);
+
+        final MiningPlanner.Plan unlimited = planner.plan(Long.MAX_VALUE, Long.MAX_VALUE, 4);
+        Assert.assertEquals(MiningPlanner.Engine.HTPM, unlimited.engine);
+        Assert.assertEquals(1, unlimited.threads);
+        Assert.assertTrue(unlimited.fitsHeap && unlimited.fitsTime && unlimited.keepsPatterns());
+
+        final HTPM htpm = unlimited.createEngine(new AgrawalSupportConstraint(d.size(), 0.5));
+        htpm.start();
+        final HTPMDFS dfs = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        dfs.start();
+        Assert.assertEquals(dfs.getPatterns().keySet(), htpm.getPatterns().keySet());
+
+        final MiningPlanner.Plan noHeap = planner.plan(1, Long.MAX_VALUE, 4);
+        Assert.assertEquals(MiningPlanner.Engine.HTPM_DFS_LOW_STORAGE, noHeap.engine);
+        Assert.assertFalse(noHeap.fitsHeap);
+    }
+}
@@ -0,0 +1,86 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class OffHeapOccurrencesTest {
+
+    @Test
+    public void testSamePatternsAndOccurrences() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 11);
+        final HTPM reference = new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.4));
+        reference.start();
+        final Map<HybridTemporalPattern, Set<Occurrence>> expected = reference.getPatterns();
+        Assert.assertTrue(expected.keySet().stream().anyMatch(p -> p.length() >= 4));
+
+        final List<HTPM> engines = Arrays.asList(
+                new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.4)),
+                new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.4)),
+                new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.4), false, 2));
+        for (HTPM htpm : engines) {
+            htpm.setOffHeapOccurrences(true);
+            htpm.start();
+            Assert.assertEquals(expected, htpm.getPatterns());
+        }
+    }
+
+    @Test
+    public void testGenerationsAreStoredOffHeap() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 11);
+        final HTPM htpm = new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.4));
+        htpm.setOffHeapOccurrences(true);
+        final List<List<PatternOccurrence>> l1 = htpm.genL1();
+        final List<List<PatternOccurrence>> l2 = htpm.genLk(l1, 2);
+        Assert.assertFalse(l2.isEmpty());
+        for (List<List<PatternOccurrence>> generation : Arrays.asList(l1, l2)) {
+            generation.stream().flatMap(List::stream).forEach(po ->
+                    Assert.assertNotNull(po.pattern.toString(), OffHeapOccurrences.cursor(po.occurrences)));
+        }
+    }
+
+    @Test
+    public void testList() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(8, 3, 11);
+        final HTPM htpm = new HTPM(d, new AgrawalSupportConstraint(d.size(), 0.4));
+        final List<List<PatternOccurrence>> m = htpm.genLk(htpm.genL1(), 2);
+        final PatternOccurrence po = m.stream().flatMap(List::stream)
+                .filter(p -> p.occurrences.size() > 1).findFirst().orElseThrow();
+
+        final OffHeapOccurrences storage = new OffHeapOccurrences(d);
+        final List<PatternOccurrence.OccurrenceTreeLink> stored =
+                storage.copyOf(po.occurrences, po.pattern.getEventNodes().size());
+        Assert.assertEquals(po.occurrences.size(), stored.size());
+        for (int i = 0; i < stored.size(); i++) {
+            final Occurrence expected = po.occurrences.get(i).child;
+            final Occurrence actual = stored.get(i).child;
+            Assert.assertEquals(po.occurrences.get(i).parent, stored.get(i).parent);
+            Assert.assertEquals(expected, actual);
+            Assert.assertEquals(expected.hashCode(), actual.hashCode());
+            Assert.assertEquals(expected.toString(), actual.toString());
+            Assert.assertTrue(actual.isRanked());
+            for (int j = 0; j < actual.size(); j++) {
+                Assert.assertEquals(expected.getOrderRank(j), actual.getOrderRank(j));
+                Assert.assertEquals(expected.getTimeRank(j), actual.getTimeRank(j));
+            }
+        }
+
+        //a cursor moves over the records, views keep theirs
+        final OffHeapOccurrences.Cursor cursor = OffHeapOccurrences.cursor(stored);
+        final Occurrence first = stored.get(0).child;
+        Assert.assertEquals(first, cursor.moveTo(0));
+        Assert.assertEquals(stored.get(1).child, cursor.moveTo(1));
+        Assert.assertEquals(po.occurrences.get(0).child, first);
+
+        //records can be replaced
+        stored.set(0, new PatternOccurrence.OccurrenceTreeLink(42, po.occurrences.get(1).child));
+        Assert.assertEquals(42, stored.get(0).parent);
+        Assert.assertEquals(po.occurrences.get(1).child, stored.get(0).child);
+        Assert.assertNull(OffHeapOccurrences.cursor(po.occurrences));
+    }
+}
@@ -0,0 +1,86 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class SampledHTPMTest {
+
+    private static HybridEventSequenceDatabase database() {
+        final HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        for (int i = 0; i < 400; i++) {
+            final HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+            s.add(new DefaultHybridEvent("c", 3));
+            if (i % 2 == 0) {
+                s.add(new DefaultHybridEvent("a", 0, 2));
+                s.add(new DefaultHybridEvent("b", 1));
+            }
+            if (i % 10 == 0) {
+                s.add(new DefaultHybridEvent("d", 4));
+            }
+            d.add(s);
+        }
+        return d;
+    }
+
+    private static Set<HybridTemporalPattern> exact(HybridEventSequenceDatabase d, double minSupport) {
+        final HTPMDFS htpm = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), minSupport));
+        htpm.start();
+        return htpm.getPatterns().keySet();
+    }
+
+    @Test
+    public void testEstimates() {
+        final HybridEventSequenceDatabase d = database();
+        final SampledHTPM htpm = new SampledHTPM(d, 0.3, 20, 2, 0.95, 0.9, false, new Random(1), HTPMDFS::new);
+        htpm.start();
+
+        Assert.assertTrue(htpm.getSampleSize() < d.size());
+        final Map<HybridTemporalPattern, SampledHTPM.SupportEstimate> estimates = htpm.getEstimates();
+        Assert.assertTrue(estimates.keySet().containsAll(exact(d, 0.3)));
+        for (Map.Entry<HybridTemporalPattern, SampledHTPM.SupportEstimate> e : estimates.entrySet()) {
+            final SampledHTPM.SupportEstimate estimate = e.getValue();
+            Assert.assertFalse(estimate.exact);
+            Assert.assertTrue(estimate.lower <= estimate.support && estimate.support <= estimate.upper);
+            Assert.assertTrue(estimate.upper >= 0.3);
+        }
+    }
+
+    @Test
+    public void testVerification() {
+        final HybridEventSequenceDatabase d = database();
+        final SampledHTPM htpm = new SampledHTPM(d, 0.3, 20, 2, 0.95, 0.9, true, new Random(1), HTPMDFS::new);
+        htpm.start();
+
+        Assert.assertEquals(exact(d, 0.3), htpm.getEstimates().keySet());
+        htpm.getEstimates().forEach((p, estimate) -> {
+            Assert.assertTrue(estimate.exact);
+            Assert.assertEquals(d.support(p), estimate.support, 0.0001);
+        });
+    }
+
+    @Test
+    public void testWholeDatabase() {
+        final HybridEventSequenceDatabase d = database();
+        final SampledHTPM htpm = new SampledHTPM(d, 0.3, d.size(), false);
+        htpm.start();
+
+        Assert.assertEquals(1, htpm.getRounds());
+        Assert.assertEquals(exact(d, 0.3), htpm.getEstimates().keySet());
+        htpm.getEstimates().values().forEach(estimate -> Assert.assertTrue(estimate.exact));
+    }
+
+    @Test
+    public void testInverseNormal() {
+        Assert.assertEquals(1.96, SampledHTPM.inverseNormal(0.975), 0.001);
+        Assert.assertEquals(-1.645, SampledHTPM.inverseNormal(0.05), 0.001);
+    }
+}
@@ -0,0 +1,53 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.htp.DefaultHybridTemporalPattern;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+public class ShardedHTPMTest {
+
+    @Test
+    public void testSameAsDFS() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(6, 2, 13);
+        final HTPMDFS dfs = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        dfs.start();
+        final Map<HybridTemporalPattern, Set<Occurrence>> expected = dfs.getPatterns();
+        final int numOnePatterns = (int) expected.keySet().stream().filter(p -> p.length() == 1).count();
+
+        //with more workers than 1-patterns, branches are split
+        for (int numWorkers : new int[]{1, numOnePatterns + 1}) {
+            final ShardedHTPM htpm = new ShardedHTPM(d, ShardedHTPM.minSupport(0.5), numWorkers);
+            Assert.assertEquals(expected, MiningFixtures.output(htpm));
+            //the joins happen in the workers, the coordinator counts the patterns they send
+            Assert.assertEquals(0, htpm.getMetrics().getJoinsAttempted());
+            Assert.assertEquals(expected.size(), htpm.getMetrics().getPatternsCreated());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoWorkers() {
+        final HybridEventSequenceDatabase d = MiningFixtures.database(6, 2, 13);
+        new ShardedHTPM(d, ShardedHTPM.minSupport(0.5), 0);
+    }
+
+    @Test
+    public void testPatternEncoding() throws IOException {
+        //event types with the symbols of the pattern syntax, and intervals of the same type
+        for (String pattern : Arrays.asList("\"a<b\"+0=\"a<b\"+1<c<\"a<b\"-1=\"a<b\"-0", "x", "x+0<y=z<x-0")) {
+            final HybridTemporalPattern expected = new DefaultHybridTemporalPattern(pattern);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ShardProtocol.writePattern(new DataOutputStream(bytes), expected);
+            final HybridTemporalPattern actual = ShardProtocol.readPattern(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            Assert.assertEquals(expected, actual);
+            Assert.assertEquals(expected.toString(), actual.toString());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package de.dbvis.htpm;
+
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.occurrence.Occurrence;
+import de.dbvis.htpm.util.HTPMEvent;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+import de.dbvis.htpm.util.HTPMOutputListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class StreamingHTPMTest {
+
+    private static List<HybridEventSequence> sequences() {
+        final List<HybridEventSequence> sequences = new ArrayList<>();
+
+        HybridEventSequence s = new DefaultHybridEventSequence("1");
+        s.add(new DefaultHybridEvent("c", 6));
+        s.add(new DefaultHybridEvent("a", 5, 10));
+        s.add(new DefaultHybridEvent("b", 6, 12));
+        sequences.add(s);
+
+        s = new DefaultHybridEventSequence("2");
+        s.add(new DefaultHybridEvent("c", 16));
+        s.add(new DefaultHybridEvent("b", 16, 21));
+        s.add(new DefaultHybridEvent("a", 18, 21));
+        sequences.add(s);
+
+        s = new DefaultHybridEventSequence("3");
+        s.add(new DefaultHybridEvent("c", 24));
+        s.add(new DefaultHybridEvent("a", 24, 30));
+        s.add(new DefaultHybridEvent("b", 24, 32));
+        sequences.add(s);
+
+        s = new DefaultHybridEventSequence("4");
+        s.add(new DefaultHybridEvent("a", 39, 40));
+        s.add(new DefaultHybridEvent("b", 41, 42));
+        sequences.add(s);
+
+        return sequences;
+    }
+
+    private static Map<HybridTemporalPattern, Set<Occurrence>> mine(List<HybridEventSequence> window, double minSupport) {
+        final HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        window.forEach(d::add);
+        final HTPM htpm = new HTPM(d, new AgrawalSupportConstraint(d.size(), minSupport));
+        htpm.start();
+        return htpm.getPatterns();
+    }
+
+    @Test
+    public void testCountBasedWindow() {
+        final List<HybridEventSequence> sequences = sequences();
+        final List<Map<HybridTemporalPattern, Set<Occurrence>>> updates = new ArrayList<>();
+
+        final StreamingHTPM htpm = StreamingHTPM.countBased(0.5, 2, 1);
+        htpm.addHTPMListener(new HTPMOutputListener() {
+            @Override
+            public void outputGenerated(HTPMOutputEvent event) {
+                updates.add(event.getPatternOccurrenceStream()
+                        .collect(Collectors.toMap(po -> po.pattern, po -> po.occurrences)));
+            }
+
+            @Override
+            public void generationCalculated(HTPMEvent event) {
+                Assert.assertEquals(updates.size() + 1, event.getGeneration());
+            }
+        });
+
+        //sequences added before the start are mined on start
+        htpm.add(sequences.get(0));
+        Assert.assertTrue(updates.isEmpty());
+        htpm.start();
+        Assert.assertEquals(1, updates.size());
+        Assert.assertEquals(mine(sequences.subList(0, 1), 0.5), updates.get(0));
+
+        for (int i = 1; i < sequences.size(); i++) {
+            htpm.add(sequences.get(i));
+            final List<HybridEventSequence> window = sequences.subList(Math.max(0, i - 1), i + 1);
+            Assert.assertEquals(window, htpm.getWindow());
+            Assert.assertEquals(mine(window, 0.5), updates.get(i));
+            Assert.assertEquals(mine(window, 0.5), htpm.getPatterns());
+        }
+    }
+
+    @Test
+    public void testTimeBasedWindow() {
+        final List<HybridEventSequence> sequences = sequences();
+
+        final StreamingHTPM htpm = StreamingHTPM.timeBased(0.5, 20, 2);
+        htpm.start();
+        Assert.assertTrue(htpm.getPatterns().isEmpty());
+
+        htpm.add(sequences.get(0));
+        htpm.add(sequences.get(1));
+        Assert.assertEquals(mine(sequences.subList(0, 2), 0.5), htpm.getPatterns());
+
+        //sequence 1 ends at 12, which is 20 before the end of sequence 3
+        htpm.add(sequences.get(2));
+        final List<HybridEventSequence> window = htpm.getWindow();
+        Assert.assertEquals(sequences.subList(1, 3), window);
+        //no update yet
+        Assert.assertEquals(mine(sequences.subList(0, 2), 0.5), htpm.getPatterns());
+
+        htpm.add(sequences.get(3));
+        Assert.assertEquals(sequences.subList(2, 4), htpm.getWindow());
+        //the window is returned as a copy
+        Assert.assertEquals(sequences.subList(1, 3), window);
+        Assert.assertEquals(mine(sequences.subList(2, 4), 0.5), htpm.getPatterns());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateId() {
+        final StreamingHTPM htpm = StreamingHTPM.countBased(0.5, 2, 1);
+        htpm.add(new DefaultHybridEventSequence("1"));
+        htpm.add(new DefaultHybridEventSequence("1"));
+    }
+}
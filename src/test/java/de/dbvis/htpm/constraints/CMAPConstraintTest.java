@@ -0,0 +1,57 @@
+package de.dbvis.htpm.constraints;
+
+import de.dbvis.htpm.HTPM;
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CMAPConstraintTest {
+
+    private static HybridEventSequenceDatabase randomDatabase(long seed) {
+        final Random random = new Random(seed);
+        final HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        for (int i = 0; i < 12; i++) {
+            final DefaultHybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+            for (int j = 0; j < 6; j++) {
+                final String id = String.valueOf((char) ('a' + random.nextInt(4)));
+                final int start = random.nextInt(6);
+                s.add(random.nextBoolean() ? new DefaultHybridEvent(id, start)
+                        : new DefaultHybridEvent(id, start, start + 1 + random.nextInt(4)));
+            }
+            d.add(s);
+        }
+        return d;
+    }
+
+    @Test
+    public void testOnePassPrunesLikeSubpatternMining() {
+        int prevented = 0;
+        for (long seed = 0; seed < 5; seed++) {
+            final HybridEventSequenceDatabase d = randomDatabase(seed);
+            for (double minSupport : new double[]{0.2, 0.4, 0.6}) {
+                final CMAPConstraint mined = new CMAPConstraint(d, new AgrawalSupportConstraint(d.size(), minSupport));
+                final CMAPConstraint onePass = new CMAPConstraint(d, minSupport);
+
+                final HTPM withMined = new HTPM(d, new ConstraintCollection(
+                        Arrays.asList(new AgrawalSupportConstraint(d.size(), minSupport), mined)));
+                withMined.start();
+                final HTPM withOnePass = new HTPM(d, new ConstraintCollection(
+                        Arrays.asList(new AgrawalSupportConstraint(d.size(), minSupport), onePass)));
+                withOnePass.start();
+
+                final String message = "seed " + seed + ", min support " + minSupport;
+                assertEquals(message, withMined.getPatterns(), withOnePass.getPatterns());
+                assertEquals(message, mined.getPatternJoinPreventedCount(), onePass.getPatternJoinPreventedCount());
+                prevented += onePass.getPatternJoinPreventedCount();
+            }
+        }
+        assertTrue(prevented > 0);
+    }
+}
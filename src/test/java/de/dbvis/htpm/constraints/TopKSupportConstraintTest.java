@@ -0,0 +1,91 @@
+package de.dbvis.htpm.constraints;
+
+import de.dbvis.htpm.HTPM;
+import de.dbvis.htpm.HTPMDFS;
+import de.dbvis.htpm.HTPMFullyParallel;
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.htp.DefaultHybridTemporalPattern;
+import de.dbvis.htpm.htp.HybridTemporalPattern;
+import de.dbvis.htpm.util.HTPMEvent;
+import de.dbvis.htpm.util.HTPMOutputEvent;
+import de.dbvis.htpm.util.HTPMOutputListener;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TopKSupportConstraintTest {
+
+    private static DefaultHybridEventSequenceDatabase database() {
+        DefaultHybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        DefaultHybridEventSequence s = new DefaultHybridEventSequence("1");
+        s.add(new DefaultHybridEvent("a", 1, 3));
+        s.add(new DefaultHybridEvent("b", 2));
+        d.add(s);
+        s = new DefaultHybridEventSequence("2");
+        s.add(new DefaultHybridEvent("a", 0, 5));
+        s.add(new DefaultHybridEvent("b", 1));
+        d.add(s);
+        s = new DefaultHybridEventSequence("3");
+        s.add(new DefaultHybridEvent("b", 4));
+        s.add(new DefaultHybridEvent("a", 5, 6));
+        d.add(s);
+        return d;
+    }
+
+    private static Set<HybridTemporalPattern> patterns(String... patterns) {
+        return Arrays.stream(patterns).map(DefaultHybridTemporalPattern::new).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testTopK() {
+        final DefaultHybridEventSequenceDatabase d = database();
+
+        TopKSupportConstraint c = new TopKSupportConstraint(d.size(), 2);
+        HTPM htpm = new HTPM(d, c);
+        htpm.start();
+        assertEquals(patterns("a+0<a-0", "b"), htpm.getPatterns().keySet());
+        assertEquals(1, c.getMinSupport(), 0.0001);
+
+        //ties with the k-th pattern are kept
+        c = new TopKSupportConstraint(d.size(), 3);
+        htpm = new HTPMDFS(d, c);
+        htpm.start();
+        assertEquals(patterns("a+0<a-0", "b", "a+0<b<a-0"), htpm.getPatterns().keySet());
+        assertEquals(2 / 3., c.getMinSupport(), 0.0001);
+
+        c = new TopKSupportConstraint(d.size(), 10);
+        htpm = new HTPM(d, c);
+        htpm.start();
+        assertEquals(patterns("a+0<a-0", "b", "a+0<b<a-0", "b<a+0<a-0"), htpm.getPatterns().keySet());
+        assertEquals(1 / 3., c.getMinSupport(), 0.0001);
+    }
+
+    @Test
+    public void testParallel() {
+        final DefaultHybridEventSequenceDatabase d = database();
+        final TopKSupportConstraint c = new TopKSupportConstraint(d.size(), 3);
+        final Set<HybridTemporalPattern> output = Collections.synchronizedSet(new HashSet<>());
+
+        final HTPMFullyParallel htpm = new HTPMFullyParallel(d, c, 4);
+        htpm.addHTPMListener(new HTPMOutputListener() {
+            @Override
+            public void outputGenerated(HTPMOutputEvent event) {
+                event.getPatternOccurrenceStream().forEach(po -> output.add(po.pattern));
+            }
+
+            @Override
+            public void generationCalculated(HTPMEvent event) {
+            }
+        });
+        htpm.start();
+
+        //patterns output during mining can be pushed out of the top k later
+        assertTrue(output.containsAll(patterns("a+0<a-0", "b", "a+0<b<a-0")));
+        assertEquals(2 / 3., c.getMinSupport(), 0.0001);
+    }
+}
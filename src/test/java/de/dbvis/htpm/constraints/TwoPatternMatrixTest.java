@@ -0,0 +1,61 @@
+package de.dbvis.htpm.constraints;
+
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.htp.DefaultHybridTemporalPattern;
+import de.dbvis.htpm.util.UniqueIDConverter;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TwoPatternMatrixTest {
+
+    @Test
+    public void testFromDatabase() {
+        DefaultHybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        DefaultHybridEventSequence s = new DefaultHybridEventSequence("1");
+        s.add(new DefaultHybridEvent("a", 1, 3));
+        s.add(new DefaultHybridEvent("b", 2));
+        d.add(s);
+        s = new DefaultHybridEventSequence("2");
+        s.add(new DefaultHybridEvent("a", 0, 5));
+        s.add(new DefaultHybridEvent("b", 1));
+        d.add(s);
+        s = new DefaultHybridEventSequence("3");
+        s.add(new DefaultHybridEvent("b", 4));
+        s.add(new DefaultHybridEvent("a", 5, 6));
+        d.add(s);
+
+        final int a = UniqueIDConverter.getIntegerId("a");
+        final int b = UniqueIDConverter.getIntegerId("b");
+
+        TwoPatternMatrix matrix = TwoPatternMatrix.fromDatabase(d, 0.5);
+        //a+0<b<a-0 is supported by two sequences, the order of the arguments does not matter
+        assertTrue(matrix.contains(a, true, 0, 2, b, false, 1, -1));
+        assertTrue(matrix.contains(b, false, 1, -1, a, true, 0, 2));
+        //b<a+0<a-0 only by one
+        assertFalse(matrix.contains(a, true, 1, 2, b, false, 0, -1));
+
+        TwoPatternMatrix all = TwoPatternMatrix.fromDatabase(d, 0.3);
+        assertTrue(all.contains(a, true, 1, 2, b, false, 0, -1));
+
+        TwoPatternMatrix fromPattern = TwoPatternMatrix.fromPatterns(
+                Collections.singletonList(new DefaultHybridTemporalPattern("a+0<b<a-0")));
+        assertTrue(fromPattern.contains(a, true, 0, 2, b, false, 1, -1));
+        assertFalse(fromPattern.contains(a, true, 0, 1, b, false, 1, -1));
+    }
+
+    @Test
+    public void testSameStartIsNormalized() {
+        final int a = UniqueIDConverter.getIntegerId("a");
+
+        TwoPatternMatrix matrix = TwoPatternMatrix.fromPatterns(
+                Collections.singletonList(new DefaultHybridTemporalPattern("a+0=a+1<a-1<a-0")));
+        assertTrue(matrix.contains(a, true, 0, 2, a, true, 0, 1));
+        assertTrue(matrix.contains(a, true, 0, 1, a, true, 0, 2));
+        assertFalse(matrix.contains(a, true, 0, 1, a, true, 0, 1));
+    }
+}
@@ -0,0 +1,62 @@
+package de.dbvis.htpm.db;
+
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DefaultHybridEventSequenceDatabaseTest {
+
+	private DefaultHybridEventSequenceDatabase d;
+
+	@Before
+	public void setUp() {
+		this.d = new DefaultHybridEventSequenceDatabase();
+		for(int i = 0; i < 7; i++) {
+			this.d.add(new DefaultHybridEventSequence("s" + i));
+		}
+	}
+
+	@Test
+	public void testIndex() {
+		assertEquals("s3", this.d.getSequence("s3").getSequenceId());
+		assertEquals(3, this.d.indexOf("s3"));
+		assertSame(this.d.getSequence("s3"), this.d.getSequence(3));
+		assertNull(this.d.getSequence("x"));
+		assertEquals(-1, this.d.indexOf("x"));
+
+		this.d.remove(this.d.getSequence("s1"));
+		assertEquals(2, this.d.indexOf("s3"));
+		assertNull(this.d.getSequence("s1"));
+		assertEquals(6, this.d.getSequences().size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSequencesAreReadOnly() {
+		this.d.getSequences().add(new DefaultHybridEventSequence("x"));
+	}
+
+	@Test
+	public void testShards() {
+		final List<SequenceShard> shards = this.d.getShards(3);
+		assertEquals(3, shards.size());
+		assertEquals(2, shards.get(0).size());
+		assertEquals(2, shards.get(1).size());
+		assertEquals(3, shards.get(2).size());
+
+		int index = 0;
+		for(SequenceShard shard : shards) {
+			assertEquals(index, shard.getFrom());
+			for(HybridEventSequence seq : shard.getSequences()) {
+				assertSame(this.d.getSequence(index++), seq);
+			}
+		}
+		assertEquals(this.d.size(), index);
+
+		assertEquals(7, this.d.getShards(100).size());
+	}
+}
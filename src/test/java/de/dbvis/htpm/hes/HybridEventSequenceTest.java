@@ -1,6 +1,7 @@
 package de.dbvis.htpm.hes;
 
 import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.htp.DefaultHybridTemporalPattern;
 import de.dbvis.htpm.occurrence.DefaultOccurrence;
 import de.dbvis.htpm.occurrence.Occurrence;
 import org.junit.Before;
@@ -122,14 +123,29 @@ public final class HybridEventSequenceTest {
 		assertEquals(this.seq.occur("c"), this.seq.occur(new DefaultHybridEvent("c", 0, 1)));
 	}
 	
-	/*@Test
+	@Test
 	public void testOccurByHybridTemporalPattern() {
 		assertEquals(this.seq.occur("a"), this.seq.occur(new DefaultHybridTemporalPattern("a")));
 		assertEquals(this.seq.occur("b"), this.seq.occur(new DefaultHybridTemporalPattern("b+0<b-0")));
 		assertEquals(this.seq.occur("c"), this.seq.occur(new DefaultHybridTemporalPattern("c")));
-		assertEquals("[test(1.0,1.0,4.0), test(1.0,3.0,6.0)]", this.seq.occur(new DefaultHybridTemporalPattern("a=b+0<b-0")).toString());
+		assertEquals("[test(1.0,1.0,4.0)]", this.seq.occur(new DefaultHybridTemporalPattern("a=b+0<b-0")).toString());
+		assertEquals("[test(1.0,3.0,6.0), test(2.0,3.0,6.0)]", this.seq.occur(new DefaultHybridTemporalPattern("a<b+0<b-0")).toString());
 		assertEquals("[test(1.0,1.0,2.0,3.0,4.0,6.0)]", this.seq.occur(new DefaultHybridTemporalPattern("a=b+0<a<b+1<b-0<b-1")).toString());
-	}*/
+		assertTrue(this.seq.occur(new DefaultHybridTemporalPattern("b+0<b-0<b+1<b-1")).isEmpty());
+	}
+
+	@Test
+	public void testSupports() {
+		assertTrue(this.seq.supports(new DefaultHybridTemporalPattern("a<a<b+0<b-0")));
+		assertFalse(this.seq.supports(new DefaultHybridTemporalPattern("a<a<a")));
+
+		this.seq.add(new DefaultHybridEvent("a", 7));
+		assertTrue(this.seq.supports(new DefaultHybridTemporalPattern("a<a<a")));
+
+		for(Occurrence o : this.seq.occur(new DefaultHybridTemporalPattern("a<b+0<b-0"))) {
+			assertTrue(this.seq.isValid(o));
+		}
+	}
 
 	/*@Test
 	public void testOccurWithOccurrence() {
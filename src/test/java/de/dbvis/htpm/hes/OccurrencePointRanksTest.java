@@ -0,0 +1,38 @@
+package de.dbvis.htpm.hes;
+
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import de.dbvis.htpm.hes.events.HybridEvent;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OccurrencePointRanksTest {
+
+	@Test
+	public void testRanksFollowDefinition6() {
+		List<HybridEvent> events = Arrays.asList(
+				new DefaultHybridEvent("rankA", 1, 3),
+				new DefaultHybridEvent("rankA", 1),
+				new DefaultHybridEvent("rankB", 3),
+				new DefaultHybridEvent("rankA", 1, 4));
+
+		OccurrencePointRanks ranks = new OccurrencePointRanks(events);
+
+		//same time, id and type share one order rank
+		assertEquals(ranks.getStartOrderRank(0), ranks.getStartOrderRank(3));
+		//interval starts come before points at the same time
+		assertTrue(ranks.getStartOrderRank(0) < ranks.getStartOrderRank(1));
+		//same time, different type or id: same time rank, different order rank
+		assertEquals(ranks.getEndTimeRank(0), ranks.getStartTimeRank(2));
+		assertNotEquals(ranks.getEndOrderRank(0), ranks.getStartOrderRank(2));
+		//time decides first
+		assertTrue(ranks.getStartTimeRank(1) < ranks.getEndTimeRank(0));
+		assertTrue(ranks.getEndOrderRank(0) < ranks.getEndOrderRank(3));
+		assertTrue(ranks.getEndTimeRank(0) < ranks.getEndTimeRank(3));
+		//point events have the same rank for start and end
+		assertEquals(ranks.getStartOrderRank(2), ranks.getEndOrderRank(2));
+	}
+}
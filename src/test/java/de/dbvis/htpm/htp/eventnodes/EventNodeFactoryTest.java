@@ -0,0 +1,54 @@
+package de.dbvis.htpm.htp.eventnodes;
+
+import de.dbvis.htpm.htp.DefaultHybridTemporalPattern;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventNodeFactoryTest {
+
+	@Test
+	public void testSameValueSameInstance() {
+		assertSame(EventNodeFactory.point("a"), EventNodeFactory.point("a"));
+		assertSame(EventNodeFactory.intervalStart("a", 3), EventNodeFactory.intervalStart("a", 3));
+		assertSame(EventNodeFactory.intervalEnd("a", 200), EventNodeFactory.intervalEnd("a", 200));
+
+		assertNotSame(EventNodeFactory.intervalStart("a", 1), EventNodeFactory.intervalStart("a", 2));
+		assertNotEquals(EventNodeFactory.intervalStart("a", 1), EventNodeFactory.intervalEnd("a", 1));
+	}
+
+	@Test
+	public void testCanonicalEqualsConstructed() {
+		assertEquals(new PointEventNode("b"), EventNodeFactory.point("b"));
+		assertEquals(new IntervalStartEventNode("b", 1), EventNodeFactory.intervalStart("b", 1));
+		assertEquals(new IntervalEndEventNode("b", 1), EventNodeFactory.intervalEnd("b", 1));
+
+		assertSame(EventNodeFactory.intervalEnd("b", 2), EventNodeFactory.canonical(new IntervalEndEventNode("b", 2)));
+		assertSame(EventNodeFactory.intervalStart("b", 0),
+				EventNodeFactory.withOccurrenceMark(new IntervalStartEventNode("b", 5), 0));
+	}
+
+	@Test
+	public void testParsedPatternsShareNodes() {
+		DefaultHybridTemporalPattern p1 = new DefaultHybridTemporalPattern("a+0<b<a-0");
+		DefaultHybridTemporalPattern p2 = new DefaultHybridTemporalPattern("a+0=c<a-0");
+
+		for (EventNode node : new EventNode[]{EventNodeFactory.intervalStart("a", 0), EventNodeFactory.intervalEnd("a", 0)}) {
+			assertSame(node(p1, node), node(p2, node));
+		}
+	}
+
+	/**
+	 * Looks a node up by value, its position depends on the order in which the event ids were interned.
+	 */
+	private static EventNode node(DefaultHybridTemporalPattern p, EventNode node) {
+		final int i = p.getEventNodes().indexOf(node);
+		assertTrue(node + " is missing in " + p, i >= 0);
+		return p.getEventNodes().get(i);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeOccurrenceMark() {
+		EventNodeFactory.intervalStart("a", -1);
+	}
+}
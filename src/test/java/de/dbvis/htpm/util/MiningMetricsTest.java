@@ -0,0 +1,109 @@
+package de.dbvis.htpm.util;
+
+import de.dbvis.htpm.HTPM;
+import de.dbvis.htpm.HTPMDFS;
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+public class MiningMetricsTest {
+
+    private static HybridEventSequenceDatabase database() {
+        final HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        for (int i = 0; i < 4; i++) {
+            final HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+            s.add(new DefaultHybridEvent("a", 0, 3));
+            s.add(new DefaultHybridEvent("b", 1));
+            s.add(new DefaultHybridEvent("c", 2, 4 + i));
+            d.add(s);
+        }
+        return d;
+    }
+
+    @Test
+    public void testCountsOfRun() {
+        final HybridEventSequenceDatabase d = database();
+        final HTPM htpm = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        htpm.start();
+
+        final MiningMetrics metrics = htpm.getMetrics();
+        final long[] patternsByLevel = metrics.getPatternsByLevel();
+        //a, b, c and their combinations
+        Assert.assertEquals(3, patternsByLevel[1]);
+        Assert.assertEquals(3, patternsByLevel[2]);
+        Assert.assertEquals(1, patternsByLevel[3]);
+        Assert.assertEquals(7, metrics.getPatternsCreated());
+        Assert.assertEquals(htpm.getPatterns().size(), metrics.getPatternsCreated());
+        //the 3-pattern is joined with itself, which yields no 4-pattern
+        Assert.assertEquals(4, metrics.getCurrentLevel());
+        Assert.assertEquals(0, patternsByLevel[4]);
+        Assert.assertTrue(metrics.getJoinsAttempted() > 0);
+        Assert.assertTrue(metrics.getOccurrencePairsCompared() >= metrics.getOccurrencesCreated() - 3 * d.size());
+
+        //each pattern occurs once in each of the 4 sequences, which is bucket 3
+        Assert.assertArrayEquals(new long[]{0, 0, 0, 7}, metrics.getOccurrencesPerPatternHistogram());
+        Assert.assertEquals(7 * d.size(), metrics.getOccurrencesCreated());
+        Assert.assertTrue(Arrays.stream(metrics.getNanosByLevel()).sum() > 0);
+
+        final Map<String, Long> snapshot = metrics.getSnapshot();
+        Assert.assertEquals(Long.valueOf(7), snapshot.get("patternsCreated"));
+        Assert.assertEquals(Long.valueOf(1), snapshot.get("level3.patterns"));
+        Assert.assertEquals(Long.valueOf(7), snapshot.get("occurrencesPerPattern.upTo7"));
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getPatternsCreated());
+        Assert.assertEquals(0, metrics.getPatternsByLevel().length);
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        final MiningMetrics metrics = new MiningMetrics();
+        metrics.recordPattern(1, 5);
+        metrics.recordPruned(2);
+        metrics.setQueueDepthGauge(() -> 4);
+
+        final ObjectName name = metrics.register("test run");
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            Assert.assertEquals(1L, server.getAttribute(name, "PatternsCreated"));
+            Assert.assertEquals(2L, server.getAttribute(name, "PatternsPruned"));
+            Assert.assertEquals(4, server.getAttribute(name, "QueueDepth"));
+        } finally {
+            metrics.unregister();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testAllocatedBytesOnlyWhenEnabled() {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        final boolean enabled = threads.isThreadAllocatedMemoryEnabled();
+        try {
+            //reading the metrics does not turn the measurement on
+            threads.setThreadAllocatedMemoryEnabled(false);
+            Assert.assertEquals(0, MiningMetrics.allocatedBytes());
+            Assert.assertFalse(threads.isThreadAllocatedMemoryEnabled());
+
+            Assert.assertTrue(MiningMetrics.enableAllocatedBytes());
+            final long before = MiningMetrics.allocatedBytes();
+            final byte[] allocated = new byte[1 << 20];
+            Assert.assertTrue(MiningMetrics.allocatedBytes() - before >= allocated.length);
+        } finally {
+            threads.setThreadAllocatedMemoryEnabled(enabled);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package de.dbvis.htpm.util;
+
+import de.dbvis.htpm.HTPM;
+import de.dbvis.htpm.HTPMDFS;
+import de.dbvis.htpm.constraints.AgrawalSupportConstraint;
+import de.dbvis.htpm.db.DefaultHybridEventSequenceDatabase;
+import de.dbvis.htpm.db.HybridEventSequenceDatabase;
+import de.dbvis.htpm.hes.DefaultHybridEventSequence;
+import de.dbvis.htpm.hes.HybridEventSequence;
+import de.dbvis.htpm.hes.events.DefaultHybridEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class MiningProgressTest {
+
+    @Test
+    public void testDepthFirstEstimate() {
+        final MiningProgress progress = new MiningProgress();
+        progress.start(10, true);
+        progress.scheduled(2, 4);
+        progress.explored(2, 1000, 10, 20);
+        progress.explored(2, 1000, 10, 20);
+        //the two explored branches had two children, which had none
+        progress.scheduled(3, 2);
+        progress.explored(3, 500, 10, 0);
+        progress.explored(3, 500, 10, 0);
+
+        final MiningProgress.Snapshot snapshot = progress.snapshot();
+        Assert.assertEquals(2, snapshot.getPendingBranches(2));
+        Assert.assertEquals(0, snapshot.getPendingBranches(3));
+        Assert.assertEquals(40, snapshot.occurrencesOut[2]);
+        //2 pending branches of length 2 and their 2 expected children
+        Assert.assertEquals(4, snapshot.remainingBranches, 0.0001);
+        Assert.assertEquals(0.5, snapshot.fractionDone, 0.0001);
+        Assert.assertTrue(snapshot.remainingMillis >= 0);
+    }
+
+    @Test
+    public void testBreadthFirstEstimateUnknown() {
+        final MiningProgress progress = new MiningProgress();
+        progress.start(10, false);
+        progress.scheduled(2, 4);
+        progress.explored(2, 1000, 10, 20);
+
+        //the children of the length are not scheduled before all branches of the length are explored
+        final MiningProgress.Snapshot snapshot = progress.snapshot();
+        Assert.assertEquals(3, snapshot.getPendingBranches(2));
+        Assert.assertEquals(-1, snapshot.remainingMillis);
+        Assert.assertTrue(Double.isNaN(snapshot.fractionDone));
+    }
+
+    @Test
+    public void testRun() throws InterruptedException {
+        final HybridEventSequenceDatabase d = new DefaultHybridEventSequenceDatabase();
+        for (int i = 0; i < 4; i++) {
+            final HybridEventSequence s = new DefaultHybridEventSequence(String.valueOf(i));
+            s.add(new DefaultHybridEvent("a", 0, 3));
+            s.add(new DefaultHybridEvent("b", 1));
+            s.add(new DefaultHybridEvent("c", 2, 4 + i));
+            d.add(s);
+        }
+        final HTPM htpm = new HTPMDFS(d, new AgrawalSupportConstraint(d.size(), 0.5));
+        final CountDownLatch published = new CountDownLatch(1);
+        final ScheduledFuture<?> publishing = htpm.getProgress().publish(1, TimeUnit.MILLISECONDS,
+                snapshot -> published.countDown());
+        htpm.start();
+        Assert.assertTrue(published.await(10, TimeUnit.SECONDS));
+        publishing.cancel(false);
+
+        final MiningProgress.Snapshot snapshot = htpm.getProgress().snapshot();
+        //the 3 1-patterns, the 3 2-patterns of the partitions of a and b, and the 3-pattern
+        Assert.assertArrayEquals(new long[]{0, 0, 3, 3, 1}, Arrays.copyOf(snapshot.exploredBranches, 5));
+        for (int k = 0; k < snapshot.scheduledBranches.length; k++) {
+            Assert.assertEquals(0, snapshot.getPendingBranches(k));
+        }
+        Assert.assertEquals(0, snapshot.remainingMillis);
+        Assert.assertEquals(1, snapshot.fractionDone, 0.0001);
+    }
+}
@@ -0,0 +1,35 @@
+package de.dbvis.htpm.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UniqueIDConverterTest {
+
+	@Test
+	public void testStringOrderRanksFollowStringOrder() {
+		String[] ids = new String[]{"rankZeta", "\"rank-quoted\"", "rankAlpha", "rankBeta"};
+		int[] integerIds = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			integerIds[i] = UniqueIDConverter.getIntegerId(ids[i]);
+		}
+
+		assertEquals("\"rank-quoted\"", UniqueIDConverter.getStringId(integerIds[1]));
+
+		for (int i = 0; i < ids.length; i++) {
+			for (int j = 0; j < ids.length; j++) {
+				String first = UniqueIDConverter.getStringId(integerIds[i]);
+				String second = UniqueIDConverter.getStringId(integerIds[j]);
+				assertEquals(Integer.signum(first.compareTo(second)),
+						Integer.signum(UniqueIDConverter.compareByStringId(integerIds[i], integerIds[j])));
+			}
+		}
+
+		//adding a new id in between keeps the relative order of the others
+		int before = UniqueIDConverter.compareByStringId(integerIds[2], integerIds[3]);
+		int newId = UniqueIDConverter.getIntegerId("rankAlphaBeta");
+		assertEquals(before, UniqueIDConverter.compareByStringId(integerIds[2], integerIds[3]));
+		assertTrue(UniqueIDConverter.compareByStringId(integerIds[2], newId) < 0);
+		assertTrue(UniqueIDConverter.compareByStringId(newId, integerIds[3]) < 0);
+	}
+}